@@ -33,16 +33,19 @@ import gov.aps.jca.event.PutListener;
 
 import java.io.IOException;
 import java.io.PrintStream;
+import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.cosylab.epics.caj.impl.CAConstants;
 import com.cosylab.epics.caj.impl.CATransport;
+import com.cosylab.epics.caj.impl.PendingRequestsCounter;
 import com.cosylab.epics.caj.impl.ResponseRequest;
 import com.cosylab.epics.caj.impl.Transport;
 import com.cosylab.epics.caj.impl.TransportClient;
@@ -160,6 +163,16 @@ public class CAJChannel extends Channel implements TransportClient {
 	 */
 	protected int references = 1;
 
+	/**
+	 * Address of the server transport is being (asynchronously) connected to, <code>null</code> if not connecting.
+	 */
+	protected InetSocketAddress connectingAddress = null;
+
+	/**
+	 * Connection listeners of pending <code>connectAsync()</code> futures, <code>null</code> if none.
+	 */
+	protected ArrayList<ConnectionListener> connectFutureListeners = null;
+
 	/* ****************** */
 	/* CA protocol fields */ 
 	/* ****************** */
@@ -187,6 +200,23 @@ public class CAJChannel extends Channel implements TransportClient {
 	 */
 	protected CAJChannel(CAJContext context, int channelID, String name,
 			ConnectionListener listener, short priority) throws CAException
+	{
+		this(context, channelID, name, listener, priority, true);
+	}
+
+	/**
+	 * Constructor.
+	 * @param context CAJContext
+	 * @param channelID Client channel ID
+	 * @param name Channel name
+	 * @param listener ConnectionListener
+	 * @param priority Process priority
+	 * @param initiateSearch if <code>false</code> channel is neither registered to the context nor
+	 * 		  to the channel search manager, caller is responsible to do so (used for bulk creation).
+	 * @throws CAException JCA Exception
+	 */
+	protected CAJChannel(CAJContext context, int channelID, String name,
+			ConnectionListener listener, short priority, boolean initiateSearch) throws CAException
 	{
 		this.context = context;
 		this.channelID = channelID;
@@ -194,7 +224,8 @@ public class CAJChannel extends Channel implements TransportClient {
 		this.priority = priority;
 
 		// register before issuing search request
-		context.registerChannel(this);
+		if (initiateSearch)
+			context.registerChannel(this);
 
 		// add listener
 		if (listener != null)
@@ -207,7 +238,8 @@ public class CAJChannel extends Channel implements TransportClient {
 		}
 
 		// this has to be submitted immediately
-		initiateSearch();
+		if (initiateSearch)
+			initiateSearch();
 	}
 
 	/**
@@ -488,6 +520,24 @@ public class CAJChannel extends Channel implements TransportClient {
 
 	}
 	
+	/**
+	 * Get address of the server transport is being connected to.
+	 * @return server address, <code>null</code> if not connecting.
+	 */
+	public synchronized InetSocketAddress getConnectingAddress()
+	{
+		return connectingAddress;
+	}
+
+	/**
+	 * Set address of the server transport is being connected to.
+	 * @param connectingAddress server address, <code>null</code> when connecting is completed.
+	 */
+	public synchronized void setConnectingAddress(InetSocketAddress connectingAddress)
+	{
+		this.connectingAddress = connectingAddress;
+	}
+	
 	/**
 	 * Initiate search (connect) procedure.
 	 */
@@ -657,6 +707,17 @@ public class CAJChannel extends Channel implements TransportClient {
 					);
 				}
 			}
+
+			// complete connect futures (via event dispatcher, not to be completed holding the lock)
+			if (connectFutureListeners != null &&
+				(connectionState == ConnectionState.CONNECTED || connectionState == ConnectionState.CLOSED))
+			{
+				context.getEventDispatcher().dispatch(
+					new ConnectionEvent(this, connectionStatusToReport),
+					connectFutureListeners
+				);
+				connectFutureListeners = null;
+			}
 		}
 	}
 	
@@ -913,57 +974,101 @@ public class CAJChannel extends Channel implements TransportClient {
 		// sync get requires predefined count; variable length array not possible
 		if (count <= 0)
 			throw new IllegalArgumentException("count <= 0");
-		
-		if (!getReadAccess())
-			throw new CAException("No read access rights granted."); 
 
-		Transport t = getTransport();
-		if (t != null)
-		{
-			try
-			{
-				DBR retVal = DBRFactory.create(type, count);
-				new ReadNotifyRequest(this, null, retVal, t, getServerChannelID(), type.getValue(), count).submit();
-				return retVal;
-			}
-			catch (IOException ioex)
-			{
-				throw new CAException("Failed to retrieve value.", ioex);
-			} 
-		}
-		else
-			throw new IllegalStateException("No channel transport available, channel disconnected.");
+		DBR retVal = DBRFactory.create(type, count);
+		get(retVal, type, count, context.getPendingRequests());
+		return retVal;
 	}
 
 	public DBR get(DBR preallocatedDBR, DBRType type, int count)
-	throws CAException, IllegalStateException {
-	connectionRequiredCheck();
+		throws CAException, IllegalStateException {
+		get(preallocatedDBR, type, count, context.getPendingRequests());
+		return preallocatedDBR;
+	}
 
-	if (!getReadAccess())
-		throw new CAException("No read access rights granted."); 
+	/**
+	 * @see gov.aps.jca.Channel#get(gov.aps.jca.dbr.DBRType, int, gov.aps.jca.event.GetListener)
+	 */
+	public void get(DBRType type, int count, GetListener l)
+		throws CAException, IllegalStateException {
+		get(l, null, null, type, count, null);
+	}
 
-	Transport t = getTransport();
-	if (t != null)
-	{
+	/**
+	 * Asynchronous get of native type and element count.
+	 * @return future of the value.
+	 * @see #getAsync(DBRType, int)
+	 */
+	public CompletableFuture<DBR> getAsync() {
+		return getAsync(getFieldType(), getElementCount());
+	}
+
+	/**
+	 * Asynchronous get, request is sent immediately (does not wait for <code>flushIO()</code>)
+	 * and does not use context pending IO (i.e. <code>pendIO()</code>).
+	 * Future is completed directly by the thread processing the response, use <code>*Async</code> continuations
+	 * for time consuming work. Failures (including channel destruction, disconnect) complete the future exceptionally
+	 * (<code>CAStatusException</code> for CA failures).
+	 * @param type requested type.
+	 * @param count requested element count, 0 means native (server) element count.
+	 * @return future of the value.
+	 */
+	public CompletableFuture<DBR> getAsync(DBRType type, int count) {
+		final CompletableFuture<DBR> future = new CompletableFuture<DBR>();
 		try
 		{
-			DBR retVal = preallocatedDBR; //DBRFactory.create(type, count);
-			new ReadNotifyRequest(this, null, retVal, t, getServerChannelID(), type.getValue(), count).submit();
-			return retVal;
+			getAsync(type, count, future).flush();
 		}
-		catch (IOException ioex)
+		catch (Throwable th)
 		{
-			throw new CAException("Failed to retrieve value.", ioex);
-		} 
+			future.completeExceptionally(th);
+		}
+		return future;
 	}
-	else
-		throw new IllegalStateException("No channel transport available, channel disconnected.");
-}
 
 	/**
-	 * @see gov.aps.jca.Channel#get(gov.aps.jca.dbr.DBRType, int, gov.aps.jca.event.GetListener)
+	 * Submit (but do not flush) get request completing given future.
+	 * @param type requested type.
+	 * @param count requested element count.
+	 * @param future future to complete.
+	 * @return transport used, to be flushed.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException No channel transport available, channel disconnected.
 	 */
-	public void get(DBRType type, int count, GetListener l)
+	Transport getAsync(DBRType type, int count, CompletableFuture<DBR> future)
+		throws CAException, IllegalStateException {
+		return get(null, future, null, type, count, null);
+	}
+
+	/**
+	 * Submit (but do not flush) sync. get request tracked by given pending requests counter (sync. group).
+	 * @param dbr DBR to be set.
+	 * @param type requested type.
+	 * @param count requested element count.
+	 * @param pendingRequests pending requests counter.
+	 * @return transport used, to be flushed.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException No channel transport available, channel disconnected.
+	 */
+	Transport get(DBR dbr, DBRType type, int count, PendingRequestsCounter pendingRequests)
+		throws CAException, IllegalStateException {
+		return get(null, null, dbr, type, count, pendingRequests);
+	}
+
+	/**
+	 * Submit (but do not flush) get request, common to all the get variants.
+	 * @param l get listener, <code>null</code> if none.
+	 * @param future future to complete, <code>null</code> if none.
+	 * @param dbr DBR to be set (sync. request), <code>null</code> if none.
+	 * @param type requested type.
+	 * @param count requested element count.
+	 * @param pendingRequests pending requests counter of sync. request, <code>null</code> for context's one.
+	 * @return transport used, to be flushed.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException No channel transport available, channel disconnected.
+	 */
+	private Transport get(GetListener l, CompletableFuture<DBR> future, DBR dbr, DBRType type, int count,
+						  PendingRequestsCounter pendingRequests)
 		throws CAException, IllegalStateException {
 		connectionRequiredCheck();
 
@@ -975,10 +1080,8 @@ public class CAJChannel extends Channel implements TransportClient {
 		{
 			try
 			{
-                if (count == 0 && t.getMinorRevision() < 13)
-                    count = getElementCount();
-
-                new ReadNotifyRequest(this, l, null, t, getServerChannelID(), type.getValue(), count).submit();
+				new ReadNotifyRequest(this, l, future, dbr, t, getServerChannelID(), type.getValue(), count, pendingRequests).submit();
+				return t;
 			}
 			catch (IOException ioex)
 			{
@@ -990,46 +1093,35 @@ public class CAJChannel extends Channel implements TransportClient {
 	}
 
 	/**
-	 * Put value.
+	 * Submit (but do not flush) put request tracked by given pending requests counter (sync. group).
 	 * @param type DBRType
-	 * @param count count
-	 * @param value value to be put
+	 * @param count data count 
+	 * @param value value to put
+	 * @param pendingRequests pending requests counter.
+	 * @return transport used, to be flushed.
 	 * @throws CAException JCA Exception
 	 * @throws IllegalStateException No channel transport available, channel disconnected.
 	 */
-	public void put(DBRType type, int count, Object value)
+	Transport put(DBRType type, int count, Object value, PendingRequestsCounter pendingRequests)
 		throws CAException, IllegalStateException {
-		connectionRequiredCheck();
-
-		if (!getWriteAccess())
-			throw new CAException("No write access rights granted."); 
-
-		Transport t = getTransport();
-		if (t != null)
-		{
-			try
-			{
-				new WriteRequest(this, t, getServerChannelID(), channelID, type.getValue(), count, value).submit();
-			}
-			catch (IOException ioex)
-			{
-				throw new CAException("Failed to set value.", ioex);
-			} 
-		}
-		else
-			throw new IllegalStateException("No channel transport available, channel disconnected.");
+		return put(null, null, type, count, value, pendingRequests);
 	}
 
 	/**
-	 * Put value.
+	 * Submit (but do not flush) put request, common to all the put variants.
+	 * Put w/o listener, future and pending requests counter is sent as a (not acknowledged) write request.
+	 * @param l put listener, <code>null</code> if none.
+	 * @param future future to complete, <code>null</code> if none.
 	 * @param type DBRType
 	 * @param count data count 
 	 * @param value value to put
-	 * @param l PutListener
+	 * @param pendingRequests pending requests counter, <code>null</code> if not tracked.
+	 * @return transport used, to be flushed.
 	 * @throws CAException JCA Exception
 	 * @throws IllegalStateException No channel transport available, channel disconnected.
 	 */
-	public void put(DBRType type, int count, Object value, PutListener l)
+	private Transport put(PutListener l, CompletableFuture<CAStatus> future, DBRType type, int count, Object value,
+						  PendingRequestsCounter pendingRequests)
 		throws CAException, IllegalStateException {
 		connectionRequiredCheck();
 		
@@ -1041,10 +1133,11 @@ public class CAJChannel extends Channel implements TransportClient {
 		{
 			try
 			{
-				if (l == null)
+				if (l == null && future == null && pendingRequests == null)
 					new WriteRequest(this, t, getServerChannelID(), channelID, type.getValue(), count, value).submit();
 				else
-					new WriteNotifyRequest(this, l, t, getServerChannelID(), type.getValue(), count, value).submit();
+					new WriteNotifyRequest(this, l, future, t, getServerChannelID(), type.getValue(), count, value, pendingRequests).submit();
+				return t;
 			}
 			catch (IOException ioex)
 			{
@@ -1053,7 +1146,82 @@ public class CAJChannel extends Channel implements TransportClient {
 		}
 		else
 			throw new IllegalStateException("No channel transport available, channel disconnected.");
+	}
 
+	/**
+	 * Asynchronous put (put with completion callback), request is sent immediately.
+	 * Future is completed directly by the thread processing the response (with response status),
+	 * failures complete the future exceptionally (<code>CAStatusException</code> for CA failures).
+	 * @param type DBRType
+	 * @param count data count 
+	 * @param value value to put
+	 * @return future of the put completion.
+	 */
+	public CompletableFuture<CAStatus> putAsync(DBRType type, int count, Object value) {
+		final CompletableFuture<CAStatus> future = new CompletableFuture<CAStatus>();
+		try
+		{
+			put(null, future, type, count, value, null).flush();
+		}
+		catch (Throwable th)
+		{
+			future.completeExceptionally(th);
+		}
+		return future;
+	}
+
+	/**
+	 * Future completing when channel gets connected (immediately, if already connected).
+	 * Future is completed exceptionally if channel gets destroyed before connected.
+	 * @return future of this channel.
+	 */
+	public synchronized CompletableFuture<Channel> connectAsync() {
+		final CompletableFuture<Channel> future = new CompletableFuture<Channel>();
+		if (connectionState == ConnectionState.CONNECTED)
+			future.complete(this);
+		else if (connectionState == ConnectionState.CLOSED)
+			future.completeExceptionally(new IllegalStateException("Channel closed."));
+		else
+		{
+			if (connectFutureListeners == null)
+				connectFutureListeners = new ArrayList<ConnectionListener>();
+			connectFutureListeners.add(new ConnectionListener() {
+				public void connectionChanged(ConnectionEvent event) {
+					if (event.isConnected())
+						future.complete(CAJChannel.this);
+					else
+						future.completeExceptionally(new IllegalStateException("Channel closed."));
+				}
+			});
+		}
+		return future;
+	}
+
+	/**
+	 * Put value.
+	 * @param type DBRType
+	 * @param count count
+	 * @param value value to be put
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException No channel transport available, channel disconnected.
+	 */
+	public void put(DBRType type, int count, Object value)
+		throws CAException, IllegalStateException {
+		put(null, null, type, count, value, null);
+	}
+
+	/**
+	 * Put value.
+	 * @param type DBRType
+	 * @param count data count 
+	 * @param value value to put
+	 * @param l PutListener
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException No channel transport available, channel disconnected.
+	 */
+	public void put(DBRType type, int count, Object value, PutListener l)
+		throws CAException, IllegalStateException {
+		put(l, null, type, count, value, null);
 	}
 
 	/**
@@ -0,0 +1,162 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.Channel;
+import gov.aps.jca.event.ConnectionEvent;
+import gov.aps.jca.event.ConnectionListener;
+
+/**
+ * Future of a bulk channel creation (<code>CAJContext.createChannels()</code>).
+ * Channels are available immediately via <code>getChannels()</code>, the future completes
+ * (with the same channels) when quorum of (distinct) channels has connected (at least once).
+ * Connection listener of the future is removed from the channels once the future is done (completed or cancelled).
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ * @see CAJContext#createChannels(java.util.Collection, ConnectionListener, short, int)
+ */
+public class CAJChannelsFuture extends CompletableFuture<Channel[]> {
+
+	/**
+	 * Channels (in order of requested names).
+	 */
+	private final Channel[] channels;
+
+	/**
+	 * Number of distinct channels that need to connect.
+	 */
+	private final int quorum;
+
+	/**
+	 * Number of connected distinct channels.
+	 */
+	private final AtomicInteger connectedCount = new AtomicInteger();
+
+	/**
+	 * Set of already connected channels.
+	 */
+	private final Set<Object> connectedChannels;
+
+	/**
+	 * Distinct channels.
+	 */
+	private final Channel[] distinctChannels;
+
+	/**
+	 * Connection listener (added to all the distinct channels until the future is done).
+	 */
+	private final ConnectionListener connectionListener = new ConnectionListener() {
+		public void connectionChanged(ConnectionEvent event) {
+			if (event.isConnected() && !isDone())
+			{
+				boolean firstConnect;
+				synchronized (connectedChannels) {
+					firstConnect = connectedChannels.add(event.getSource());
+				}
+				if (firstConnect && connectedCount.incrementAndGet() >= quorum)
+					complete(channels);
+			}
+		}
+	};
+
+	/**
+	 * Constructor.
+	 * @param channels channels (in order of requested names).
+	 * @param quorum number of channels that need to connect, limited to the number of distinct channels.
+	 */
+	CAJChannelsFuture(Channel[] channels, int quorum) {
+		this.channels = channels;
+
+		Map<Channel, Boolean> distinct = new IdentityHashMap<Channel, Boolean>(channels.length);
+		for (int i = 0; i < channels.length; i++)
+			distinct.put(channels[i], Boolean.TRUE);
+		this.distinctChannels = distinct.keySet().toArray(new Channel[distinct.size()]);
+		this.quorum = Math.min(quorum, distinctChannels.length);
+
+		this.connectedChannels = Collections.newSetFromMap(new IdentityHashMap<Object, Boolean>(this.quorum));
+
+		if (this.quorum == 0)
+			complete(channels);
+	}
+
+	/**
+	 * Add connection listener to all the distinct channels, listener is removed when the future is done.
+	 * @throws CAException JCA Exception
+	 */
+	void addConnectionListeners() throws CAException {
+		if (isDone())
+			return;
+
+		for (int i = 0; i < distinctChannels.length; i++)
+			((CAJChannel)distinctChannels[i]).addConnectionListenerAndFireIfConnected(connectionListener);
+
+		// also invoked immediately if already done
+		whenComplete(new BiConsumer<Channel[], Throwable>() {
+			public void accept(Channel[] result, Throwable failure) {
+				removeConnectionListeners();
+			}
+		});
+	}
+
+	/**
+	 * Remove connection listener from all the distinct channels.
+	 */
+	private void removeConnectionListeners() {
+		for (int i = 0; i < distinctChannels.length; i++)
+		{
+			try {
+				distinctChannels[i].removeConnectionListener(connectionListener);
+			} catch (CAException cae) {
+				// noop
+			} catch (IllegalStateException ise) {
+				// destroyed channel, listeners already released
+			}
+		}
+	}
+
+	/**
+	 * Get channels (in order of requested names).
+	 * @return channels.
+	 */
+	public Channel[] getChannels() {
+		return channels.clone();
+	}
+
+	/**
+	 * Get quorum, i.e. number of (distinct) channels that need to connect to complete the future.
+	 * @return quorum.
+	 */
+	public int getQuorum() {
+		return quorum;
+	}
+
+	/**
+	 * Get number of (distinct) channels connected (at least once) so far.
+	 * @return number of connected channels.
+	 */
+	public int getConnectedCount() {
+		return connectedCount.get();
+	}
+
+}
@@ -16,6 +16,7 @@ package com.cosylab.epics.caj;
 
 import gov.aps.jca.CAException;
 import gov.aps.jca.Channel;
+import gov.aps.jca.Channel.ConnectionState;
 import gov.aps.jca.Context;
 import gov.aps.jca.JCALibrary;
 import gov.aps.jca.TimeoutException;
@@ -23,6 +24,8 @@ import gov.aps.jca.Version;
 import gov.aps.jca.configuration.Configurable;
 import gov.aps.jca.configuration.Configuration;
 import gov.aps.jca.configuration.ConfigurationException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.event.ConnectionListener;
 import gov.aps.jca.event.ContextExceptionEvent;
 import gov.aps.jca.event.ContextExceptionListener;
@@ -38,8 +41,19 @@ import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
@@ -57,18 +71,21 @@ import com.cosylab.epics.caj.impl.CATransport;
 import com.cosylab.epics.caj.impl.CATransportRegistry;
 import com.cosylab.epics.caj.impl.CachedByteBufferAllocator;
 import com.cosylab.epics.caj.impl.ChannelSearchManager;
+import com.cosylab.epics.caj.impl.ConnectCallback;
 import com.cosylab.epics.caj.impl.ConnectionException;
+import com.cosylab.epics.caj.impl.PendingRequestsCounter;
 import com.cosylab.epics.caj.impl.RepeaterRegistrationTask;
 import com.cosylab.epics.caj.impl.ResponseRequest;
 import com.cosylab.epics.caj.impl.Transport;
 import com.cosylab.epics.caj.impl.TransportClient;
 import com.cosylab.epics.caj.impl.reactor.Reactor;
+import com.cosylab.epics.caj.impl.reactor.ReactorGroup;
 import com.cosylab.epics.caj.impl.reactor.ReactorHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersThreadPool;
 import com.cosylab.epics.caj.impl.sync.NamedLockPattern;
 import com.cosylab.epics.caj.util.InetAddressUtil;
-import com.cosylab.epics.caj.util.IntHashMap;
+import com.cosylab.epics.caj.util.ConcurrentIntHashMap;
 import com.cosylab.epics.caj.util.Timer;
 import com.cosylab.epics.caj.util.logging.ConsoleLogHandler;
 
@@ -186,6 +203,28 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	protected float maxSearchInterval = (float) 60.0 * 5;
 
+	/**
+	 * Use sharded reactors flag, i.e. TCP transports are served by a group of reactors
+	 * (each processed by its own thread) instead of a single leader/followers reactor.
+	 */
+	protected boolean shardedReactor = false;
+
+	/**
+	 * Number of reactor shards, 0 means number of available processors.
+	 */
+	protected int reactorShards = 0;
+
+	/**
+	 * Use blocking I/O flag, i.e. each TCP transport is served by its own reader and writer task
+	 * (instead of the reactor).
+	 */
+	protected boolean blockingIO = false;
+
+	/**
+	 * Use virtual threads for blocking I/O (if supported by the JVM).
+	 */
+	protected boolean blockingIOVirtualThreads = true;
+
 	/**
 	 * List of context message listeners.
 	 */
@@ -214,6 +253,16 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	protected Reactor reactor = null;
 
+	/**
+	 * Reactor group (shards) serving TCP transports, <code>null</code> if not used.
+	 */
+	protected ReactorGroup reactorGroup = null;
+
+	/**
+	 * Executor running blocking I/O (reader and writer) tasks of TCP transports, <code>null</code> if not used.
+	 */
+	protected ExecutorService blockingIOExecutor = null;
+
 	/**
 	 * Leader/followers thread pool.
 	 */
@@ -254,58 +303,58 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	protected CachedByteBufferAllocator cachedBufferAllocator = new CachedByteBufferAllocator();
 
 	/**
-	 * Context instance.
+	 * Named (per channel name) lock.
 	 */
-	private NamedLockPattern namedLocker;
+	protected NamedLockPattern namedLocker;
 
 	/**
-	 * Context instance.
+	 * Default named lock timeout.
 	 */
 	private static final int LOCK_TIMEOUT = 20 * 1000;	// 20s
 
 	/**
-	 * Map of channels (keys are CIDs).
+	 * Named lock timeout (ms).
+	 */
+	protected long lockTimeout = LOCK_TIMEOUT;
+
+	/**
+	 * Map of channels (keys are CIDs), lock-free reads.
 	 */
 	// TODO consider using WeakHashMap (and call Channel.destroy() in finalize() method).
-	protected IntHashMap channelsByCID = new IntHashMap();
+	protected ConcurrentIntHashMap channelsByCID = new ConcurrentIntHashMap();
 
 	/**
-	 * Map of channels (keys are names).
+	 * Map of channels (keys are names), lock-free reads.
 	 */
 	// TODO consider using WeakHashMap (and call Channel.destroy() in finalize() method).
-	protected Map channelsByName = new HashMap();
+	protected Map channelsByName = new ConcurrentHashMap();
 
 	/**
 	 * Last CID cache. 
 	 */
-	private int lastCID = 0;
+	private final AtomicInteger lastCID = new AtomicInteger(0);
 
 	/**
-	 * Map of pending response requests (keys are IOID).
+	 * Map of pending response requests (keys are IOID), lock-free reads.
 	 */
 	// TODO consider using WeakHashMap (and call ResponseRequest.destroy() in finalize() method).
-	protected IntHashMap pendingResponseRequests = new IntHashMap();
+	protected ConcurrentIntHashMap pendingResponseRequests = new ConcurrentIntHashMap();
 
 	/**
 	 * Last IOID cache. 
 	 */
-	private int lastIOID = 0;
+	private final AtomicInteger lastIOID = new AtomicInteger(0);
 
 
 	/**
-	 * Pending requests (get, create channel) counter. 
+	 * Pending requests (get, create channel) counter, i.e. scope of <code>pendIO()</code>. 
 	 */
-	private AtomicInteger pendingRequestsCount = new AtomicInteger(0);
+	private final PendingRequestsCounter pendingRequests = new PendingRequestsCounter();
 
 	/**
-	 * IO sequence number (to prevent future IO request to interfere with current pendIO). 
+	 * Sync. groups (weak references), disposed on context destruction.
 	 */
-	private AtomicInteger sequenceNumberIO = new AtomicInteger(0);
-
-	/**
-	 * Zelo pending requests condition - triggered when counter drops to 0. 
-	 */
-	private Object zeroPendingRequestsCondition = new Object();
+	private final Set<CAJSyncGroup> syncGroups = Collections.newSetFromMap(new WeakHashMap<CAJSyncGroup, Boolean>());
 
 	/**
 	 * Channel search manager.
@@ -503,6 +552,11 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 			minSearchInterval = jcaLibrary.getPropertyAsFloat(thisClassName + ".min_search_interval", minSearchInterval);
 			maxSearchInterval = jcaLibrary.getPropertyAsFloat(thisClassName + ".max_search_interval", maxSearchInterval);
 	    }
+
+		shardedReactor = jcaLibrary.getPropertyAsBoolean(thisClassName + ".sharded_reactor", shardedReactor);
+		reactorShards = jcaLibrary.getPropertyAsInt(thisClassName + ".reactor_shards", reactorShards);
+		blockingIO = jcaLibrary.getPropertyAsBoolean(thisClassName + ".blocking_io", blockingIO);
+		blockingIOVirtualThreads = jcaLibrary.getPropertyAsBoolean(thisClassName + ".blocking_io_virtual_threads", blockingIOVirtualThreads);
 			
 		eventDispatcherClassName = jcaLibrary.getProperty(thisClassName + ".event_dispatcher", eventDispatcherClassName);
 		if (eventDispatcherClassName != null)
@@ -587,6 +641,34 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 				maxSearchInterval = configuration.getAttributeAsFloat("max_search_interval", maxSearchInterval);
 			}
 
+			// sharded reactor
+			try {
+				shardedReactor = configuration.getChild("sharded_reactor", false).getValueAsBoolean();
+			} catch(Exception ex) {
+				shardedReactor = configuration.getAttributeAsBoolean("sharded_reactor", shardedReactor);
+			}
+
+			// number of reactor shards
+			try {
+				reactorShards = configuration.getChild("reactor_shards", false).getValueAsInteger();
+			} catch(Exception ex) {
+				reactorShards = configuration.getAttributeAsInteger("reactor_shards", reactorShards);
+			}
+
+			// blocking I/O
+			try {
+				blockingIO = configuration.getChild("blocking_io", false).getValueAsBoolean();
+			} catch(Exception ex) {
+				blockingIO = configuration.getAttributeAsBoolean("blocking_io", blockingIO);
+			}
+
+			// blocking I/O virtual threads
+			try {
+				blockingIOVirtualThreads = configuration.getChild("blocking_io_virtual_threads", false).getValueAsBoolean();
+			} catch(Exception ex) {
+				blockingIOVirtualThreads = configuration.getAttributeAsBoolean("blocking_io_virtual_threads", blockingIOVirtualThreads);
+			}
+
 			// event dispathcer
 			Configuration conf = configuration.getChild("event_dispatcher", false);
 			if (conf != null)
@@ -766,6 +848,9 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 			CARepeater.startRepeater(repeaterPort);
 		} catch (Throwable th) { /* noop */ }
 		
+		// pool buffers up to the largest message (payload + extended header)
+		cachedBufferAllocator.setMaxBufferSize(maxArrayBytes + CAConstants.CA_EXTENDED_MESSAGE_HEADER_SIZE);
+
 		timer = new Timer();
 		connector = new CAConnector(this);
 		transportRegistry = new CATransportRegistry();
@@ -809,6 +894,15 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 				);
 			}
 			
+			// TCP transports are served by blocking I/O tasks or by sharded reactors
+			if (blockingIO)
+				blockingIOExecutor = createBlockingIOExecutor();
+			else if (shardedReactor)
+			{
+				reactorGroup = new ReactorGroup(reactorShards, "CA reactor");
+			    logger.config("Using " + reactorGroup.size() + " reactor shards.");
+			}
+			
 		}
 		catch (IOException ioex)
 		{
@@ -823,6 +917,42 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		channelSearchManager = new ChannelSearchManager(this);
 	}
 
+	/**
+	 * Create blocking I/O executor (one thread per task),
+	 * virtual thread per task executor if enabled and supported, cached thread pool otherwise.
+	 * @return blocking I/O executor.
+	 */
+	private ExecutorService createBlockingIOExecutor()
+	{
+		if (blockingIOVirtualThreads)
+		{
+			try
+			{
+				// JDK 21+, reflection is used to keep JDK 8 compatibility
+				ExecutorService executor = (ExecutorService)
+					Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				logger.config("Using blocking I/O on virtual threads.");
+				return executor;
+			} catch (Throwable th) {
+				logger.config("Virtual threads not supported, using blocking I/O on platform threads.");
+			}
+		}
+		else
+			logger.config("Using blocking I/O on platform threads.");
+		
+		ThreadFactory threadFactory = new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger(0);
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "CA transport I/O " + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		
+		// two long-running tasks per transport
+		return Executors.newCachedThreadPool(threadFactory);
+	}
+
 	private void initializeNameServers() {
 
 		InetSocketAddress[] list = InetAddressUtil.getSocketAddressList(nameServersList, serverPort, null);
@@ -955,9 +1085,12 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		//
 		
 		// stop waiting
-		synchronized (zeroPendingRequestsCondition)
+		pendingRequests.dispose();
+		synchronized (syncGroups)
 		{
-			zeroPendingRequestsCondition.notifyAll();
+			for (CAJSyncGroup syncGroup : syncGroups)
+				syncGroup.getPendingRequests().dispose();
+			syncGroups.clear();
 		}
 
 		// this will also close all CA transports
@@ -966,10 +1099,19 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		// shutdown reactor
 		if (reactor != null)
 			reactor.shutdown();
+		if (reactorGroup != null)
+			reactorGroup.shutdown();
+		
+		// transports are already closed (tasks done)
+		if (blockingIOExecutor != null)
+			blockingIOExecutor.shutdown();
 		
 		// shutdown LF thread pool
 		if (leaderFollowersThreadPool != null)
 		    leaderFollowersThreadPool.shutdown();
+
+		// release pooled buffers
+		cachedBufferAllocator.reclaim();
 		
 		// TODO still some events can be in queue (e.g. channel destroyed)
 		// reposibility of the event dispatcher?
@@ -995,11 +1137,8 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	private void destroyAllChannels() {
 		
 		Channel[] channelsArray = getChannels();
-		synchronized (channelsByCID)
-		{
-			channelsByCID.clear();
-			channelsByName.clear();
-		}
+		channelsByCID.clear();
+		channelsByName.clear();
 		
 		for (int i = 0; i < channelsArray.length; i++)
 		{
@@ -1022,10 +1161,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		throws CAException, IllegalStateException {
 		checkState();
 		
-		if (name == null || name.getBytes().length == 0)
-			throw new IllegalArgumentException("null or empty channel name");
-		else if (name.getBytes().length > Math.min(CAConstants.MAX_UDP_SEND - CAConstants.CA_MESSAGE_HEADER_SIZE, 0xFFFF))
-			throw new CAException("name too long");
+		checkChannelName(name);
 		
 		if (priority < Channel.PRIORITY_MIN || priority > Channel.PRIORITY_MAX)
 			throw new IllegalArgumentException("priority out of bounds");
@@ -1039,7 +1175,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 			return channel;
 		}
 			
-		boolean lockAcquired = namedLocker.acquireSynchronizationObject(name, LOCK_TIMEOUT);
+		boolean lockAcquired = namedLocker.acquireSynchronizationObject(name, lockTimeout);
 		if (lockAcquired)
 		{ 
 			try
@@ -1069,6 +1205,177 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		}
 	}
 	
+	/**
+	 * Check channel name.
+	 * @param name channel name.
+	 * @throws CAException if name is too long.
+	 * @throws IllegalArgumentException if name is <code>null</code> or empty.
+	 */
+	private static void checkChannelName(String name) throws CAException
+	{
+		if (name == null || name.getBytes().length == 0)
+			throw new IllegalArgumentException("null or empty channel name");
+		else if (name.getBytes().length > Math.min(CAConstants.MAX_UDP_SEND - CAConstants.CA_MESSAGE_HEADER_SIZE, 0xFFFF))
+			throw new CAException("name too long");
+	}
+
+	/**
+	 * Create channels, future completes when all the channels connect.
+	 * @param names channel names.
+	 * @param l connection listener to be added to all the channels, can be <code>null</code>.
+	 * @return future of channels.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException Signals that a method has been invoked at an illegal or inappropriate time
+	 * @see #createChannels(Collection, ConnectionListener, short, int)
+	 */
+	public CAJChannelsFuture createChannels(Collection<String> names, ConnectionListener l)
+		throws CAException, IllegalStateException {
+		return createChannels(names, l, Channel.PRIORITY_DEFAULT);
+	}
+	
+	/**
+	 * Create channels, future completes when all the channels connect.
+	 * @param names channel names.
+	 * @param l connection listener to be added to all the channels, can be <code>null</code>.
+	 * @param priority channel priority.
+	 * @return future of channels.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException Signals that a method has been invoked at an illegal or inappropriate time
+	 * @see #createChannels(Collection, ConnectionListener, short, int)
+	 */
+	public CAJChannelsFuture createChannels(Collection<String> names, ConnectionListener l, short priority)
+		throws CAException, IllegalStateException {
+		return createChannels(names, l, priority, names.size());
+	}
+
+	/**
+	 * Create channels (bulk version of <code>createChannel()</code>).
+	 * New channels are registered at once and their search requests are
+	 * issued at the same time, i.e. packed densely into search frames.
+	 * Channels are available immediately via <code>CAJChannelsFuture.getChannels()</code> (in order of given names,
+	 * the same name results in the same (shared) channel), future completes when quorum of the channels connect.
+	 * @param names channel names.
+	 * @param l connection listener to be added to all the channels, can be <code>null</code> (then <code>pendIO()</code> can be used).
+	 * @param priority channel priority.
+	 * @param quorum number of channels required to connect to complete the future, 0 &le; quorum &le; <code>names.size()</code>.
+	 * @return future of channels.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException Signals that a method has been invoked at an illegal or inappropriate time
+	 */
+	public CAJChannelsFuture createChannels(Collection<String> names, ConnectionListener l, short priority, int quorum)
+		throws CAException, IllegalStateException {
+		checkState();
+		
+		if (names == null)
+			throw new IllegalArgumentException("names == null");
+
+		String[] channelNames = names.toArray(new String[names.size()]);
+		for (int i = 0; i < channelNames.length; i++)
+			checkChannelName(channelNames[i]);
+		
+		if (priority < Channel.PRIORITY_MIN || priority > Channel.PRIORITY_MAX)
+			throw new IllegalArgumentException("priority out of bounds");
+		
+		if (quorum < 0 || quorum > channelNames.length)
+			throw new IllegalArgumentException("quorum out of bounds");
+
+		final int count = channelNames.length;
+		final boolean shareChannels = !doNotShareChannels.get();
+		CAJChannel[] channels = new CAJChannel[count];
+		CAJChannel[] newChannels = new CAJChannel[count];
+		int newCount = 0;
+
+		// index of the first occurrence of the name (the same name, the same channel) 
+		int[] firstIndex = new int[count];
+		Map<String, Integer> firstOccurrence = new HashMap<String, Integer>();
+		
+		// lookup for existing channels
+		for (int i = 0; i < count; i++)
+		{
+			firstIndex[i] = i;
+			if (shareChannels)
+			{
+				Integer first = firstOccurrence.putIfAbsent(channelNames[i], i);
+				if (first != null)
+				{
+					firstIndex[i] = first;
+					continue;
+				}
+			}
+			channels[i] = getChannel(channelNames[i], priority, true);
+		}
+		
+		// create and register new channels
+		boolean[] created = new boolean[count];
+		for (int i = 0; i < count; i++)
+		{
+			if (firstIndex[i] != i || channels[i] != null)
+				continue;
+			
+			final String name = channelNames[i];
+			if (shareChannels && !namedLocker.acquireSynchronizationObject(name, lockTimeout))
+			{
+				// release all the channels acquired (also the existing ones after this index) or created so far
+				// (created ones are registered first to keep search accounting consistent)
+				if (newCount > 0)
+					channelSearchManager.registerChannels(newChannels, newCount);
+				for (int j = 0; j < count; j++)
+					if (firstIndex[j] == j && channels[j] != null)
+						destroyChannel(channels[j], false);
+				throw new CAException("Failed to obtain synchronization lock for '" + name + "', possible deadlock.", null);
+			}
+			
+			CAJChannel channel;
+			try
+			{
+				// lookup, create and publish under the same named lock as createChannel()
+				if (shareChannels)
+				{
+					// created concurrently by someone else
+					CAJChannel existing = getChannel(name, priority, true);
+					if (existing != null)
+					{
+						channels[i] = existing;
+						continue;
+					}
+				}
+				
+				channel = new CAJChannel(this, generateCID(), name, l, priority, false);
+				registerChannel(channel);
+			}
+			finally
+			{
+				if (shareChannels)
+					namedLocker.releaseSynchronizationObject(name);
+			}
+			
+			channels[i] = channel;
+			created[i] = true;
+			newChannels[newCount++] = channel;
+		}
+		
+		// duplicates, existing channels
+		for (int i = 0; i < count; i++)
+		{
+			if (firstIndex[i] != i)
+			{
+				channels[i] = channels[firstIndex[i]];
+				channels[i].acquire();
+			}
+
+			if (!created[i] && l != null)
+				channels[i].addConnectionListenerAndFireIfConnected(l);
+		}
+		
+		CAJChannelsFuture future = new CAJChannelsFuture(channels, quorum);
+		future.addConnectionListeners();
+
+		// issue search requests
+		channelSearchManager.registerChannels(newChannels, newCount);
+		
+		return future;
+	}
+
 	/**
 	 * Destroy channel.
 	 * @param channel CAJChannel
@@ -1079,7 +1386,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	public void destroyChannel(CAJChannel channel, boolean force)
 		throws CAException, IllegalStateException {
 			
-		boolean lockAcquired = namedLocker.acquireSynchronizationObject(channel.getName(), LOCK_TIMEOUT);
+		boolean lockAcquired = namedLocker.acquireSynchronizationObject(channel.getName(), lockTimeout);
 		if (lockAcquired)
 		{ 
 			try
@@ -1108,12 +1415,9 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	void registerChannel(CAJChannel channel)
 	{
-		synchronized (channelsByCID)
-		{
-			channelsByCID.put(channel.getChannelID(), channel);
-			if (!doNotShareChannels.get())
-				channelsByName.put(getUniqueChannelName(channel.getName(), channel.getPriority()), channel);
-		}
+		channelsByCID.put(channel.getChannelID(), channel);
+		if (!doNotShareChannels.get())
+			channelsByName.put(getUniqueChannelName(channel.getName(), channel.getPriority()), channel);
 	}
 
 	/**
@@ -1122,12 +1426,9 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	void unregisterChannel(CAJChannel channel)
 	{
-		synchronized (channelsByCID)
-		{
-			channelsByCID.remove(channel.getChannelID());
-			if (!doNotShareChannels.get())
-				channelsByName.remove(getUniqueChannelName(channel.getName(), channel.getPriority()));
-		}
+		channelsByCID.remove(channel.getChannelID());
+		if (!doNotShareChannels.get())
+			channelsByName.remove(getUniqueChannelName(channel.getName(), channel.getPriority()), channel);
 	}
 
 	/**
@@ -1137,10 +1438,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	public CAJChannel getChannel(int channelID)
 	{
-		synchronized (channelsByCID)
-		{
-			return (CAJChannel)channelsByCID.get(channelID);
-		}
+		return (CAJChannel)channelsByCID.get(channelID);
 	}
 
 	/**
@@ -1167,24 +1465,18 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		if (doNotShareChannels.get())
 			return null;
 		
-		synchronized (channelsByName)
-		{
-			CAJChannel channel = (CAJChannel)channelsByName.get(getUniqueChannelName(name, priority));
-			if (channel != null && acquire)
-				channel.acquire();
-			return channel;
-		}
+		CAJChannel channel = (CAJChannel)channelsByName.get(getUniqueChannelName(name, priority));
+		if (channel != null && acquire)
+			channel.acquire();
+		return channel;
 	}
 
 	/**
 	 * @see gov.aps.jca.Context#getChannels()
 	 */
 	public Channel[] getChannels() {
-		synchronized (channelsByCID)
-		{
-			Channel[] ch = new Channel[channelsByCID.size()];
-			return (Channel[])channelsByCID.toArray(ch);
-		}
+		Channel[] ch = new Channel[channelsByCID.size()];
+		return (Channel[])channelsByCID.toArray(ch);
 	}
 
 	/**
@@ -1198,37 +1490,13 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		flushIO();
 		
 		long timeToWaitInMS = 0;
-		if (timeout >= 0.0)
+		try
 		{
-			try
-			{
-				synchronized (zeroPendingRequestsCondition)
-				{
-					// wait until completed
-					if (timeout == 0.0)
-					{
-						while (pendingRequestsCount.get() > 0 && state != DESTROYED)
-							zeroPendingRequestsCondition.wait();
-					}
-					else
-					{
-						final long endTime = time + (long)(timeout*1000);
-						while (pendingRequestsCount.get() > 0 && (timeToWaitInMS = (endTime - System.currentTimeMillis())) > 0 && state != DESTROYED)
-						{
-							zeroPendingRequestsCondition.wait(timeToWaitInMS);
-						}
-					}
-				}
-			} catch (InterruptedException e) { /* noop */ }
-		}
+			timeToWaitInMS = pendingRequests.waitForZero(timeout, time);
+		} catch (InterruptedException e) { /* noop */ }
 		
-		int stillPending;
-		// reset pendingRequestsCount and increase sequenceNumberIO (new session)
-		synchronized (sequenceNumberIO)
-		{
-			sequenceNumberIO.incrementAndGet();
-			stillPending = pendingRequestsCount.getAndSet(0);
-		}
+		// reset pending requests and increase sequence number (new session)
+		int stillPending = pendingRequests.reset();
 		
 		// throw timeout exception if not all requests where processed
 		if (stillPending > 0)
@@ -1246,7 +1514,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	public boolean testIO() throws CAException, IllegalStateException {
 		checkState();
-		return pendingRequestsCount.get() == 0;
+		return pendingRequests.getPendingRequests() == 0;
 	}
 
 	/**
@@ -1295,6 +1563,84 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 			((CATransport)transports[i]).flush();
 	}
 
+	/**
+	 * Create synchronous group (<code>ca_sg_create</code>), i.e. scope of synchronous requests
+	 * independent of context <code>pendIO()</code>.
+	 * @return new synchronous group.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException Signals that a method has been invoked at an illegal or inappropriate time
+	 */
+	public CAJSyncGroup createSyncGroup() throws CAException, IllegalStateException {
+		checkState();
+		
+		CAJSyncGroup syncGroup = new CAJSyncGroup(this);
+		synchronized (syncGroups)
+		{
+			syncGroups.add(syncGroup);
+		}
+		return syncGroup;
+	}
+
+	/**
+	 * Read all the channels (native type and element count).
+	 * @param channels channels to read.
+	 * @return futures of values (in order of given channels).
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException Signals that a method has been invoked at an illegal or inappropriate time
+	 * @see #getAll(Collection, DBRType, int)
+	 */
+	public List<CompletableFuture<DBR>> getAll(Collection<? extends Channel> channels)
+		throws CAException, IllegalStateException {
+		return getAll(channels, null, 0);
+	}
+
+	/**
+	 * Read all the channels (bulk version of <code>CAJChannel.getAsync()</code>).
+	 * All the read requests are submitted first and then each of the used transports is flushed once,
+	 * no context pending IO (i.e. <code>pendIO()</code>) is involved.
+	 * Failure of a channel (e.g. not connected) completes only its future exceptionally.
+	 * @param channels channels to read.
+	 * @param type requested type, <code>null</code> for native type (and element count) of each channel.
+	 * @param count requested element count, 0 means native (server) element count.
+	 * @return futures of values (in order of given channels).
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException Signals that a method has been invoked at an illegal or inappropriate time
+	 * @see CAJChannel#getAsync(DBRType, int)
+	 */
+	public List<CompletableFuture<DBR>> getAll(Collection<? extends Channel> channels, DBRType type, int count)
+		throws CAException, IllegalStateException {
+		checkState();
+
+		if (channels == null)
+			throw new IllegalArgumentException("channels == null");
+		
+		List<CompletableFuture<DBR>> futures = new ArrayList<CompletableFuture<DBR>>(channels.size());
+		Set<Transport> transports = Collections.newSetFromMap(new IdentityHashMap<Transport, Boolean>());
+		for (Channel channel : channels)
+		{
+			CompletableFuture<DBR> future = new CompletableFuture<DBR>();
+			futures.add(future);
+			try
+			{
+				CAJChannel cajChannel = (CAJChannel)channel;
+				if (type == null)
+					transports.add(cajChannel.getAsync(cajChannel.getFieldType(), cajChannel.getElementCount(), future));
+				else
+					transports.add(cajChannel.getAsync(type, count, future));
+			}
+			catch (Throwable th)
+			{
+				future.completeExceptionally(th);
+			}
+		}
+
+		// one flush per transport
+		for (Transport transport : transports)
+			transport.flush();
+		
+		return futures;
+	}
+
 	/**
 	 * @see gov.aps.jca.Context#attachCurrentThread()
 	 */
@@ -1324,7 +1670,12 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		out.println("MAX_ARRAY_BYTES : " + maxArrayBytes);
 		out.println("MIN_SEARCH_INTERVAL : " + minSearchInterval);
 		out.println("MAX_SEARCH_INTERVAL : " + maxSearchInterval);
+		out.println("SHARDED_REACTOR : " + shardedReactor);
+		out.println("REACTOR_SHARDS : " + (reactorGroup != null ? reactorGroup.size() : reactorShards));
+		out.println("BLOCKING_IO : " + blockingIO);
+		out.println("BLOCKING_IO_VIRTUAL_THREADS : " + blockingIOVirtualThreads);
 		out.println("EVENT_DISPATCHER: " + eventDispatcher);
+		cachedBufferAllocator.printInfo(out);
 		out.print("STATE : ");
 		switch (state)
 		{
@@ -1492,6 +1843,29 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 		return reactor;
 	}
 
+	/**
+	 * @see com.cosylab.epics.caj.impl.CAContext#getTransportReactor(java.net.InetSocketAddress)
+	 */
+	public Reactor getTransportReactor(InetSocketAddress address) {
+		return (reactorGroup != null) ? reactorGroup.getReactor(address) : reactor;
+	}
+
+	/**
+	 * Get reactor group (shards) serving TCP transports.
+	 * @return reactor group, <code>null</code> if sharded reactors are not used.
+	 */
+	public ReactorGroup getReactorGroup() {
+		return reactorGroup;
+	}
+
+	/**
+	 * Get executor running blocking I/O (reader and writer) tasks of TCP transports.
+	 * @return blocking I/O executor, <code>null</code> if reactor is used.
+	 */
+	public ExecutorService getBlockingIOExecutor() {
+		return blockingIOExecutor;
+	}
+
 	/**
 	 * Broadcast transport.
 	 * @return broadcast transport.
@@ -1582,15 +1956,13 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 * @param minorRevision	server minor CA revision.
 	 * @param serverAddress	server address.
 	 */
-	public void searchResponse(int cid, int sid, short type, int count,
+	public void searchResponse(final int cid, final int sid, final short type, final int count,
 							   short minorRevision, InetSocketAddress serverAddress)
 	{
-		CAJChannel channel = getChannel(cid);
+		final CAJChannel channel = getChannel(cid);
 		if (channel == null)
 			return;
 
-		boolean issueCreateRequest;
-		
 		// check for multiple responses
 		synchronized (channel)
 		{
@@ -1606,24 +1978,61 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 				}
 			}
 			
+			// transport (connection to the server) already being established
+			InetSocketAddress connectingAddress = channel.getConnectingAddress();
+			if (connectingAddress != null)
+			{
+				if (!connectingAddress.equals(serverAddress))
+					logger.info("More than one PVs with name '" + channel.getName() +
+								 "' detected, additional response from: " + serverAddress);
+				return;
+			}
+			
 			// do not search anymore (also unregisters)
 			int seqNo = lastReceivedSequenceNumber.get();
 			channelSearchManager.searchResponse(channel, seqNo, seqNo != 0, System.currentTimeMillis());
 			
-			transport = getTransport(channel, serverAddress, minorRevision, channel.getPriority());
-			if (transport == null)
-			{
-				channel.createChannelFailed();
-				return;
-			}
-
-			// create channel
-			issueCreateRequest = channel.createChannel(transport, sid, type, count);
+			channel.setConnectingAddress(serverAddress);
 		}
-		
-		if (issueCreateRequest)
-			channel.issueCreateChannelRequest();
+
+		// connect w/o channel lock held and w/o blocking this (search response processing) thread
+		connector.connectAsync(channel, new CAResponseHandler(this), serverAddress, minorRevision, channel.getPriority(),
+			new ConnectCallback() {
 			
+				public void connectCompleted(Transport transport) {
+					boolean issueCreateRequest;
+					synchronized (channel)
+					{
+						channel.setConnectingAddress(null);
+						
+						// destroyed while connecting
+						if (channel.getConnectionState() == ConnectionState.CLOSED)
+						{
+							if (channel.getTransport() != transport)
+								((CATransport)transport).release(channel);
+							return;
+						}
+						
+						// create channel
+						issueCreateRequest = channel.createChannel((CATransport)transport, sid, type, count);
+					}
+					
+					if (issueCreateRequest)
+						channel.issueCreateChannelRequest();
+				}
+				
+				public void connectFailed(InetSocketAddress address, Throwable cause) {
+					if (cause != null)
+						logger.log(Level.SEVERE, "Failed to create transport for: " + address, cause);
+
+					synchronized (channel)
+					{
+						channel.setConnectingAddress(null);
+						if (channel.getConnectionState() != ConnectionState.CLOSED)
+							channel.createChannelFailed();
+					}
+				}
+			});
 	}
 
 	/**
@@ -1654,14 +2063,12 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	private int generateCID()
 	{
-		synchronized (channelsByCID)
-		{
-			// search first free (theoretically possible loop of death)
-			while (getChannel(++lastCID) != null);
-			// reserve CID
-			channelsByCID.put(lastCID, null);
-			return lastCID;
-		}
+		// search first free and reserve it (theoretically possible loop of death)
+		int cid;
+		do {
+			cid = lastCID.incrementAndGet();
+		} while (!channelsByCID.putIfAbsent(cid, null));
+		return cid;
 	}
 
 	/**
@@ -1671,10 +2078,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	public ResponseRequest getResponseRequest(int ioid)
 	{
-		synchronized (pendingResponseRequests)
-		{
-			return (ResponseRequest)pendingResponseRequests.get(ioid);
-		}
+		return (ResponseRequest)pendingResponseRequests.get(ioid);
 	}
 
 	/**
@@ -1684,12 +2088,12 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	public int registerResponseRequest(ResponseRequest request)
 	{
-		synchronized (pendingResponseRequests)
-		{
-			int ioid = generateIOID();
-			pendingResponseRequests.put(ioid, request);
-			return ioid;
-		}
+		// search first free (theoretically possible loop of death)
+		int ioid;
+		do {
+			ioid = lastIOID.incrementAndGet();
+		} while (!pendingResponseRequests.putIfAbsent(ioid, request));
+		return ioid;
 	}
 
 	/**
@@ -1699,26 +2103,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	public ResponseRequest unregisterResponseRequest(ResponseRequest request)
 	{
-		synchronized (pendingResponseRequests)
-		{
-			return (ResponseRequest)pendingResponseRequests.remove(request.getIOID());
-		}
-	}
-
-	/**
-	 * Generate IOID.
-	 * @return IOID. 
-	 */
-	private int generateIOID()
-	{
-		synchronized (pendingResponseRequests)
-		{
-			// search first free (theoretically possible loop of death)
-			while (pendingResponseRequests.get(++lastIOID) != null);
-			// reserve IOID
-			pendingResponseRequests.put(lastIOID, null);
-			return lastIOID;
-		}
+		return (ResponseRequest)pendingResponseRequests.remove(request.getIOID());
 	}
 
 	/**
@@ -1727,11 +2112,7 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	public int incrementPendingRequests()
 	{
-		synchronized (sequenceNumberIO)
-		{
-			pendingRequestsCount.incrementAndGet();
-			return sequenceNumberIO.get();
-		}
+		return pendingRequests.incrementPendingRequests();
 	}
 
 	/**
@@ -1740,19 +2121,16 @@ public class CAJContext extends Context implements CAContext, CAJConstants, Conf
 	 */
 	public void decrementPendingRequests(int usedSequenceNumberIO)
 	{
-		if (usedSequenceNumberIO == sequenceNumberIO.get())
-		{
-			int count = pendingRequestsCount.decrementAndGet();
-	
-			// notify if zero
-			if (count == 0)
-			{
-				synchronized (zeroPendingRequestsCondition)
-				{
-					zeroPendingRequestsCondition.notifyAll();
-				}
-			}
-		}
+		pendingRequests.decrementPendingRequests(usedSequenceNumberIO);
+	}
+
+	/**
+	 * Get pending requests counter (scope of <code>pendIO()</code>).
+	 * @return pending requests counter.
+	 */
+	public PendingRequestsCounter getPendingRequests()
+	{
+		return pendingRequests;
 	}
 	
 	/**
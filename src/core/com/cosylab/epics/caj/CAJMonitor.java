@@ -25,6 +25,7 @@ import gov.aps.jca.CAException;
 import gov.aps.jca.Channel;
 import gov.aps.jca.Context;
 import gov.aps.jca.Monitor;
+import gov.aps.jca.dbr.DBR;
 import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.event.MonitorEvent;
 import gov.aps.jca.event.MonitorListener;
@@ -80,6 +81,16 @@ public class CAJMonitor extends Monitor implements MonitorListener {
 	 * Cleared flag.
 	 */
 	protected volatile boolean cleared = false;
+
+	/**
+	 * DBR to be reused (refilled in place) when decoding, <code>null</code> if new instance is to be created.
+	 */
+	protected volatile DBR decodeTarget = null;
+
+	/**
+	 * Raw payload listener, <code>null</code> if not set.
+	 */
+	protected volatile MonitorPayloadListener payloadListener = null;
 	
 	/**
 	 * Constructor.
@@ -263,4 +274,54 @@ public class CAJMonitor extends Monitor implements MonitorListener {
     public boolean isCleared() {
         return cleared;
     }
+
+	/**
+	 * Set DBR to be reused when decoding monitor updates: instead of creating a new DBR (and value array)
+	 * on every update, given DBR is refilled in place and dispatched to the listeners.
+	 * NOTE: since the same instance is dispatched on every update, listeners must consume (or copy) the value
+	 * before next update arrives (e.g. when <code>DirectEventDispatcher</code> is used).
+	 * Updates whose type or element count does not match the DBR (e.g. dynamic arrays) are decoded into a new instance.
+	 * @param dbr DBR to be reused, <code>null</code> to disable reuse.
+	 */
+	public void setDecodeTarget(DBR dbr) {
+		if (dbr != null && dbr.getType() != type)
+			throw new IllegalArgumentException("DBR type " + dbr.getType() + " does not match monitor type " + type);
+		decodeTarget = dbr;
+	}
+
+	/**
+	 * Get DBR reused when decoding monitor updates.
+	 * @return DBR reused when decoding, <code>null</code> if not set.
+	 */
+	public DBR getDecodeTarget() {
+		return decodeTarget;
+	}
+
+	/**
+	 * Set raw payload listener, called synchronously (by the receiving thread) with a read-only view over the receive buffer.
+	 * If there are no <code>MonitorListener</code>s registered, payload is not decoded at all.
+	 * @param listener payload listener, <code>null</code> to remove.
+	 */
+	public void setPayloadListener(MonitorPayloadListener listener) {
+		payloadListener = listener;
+	}
+
+	/**
+	 * Get raw payload listener.
+	 * @return raw payload listener, <code>null</code> if not set.
+	 */
+	public MonitorPayloadListener getPayloadListener() {
+		return payloadListener;
+	}
+
+	/**
+	 * Check if there is any <code>MonitorListener</code> registered.
+	 * @return <code>true</code> if there is at least one listener registered.
+	 */
+	public boolean hasMonitorListeners() {
+		synchronized (listeners)
+		{
+			return !listeners.isEmpty();
+		}
+	}
 }
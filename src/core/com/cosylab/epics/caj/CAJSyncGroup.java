@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.Channel;
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRFactory;
+import gov.aps.jca.dbr.DBRType;
+
+import com.cosylab.epics.caj.impl.PendingRequestsCounter;
+import com.cosylab.epics.caj.impl.Transport;
+
+/**
+ * Synchronous group (equivalent of <code>ca_sg_*</code> functions).
+ * Group tracks only its own requests (independently of context <code>pendIO()</code> and of other groups),
+ * requests are not sent until <code>block()</code> that flushes (once) only transports used by the group.
+ * Different threads should use different groups.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ * @see CAJContext#createSyncGroup()
+ */
+public class CAJSyncGroup {
+
+	/**
+	 * Context.
+	 */
+	private final CAJContext context;
+
+	/**
+	 * Pending requests of this group.
+	 */
+	private final PendingRequestsCounter pendingRequests = new PendingRequestsCounter();
+
+	/**
+	 * Transports used since last flush.
+	 */
+	private final Set<Transport> transports = Collections.newSetFromMap(new IdentityHashMap<Transport, Boolean>());
+
+	/**
+	 * Constructor.
+	 * @param context context.
+	 */
+	CAJSyncGroup(CAJContext context) {
+		this.context = context;
+	}
+
+	/**
+	 * Issue get request (<code>ca_sg_array_get</code>).
+	 * Returned DBR is valid after successful <code>block()</code>.
+	 * @param channel channel to read.
+	 * @param type requested type.
+	 * @param count requested element count, &gt; 0.
+	 * @return DBR to be set.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException channel not connected
+	 */
+	public DBR get(Channel channel, DBRType type, int count) throws CAException, IllegalStateException {
+		// sync get requires predefined count; variable length array not possible
+		if (count <= 0)
+			throw new IllegalArgumentException("count <= 0");
+
+		DBR dbr = DBRFactory.create(type, count);
+		addTransport(toCAJChannel(channel).get(dbr, type, count, pendingRequests));
+		return dbr;
+	}
+
+	/**
+	 * Issue put request (<code>ca_sg_array_put</code>), <code>block()</code> waits for its completion.
+	 * @param channel channel to write.
+	 * @param type DBRType
+	 * @param count data count
+	 * @param value value to put
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException channel not connected
+	 */
+	public void put(Channel channel, DBRType type, int count, Object value) throws CAException, IllegalStateException {
+		addTransport(toCAJChannel(channel).put(type, count, value, pendingRequests));
+	}
+
+	/**
+	 * Flush requests and wait for their completion (<code>ca_sg_block</code>).
+	 * Group is reset afterwards (also on timeout), i.e. ready for new requests.
+	 * @param timeout timeout in seconds, 0 means wait forever.
+	 * @throws TimeoutException if not all the requests completed (successfully) in time.
+	 * @throws CAException JCA Exception
+	 * @throws IllegalStateException context destroyed
+	 */
+	public void block(double timeout) throws TimeoutException, CAException, IllegalStateException {
+		context.checkState();
+
+		final long time = System.currentTimeMillis();
+		flush();
+
+		long timeToWaitInMS = 0;
+		try
+		{
+			timeToWaitInMS = pendingRequests.waitForZero(timeout, time);
+		} catch (InterruptedException e) { /* noop */ }
+
+		// reset pending requests and increase sequence number (new session)
+		int stillPending = pendingRequests.reset();
+
+		// throw timeout exception if not all requests where processed
+		if (stillPending > 0)
+		{
+			if (pendingRequests.isDisposed())
+				throw new CAException("context destroyed during block");
+
+			if (timeToWaitInMS <= 0)
+				throw new TimeoutException("block timed out");
+		}
+	}
+
+	/**
+	 * Test if all the requests completed (<code>ca_sg_test</code>).
+	 * @return <code>true</code> if there are no pending requests.
+	 */
+	public boolean test() {
+		return pendingRequests.getPendingRequests() == 0;
+	}
+
+	/**
+	 * Discard pending requests (<code>ca_sg_reset</code>), their completion will be ignored.
+	 */
+	public void reset() {
+		pendingRequests.reset();
+		synchronized (transports) {
+			transports.clear();
+		}
+	}
+
+	/**
+	 * Flush transports used by the group.
+	 */
+	private void flush() {
+		Transport[] toFlush;
+		synchronized (transports) {
+			toFlush = transports.toArray(new Transport[transports.size()]);
+			transports.clear();
+		}
+
+		for (int i = 0; i < toFlush.length; i++)
+			toFlush[i].flush();
+	}
+
+	private void addTransport(Transport transport) {
+		synchronized (transports) {
+			transports.add(transport);
+		}
+	}
+
+	private CAJChannel toCAJChannel(Channel channel) {
+		if (!(channel instanceof CAJChannel) || channel.getContext() != context)
+			throw new IllegalArgumentException("channel not created by the context of this group");
+		return (CAJChannel)channel;
+	}
+
+	/**
+	 * Get pending requests counter of this group.
+	 * @return pending requests counter.
+	 */
+	PendingRequestsCounter getPendingRequests() {
+		return pendingRequests;
+	}
+
+}
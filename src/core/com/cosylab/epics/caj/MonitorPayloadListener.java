@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj;
+
+import gov.aps.jca.dbr.DBRType;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Listener receiving raw (not decoded) monitor payload.
+ * It is called synchronously by the thread that received the message; given buffer is a read-only view
+ * over the receive buffer and is valid only for the duration of the call (it must not be retained).
+ * Use <code>DBRDecoder.getValueView()</code> to get view over the value elements, e.g.
+ * <code>DBRDecoder.getValueView(type, payload).asDoubleBuffer().get(array, 0, count)</code>.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ * @see CAJMonitor#setPayloadListener(MonitorPayloadListener)
+ * @see com.cosylab.epics.caj.impl.DBRDecoder#getValueView(DBRType, ByteBuffer)
+ */
+public interface MonitorPayloadListener {
+
+	/**
+	 * Notify about received monitor payload.
+	 * @param monitor monitor.
+	 * @param type payload data type.
+	 * @param count payload element count.
+	 * @param payload read-only view of the payload, position set at the start of the payload (big endian).
+	 */
+	public void payloadReceived(CAJMonitor monitor, DBRType type, int count, ByteBuffer payload);
+
+}
@@ -33,6 +33,11 @@ import java.net.InetSocketAddress;
 import java.nio.channels.DatagramChannel;
 import java.nio.channels.SelectionKey;
 import java.util.ArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -48,6 +53,7 @@ import com.cosylab.epics.caj.impl.CachedByteBufferAllocator;
 import com.cosylab.epics.caj.impl.ConnectionException;
 import com.cosylab.epics.caj.impl.Transport;
 import com.cosylab.epics.caj.impl.reactor.Reactor;
+import com.cosylab.epics.caj.impl.reactor.ReactorGroup;
 import com.cosylab.epics.caj.impl.reactor.ReactorHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersThreadPool;
@@ -160,6 +166,49 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 	 */
 	protected int maxArrayBytes = 16384;
 
+	/**
+	 * Default monitor (subscription) event queue size.
+	 */
+	protected int monitorQueueSize = CASMonitorQueuePolicy.DEFAULT_QUEUE_SIZE;
+
+	/**
+	 * Default monitor coalesce period (in seconds), 0 disables coalescing.
+	 */
+	protected float monitorCoalescePeriod = 0.0f;
+
+	/**
+	 * Maximum update (monitor event) rate per client (in Hz), 0 means unlimited.
+	 * When the limit is reached, events of the client's monitors are coalesced.
+	 */
+	protected float maxClientUpdateRate = 0.0f;
+
+	/**
+	 * UDP search reply coalesce period (in seconds) for asynchronously completed searches,
+	 * 0 means replies are sent immediately. Replies to searches of the same received datagram are always packed.
+	 */
+	protected float searchReplyCoalescePeriod = 0.0f;
+
+	/**
+	 * Number of event dispatcher threads (shared by all the clients), 0 means number of available processors.
+	 */
+	protected int eventDispatcherThreadPoolSize = 0;
+
+	/**
+	 * Use virtual threads for event dispatching (if supported by the JVM).
+	 */
+	protected boolean eventDispatcherVirtualThreads = false;
+
+	/**
+	 * Use sharded reactors flag, i.e. TCP transports are served by a group of reactors
+	 * (each processed by its own thread) instead of a single leader/followers reactor.
+	 */
+	protected boolean shardedReactor = false;
+
+	/**
+	 * Number of reactor shards, 0 means number of available processors.
+	 */
+	protected int reactorShards = 0;
+
 	/**
 	 * List of context message listeners.
 	 */
@@ -183,11 +232,21 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 	 */
 	protected Reactor reactor = null;
 
+	/**
+	 * Reactor group (shards) serving TCP transports, <code>null</code> if not used.
+	 */
+	protected ReactorGroup reactorGroup = null;
+
 	/**
 	 * Leader/followers thread pool.
 	 */
 	protected LeaderFollowersThreadPool leaderFollowersThreadPool = null;
 
+	/**
+	 * Event dispatcher thread pool (shared by all the transports, each transport dispatches in order via its serial executor).
+	 */
+	protected ExecutorService eventDispatcherThreadPool = null;
+
 	/**
 	 * Broadcast transport needed for channel searches.
 	 */
@@ -325,6 +384,14 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 		tcpServerPort = jcaLibrary.getPropertyAsInt(thisClassName + ".server_port", tcpServerPort);
 		maxArrayBytes = jcaLibrary.getPropertyAsInt(thisClassName + ".max_array_bytes", maxArrayBytes);
 		ignoreAddressList = jcaLibrary.getProperty(thisClassName + ".ignore_addr_list",  ignoreAddressList);
+		monitorQueueSize = jcaLibrary.getPropertyAsInt(thisClassName + ".monitor_queue_size", monitorQueueSize);
+		monitorCoalescePeriod = jcaLibrary.getPropertyAsFloat(thisClassName + ".monitor_coalesce_period", monitorCoalescePeriod);
+		maxClientUpdateRate = jcaLibrary.getPropertyAsFloat(thisClassName + ".max_client_update_rate", maxClientUpdateRate);
+		searchReplyCoalescePeriod = jcaLibrary.getPropertyAsFloat(thisClassName + ".search_reply_coalesce_period", searchReplyCoalescePeriod);
+		eventDispatcherThreadPoolSize = jcaLibrary.getPropertyAsInt(thisClassName + ".event_dispatcher_thread_pool_size", eventDispatcherThreadPoolSize);
+		eventDispatcherVirtualThreads = jcaLibrary.getPropertyAsBoolean(thisClassName + ".event_dispatcher_virtual_threads", eventDispatcherVirtualThreads);
+		shardedReactor = jcaLibrary.getPropertyAsBoolean(thisClassName + ".sharded_reactor", shardedReactor);
+		reactorShards = jcaLibrary.getPropertyAsInt(thisClassName + ".reactor_shards", reactorShards);
 
 		// TCP and UDP ports can only be configured to be the same, and will only differ if configured = 0 OR if TCP port is already taken.
 		udpServerPort = tcpServerPort;
@@ -388,6 +455,62 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 			} catch(Exception ex) {
 				ignoreAddressList = configuration.getAttribute("ignore_addr_list", ignoreAddressList);
 			}
+
+			// monitor queue size
+			try {
+				monitorQueueSize = configuration.getChild("monitor_queue_size", false).getValueAsInteger();
+			} catch(Exception ex) {
+				monitorQueueSize = configuration.getAttributeAsInteger("monitor_queue_size", monitorQueueSize);
+			}
+
+			// monitor coalesce period
+			try {
+				monitorCoalescePeriod = configuration.getChild("monitor_coalesce_period", false).getValueAsFloat();
+			} catch(Exception ex) {
+				monitorCoalescePeriod = configuration.getAttributeAsFloat("monitor_coalesce_period", monitorCoalescePeriod);
+			}
+
+			// max. client update rate
+			try {
+				maxClientUpdateRate = configuration.getChild("max_client_update_rate", false).getValueAsFloat();
+			} catch(Exception ex) {
+				maxClientUpdateRate = configuration.getAttributeAsFloat("max_client_update_rate", maxClientUpdateRate);
+			}
+
+			// search reply coalesce period
+			try {
+				searchReplyCoalescePeriod = configuration.getChild("search_reply_coalesce_period", false).getValueAsFloat();
+			} catch(Exception ex) {
+				searchReplyCoalescePeriod = configuration.getAttributeAsFloat("search_reply_coalesce_period", searchReplyCoalescePeriod);
+			}
+
+			// event dispatcher thread pool size
+			try {
+				eventDispatcherThreadPoolSize = configuration.getChild("event_dispatcher_thread_pool_size", false).getValueAsInteger();
+			} catch(Exception ex) {
+				eventDispatcherThreadPoolSize = configuration.getAttributeAsInteger("event_dispatcher_thread_pool_size", eventDispatcherThreadPoolSize);
+			}
+
+			// event dispatcher virtual threads
+			try {
+				eventDispatcherVirtualThreads = configuration.getChild("event_dispatcher_virtual_threads", false).getValueAsBoolean();
+			} catch(Exception ex) {
+				eventDispatcherVirtualThreads = configuration.getAttributeAsBoolean("event_dispatcher_virtual_threads", eventDispatcherVirtualThreads);
+			}
+
+			// sharded reactor
+			try {
+				shardedReactor = configuration.getChild("sharded_reactor", false).getValueAsBoolean();
+			} catch(Exception ex) {
+				shardedReactor = configuration.getAttributeAsBoolean("sharded_reactor", shardedReactor);
+			}
+
+			// number of reactor shards
+			try {
+				reactorShards = configuration.getChild("reactor_shards", false).getValueAsInteger();
+			} catch(Exception ex) {
+				reactorShards = configuration.getAttributeAsInteger("reactor_shards", reactorShards);
+			}
     
 	}
 
@@ -522,8 +645,12 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 	 */
 	private void internalInitialize() throws CAException {
 
+		// pool buffers up to the largest message (payload + extended header)
+		cachedBufferAllocator.setMaxBufferSize(maxArrayBytes + CAConstants.CA_EXTENDED_MESSAGE_HEADER_SIZE);
+
 		timer = new Timer();
 		transportRegistry = new CATransportRegistry();
+		eventDispatcherThreadPool = createEventDispatcherThreadPool();
 
 		try
 		{
@@ -563,6 +690,13 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 				);
 			}
 			
+			// TCP transports are served by sharded reactors
+			if (shardedReactor)
+			{
+				reactorGroup = new ReactorGroup(reactorShards, "CAS reactor");
+			    logger.config("Using " + reactorGroup.size() + " reactor shards.");
+			}
+			
 		}
 		catch (IOException ioex)
 		{
@@ -734,6 +868,45 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 				
 	}
 
+	/**
+	 * Create event dispatcher thread pool,
+	 * virtual thread per task executor if enabled and supported, bounded thread pool otherwise.
+	 * @return event dispatcher thread pool.
+	 */
+	private ExecutorService createEventDispatcherThreadPool()
+	{
+		if (eventDispatcherVirtualThreads)
+		{
+			try
+			{
+				// JDK 21+, reflection is used to keep JDK 8 compatibility
+				ExecutorService executor = (ExecutorService)
+					java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+				logger.config("Using virtual threads for event dispatching.");
+				return executor;
+			} catch (Throwable th) {
+				logger.warning("Virtual threads not supported, using event dispatcher thread pool.");
+			}
+		}
+		
+		final int threads = eventDispatcherThreadPoolSize > 0 ?
+				eventDispatcherThreadPoolSize : Runtime.getRuntime().availableProcessors();
+		
+		ThreadFactory threadFactory = new ThreadFactory() {
+			private final AtomicInteger threadNumber = new AtomicInteger(0);
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "CAS event dispatcher " + threadNumber.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		};
+		
+		// queue is naturally bounded by the number of transports (one serial executor task per transport)
+		return new ThreadPoolExecutor(threads, threads,
+									  Long.MAX_VALUE, TimeUnit.NANOSECONDS,
+									  new LinkedBlockingQueue<Runnable>(), threadFactory);
+	}
+
 	/**
 	 * @throws CAException JCA Exception
 	 */
@@ -762,13 +935,22 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 		// this will also destroy all channels
 		destroyAllTransports();
 		
+		// shutdown event dispatcher thread pool
+		if (eventDispatcherThreadPool != null)
+			eventDispatcherThreadPool.shutdown();
+		
 		// shutdown reactor
 		if (reactor != null)
 			reactor.shutdown();
+		if (reactorGroup != null)
+			reactorGroup.shutdown();
 		
 		// shutdown LF thread pool
 		if (leaderFollowersThreadPool != null)
 		    leaderFollowersThreadPool.shutdown();
+
+		// release pooled buffers
+		cachedBufferAllocator.reclaim();
 		
 		synchronized (contextMessageListeners)
 		{
@@ -825,6 +1007,14 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 		out.println("UDP SERVER_PORT : " + udpServerPort);
 		out.println("MAX_ARRAY_BYTES : " + maxArrayBytes);
 		out.println("IGNORE_ADDR_LIST: " + ignoreAddressList);
+		out.println("MONITOR_QUEUE_POLICY : " + getDefaultMonitorQueuePolicy());
+		out.println("MAX_CLIENT_UPDATE_RATE : " + maxClientUpdateRate);
+		out.println("SEARCH_REPLY_COALESCE_PERIOD : " + searchReplyCoalescePeriod);
+		out.println("EVENT_DISPATCHER_THREAD_POOL_SIZE : " + eventDispatcherThreadPoolSize);
+		out.println("EVENT_DISPATCHER_VIRTUAL_THREADS : " + eventDispatcherVirtualThreads);
+		out.println("SHARDED_REACTOR : " + shardedReactor);
+		out.println("REACTOR_SHARDS : " + (reactorGroup != null ? reactorGroup.size() : reactorShards));
+		cachedBufferAllocator.printInfo(out);
 		out.print("STATE : ");
 		switch (state)
 		{
@@ -996,6 +1186,65 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 		return ignoreAddressList;
 	}
 
+	/**
+	 * Get default monitor queue policy (given by monitor queue size and coalesce period).
+	 * @return default monitor queue policy.
+	 */
+	public CASMonitorQueuePolicy getDefaultMonitorQueuePolicy() {
+		if (monitorCoalescePeriod > 0)
+			return CASMonitorQueuePolicy.coalesce((long)(monitorCoalescePeriod * 1000));
+		else
+			return CASMonitorQueuePolicy.keepLatest(Math.max(1, monitorQueueSize));
+	}
+
+	/**
+	 * Get maximum update (monitor event) rate per client.
+	 * @return maximum update rate in Hz, 0 means unlimited.
+	 */
+	public float getMaxClientUpdateRate() {
+		return maxClientUpdateRate;
+	}
+
+	/**
+	 * Set maximum update (monitor event) rate per client.
+	 * @param maxClientUpdateRate maximum update rate in Hz, 0 means unlimited.
+	 */
+	public void setMaxClientUpdateRate(float maxClientUpdateRate) {
+		this.maxClientUpdateRate = maxClientUpdateRate;
+	}
+
+	/**
+	 * Get UDP search reply coalesce period (for asynchronously completed searches).
+	 * @return coalesce period in seconds, 0 means replies are sent immediately.
+	 */
+	public float getSearchReplyCoalescePeriod() {
+		return searchReplyCoalescePeriod;
+	}
+
+	/**
+	 * Set UDP search reply coalesce period (for asynchronously completed searches).
+	 * @param searchReplyCoalescePeriod coalesce period in seconds, 0 means replies are sent immediately.
+	 */
+	public void setSearchReplyCoalescePeriod(float searchReplyCoalescePeriod) {
+		this.searchReplyCoalescePeriod = searchReplyCoalescePeriod;
+	}
+
+	/**
+	 * Set default monitor queue size (applies to new monitors).
+	 * @param monitorQueueSize queue size.
+	 */
+	public void setMonitorQueueSize(int monitorQueueSize) {
+		this.monitorQueueSize = monitorQueueSize;
+	}
+
+	/**
+	 * Set default monitor coalesce period (applies to new monitors).
+	 * @param monitorCoalescePeriod coalesce period in seconds, 0 disables coalescing.
+	 */
+	public void setMonitorCoalescePeriod(float monitorCoalescePeriod) {
+		this.monitorCoalescePeriod = monitorCoalescePeriod;
+	}
+
 	// ************************************************************************** //
 
 	/**
@@ -1015,6 +1264,21 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
 		return reactor;
 	}
 
+	/**
+	 * @see com.cosylab.epics.caj.impl.CAContext#getTransportReactor(java.net.InetSocketAddress)
+	 */
+	public Reactor getTransportReactor(InetSocketAddress address) {
+		return (reactorGroup != null) ? reactorGroup.getReactor(address) : reactor;
+	}
+
+	/**
+	 * Get reactor group (shards) serving TCP transports.
+	 * @return reactor group, <code>null</code> if sharded reactors are not used.
+	 */
+	public ReactorGroup getReactorGroup() {
+		return reactorGroup;
+	}
+
 	/**
 	 * Broadcast transport.
 	 * @return broadcast transport.
@@ -1047,6 +1311,14 @@ public class CAJServerContext extends ServerContext implements CAContext, Config
         return cachedBufferAllocator;
     }
 
+    /**
+     * Get event dispatcher thread pool (shared by all the transports).
+     * @return event dispatcher thread pool.
+     */
+    public ExecutorService getEventDispatcherThreadPool() {
+        return eventDispatcherThreadPool;
+    }
+
     /**
      * Get LF thread pool.
      * @return LF thread pool, can be <code>null</code> if disabled.
@@ -27,6 +27,7 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.cosylab.epics.caj.impl.CAContext;
+import com.cosylab.epics.caj.impl.reactor.Reactor;
 import com.cosylab.epics.caj.impl.reactor.ReactorHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersHandler;
 
@@ -98,12 +99,14 @@ public class CASAcceptor implements ReactorHandler {
 
 				// create transport
 				CASTransport transport = new CASTransport(context, socket);
+				Reactor reactor = transport.getReactor();
 				ReactorHandler handler = transport;
-				if (context.getLeaderFollowersThreadPool() != null)
-				    handler = new LeaderFollowersHandler(context.getReactor(), handler, context.getLeaderFollowersThreadPool());
+				// NOTE: sharded reactors are processed by their own threads (no LF)
+				if (reactor == context.getReactor() && context.getLeaderFollowersThreadPool() != null)
+				    handler = new LeaderFollowersHandler(reactor, handler, context.getLeaderFollowersThreadPool());
 				
 				// register to reactor
-				context.getReactor().register(socket, SelectionKey.OP_READ, handler);
+				reactor.register(socket, SelectionKey.OP_READ, handler);
 				
 				context.getLogger().finer("Serving to CA client: " + address);
 
@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.CAStatusException;
+import gov.aps.jca.cas.ProcessVariable;
+import gov.aps.jca.dbr.ACK;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+
+import java.nio.ByteBuffer;
+
+import com.cosylab.epics.caj.cas.requests.EventAddRequest;
+
+/**
+ * Event shared by all monitors of a process variable that requested the same data type and count.
+ * Value is converted and serialized only once (lazily, on first use) and then the same (read-only)
+ * message is used for all the monitors; only per-subscription header field (ioid) is patched.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class CASEncodedEvent {
+
+	/**
+	 * Process variable (to get ackS/T from).
+	 */
+	protected final ProcessVariable processVariable;
+
+	/**
+	 * Event (as posted by the PV).
+	 */
+	protected final DBR event;
+
+	/**
+	 * Requested data type.
+	 */
+	protected final short dataType;
+
+	/**
+	 * Requested data count.
+	 */
+	protected final int dataCount;
+
+	/**
+	 * Encoded message (ioid not set), <code>null</code> if not yet encoded or on failure.
+	 * NOTE: synchronized on <code>this</code>.
+	 */
+	private ByteBuffer encodedMessage = null;
+
+	/**
+	 * Encode status, <code>null</code> if not yet encoded.
+	 * NOTE: synchronized on <code>this</code>.
+	 */
+	private CAStatus status = null;
+
+	/**
+	 * Value converted to requested type, <code>null</code> if not yet converted.
+	 * NOTE: synchronized on <code>this</code>.
+	 */
+	private DBR value = null;
+
+	/**
+	 * Constructor.
+	 * @param processVariable process variable.
+	 * @param event event to be encoded.
+	 * @param dataType requested data type.
+	 * @param dataCount requested data count.
+	 */
+	public CASEncodedEvent(ProcessVariable processVariable, DBR event, short dataType, int dataCount) {
+		this.processVariable = processVariable;
+		this.event = event;
+		this.dataType = dataType;
+		this.dataCount = dataCount;
+	}
+
+	/**
+	 * Get (non-converted) event.
+	 * @return event.
+	 */
+	public DBR getEvent() {
+		return event;
+	}
+
+	/**
+	 * Get requested data type.
+	 * @return requested data type.
+	 */
+	public short getDataType() {
+		return dataType;
+	}
+
+	/**
+	 * Get requested data count.
+	 * @return requested data count.
+	 */
+	public int getDataCount() {
+		return dataCount;
+	}
+
+	/**
+	 * Get encoding status, encodes the event if not already done.
+	 * @return encoding status, <code>CAStatus.NORMAL</code> on success.
+	 */
+	public synchronized CAStatus getStatus() {
+		encode();
+		return status;
+	}
+
+	/**
+	 * Get converted value, encodes the event if not already done.
+	 * @return converted value, original event on conversion failure.
+	 */
+	public synchronized DBR getValue() {
+		encode();
+		return value;
+	}
+
+	/**
+	 * Get encoded message, encodes the event if not already done.
+	 * Returned buffer is read-only, its position is set to 0 and limit to the size of the message;
+	 * each caller gets its own view of the shared content.
+	 * @return encoded message, <code>null</code> on failure (see <code>getStatus()</code>).
+	 */
+	public synchronized ByteBuffer getEncodedMessage() {
+		encode();
+		return (encodedMessage == null) ? null : encodedMessage.duplicate();
+	}
+
+	/**
+	 * Convert and encode (only once).
+	 * NOTE: has to be called while holding a lock on <code>this</code>.
+	 */
+	private void encode() {
+		if (status != null)
+			return;
+
+		// convert to required type
+		DBR converted;
+		try
+		{
+			converted = event.convert(DBRType.forValue(dataType));
+		} catch (CAStatusException cse) {
+			value = event;
+			status = cse.getStatus();
+			return;
+		}
+
+		// ackS/T support
+		if (converted instanceof ACK)
+		{
+			ACK ack = (ACK)converted;
+			ack.setAckS(processVariable.getAckS());
+			ack.setAckT(processVariable.isAckT());
+		}
+
+		value = converted;
+		try
+		{
+			ByteBuffer message = EventAddRequest.encodeMessage(dataType, dataCount, CAStatus.NORMAL, converted);
+			message.flip();
+			encodedMessage = message.asReadOnlyBuffer();
+			status = CAStatus.NORMAL;
+		} catch (RuntimeException re) {
+			status = CAStatus.DEFUNCT;
+			throw re;
+		}
+	}
+
+}
@@ -0,0 +1,132 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas;
+
+/**
+ * Monitor (subscription) event queue policy (immutable).
+ * <ul>
+ * <li><i>keep latest N</i> - up to N events are queued, the oldest one is discarded on overflow (default, N = 100),</li>
+ * <li><i>keep latest</i> - only the latest event is queued (N = 1),</li>
+ * <li><i>coalesce</i> - only the latest event is queued and at most one event is sent per time window.</li>
+ * </ul>
+ * Policy of a monitor is given by <code>MonitorQueuePolicyProvider</code> (if implemented by the process variable),
+ * otherwise context default is used.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ * @see MonitorQueuePolicyProvider
+ * @see CAJServerContext#getDefaultMonitorQueuePolicy()
+ */
+public final class CASMonitorQueuePolicy {
+
+	/**
+	 * Default queue size.
+	 */
+	public static final int DEFAULT_QUEUE_SIZE = 100;
+
+	/**
+	 * Default policy, keep latest <code>DEFAULT_QUEUE_SIZE</code> events.
+	 */
+	public static final CASMonitorQueuePolicy DEFAULT = new CASMonitorQueuePolicy(DEFAULT_QUEUE_SIZE, 0);
+
+	/**
+	 * Keep latest event only policy.
+	 */
+	public static final CASMonitorQueuePolicy KEEP_LATEST = new CASMonitorQueuePolicy(1, 0);
+
+	/**
+	 * Queue size.
+	 */
+	private final int queueSize;
+
+	/**
+	 * Coalesce window (ms), 0 if none.
+	 */
+	private final long coalesceWindow;
+
+	/**
+	 * Constructor.
+	 * @param queueSize queue size.
+	 * @param coalesceWindow coalesce window in milliseconds.
+	 */
+	private CASMonitorQueuePolicy(int queueSize, long coalesceWindow) {
+		this.queueSize = queueSize;
+		this.coalesceWindow = coalesceWindow;
+	}
+
+	/**
+	 * Keep latest event only.
+	 * @return policy.
+	 */
+	public static CASMonitorQueuePolicy keepLatest() {
+		return KEEP_LATEST;
+	}
+
+	/**
+	 * Keep latest N events.
+	 * @param n queue size, must be &gt; 0.
+	 * @return policy.
+	 */
+	public static CASMonitorQueuePolicy keepLatest(int n) {
+		if (n <= 0)
+			throw new IllegalArgumentException("n <= 0");
+		if (n == 1)
+			return KEEP_LATEST;
+		if (n == DEFAULT_QUEUE_SIZE)
+			return DEFAULT;
+		return new CASMonitorQueuePolicy(n, 0);
+	}
+
+	/**
+	 * Coalesce events within time window, i.e. keep latest and send at most one event per window.
+	 * @param windowMs window in milliseconds, 0 means keep latest.
+	 * @return policy.
+	 */
+	public static CASMonitorQueuePolicy coalesce(long windowMs) {
+		if (windowMs < 0)
+			throw new IllegalArgumentException("windowMs < 0");
+		if (windowMs == 0)
+			return KEEP_LATEST;
+		return new CASMonitorQueuePolicy(1, windowMs);
+	}
+
+	/**
+	 * Get queue size.
+	 * @return queue size.
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * Get coalesce window.
+	 * @return coalesce window in milliseconds, 0 if none.
+	 */
+	public long getCoalesceWindow() {
+		return coalesceWindow;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	public String toString() {
+		if (coalesceWindow > 0)
+			return "coalesce(" + coalesceWindow + " ms)";
+		else if (queueSize == 1)
+			return "keepLatest";
+		else
+			return "keepLatest(" + queueSize + ")";
+	}
+
+}
@@ -14,10 +14,11 @@
 
 package com.cosylab.epics.caj.cas;
 
-import java.util.LinkedList;
-
 import com.cosylab.epics.caj.cas.handlers.EventAddResponse;
+import com.cosylab.epics.caj.util.RingBuffer;
+import com.cosylab.epics.caj.util.Timer;
 
+import gov.aps.jca.cas.ProcessVariable;
 import gov.aps.jca.cas.ProcessVariableEventCallback;
 import gov.aps.jca.cas.ServerChannel;
 import gov.aps.jca.cas.ServerMonitor;
@@ -25,11 +26,13 @@ import gov.aps.jca.dbr.DBR;
 
 /**
  * CAS monitor implementation.
+ * Events are queued in a fixed-size ring according to the <code>CASMonitorQueuePolicy</code>,
+ * dispatch is deferred (and events coalesced) when coalesce window or per-client update rate limit applies.
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
 public class CASServerMonitor extends ServerMonitor implements
-		ProcessVariableEventCallback, Runnable {
+		ProcessVariableEventCallback, Runnable, Timer.TimerRunnable {
 
 	/**
 	 * Monitor mask.
@@ -60,6 +63,16 @@ public class CASServerMonitor extends ServerMonitor implements
 		this.transport = transport;
 		this.dataType = dataType;
 		this.dataCount = dataCount;
+
+		// per-subscription policy, context default otherwise
+		CASMonitorQueuePolicy policy = null;
+		ProcessVariable processVariable = channel.getProcessVariable();
+		if (processVariable instanceof MonitorQueuePolicyProvider)
+			policy = ((MonitorQueuePolicyProvider)processVariable).getMonitorQueuePolicy(channel, mask, dataType, dataCount);
+		if (policy == null)
+			policy = ((CAJServerContext)transport.getContext()).getDefaultMonitorQueuePolicy();
+		this.queuePolicy = policy;
+		this.queue = new RingBuffer(policy.getQueueSize());
 		
 		// register to the event dispatcher
 		((ProcessVariableEventDispatcher)channel.getProcessVariable().getEventCallback()).registerEventListener(this);
@@ -74,6 +87,12 @@ public class CASServerMonitor extends ServerMonitor implements
 		synchronized (queue) {
 			destoryed = true;
 			queue.clear();
+			
+			if (deferredSubmitID != null)
+			{
+				Timer.cancel(deferredSubmitID);
+				deferredSubmitID = null;
+			}
 		}
 		
 		// unregister from the event dispatcher
@@ -94,15 +113,34 @@ public class CASServerMonitor extends ServerMonitor implements
 	/************************************ DISPATCHING ************************************/
 	
 	/**
-	 * Ordered dispatch queue.
+	 * Ordered dispatch queue (fixed-size ring, oldest events are discarded on overflow).
 	 */
-	protected LinkedList queue = new LinkedList();
+	protected final RingBuffer queue;
 
 	/**
-	 * Pending event. 
+	 * Queue policy.
 	 * NOTE: synchronized on <code>queue</code>'s monitor. 
 	 */
-	protected DBR pendingEvent = null;
+	protected CASMonitorQueuePolicy queuePolicy;
+
+	/**
+	 * Time of the last dispatched event (ms).
+	 * NOTE: synchronized on <code>queue</code>'s monitor. 
+	 */
+	protected long lastDispatchTime = 0;
+
+	/**
+	 * Deferred submit timer task ID, non-<code>null</code> while dispatch is deferred
+	 * (coalesce window or per-client update rate limit).
+	 * NOTE: synchronized on <code>queue</code>'s monitor. 
+	 */
+	protected Object deferredSubmitID = null;
+
+	/**
+	 * Pending event (<code>DBR</code> or <code>CASEncodedEvent</code>). 
+	 * NOTE: synchronized on <code>queue</code>'s monitor. 
+	 */
+	protected Object pendingEvent = null;
 	
 	/**
 	 * Flag indicating pending submit.
@@ -117,10 +155,11 @@ public class CASServerMonitor extends ServerMonitor implements
 	protected boolean destoryed = false;
 
 	/**
-	 * Max queue size.
+	 * Default max queue size.
 	 * If limit is reached then older events are replaced with the newer.
+	 * @see CASMonitorQueuePolicy
 	 */
-	protected static final int MAX_QUEUE_SIZE = 100;
+	protected static final int MAX_QUEUE_SIZE = CASMonitorQueuePolicy.DEFAULT_QUEUE_SIZE;
 
 	/**
 	 * NOT TO BE CHANGED.
@@ -131,15 +170,30 @@ public class CASServerMonitor extends ServerMonitor implements
 		// get request
 		synchronized (queue)
 		{
-			// if destroyed, bail out
-			if (destoryed || queue.isEmpty())
+			// if destroyed or deferred, bail out
+			if (destoryed || queue.isEmpty() || deferredSubmitID != null)
 				return;
 			
-			pendingEvent = (DBR)queue.removeFirst();
+			// coalesce window and per-client update rate limit
+			final long now = System.currentTimeMillis();
+			long delay = lastDispatchTime + queuePolicy.getCoalesceWindow() - now;
+			if (delay <= 0)
+				delay = transport.acquireUpdatePermit(now);
+			if (delay > 0)
+			{
+				defer(delay);
+				return;
+			}
+			lastDispatchTime = now;
+			
+			pendingEvent = queue.removeFirst();
 		}
 		
 		// send response
-		handler.eventResponse(channel.getProcessVariable(), transport, dataType, dataCount, channel.getSID(), ioid, pendingEvent);
+		if (pendingEvent instanceof CASEncodedEvent)
+			handler.eventResponse(transport, channel.getSID(), ioid, (CASEncodedEvent)pendingEvent);
+		else
+			handler.eventResponse(channel.getProcessVariable(), transport, dataType, dataCount, channel.getSID(), ioid, (DBR)pendingEvent);
 
 		// this line will always be reached - up code is (has to be) exception safe
 		synchronized (queue)
@@ -154,6 +208,33 @@ public class CASServerMonitor extends ServerMonitor implements
 		
 	}
 
+	/**
+	 * Defer dispatch, queued events are coalesced to the latest one.
+	 * NOTE: to be called while holding <code>queue</code>'s monitor.
+	 * @param delay delay in ms.
+	 */
+	private void defer(long delay)
+	{
+		queue.keepLast();
+		deferredSubmitID = ((CAJServerContext)transport.getContext()).getTimer().executeAfterDelay(delay, this);
+	}
+	
+	/**
+	 * Deferred submit.
+	 * @see com.cosylab.epics.caj.util.Timer.TimerRunnable#timeout(long)
+	 */
+	public void timeout(long timeToRun)
+	{
+		synchronized (queue)
+		{
+			deferredSubmitID = null;
+			submitPending = false;
+
+			if (!destoryed && !queue.isEmpty())
+				submit();
+		}
+	}
+
 	/**
 	 * Sumbit to be processed. 
 	 */
@@ -173,10 +254,71 @@ public class CASServerMonitor extends ServerMonitor implements
 		}
 	}
 
+	/**
+	 * Get queue policy.
+	 * @return queue policy.
+	 */
+	public CASMonitorQueuePolicy getQueuePolicy() {
+		synchronized (queue) {
+			return queuePolicy;
+		}
+	}
+
+	/**
+	 * Set queue policy (e.g. per-subscription override), the latest queued events are kept.
+	 * @param queuePolicy queue policy.
+	 */
+	public void setQueuePolicy(CASMonitorQueuePolicy queuePolicy) {
+		if (queuePolicy == null)
+			throw new IllegalArgumentException("queuePolicy == null");
+		
+		synchronized (queue) {
+			this.queuePolicy = queuePolicy;
+			queue.setCapacity(queuePolicy.getQueueSize());
+		}
+	}
+
+	/**
+	 * Get requested data type.
+	 * @return requested data type.
+	 */
+	public short getDataType() {
+		return dataType;
+	}
+
+	/**
+	 * Get requested data count.
+	 * @return requested data count.
+	 */
+	public int getDataCount() {
+		return dataCount;
+	}
+
 	/**
 	 * @see gov.aps.jca.cas.ProcessVariableEventCallback#postEvent(int, gov.aps.jca.dbr.DBR)
 	 */
 	public void postEvent(int select, DBR event)
+	{
+		postEventInternal(select, event);
+	}
+
+	/**
+	 * Post event already encoded for this monitor's data type and count.
+	 * @param select <code>Monitor.[mask]</code> event type.
+	 * @param event shared encoded event.
+	 * @see ProcessVariableEventDispatcher#postEvent(int, DBR)
+	 */
+	public void postEvent(int select, CASEncodedEvent event)
+	{
+		postEventInternal(select, event);
+	}
+
+	/**
+	 * Enqueue an event (<code>DBR</code> or <code>CASEncodedEvent</code>).
+	 * @param select <code>Monitor.[mask]</code> event type.
+	 * @param event event to enqueue.
+	 */
+	private void postEventInternal(int select, Object event)
 	{
 			
 		// filter
@@ -190,18 +332,15 @@ public class CASServerMonitor extends ServerMonitor implements
 				return;
 
 			// replace all previous requests in the queue, if replace policy is set
-			if (transport.hasReplaceEventPolicy())
+			// or dispatch is deferred (coalesce)
+			if (transport.hasReplaceEventPolicy() || deferredSubmitID != null)
 				queue.clear();
 
-			// add to queue	
+			// add to queue, discard the oldest one on overflow
 			queue.addLast(event);
-
-			// discard the oldest one
-			if (queue.size() > MAX_QUEUE_SIZE)
-				queue.removeFirst();
 			
 			// initiate submit to dispatcher queue, if necessary
-			if (!submitPending)
+			if (!submitPending && deferredSubmitID == null)
 				submit();
 		}
 	}
@@ -18,6 +18,8 @@ import gov.aps.jca.CAStatus;
 import gov.aps.jca.CAStatusException;
 import gov.aps.jca.Channel;
 import gov.aps.jca.cas.ServerChannel;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.dbr.DBR_STSACK_String;
 import gov.aps.jca.dbr.DBR_String;
 
@@ -27,25 +29,29 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.LinkedList;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.cosylab.epics.caj.impl.CAConstants;
 import com.cosylab.epics.caj.impl.CAContext;
 import com.cosylab.epics.caj.impl.CachedByteBufferAllocator;
+import com.cosylab.epics.caj.impl.DBRDecoder;
 import com.cosylab.epics.caj.impl.Request;
 import com.cosylab.epics.caj.impl.ResponseHandler;
 import com.cosylab.epics.caj.impl.Transport;
+import com.cosylab.epics.caj.impl.reactor.Reactor;
 import com.cosylab.epics.caj.impl.reactor.ReactorHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersThreadPool;
 import com.cosylab.epics.caj.util.IntHashMap;
+import com.cosylab.epics.caj.util.SerialExecutor;
 
 /**
  * CAS transport implementation.
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
-public class CASTransport implements Transport, ReactorHandler, Runnable {
+public class CASTransport implements Transport, ReactorHandler {
 
 	// Get Logger
 	private static final Logger logger = Logger.getLogger(CASTransport.class.getName());
@@ -70,11 +76,36 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 	 */
 	private InetSocketAddress socketAddress;
 
+	/**
+	 * Reactor serving this transport.
+	 */
+	private final Reactor reactor;
+
 	/**
 	 * Receive buffer.
 	 */
 	private ByteBuffer[] receiveBuffer;
 
+	/**
+	 * Base (small) payload receive buffer, large payloads are received into buffers taken from the shared pool.
+	 */
+	private final ByteBuffer basePayloadBuffer;
+
+	/**
+	 * Value being streamed (decoded as the payload arrives), <code>null</code> if none.
+	 */
+	private DBR streamedValue = null;
+
+	/**
+	 * Number of already decoded elements of <code>streamedValue</code>.
+	 */
+	private int streamedElements;
+
+	/**
+	 * Number of payload bytes of <code>streamedValue</code> still to be read (including padding).
+	 */
+	private int streamedRemaining;
+
 	/**
 	 * Send queue.
 	 */
@@ -138,19 +169,29 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 	private volatile boolean replaceEventPolicy = false;
 	
 	/**
-	 * Process event flag.
+	 * Update rate limiter lock, also guards <code>updateTokens</code> and <code>lastUpdateRefill</code>.
 	 */
-	private volatile boolean processEvents = true;
+	private final Object updateRateLock = new Object();
 
 	/**
-	 * Process event thread.
+	 * Update rate limiter (token bucket) tokens.
 	 */
-	private Thread processEventThread;
-	
+	private double updateTokens = 0;
+
+	/**
+	 * Last update rate limiter refill time (ms).
+	 */
+	private long lastUpdateRefill = 0;
+
+	/**
+	 * Process event flag.
+	 */
+	private volatile boolean processEvents = true;
+
 	/**
-	 * Event queue.
+	 * Event dispatcher, serial (ordered) executor on the context's shared event dispatcher thread pool.
 	 */
-	private final LinkedList eventQueue = new LinkedList();
+	private final SerialExecutor eventDispatcher;
 
 	/**
 	 * Channel table (SID -> channel mapping).
@@ -171,9 +212,11 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 		channels = new IntHashMap(INITIAL_SIZE);
 		
 		// initialize buffers
+		// NOTE: payload buffer grows on demand (see processRead())
+		basePayloadBuffer = ByteBuffer.allocate(CAConstants.MAX_TCP_RECV);
 		receiveBuffer = new ByteBuffer[] {
 							ByteBuffer.allocate(CAConstants.CA_EXTENDED_MESSAGE_HEADER_SIZE),
-							ByteBuffer.allocate(Math.max(CAConstants.MAX_TCP_RECV, this.context.getMaxArrayBytes() + 8))
+							basePayloadBuffer
 						};
 		// first limit to a reading of an standard message header
 		receiveBuffer[0].limit(CAConstants.CA_MESSAGE_HEADER_SIZE);
@@ -185,16 +228,14 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 		responseHandler = new CASResponseHandler(this.context);
 		
 		socketAddress = (InetSocketAddress)channel.socket().getRemoteSocketAddress();
+		reactor = context.getTransportReactor(socketAddress);
 		
-
-		// start event dispatcher thread
-		processEventThread = new Thread(this, socketAddress + "event dispatcher");
+		// event dispatcher
+		eventDispatcher = new SerialExecutor(this.context.getEventDispatcherThreadPool(), logger);
 
 		// set default priority
 		setPriority(CAConstants.CA_DEFAULT_PRIORITY);
 
-		processEventThread.start();
-
 		// add to registry, with priority CAConstants.CA_DEFAULT_PRIORITY
 		context.getTransportRegistry().put(socketAddress, this);
 	}
@@ -217,10 +258,7 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 		destroyAllChannels();
 		
 		// shutdown event processor
-		// wake up the processing thread
-		synchronized (eventQueue) {
-			eventQueue.notify();
-		}
+		eventDispatcher.shutdown();
 
 		// flush first
 		if (!forced)
@@ -230,7 +268,7 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 
 		context.getLogger().finer("Connection to " + socketAddress + " closed.");
 
-		context.getReactor().unregisterAndClose(channel);
+		reactor.unregisterAndClose(channel);
 	}
 
 	/**
@@ -307,6 +345,9 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 
 	/**
 	 * Process input (read) IO event.
+	 * Payloads larger than the base payload buffer are received into a buffer taken from the shared pool
+	 * (returned after the message is handled), or, in case of plain-type put requests, streamed
+	 * directly into the target DBR (see <code>startStreaming()</code>).
 	 */
 	// TODO buffered read as in CAJ
 	protected void processRead() {
@@ -354,7 +395,11 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 
 					// check payload buffer capacity
 					if (payloadSize > payloadBuffer.capacity()) {
-						receiveBuffer[1] = ByteBuffer.allocate(payloadSize);
+						if (startStreaming(headerBuffer, payloadSize))
+							continue;
+						
+						// large payload, use pooled buffer
+						receiveBuffer[1] = bufferAllocator.get(payloadSize);
 						payloadBuffer = receiveBuffer[1];
 					}
 
@@ -363,8 +408,36 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 					payloadBuffer.limit(payloadSize);
 				}
 
-				// are we reading the payload
-				if (payloadBuffer.limit() == 0)
+				// are we streaming the payload
+				if (streamedValue != null)
+				{
+					if (!readStreamedPayload())
+						break;
+					
+					// prepare buffer for reading
+					headerBuffer.flip();
+
+					// empty payload buffer, value is obtained via getStreamedValue() 
+					payloadBuffer.clear();
+					payloadBuffer.limit(0);
+					
+					try
+					{
+						// handle response
+						responseHandler.handleResponse(socketAddress, this, receiveBuffer);
+					}
+					catch (Throwable th)
+					{
+						// catch all bad code responses...	
+						logger.log(Level.SEVERE, "", th);
+					}
+					streamedValue = null;
+
+					// reset header buffer
+					headerBuffer.clear();
+					headerBuffer.limit(CAConstants.CA_MESSAGE_HEADER_SIZE);
+				}
+				else if (payloadBuffer.limit() == 0)
 				{
 					try
 					{
@@ -409,6 +482,13 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 						logger.log(Level.SEVERE, "", th);
 					}
 
+					// return pooled buffer
+					if (payloadBuffer != basePayloadBuffer)
+					{
+						receiveBuffer[1] = basePayloadBuffer;
+						bufferAllocator.put(payloadBuffer);
+					}
+
 					// reset header buffer
 					headerBuffer.clear();
 					headerBuffer.limit(CAConstants.CA_MESSAGE_HEADER_SIZE);
@@ -421,6 +501,78 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 		} 
 	}
 
+	/**
+	 * Start streaming the payload directly into the target DBR, if possible.
+	 * Only put requests of plain (value-only) types are streamed.
+	 * @param headerBuffer	message header buffer (not flipped).
+	 * @param payloadSize	payload size.
+	 * @return <code>true</code> if streaming has been started.
+	 */
+	private boolean startStreaming(ByteBuffer headerBuffer, int payloadSize)
+	{
+		final short command = headerBuffer.getShort(0);
+		if (command != 4 /* CA_PROTO_WRITE */ && command != 19 /* CA_PROTO_WRITE_NOTIFY */)
+			return false;
+
+		final short dataType = headerBuffer.getShort(4);
+		int dataCount = headerBuffer.getShort(6) & 0xFFFF;
+		if (headerBuffer.limit() == CAConstants.CA_EXTENDED_MESSAGE_HEADER_SIZE)
+			dataCount = headerBuffer.getInt(20);
+
+		final int elementSize = DBRDecoder.getValueElementSize(dataType);
+		if (elementSize <= 0 || dataCount <= 1 || (long)dataCount * elementSize > payloadSize)
+			return false;
+		
+		DBRType type = DBRType.forValue(dataType);
+		if (type == null)
+			return false;
+
+		streamedValue = type.newInstance(dataCount);
+		streamedElements = 0;
+		streamedRemaining = payloadSize;
+		basePayloadBuffer.clear();
+		return true;
+	}
+
+	/**
+	 * Read (and decode) available part of the streamed payload.
+	 * @return <code>true</code> if whole payload has been read.
+	 * @throws IOException 
+	 */
+	private boolean readStreamedPayload() throws IOException
+	{
+		final ByteBuffer buffer = basePayloadBuffer;
+		while (streamedRemaining > 0)
+		{
+			// NOTE: buffer position is set after the partial element left from the previous read
+			buffer.limit(buffer.position() + Math.min(buffer.remaining(), streamedRemaining));
+			final int bytesRead = channel.read(buffer);
+			if (bytesRead < 0) {
+				// error (disconnect, end-of-stream) detected
+				close(true);
+				return false;
+			}
+			else if (bytesRead == 0)
+				return false;
+			streamedRemaining -= bytesRead;
+
+			// decode whole elements, keep the rest (and padding)
+			buffer.flip();
+			streamedElements += DBRDecoder.decodeValueElements(streamedValue, streamedElements, buffer);
+			buffer.compact();
+		}
+		return true;
+	}
+
+	/**
+	 * Get value of the message being handled that has been streamed (decoded while being received).
+	 * @return streamed value, <code>null</code> if the payload of the message being handled is not streamed.
+	 */
+	public DBR getStreamedValue()
+	{
+		return streamedValue;
+	}
+
 
 	/**
 	 * Process output (write) IO event.
@@ -575,7 +727,7 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 	    else
 	    {
 		    // enable SelectionKey.OP_WRITE via reactor (this will also enable OP_READ, but its OK)
-		    context.getReactor().setInterestOps(channel, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		    reactor.setInterestOps(channel, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
 		    return true;
 	    }
     }
@@ -665,7 +817,16 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 				if (message.limit()+sendBuffer.position() > sendBuffer.capacity())
 				    flush();
 				
-				// TODO !!! check message size, it can exceed sendBuffer capacity
+				// message larger than the send buffer, use larger (pooled) buffer
+				if (message.limit() > sendBuffer.remaining())
+				{
+					ByteBuffer largeBuffer = bufferAllocator.get(sendBuffer.position() + message.limit());
+					sendBuffer.flip();
+					largeBuffer.put(sendBuffer);
+					bufferAllocator.put(sendBuffer);
+					sendBuffer = largeBuffer;
+				}
+
 				sendBuffer.put(message);
 			}
 		}
@@ -685,6 +846,14 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 		return socketAddress;
 	}
 
+	/**
+	 * Get reactor serving this transport.
+	 * @return reactor serving this transport.
+	 */
+	public Reactor getReactor() {
+		return reactor;
+	}
+
 	/**
 	 * @see com.cosylab.epics.caj.impl.Transport#getPriority()
 	 */
@@ -877,6 +1046,9 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 	{
 		replaceEventPolicy = true;
 		processEvents = false;
+		
+		// queued events are kept
+		eventDispatcher.suspend();
 	}
 
 	/**
@@ -887,10 +1059,7 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 		replaceEventPolicy = false;
 		processEvents = true;
 
-		// wake up the processing thread
-		synchronized (eventQueue) {
-			eventQueue.notify();
-		}
+		eventDispatcher.resume();
 	}
 
 	/**
@@ -902,6 +1071,38 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 		return replaceEventPolicy;
 	}
 	
+	/**
+	 * Acquire permit to send an update (monitor event) to the client,
+	 * enforces maximum update rate per client (token bucket, burst of 1/10 of a second).
+	 * @param now current time (ms).
+	 * @return 0 if permit is acquired, otherwise time to wait (ms) for the next permit.
+	 * @see CAJServerContext#getMaxClientUpdateRate()
+	 */
+	public long acquireUpdatePermit(long now)
+	{
+		final float maxRate = context.getMaxClientUpdateRate();
+		if (maxRate <= 0)
+			return 0;
+		
+		final double burst = Math.max(1.0, maxRate / 10.0);
+		synchronized (updateRateLock)
+		{
+			if (lastUpdateRefill == 0)
+				updateTokens = burst;
+			else if (now > lastUpdateRefill)
+				updateTokens = Math.min(burst, updateTokens + (now - lastUpdateRefill) * maxRate / 1000.0);
+			lastUpdateRefill = now;
+			
+			if (updateTokens >= 1.0)
+			{
+				updateTokens -= 1.0;
+				return 0;
+			}
+			
+			return Math.max(1, (long)Math.ceil((1.0 - updateTokens) * 1000.0 / maxRate));
+		}
+	}
+	
 	/**
 	 * Process event.
 	 * @param event	event to be processed.
@@ -913,49 +1114,14 @@ public class CASTransport implements Transport, ReactorHandler, Runnable {
 			return false;
 
 		// put into the queue to process
-        synchronized(eventQueue) {
-        	eventQueue.addLast(event);
-        	eventQueue.notify();
-        }
+		try {
+			eventDispatcher.execute(event);
+		} catch (RejectedExecutionException ree) {
+			// closed
+			return false;
+		}
 
-        return true;
+		return true;
 	}
 
-    /**
-	 * Event dispatching is done here.
-	 * @see java.lang.Runnable#run()
-	 */
-	public void run()
-	{
-		while (true)
-		{
-			Runnable event;
-		
-			synchronized (eventQueue)
-			{
-				// wait for new event ...
-				while ((eventQueue.isEmpty() || !processEvents) && !closed) {
-					try { 
-						eventQueue.wait();
-					} catch (InterruptedException ignored) { /* noop */ }
-				}
-
-				// check if closed
-				if (closed) {
-					eventQueue.clear();
-					return;
-				}
-
-				event = (Runnable) eventQueue.removeFirst();
-			}
-
-			// ... and process
-			try {
-				event.run();
-			} catch (Throwable th) {
-				logger.log(Level.SEVERE, "", th);
-			}
-		}
-	}
-	
 }
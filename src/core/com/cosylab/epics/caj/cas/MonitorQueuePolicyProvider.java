@@ -0,0 +1,37 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas;
+
+import gov.aps.jca.cas.ServerChannel;
+
+/**
+ * Per-subscription monitor queue policy provider,
+ * to be implemented by <code>ProcessVariable</code> implementations that require non-default policy.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public interface MonitorQueuePolicyProvider {
+
+	/**
+	 * Get monitor queue policy for given subscription.
+	 * @param channel server channel.
+	 * @param mask monitor mask.
+	 * @param dataType requested data type.
+	 * @param dataCount requested data count.
+	 * @return policy, <code>null</code> to use context default.
+	 */
+	public CASMonitorQueuePolicy getMonitorQueuePolicy(ServerChannel channel, short mask, short dataType, int dataCount);
+
+}
@@ -15,19 +15,26 @@
 package com.cosylab.epics.caj.cas;
 
 import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
+import com.cosylab.epics.caj.util.Timer;
+
 import gov.aps.jca.cas.ProcessVariable;
 import gov.aps.jca.cas.ProcessVariableEventCallback;
 import gov.aps.jca.dbr.DBR;
 
 /**
  * Event callback dispatcher (fan-out).
+ * CAS monitors are grouped by requested data type and count, event is converted and serialized
+ * only once per group (see <code>CASEncodedEvent</code>).
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
-// TODO optimize
 public class ProcessVariableEventDispatcher implements ProcessVariableEventCallback {
 
 	
@@ -39,24 +46,63 @@ public class ProcessVariableEventDispatcher implements ProcessVariableEventCallb
 	 */
 	protected ProcessVariable processVariable;
 
+	/**
+	 * Timer of the server context (e.g. for deferred event posting), can be <code>null</code>.
+	 */
+	protected final Timer timer;
+
 	/**
 	 * Empty array (performance opt.)
 	 */
 	private static final ProcessVariableEventCallback[] EMPTY_LIST = new ProcessVariableEventCallback[0];
 
+	/**
+	 * Empty groups array (performance opt.)
+	 */
+	private static final CASServerMonitor[][] EMPTY_GROUPS = new CASServerMonitor[0][];
+
 	/**
 	 * List of listeners.
 	 */
-	protected ArrayList listeners = new ArrayList();
+	protected ArrayList<ProcessVariableEventCallback> listeners = new ArrayList<ProcessVariableEventCallback>();
 	protected ProcessVariableEventCallback[] cachedList = EMPTY_LIST;
+
+	/**
+	 * Non-CAS monitor listeners (cached).
+	 */
+	protected ProcessVariableEventCallback[] cachedCallbacks = EMPTY_LIST;
+
+	/**
+	 * CAS monitors grouped by (dataType, dataCount) (cached).
+	 */
+	protected CASServerMonitor[][] cachedGroups = EMPTY_GROUPS;
 	
 	/**
 	 * Constructor.
 	 * @param processVariable PV to dispatch for, can be <code>null</code>.
 	 */
 	public ProcessVariableEventDispatcher(ProcessVariable processVariable)
+	{
+		this(processVariable, null);
+	}
+
+	/**
+	 * Constructor.
+	 * @param processVariable PV to dispatch for, can be <code>null</code>.
+	 * @param timer timer of the server context, can be <code>null</code>.
+	 */
+	public ProcessVariableEventDispatcher(ProcessVariable processVariable, Timer timer)
 	{
 		this.processVariable = processVariable;
+		this.timer = timer;
+	}
+
+	/**
+	 * Get timer of the server context.
+	 * @return timer, <code>null</code> if not available.
+	 */
+	public Timer getTimer() {
+		return timer;
 	}
 	
 	/**
@@ -86,16 +132,79 @@ public class ProcessVariableEventDispatcher implements ProcessVariableEventCallb
 		// dispatch
 		synchronized (listeners)
 		{
-			final int size = cachedList.length; 
+			final int size = cachedCallbacks.length; 
 			for (int i = 0; i < size; i++) {
 				try {
-					cachedList[i].postEvent(select, event);
+					cachedCallbacks[i].postEvent(select, event);
 				} catch (Throwable th) {
 					// print exception trace, do nothing
 					logger.log(Level.SEVERE, "", th);
 				}
 			}
+			
+			// encode once per group
+			final int groups = cachedGroups.length;
+			for (int g = 0; g < groups; g++) {
+				final CASServerMonitor[] group = cachedGroups[g];
+				final CASServerMonitor first = group[0];
+				CASEncodedEvent encodedEvent = new CASEncodedEvent(first.getChannel().getProcessVariable(),
+						event, first.getDataType(), first.getDataCount());
+				for (int i = 0; i < group.length; i++) {
+					try {
+						group[i].postEvent(select, encodedEvent);
+					} catch (Throwable th) {
+						// print exception trace, do nothing
+						logger.log(Level.SEVERE, "", th);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Rebuild cached listener arrays and groups.
+	 * NOTE: has to be called while holding a lock on <code>listeners</code>.
+	 */
+	private void updateCache()
+	{
+		ProcessVariableEventCallback[] ncl = new ProcessVariableEventCallback[listeners.size()];
+		listeners.toArray(ncl);
+		cachedList = ncl;
+
+		List<ProcessVariableEventCallback> callbacks = new ArrayList<ProcessVariableEventCallback>();
+		// (dataType, dataCount) -> list of monitors, insertion order preserved
+		Map<Long, List<CASServerMonitor>> groups = new LinkedHashMap<Long, List<CASServerMonitor>>();
+		for (int i = 0; i < ncl.length; i++)
+		{
+			if (ncl[i] instanceof CASServerMonitor)
+			{
+				CASServerMonitor monitor = (CASServerMonitor)ncl[i];
+				Long key = Long.valueOf(((long)monitor.getDataType() << 32) | (monitor.getDataCount() & 0xFFFFFFFFL));
+				List<CASServerMonitor> group = groups.get(key);
+				if (group == null)
+				{
+					group = new ArrayList<CASServerMonitor>();
+					groups.put(key, group);
+				}
+				group.add(monitor);
+			}
+			else
+				callbacks.add(ncl[i]);
+		}
+		
+		ProcessVariableEventCallback[] ncc = new ProcessVariableEventCallback[callbacks.size()];
+		callbacks.toArray(ncc);
+		cachedCallbacks = ncc;
+		
+		CASServerMonitor[][] ncg = new CASServerMonitor[groups.size()][];
+		int g = 0;
+		for (Iterator<List<CASServerMonitor>> iter = groups.values().iterator(); iter.hasNext(); g++)
+		{
+			List<CASServerMonitor> group = iter.next();
+			ncg[g] = new CASServerMonitor[group.size()];
+			group.toArray(ncg[g]);
 		}
+		cachedGroups = ncg;
 	}
 
 	/**
@@ -107,9 +216,7 @@ public class ProcessVariableEventDispatcher implements ProcessVariableEventCallb
 		synchronized (listeners)
 		{
 			listeners.add(listener);
-			ProcessVariableEventCallback[] ncl = new ProcessVariableEventCallback[listeners.size()];
-			listeners.toArray(ncl);
-			cachedList = ncl;
+			updateCache();
 			
 			// notify PV about our interest
 			if (listeners.size() == 1 && processVariable != null)
@@ -127,9 +234,7 @@ public class ProcessVariableEventDispatcher implements ProcessVariableEventCallb
 		{
 			boolean removed = listeners.remove(listener);
 			if (removed) {
-				ProcessVariableEventCallback[] ncl = new ProcessVariableEventCallback[listeners.size()];
-				listeners.toArray(ncl);
-				cachedList = ncl;
+				updateCache();
 
 				// notify PV we are not interested anymore
 				if (listeners.size() == 0 && processVariable != null)
@@ -69,18 +69,24 @@ public abstract class AbstractCASResponseHandler extends AbstractCAResponseHandl
 			start = buffer.position();
 		final int bufferEnd = start + maxSize;
 
-		byte[] data = buffer.array();
 		int end = start;
 		
 		// find zero char (string terminator)
-		while (data[end] != 0 && end < bufferEnd)
+		while (end < bufferEnd && buffer.get(end) != 0)
 			end++;
 
 		// set to the end
 		if (setToEnd && end != bufferEnd)
 			buffer.position(end + 1); // skip 0 character
 		
-		return new String(data, start, end-start);
+		// large payloads are received to (pooled) direct buffers
+		if (buffer.hasArray())
+			return new String(buffer.array(), buffer.arrayOffset() + start, end-start);
+
+		byte[] data = new byte[end-start];
+		for (int i = 0; i < data.length; i++)
+			data[i] = buffer.get(start + i);
+		return new String(data);
 	}
 
 	/**
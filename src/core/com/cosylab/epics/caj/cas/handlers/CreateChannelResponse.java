@@ -100,7 +100,7 @@ public class CreateChannelResponse extends AbstractCASResponseHandler {
 		// ask the server to attach this PV
 		//
 		ProcessVariable pv = null;
-		ProcessVariableEventDispatcher pved = new ProcessVariableEventDispatcher(null);
+		ProcessVariableEventDispatcher pved = new ProcessVariableEventDispatcher(null, context.getTimer());
 		try
 		{
 			ProcessVariableAttachCallback pvac = new ProcessVariableAttachCallbackImpl(transport, channelName, parameter1, pved);
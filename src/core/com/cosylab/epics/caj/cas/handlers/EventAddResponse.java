@@ -29,6 +29,7 @@ import java.nio.ByteBuffer;
 import java.util.logging.Level;
 
 import com.cosylab.epics.caj.cas.CAJServerContext;
+import com.cosylab.epics.caj.cas.CASEncodedEvent;
 import com.cosylab.epics.caj.cas.CASServerMonitor;
 import com.cosylab.epics.caj.cas.CASTransport;
 import com.cosylab.epics.caj.cas.requests.EventAddRequest;
@@ -179,6 +180,31 @@ public class EventAddResponse extends AbstractCASResponseHandler {
 		}
 	}
 	
+	/**
+	 * Respond with an event already encoded and shared among all monitors with the same data type and count.
+	 * @param transport  transport to be used when sending
+	 * @param sid sid
+	 * @param ioid ioid
+	 * @param event shared encoded event
+	 */
+	public void eventResponse(Transport transport, int sid, int ioid, CASEncodedEvent event) {
+
+		try
+		{
+			ByteBuffer message = event.getEncodedMessage();
+			if (message == null)
+			{
+				eventAddFailureResponse(transport, event.getDataType(), event.getDataCount(), sid, ioid, event.getStatus(), event.getValue());
+				return;
+			}
+
+			new EventAddRequest(transport, ioid, message).submit();
+			
+		} catch (Throwable th) {
+			context.getLogger().log(Level.WARNING, "Exception caught when responding to event add request for channel with SID : " + sid, th);
+		}
+	}
+	
 	/**
 	 * @param transport
 	 * @param dataType
@@ -17,8 +17,13 @@ package com.cosylab.epics.caj.cas.handlers;
 import gov.aps.jca.cas.ProcessVariableExistanceCallback;
 import gov.aps.jca.cas.ProcessVariableExistanceCompletion;
 
+import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
 import java.util.logging.Level;
 
 import com.cosylab.epics.caj.cas.CAJServerContext;
@@ -27,14 +32,53 @@ import com.cosylab.epics.caj.cas.requests.SearchFailedRequest;
 import com.cosylab.epics.caj.cas.requests.SearchRequest;
 import com.cosylab.epics.caj.impl.CAConstants;
 import com.cosylab.epics.caj.impl.Transport;
+import com.cosylab.epics.caj.util.Timer;
 
 /**
  * Search request handler (UDP only).
+ * UDP replies to the same client are packed into as few datagrams as possible,
+ * they are sent when all the search requests of a received datagram are processed
+ * (or after coalesce period in case of asynchronous completion).
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
 public class SearchResponse extends AbstractCASResponseHandler {
 
+	/**
+	 * Max. number of cached (free) reply buffers.
+	 */
+	private static final int MAX_FREE_BUFFERS = 16;
+
+	/**
+	 * Pending (not yet sent) UDP replies, per client address.
+	 * NOTE: access synchronized on itself.
+	 */
+	private final Map<InetSocketAddress, ByteBuffer> pendingReplies = new HashMap<InetSocketAddress, ByteBuffer>();
+
+	/**
+	 * Free reply buffers.
+	 * NOTE: synchronized on <code>pendingReplies</code>'s monitor.
+	 */
+	private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<ByteBuffer>();
+
+	/**
+	 * Scheduled flush task ID, <code>null</code> if not scheduled.
+	 * NOTE: synchronized on <code>pendingReplies</code>'s monitor.
+	 */
+	private Object flushTaskID = null;
+
+	/**
+	 * Flush (timer) task.
+	 */
+	private final Timer.TimerRunnable flushTask = new Timer.TimerRunnable() {
+		/**
+		 * @see com.cosylab.epics.caj.util.Timer.TimerRunnable#timeout(long)
+		 */
+		public void timeout(long timeToRun) {
+			flushReplies();
+		}
+	};
+
 	/**
 	 * @param context
 	 */
@@ -74,6 +118,41 @@ public class SearchResponse extends AbstractCASResponseHandler {
 		// to support multiple messages in one UDP packet
 		buffer.position(bufferEnd);
 
+		try
+		{
+			handleSearch(responseFrom, transport, buffer, start);
+		}
+		finally
+		{
+			// send UDP replies when there are no more search requests in the datagram
+			if (!(transport instanceof CASTransport) && !hasSearchRequest(buffer))
+				flushReplies();
+		}
+	}
+
+	/**
+	 * Check if next message in the buffer is a search request.
+	 * @param buffer buffer, positioned at the next message.
+	 * @return <code>true</code> if next message is a search request.
+	 */
+	private static boolean hasSearchRequest(ByteBuffer buffer) {
+		return buffer.remaining() >= CAConstants.CA_MESSAGE_HEADER_SIZE &&
+			   buffer.getShort(buffer.position()) == 6;
+	}
+
+	/**
+	 * Handle search request.
+	 * @param responseFrom
+	 * @param transport
+	 * @param buffer
+	 * @param start start of the payload.
+	 */
+	private void handleSearch(
+		InetSocketAddress responseFrom,
+		Transport transport,
+		ByteBuffer buffer,
+		int start) {
+
 		// check channel name size
 		if (payloadSize <= 1) {
 			context.getLogger().fine("Empty channel name search request from: " + responseFrom);
@@ -143,7 +222,7 @@ public class SearchResponse extends AbstractCASResponseHandler {
 				{
 					SearchRequest searchRequest = new SearchRequest(context.getBroadcastTransport(), null, true, (short)dataCount, cid);
 					context.getLogger().log(Level.FINE, "UDP EXISTS_HERE search reply");
-					context.getBroadcastTransport().send(searchRequest, responseFrom);
+					queueReply(responseFrom, searchRequest.getRequestMessage());
 				}
 				else
 				{
@@ -164,7 +243,7 @@ public class SearchResponse extends AbstractCASResponseHandler {
 				{
 					SearchRequest searchRequest = new SearchRequest(context.getBroadcastTransport(), completion.getOtherAddress(), true, (short)dataCount, cid);
 					context.getLogger().log(Level.FINE, "UDP EXISTS_ELSEWHERE search reply: " + completion.getOtherAddress());
-					context.getBroadcastTransport().send(searchRequest, responseFrom);
+					queueReply(responseFrom, searchRequest.getRequestMessage());
 				}
 				else
 				{
@@ -189,7 +268,7 @@ public class SearchResponse extends AbstractCASResponseHandler {
 				{
 					SearchFailedRequest searchFailedRequest =
 							new SearchFailedRequest(context.getBroadcastTransport(), (short)dataCount, cid, cid);
-					context.getBroadcastTransport().send(searchFailedRequest, responseFrom);
+					queueReply(responseFrom, searchFailedRequest.getRequestMessage());
 				} catch (Throwable th) {
 					context.getLogger().log(Level.WARNING, "Failed to send back search failed response to: " + responseFrom, th);
 				}
@@ -208,6 +287,93 @@ public class SearchResponse extends AbstractCASResponseHandler {
 		*/
 	}
 
+	/**
+	 * Queue UDP reply message, full reply datagram is sent immediately.
+	 * @param address client address.
+	 * @param message reply message (positioned at its end).
+	 * @throws IOException
+	 */
+	private void queueReply(InetSocketAddress address, ByteBuffer message) throws IOException
+	{
+		message.flip();
+		synchronized (pendingReplies)
+		{
+			ByteBuffer reply = pendingReplies.get(address);
+			if (reply == null)
+			{
+				reply = freeBuffers.pollFirst();
+				if (reply == null)
+					reply = ByteBuffer.allocate(CAConstants.MAX_UDP_SEND);
+				pendingReplies.put(address, reply);
+			}
+			else if (reply.remaining() < message.remaining())
+			{
+				// no more space, send and reuse
+				try {
+					context.getBroadcastTransport().send(reply, address);
+				} finally {
+					reply.clear();
+				}
+			}
+
+			reply.put(message);
+		}
+	}
+
+	/**
+	 * Send all pending UDP replies.
+	 */
+	private void flushReplies()
+	{
+		synchronized (pendingReplies)
+		{
+			if (flushTaskID != null)
+			{
+				Timer.cancel(flushTaskID);
+				flushTaskID = null;
+			}
+
+			if (pendingReplies.isEmpty())
+				return;
+
+			Iterator<Map.Entry<InetSocketAddress, ByteBuffer>> iter = pendingReplies.entrySet().iterator();
+			while (iter.hasNext())
+			{
+				Map.Entry<InetSocketAddress, ByteBuffer> entry = iter.next();
+				ByteBuffer reply = entry.getValue();
+				try {
+					context.getBroadcastTransport().send(reply, entry.getKey());
+				} catch (Throwable th) {
+					context.getLogger().log(Level.WARNING, "Failed to send back search response to: " + entry.getKey(), th);
+				}
+				
+				reply.clear();
+				if (freeBuffers.size() < MAX_FREE_BUFFERS)
+					freeBuffers.addLast(reply);
+			}
+			pendingReplies.clear();
+		}
+	}
+
+	/**
+	 * Send pending UDP replies now or schedule sending after coalesce period.
+	 */
+	private void scheduleFlush()
+	{
+		final float period = context.getSearchReplyCoalescePeriod();
+		if (period <= 0 || context.getTimer() == null)
+		{
+			flushReplies();
+			return;
+		}
+
+		synchronized (pendingReplies)
+		{
+			if (flushTaskID == null && !pendingReplies.isEmpty())
+				flushTaskID = context.getTimer().executeAfterDelay((long)(period * 1000), flushTask);
+		}
+	}
+
 	/**
 	 * Async. completion callback support.
 	 * @author msekoranja
@@ -238,6 +404,8 @@ public class SearchResponse extends AbstractCASResponseHandler {
 		 */
 		public void processVariableExistanceTestCompleted(ProcessVariableExistanceCompletion completion) {
 			searchResponse(responseFrom, null /* not TCP */, dataType, dataCount, cid, completion);
+			// not bound to a received datagram
+			scheduleFlush();
 		}
 
 		/* (non-Javadoc)
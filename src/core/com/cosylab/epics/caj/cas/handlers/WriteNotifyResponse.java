@@ -76,8 +76,10 @@ public class WriteNotifyResponse extends AbstractCASResponseHandler {
 			return;
 		}
 		
-		// decode value
-		DBR value = DBRDecoder.getDBR(null, dataType, dataCount, response[1]);
+		// decode value (large plain-type values are already streamed)
+		DBR value = casTransport.getStreamedValue();
+		if (value == null)
+			value = DBRDecoder.getDBR(null, dataType, dataCount, response[1]);
 
 		// ackS/T support
 		if (value instanceof DBR_PutAckT)
@@ -44,33 +44,96 @@ public class EventAddRequest extends AbstractCARequest {
 	{
 		super(transport);
 
-		int calculatedPayloadSize = DBREncoder.calculatePayloadSize((short)dataType, dataCount, value.getValue());
+		int calculatedPayloadSize = DBREncoder.calculatePayloadSize(dataType, dataCount, value.getValue());
+		checkRevision(transport, calculatedPayloadSize, dataCount);
+
+		requestMessage = encodeMessage(dataType, dataCount, status, value);
+		requestMessage = insertIOID(requestMessage, ioid);
+	}
+
+	/**
+	 * Create response from an already encoded message (shared among many subscriptions),
+	 * only ioid is patched.
+	 * @param transport transport to be used when sending
+	 * @param ioid ioid
+	 * @param encodedMessage message encoded by <code>encodeMessage</code>, position set to 0 and limit to the message size.
+	 * @see #encodeMessage(short, int, CAStatus, DBR)
+	 */
+	public EventAddRequest(Transport transport, int ioid, ByteBuffer encodedMessage)
+	{
+		super(transport);
+
+		// extended header check
+		boolean extendedHeader = (encodedMessage.getShort(2) & 0xFFFF) == 0xFFFF;
+		if (extendedHeader)
+			checkRevision(transport, encodedMessage.getInt(CAConstants.CA_MESSAGE_HEADER_SIZE), encodedMessage.getInt(CAConstants.CA_MESSAGE_HEADER_SIZE + 4));
+
+		requestMessage = ByteBuffer.allocate(encodedMessage.remaining());
+		requestMessage.put(encodedMessage);
+		requestMessage = insertIOID(requestMessage, ioid);
+	}
+
+	/**
+	 * Encode (serialize) event add response message with ioid set to 0.
+	 * Returned buffer position is set at the end of the message.
+	 * @param dataType data type
+	 * @param dataCount data count
+	 * @param status CAStatus
+	 * @param value DBR value
+	 * @return encoded message.
+	 */
+	public static ByteBuffer encodeMessage(short dataType, int dataCount, CAStatus status, DBR value)
+	{
+		int calculatedPayloadSize = DBREncoder.calculatePayloadSize(dataType, dataCount, value.getValue());
 		int alignedPayloadSize = calculateAlignedSize(8, calculatedPayloadSize);
 		int alignedMessageSize = alignedPayloadSize + CAConstants.CA_MESSAGE_HEADER_SIZE;
 		
 		boolean extendedHeader = calculatedPayloadSize >= 0xFFFF || dataCount >= 0xFFFF;
 		if (extendedHeader)
 		{
-			if (transport.getMinorRevision() < 9)
-				throw new IllegalStateException("Message payload size " + alignedPayloadSize + " or element count " + dataCount + " out of bounds for CA revision " + transport.getMinorRevision() + ".");
-
 			// add additional payload fields				
 			alignedMessageSize += 8;
 		}
 		
-		requestMessage = ByteBuffer.allocate(alignedMessageSize);
+		ByteBuffer message = ByteBuffer.allocate(alignedMessageSize);
 
-		requestMessage = insertCAHeader(transport, requestMessage,
-										(short)1, alignedPayloadSize, dataType, dataCount,
-										status.getStatusCode(), ioid);
+		message = insertCAHeader(null, message,
+								 (short)1, alignedPayloadSize, dataType, dataCount,
+								 status.getStatusCode(), 0);
 											
 		// append value and align message
-		DBREncoder.insertPayload(requestMessage, dataType, dataCount, value);
+		DBREncoder.insertPayload(message, dataType, dataCount, value);
 		
 		// it can happen that value.getCount() < dataCount and
 		// insertPayload will not fill-up the whole message
-		requestMessage.position(alignedMessageSize);
-		requestMessage = alignBuffer(8, requestMessage);
+		message.position(alignedMessageSize);
+		return alignBuffer(8, message);
+	}
+
+	/**
+	 * Check if extended message header is supported by the transport.
+	 * @param transport transport to be used when sending
+	 * @param payloadSize payload size
+	 * @param dataCount data count
+	 */
+	private static void checkRevision(Transport transport, int payloadSize, int dataCount)
+	{
+		boolean extendedHeader = payloadSize >= 0xFFFF || dataCount >= 0xFFFF;
+		if (extendedHeader && transport.getMinorRevision() < 9)
+			throw new IllegalStateException("Message payload size " + payloadSize + " or element count " + dataCount + " out of bounds for CA revision " + transport.getMinorRevision() + ".");
+	}
+
+	/**
+	 * Set ioid (parameter 2) of the message header.
+	 * @param message message (both standard and extended header).
+	 * @param ioid ioid
+	 * @return message.
+	 */
+	private static ByteBuffer insertIOID(ByteBuffer message, int ioid)
+	{
+		final int IOID_OFFSET = 12;
+		message.putInt(IOID_OFFSET, ioid);
+		return message;
 	}
 
 	/**
@@ -12,21 +12,68 @@ import gov.aps.jca.cas.Server;
 import gov.aps.jca.dbr.DBRType;
 
 import java.net.InetSocketAddress;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.cosylab.epics.caj.util.CountingBloomFilter;
 
 /**
  * Default server implementation.
- * Implementation keeps a hash-map of all registered PVs.
- * When <code>processVariableExistanceTest</code> is called existance test is made on the hash-map.
+ * Implementation keeps a (concurrent) hash-map of all registered PVs.
+ * When <code>processVariableExistanceTest</code> is called existance test is made on the hash-map (lock-free),
+ * optionally names are first checked against a negative lookup (Bloom) filter to reject foreign names cheaply.
  * <code>processVariableAttach</code> metod simply retrieves PV from the hash-map.
  */
 public class DefaultServerImpl implements Server
 {
+	/**
+	 * Negative lookup filter false positive probability.
+	 */
+	private static final double FILTER_FALSE_POSITIVE_PROBABILITY = 0.01;
+
 	/**
 	 * Map of PVs.
+	 * NOTE: modify only via (un)register methods, to keep negative lookup filter consistent.
+	 */
+	protected Map pvs;
+	
+	/**
+	 * Negative lookup filter of registered names, <code>null</code> if not used.
+	 */
+	protected final CountingBloomFilter filter;
+
+	/**
+	 * Registration lock (lookups are lock-free).
 	 */
-	protected Map pvs = new HashMap();
+	private final Object registrationLock = new Object();
+
+	/**
+	 * Constructor, negative lookup filter is not used.
+	 */
+	public DefaultServerImpl()
+	{
+		this(0);
+	}
+	
+	/**
+	 * Constructor.
+	 * @param expectedPVs expected number of PVs, used to size the map and negative lookup (Bloom) filter;
+	 * 					  0 disables the filter.
+	 */
+	public DefaultServerImpl(int expectedPVs)
+	{
+		if (expectedPVs > 0)
+		{
+			pvs = new ConcurrentHashMap<String, ProcessVariable>(expectedPVs);
+			filter = new CountingBloomFilter(expectedPVs, FILTER_FALSE_POSITIVE_PROBABILITY);
+		}
+		else
+		{
+			pvs = new ConcurrentHashMap<String, ProcessVariable>();
+			filter = null;
+		}
+	}
 	
 	/**
 	 * Convenience method to create and register new in-memory process variables.
@@ -50,12 +97,58 @@ public class DefaultServerImpl implements Server
 	 */
 	public void registerProcessVariable(String aliasName, ProcessVariable pv)
 	{
-		synchronized (pvs)
+		synchronized (registrationLock)
+		{
+			internalRegister(aliasName, pv);
+		}
+	}
+	
+	/**
+	 * Register process variables (bulk), by their names.
+	 * Note: if process variable with the same name is already registered this will override it.
+	 * @param pvs process variable instances.
+	 */
+	public void registerProcessVariables(ProcessVariable[] pvs)
+	{
+		synchronized (registrationLock)
+		{
+			for (int i = 0; i < pvs.length; i++)
+				internalRegister(pvs[i].getName(), pvs[i]);
+		}
+	}
+
+	/**
+	 * Register process variables (bulk).
+	 * Note: if process variable with the same alias name is already registered this will override it.
+	 * @param pvs map of alias name to process variable.
+	 */
+	public void registerProcessVariables(Map<String, ? extends ProcessVariable> pvs)
+	{
+		synchronized (registrationLock)
 		{
-			pvs.put(aliasName, pv);
+			Iterator<? extends Map.Entry<String, ? extends ProcessVariable>> iter = pvs.entrySet().iterator();
+			while (iter.hasNext())
+			{
+				Map.Entry<String, ? extends ProcessVariable> entry = iter.next();
+				internalRegister(entry.getKey(), entry.getValue());
+			}
 		}
 	}
 	
+	/**
+	 * Register process variable.
+	 * NOTE: <code>registrationLock</code> must be held.
+	 * @param aliasName process variable name.
+	 * @param pv process variable instance.
+	 */
+	private void internalRegister(String aliasName, ProcessVariable pv)
+	{
+		// filter first, lookup that finds the PV must pass the filter
+		if (filter != null && !pvs.containsKey(aliasName))
+			filter.add(aliasName);
+		pvs.put(aliasName, pv);
+	}
+	
 	/**
 	 * Register process variable.
 	 * Note: if process variable with the same name is already registered this will override it.
@@ -73,12 +166,64 @@ public class DefaultServerImpl implements Server
 	 */
 	public ProcessVariable unregisterProcessVariable(String aliasName)
 	{
-		synchronized (pvs)
+		synchronized (registrationLock)
 		{
-			return (ProcessVariable)pvs.remove(aliasName);
+			return internalUnregister(aliasName);
 		}
 	}
 
+	/**
+	 * Unregister process variables (bulk).
+	 * @param aliasNames process variable names.
+	 * @return number of unregistered process variables.
+	 */
+	public int unregisterProcessVariables(String[] aliasNames)
+	{
+		int count = 0;
+		synchronized (registrationLock)
+		{
+			for (int i = 0; i < aliasNames.length; i++)
+				if (internalUnregister(aliasNames[i]) != null)
+					count++;
+		}
+		return count;
+	}
+
+	/**
+	 * Unregister process variable.
+	 * NOTE: <code>registrationLock</code> must be held.
+	 * @param aliasName	process variable name
+	 * @return unregistered process variable, <code>null</code> if non unregistered.
+	 */
+	private ProcessVariable internalUnregister(String aliasName)
+	{
+		ProcessVariable pv = (ProcessVariable)pvs.remove(aliasName);
+		if (pv != null && filter != null)
+			filter.remove(aliasName);
+		return pv;
+	}
+
+	/**
+	 * Get registered process variable.
+	 * @param aliasName	process variable name
+	 * @return process variable, <code>null</code> if not registered.
+	 */
+	public ProcessVariable getProcessVariable(String aliasName)
+	{
+		if (filter != null && !filter.mightContain(aliasName))
+			return null;
+		return (ProcessVariable)pvs.get(aliasName);
+	}
+
+	/**
+	 * Get number of registered process variables.
+	 * @return number of registered process variables.
+	 */
+	public int getProcessVariableCount()
+	{
+		return pvs.size();
+	}
+
 	/**
 	 * @see gov.aps.jca.cas.Server#processVariableAttach(java.lang.String, gov.aps.jca.cas.ProcessVariableEventCallback, gov.aps.jca.cas.ProcessVariableAttachCallback)
 	 */
@@ -86,20 +231,20 @@ public class DefaultServerImpl implements Server
 												 ProcessVariableAttachCallback asyncCompletionCallback)
 		throws CAStatusException, IllegalArgumentException, IllegalStateException
 	{
-		synchronized (pvs)
+		ProcessVariable pv = getProcessVariable(aliasName);
+		if (pv != null)
 		{
-			ProcessVariable pv = (ProcessVariable)pvs.get(aliasName);
-			if (pv != null)
+			// set PV if not yet set
+			synchronized (pv)
 			{
-				// set PV if not yet set
 				if (pv.getEventCallback() == null)
 					pv.setEventCallback(eventCallback);
-				
-				return pv;
 			}
-			else
-				throw new CAStatusException(CAStatus.NOSUPPORT, "PV does not exist");
+			
+			return pv;
 		}
+		else
+			throw new CAStatusException(CAStatus.NOSUPPORT, "PV does not exist");
 	}
 
 	/**
@@ -109,12 +254,13 @@ public class DefaultServerImpl implements Server
 																		   ProcessVariableExistanceCallback asyncCompletionCallback)
 		throws CAException, IllegalArgumentException, IllegalStateException
 	{
-		synchronized (pvs)
-		{
-			return pvs.containsKey(aliasName) ?
-					ProcessVariableExistanceCompletion.EXISTS_HERE :
-					ProcessVariableExistanceCompletion.DOES_NOT_EXIST_HERE;
-		}
+		// foreign names are (mostly) rejected by the filter
+		if (filter != null && !filter.mightContain(aliasName))
+			return ProcessVariableExistanceCompletion.DOES_NOT_EXIST_HERE;
+
+		return pvs.containsKey(aliasName) ?
+				ProcessVariableExistanceCompletion.EXISTS_HERE :
+				ProcessVariableExistanceCompletion.DOES_NOT_EXIST_HERE;
 	}
 	
 }
\ No newline at end of file
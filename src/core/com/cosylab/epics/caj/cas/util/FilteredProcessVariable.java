@@ -0,0 +1,109 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.util;
+
+import gov.aps.jca.cas.ProcessVariable;
+import gov.aps.jca.cas.ProcessVariableEventCallback;
+import gov.aps.jca.dbr.DBR;
+
+/**
+ * Process variable with monitor event filter (deadbands, maximum posting rate).
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ * @see MonitorEventFilter
+ */
+public abstract class FilteredProcessVariable extends ProcessVariable
+{
+	/**
+	 * Monitor event filter (deadbands, maximum posting rate).
+	 */
+	protected final MonitorEventFilter eventFilter = new MonitorEventFilter();
+
+	/**
+	 * Filtered PV constructor.
+	 * @param name process variable name.
+	 * @param eventCallback	event callback, can be <code>null</code>.
+	 */
+	public FilteredProcessVariable(String name, ProcessVariableEventCallback eventCallback)
+	{
+		super(name, eventCallback);
+	}
+
+	/**
+	 * Get monitor event filter.
+	 * @return monitor event filter.
+	 */
+	public MonitorEventFilter getEventFilter() {
+		return eventFilter;
+	}
+
+	/**
+	 * Get value deadband (MDEL).
+	 * @return value deadband, &lt; 0 if disabled.
+	 */
+	public double getValueDeadband() {
+		return eventFilter.getValueDeadband();
+	}
+
+	/**
+	 * Set value deadband (MDEL), <code>Monitor.VALUE</code> events within deadband are not posted.
+	 * @param valueDeadband value deadband, &lt; 0 disables it, 0 posts only changes.
+	 */
+	public void setValueDeadband(double valueDeadband) {
+		eventFilter.setValueDeadband(valueDeadband);
+	}
+
+	/**
+	 * Get log (archive) deadband (ADEL).
+	 * @return log deadband, &lt; 0 if disabled.
+	 */
+	public double getLogDeadband() {
+		return eventFilter.getLogDeadband();
+	}
+
+	/**
+	 * Set log (archive) deadband (ADEL), <code>Monitor.LOG</code> events within deadband are not posted.
+	 * @param logDeadband log deadband, &lt; 0 disables it, 0 posts only changes.
+	 */
+	public void setLogDeadband(double logDeadband) {
+		eventFilter.setLogDeadband(logDeadband);
+	}
+
+	/**
+	 * Get maximum monitor event posting rate.
+	 * @return maximum posting rate in Hz, 0 means unlimited.
+	 */
+	public double getMaxPostRate() {
+		return eventFilter.getMaxPostRate();
+	}
+
+	/**
+	 * Set maximum monitor event posting rate, excessive events are coalesced to the latest one.
+	 * @param maxPostRate maximum posting rate in Hz, 0 means unlimited.
+	 */
+	public void setMaxPostRate(double maxPostRate) {
+		eventFilter.setMaxPostRate(maxPostRate);
+	}
+
+	/**
+	 * Post monitor event to <code>eventCallback</code>, applying deadbands and maximum posting rate.
+	 * @param mask <code>Monitor.[mask]</code> event type.
+	 * @param event event to post (must not be modified afterwards).
+	 */
+	protected void postEvent(int mask, DBR event) {
+		eventFilter.checkAndPost(eventCallback, mask, event);
+	}
+
+}
@@ -14,12 +14,15 @@
 
 package com.cosylab.epics.caj.cas.util;
 
+import java.lang.reflect.Array;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
 import com.cosylab.epics.caj.cas.handlers.AbstractCASResponseHandler;
 
 import gov.aps.jca.CAException;
 import gov.aps.jca.CAStatus;
 import gov.aps.jca.Monitor;
-import gov.aps.jca.cas.ProcessVariable;
 import gov.aps.jca.cas.ProcessVariableEventCallback;
 import gov.aps.jca.cas.ProcessVariableReadCallback;
 import gov.aps.jca.cas.ProcessVariableWriteCallback;
@@ -35,28 +38,96 @@ import gov.aps.jca.dbr.TimeStamp;
 /**
  * Memory (what you write is what you get) process variable implementation.
  * Implementation does not handle status, severity and alarms.
+ * Value is kept in (reference counted) snapshots: a write copies the value into a free (recycled) snapshot
+ * buffer and publishes it, reads copy from the current snapshot without locking, i.e. readers never block writers
+ * and writes (w/o monitors) do not allocate.
+ * Subclasses access the value via <code>getValue()</code>, <code>getCount()</code> and <code>getTimeStamp()</code>
+ * (replacing former <code>value</code>, <code>count</code> and <code>timestamp</code> fields) and change it via <code>write()</code>.
  */
-public class MemoryProcessVariable extends ProcessVariable 
+public class MemoryProcessVariable extends FilteredProcessVariable 
 {
+	/**
+	 * EPICS epoch (1990-01-01) in seconds past 1970-01-01.
+	 */
+	private static final long EPICS_EPOCH_SEC_PAST_1970 = 7305 * 86400L;
+
+	/**
+	 * Number of recycled snapshots.
+	 */
+	private static final int SNAPSHOT_POOL_SIZE = 4;
+	
+	/**
+	 * Value snapshot, immutable while published (reference count &gt; 0).
+	 */
+	private static final class Snapshot
+	{
+		/**
+		 * Value (array), its length is the capacity.
+		 */
+		final Object value;
+		
+		/**
+		 * Number of elements.
+		 */
+		int count;
+		
+		/**
+		 * Timestamp (seconds past EPICS epoch).
+		 */
+		long secPastEpoch;
+
+		/**
+		 * Timestamp (nanoseconds).
+		 */
+		long nsec;
+		
+		/**
+		 * Reference count, 0 means free (can be reused by the writer).
+		 */
+		final AtomicInteger references = new AtomicInteger(0);
+		
+		/**
+		 * Constructor.
+		 * @param value value array.
+		 */
+		Snapshot(Object value) {
+			this.value = value;
+		}
+		
+		/**
+		 * Acquire a reference, fails if snapshot is free (being recycled).
+		 * @return success flag.
+		 */
+		boolean retain() {
+			while (true) {
+				final int refs = references.get();
+				if (refs == 0)
+					return false;
+				if (references.compareAndSet(refs, refs + 1))
+					return true;
+			}
+		}
+	}
+	
 	/**
 	 * PV type.
 	 */
 	protected DBRType type;
 	
 	/**
-	 * PV value.
+	 * Current (published) snapshot.
 	 */
-	protected Object value;
+	private volatile Snapshot current;
 	
 	/**
-	 * PV count.
+	 * Free (recycled) snapshots.
 	 */
-	protected int count;
-
+	private final AtomicReferenceArray<Snapshot> freeSnapshots = new AtomicReferenceArray<Snapshot>(SNAPSHOT_POOL_SIZE);
+	
 	/**
-	 * Timestamp of set value.
+	 * Writers lock (readers are lock-free).
 	 */
-	protected TimeStamp timestamp;
+	private final Object writeLock = new Object();
 
 	/**
 	 * Units (for value).
@@ -131,9 +202,15 @@ public class MemoryProcessVariable extends ProcessVariable
 			throw new IllegalArgumentException("array expected as initialValue");
 		
 		this.type = type;
-		this.value = initialValue;
-	    this.count = java.lang.reflect.Array.getLength(this.value);
-	    this.timestamp = new TimeStamp();
+		
+		// copy, snapshot buffers are reused
+		final int initialCount = Array.getLength(initialValue);
+		Snapshot snapshot = new Snapshot(Array.newInstance(initialValue.getClass().getComponentType(), initialCount));
+		System.arraycopy(initialValue, 0, snapshot.value, 0, initialCount);
+		snapshot.count = initialCount;
+		setTimeStamp(snapshot, System.currentTimeMillis());
+		snapshot.references.set(1);
+		current = snapshot;
 	}
 
 	/**
@@ -148,7 +225,7 @@ public class MemoryProcessVariable extends ProcessVariable
 	 */
 	public int getDimensionSize(int dimension) {
 		if (dimension == 0)
-			return count;
+			return current.count;
 		else
 			return 0;
 	}
@@ -336,21 +413,141 @@ public class MemoryProcessVariable extends ProcessVariable
 	 * Read value.
 	 * Fills-in DBR, sets timestamp (time when value was written) and copies value from local memory (array).
 	 * No status and severity (alarms) are set - to be done in <code>fillInDBR</code> method (extending it).
+	 * Does not block (nor is blocked by) writers.
 	 * @see gov.aps.jca.cas.ProcessVariable#read(gov.aps.jca.dbr.DBR, gov.aps.jca.cas.ProcessVariableReadCallback)
 	 */
-	public synchronized CAStatus read(DBR value, ProcessVariableReadCallback asyncReadCallback) throws CAException {
+	public CAStatus read(DBR value, ProcessVariableReadCallback asyncReadCallback) throws CAException {
 
 		// fill
 		fillInDBR(value);
 
-		// given DBR is always at least TIME
-		((TIME)value).setTimeStamp(timestamp);
-		
-		int minCount = Math.min(count, value.getCount());
-		System.arraycopy(this.value, 0, value.getValue(), 0, minCount);
+		Snapshot snapshot = acquireSnapshot();
+		try
+		{
+			// given DBR is always at least TIME
+			((TIME)value).setTimeStamp(new TimeStamp(snapshot.secPastEpoch, snapshot.nsec));
+			
+			int minCount = Math.min(snapshot.count, value.getCount());
+			System.arraycopy(snapshot.value, 0, value.getValue(), 0, minCount);
+		}
+		finally
+		{
+			releaseSnapshot(snapshot);
+		}
 		return CAStatus.NORMAL;
 	}
 
+	/**
+	 * Get (a copy of) current value.
+	 * @return copy of current value, array of <code>getCount()</code> elements.
+	 */
+	protected Object getValue()
+	{
+		Snapshot snapshot = acquireSnapshot();
+		try
+		{
+			Object value = Array.newInstance(snapshot.value.getClass().getComponentType(), snapshot.count);
+			System.arraycopy(snapshot.value, 0, value, 0, snapshot.count);
+			return value;
+		}
+		finally
+		{
+			releaseSnapshot(snapshot);
+		}
+	}
+
+	/**
+	 * Get current number of elements.
+	 * @return number of elements of current value.
+	 */
+	protected int getCount()
+	{
+		return current.count;
+	}
+
+	/**
+	 * Get timestamp of current value.
+	 * @return time when current value was written.
+	 */
+	protected TimeStamp getTimeStamp()
+	{
+		Snapshot snapshot = acquireSnapshot();
+		try
+		{
+			return new TimeStamp(snapshot.secPastEpoch, snapshot.nsec);
+		}
+		finally
+		{
+			releaseSnapshot(snapshot);
+		}
+	}
+
+	/**
+	 * Acquire (a reference to) current snapshot.
+	 * @return current snapshot, to be released via <code>releaseSnapshot</code>.
+	 */
+	private Snapshot acquireSnapshot()
+	{
+		while (true)
+		{
+			Snapshot snapshot = current;
+			// fails only if writer replaced and recycled it meanwhile, retry
+			if (snapshot.retain())
+				return snapshot;
+		}
+	}
+	
+	/**
+	 * Release (a reference to) snapshot, the last reference returns it to the pool.
+	 * @param snapshot snapshot to release.
+	 */
+	private void releaseSnapshot(Snapshot snapshot)
+	{
+		if (snapshot.references.decrementAndGet() == 0)
+		{
+			for (int i = 0; i < SNAPSHOT_POOL_SIZE; i++)
+				if (freeSnapshots.compareAndSet(i, null, snapshot))
+					return;
+			// pool full, leave it to GC
+		}
+	}
+
+	/**
+	 * Get free snapshot able to hold given value.
+	 * NOTE: <code>writeLock</code> must be held.
+	 * @param value value (array) to be held.
+	 * @param count number of elements.
+	 * @return free snapshot (reference count is 0).
+	 */
+	private Snapshot getFreeSnapshot(Object value, int count)
+	{
+		final Class<?> valueClass = value.getClass();
+		for (int i = 0; i < SNAPSHOT_POOL_SIZE; i++)
+		{
+			Snapshot snapshot = freeSnapshots.get(i);
+			if (snapshot != null && freeSnapshots.compareAndSet(i, snapshot, null))
+			{
+				if (snapshot.value.getClass() == valueClass && Array.getLength(snapshot.value) >= count)
+					return snapshot;
+				// not usable (too small), drop it
+			}
+		}
+		
+		// grow (or type change)
+		return new Snapshot(Array.newInstance(valueClass.getComponentType(), Math.max(count, current.count)));
+	}
+	
+	/**
+	 * Set timestamp.
+	 * @param snapshot snapshot to set timestamp to.
+	 * @param millis time in milliseconds past 1970-01-01.
+	 */
+	private static void setTimeStamp(Snapshot snapshot, long millis)
+	{
+		snapshot.secPastEpoch = millis / 1000 - EPICS_EPOCH_SEC_PAST_1970;
+		snapshot.nsec = (millis % 1000) * 1000000;
+	}
+	
 	/**
 	 * Set data (units, limits, ...) to DBR.
 	 * Data is obtained from this class accessors.
@@ -392,26 +589,43 @@ public class MemoryProcessVariable extends ProcessVariable
 
 	/**
 	 * Write value.
-	 * Copies given value to local memory (array).
-	 * If event interest flag <code>interest</code> is set, an event is fired to <code>eventCallback</code>.
+	 * Copies given value to local memory (a recycled snapshot buffer) and publishes it.
+	 * If event interest flag <code>interest</code> is set, an event (a new immutable DBR, since it is retained by monitors)
+	 * is fired to <code>eventCallback</code>, unless filtered out by deadbands (checked before the DBR is created)
+	 * or deferred by maximum posting rate.
 	 * @see gov.aps.jca.cas.ProcessVariable#write(gov.aps.jca.dbr.DBR, gov.aps.jca.cas.ProcessVariableWriteCallback)
 	 */
-	public synchronized CAStatus write(DBR value, ProcessVariableWriteCallback asyncWriteCallback) throws CAException {
-		this.value = value.getValue();
-	    this.count = java.lang.reflect.Array.getLength(this.value);
-	    this.timestamp = new TimeStamp();
-	    
-	    // notify
-	    if (interest)
-	    {
-	    	DBR monitorDBR = AbstractCASResponseHandler.createDBRforReading(this);
-			fillInDBR(monitorDBR);
-			((TIME)monitorDBR).setTimeStamp(timestamp);
-			System.arraycopy(this.value, 0, monitorDBR.getValue(), 0, count);
-	    	eventCallback.postEvent(Monitor.VALUE|Monitor.LOG, monitorDBR);
-	    }
+	public CAStatus write(DBR value, ProcessVariableWriteCallback asyncWriteCallback) throws CAException {
+		final Object newValue = value.getValue();
+		final int newCount = Array.getLength(newValue);
+		
+		synchronized (writeLock)
+		{
+			// copy to back buffer
+			Snapshot snapshot = getFreeSnapshot(newValue, newCount);
+			System.arraycopy(newValue, 0, snapshot.value, 0, newCount);
+			snapshot.count = newCount;
+			setTimeStamp(snapshot, System.currentTimeMillis());
+			
+			// publish (reference held by "current")
+			snapshot.references.set(1);
+			Snapshot previous = current;
+			current = snapshot;
+			releaseSnapshot(previous);
+
+		    // notify (in order of writes)
+		    final int mask = interest ? eventFilter.checkDeadbands(Monitor.VALUE|Monitor.LOG, snapshot.value, newCount) : 0;
+		    if (mask != 0)
+		    {
+		    	DBR monitorDBR = AbstractCASResponseHandler.createDBRforReading(this, newCount);
+				fillInDBR(monitorDBR);
+				((TIME)monitorDBR).setTimeStamp(new TimeStamp(snapshot.secPastEpoch, snapshot.nsec));
+				System.arraycopy(snapshot.value, 0, monitorDBR.getValue(), 0, newCount);
+		    	eventFilter.post(eventCallback, mask, monitorDBR);
+		    }
+		}
 	    
 		return CAStatus.NORMAL;
 	}
 	
-}
\ No newline at end of file
+}
@@ -0,0 +1,375 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.util;
+
+import com.cosylab.epics.caj.cas.ProcessVariableEventDispatcher;
+import com.cosylab.epics.caj.util.Timer;
+
+import gov.aps.jca.Monitor;
+import gov.aps.jca.cas.ProcessVariableEventCallback;
+import gov.aps.jca.dbr.DBR;
+
+/**
+ * Process variable monitor event filter, applied before events are posted to the event callback.
+ * Implements value (<code>Monitor.VALUE</code>) and log (archive, <code>Monitor.LOG</code>) deadbands
+ * (as MDEL and ADEL fields of the IOC records) and maximum posting rate (per PV).
+ * A deadband &lt; 0 disables it (every value is posted), 0 posts only changed values,
+ * &gt; 0 posts only values that differ from the last posted one by more than the deadband
+ * (for arrays: any element). <code>Monitor.ALARM</code> events and non-numeric values are not filtered by deadbands.
+ * When maximum posting rate is exceeded, events are coalesced to the latest one (masks are merged)
+ * and posted when the rate allows, using owner-provided timer or (if not set) timer of the server context
+ * serving the PV (see <code>ProcessVariableEventDispatcher</code>); without a timer rate is not limited.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class MonitorEventFilter {
+
+	/**
+	 * Timer of deferred (rate limited) events, <code>null</code> to use the timer of the event callback.
+	 */
+	private Timer timer = null;
+
+	/**
+	 * Value deadband.
+	 */
+	private double valueDeadband = -1;
+
+	/**
+	 * Log (archive) deadband.
+	 */
+	private double logDeadband = -1;
+
+	/**
+	 * Minimum period between posts (in ns), 0 means unlimited rate.
+	 */
+	private long minPostPeriod = 0;
+
+	/**
+	 * Last value posted with <code>Monitor.VALUE</code>, <code>null</code> if none.
+	 */
+	private double[] lastValue = null;
+	private int lastValueCount = 0;
+
+	/**
+	 * Last value posted with <code>Monitor.LOG</code>, <code>null</code> if none.
+	 */
+	private double[] lastLogValue = null;
+	private int lastLogValueCount = 0;
+
+	/**
+	 * Time of last post (<code>System.nanoTime()</code>), valid only if <code>posted</code> is set.
+	 */
+	private long lastPostTime;
+
+	/**
+	 * Any event already posted flag.
+	 */
+	private boolean posted = false;
+
+	/**
+	 * Deferred (rate limited) event, <code>null</code> if none.
+	 */
+	private DBR pendingEvent = null;
+	private int pendingMask = 0;
+	private ProcessVariableEventCallback pendingCallback = null;
+
+	/**
+	 * Deferred post scheduled flag.
+	 */
+	private boolean postScheduled = false;
+
+	/**
+	 * Deferred post task.
+	 */
+	private final Timer.TimerRunnable deferredPostTask = new Timer.TimerRunnable() {
+		/**
+		 * @see com.cosylab.epics.caj.util.Timer.TimerRunnable#timeout(long)
+		 */
+		public void timeout(long timeToRun) {
+			postPending();
+		}
+	};
+
+	/**
+	 * Get timer used to post deferred (rate limited) events.
+	 * @return timer, <code>null</code> if timer of the event callback is used.
+	 */
+	public synchronized Timer getTimer() {
+		return timer;
+	}
+
+	/**
+	 * Set timer used to post deferred (rate limited) events, timer is owned (shut down) by the caller.
+	 * @param timer timer, <code>null</code> to use timer of the event callback.
+	 */
+	public synchronized void setTimer(Timer timer) {
+		this.timer = timer;
+	}
+
+	/**
+	 * Get value deadband.
+	 * @return value deadband, &lt; 0 if disabled.
+	 */
+	public synchronized double getValueDeadband() {
+		return valueDeadband;
+	}
+
+	/**
+	 * Set value deadband (MDEL).
+	 * @param valueDeadband value deadband, &lt; 0 disables it.
+	 */
+	public synchronized void setValueDeadband(double valueDeadband) {
+		this.valueDeadband = valueDeadband;
+	}
+
+	/**
+	 * Get log (archive) deadband.
+	 * @return log deadband, &lt; 0 if disabled.
+	 */
+	public synchronized double getLogDeadband() {
+		return logDeadband;
+	}
+
+	/**
+	 * Set log (archive) deadband (ADEL).
+	 * @param logDeadband log deadband, &lt; 0 disables it.
+	 */
+	public synchronized void setLogDeadband(double logDeadband) {
+		this.logDeadband = logDeadband;
+	}
+
+	/**
+	 * Get maximum posting rate.
+	 * @return maximum posting rate in Hz, 0 means unlimited.
+	 */
+	public synchronized double getMaxPostRate() {
+		return (minPostPeriod == 0) ? 0 : 1e9 / minPostPeriod;
+	}
+
+	/**
+	 * Set maximum posting rate.
+	 * @param maxPostRate maximum posting rate in Hz, 0 means unlimited.
+	 */
+	public synchronized void setMaxPostRate(double maxPostRate) {
+		this.minPostPeriod = (maxPostRate > 0) ? (long)(1e9 / maxPostRate) : 0;
+	}
+
+	/**
+	 * Check deadbands for a new value, <code>Monitor.VALUE</code> and <code>Monitor.LOG</code> bits
+	 * are cleared from the mask if the value is within the corresponding deadband.
+	 * Last posted values are updated for the bits that pass.
+	 * Can be called before event (DBR) is created to avoid creation of events that would not be posted.
+	 * @param mask <code>Monitor.[mask]</code> event type.
+	 * @param value new value (numeric array).
+	 * @param count number of elements of the new value.
+	 * @return filtered mask, 0 if event is not to be posted.
+	 */
+	public synchronized int checkDeadbands(int mask, Object value, int count)
+	{
+		if (!isNumeric(value))
+			return mask;
+
+		if ((mask & Monitor.VALUE) != 0 && valueDeadband >= 0)
+		{
+			if (exceeds(lastValue, lastValueCount, value, count, valueDeadband))
+			{
+				lastValue = store(lastValue, value, count);
+				lastValueCount = count;
+			}
+			else
+				mask &= ~Monitor.VALUE;
+		}
+
+		if ((mask & Monitor.LOG) != 0 && logDeadband >= 0)
+		{
+			if (exceeds(lastLogValue, lastLogValueCount, value, count, logDeadband))
+			{
+				lastLogValue = store(lastLogValue, value, count);
+				lastLogValueCount = count;
+			}
+			else
+				mask &= ~Monitor.LOG;
+		}
+
+		return mask;
+	}
+
+	/**
+	 * Post an event respecting maximum posting rate.
+	 * @param callback event callback to post to.
+	 * @param mask <code>Monitor.[mask]</code> event type, nothing is posted if 0.
+	 * @param event event to post (must not be modified afterwards).
+	 */
+	public void post(ProcessVariableEventCallback callback, int mask, DBR event)
+	{
+		if (mask == 0 || callback == null)
+			return;
+
+		synchronized (this)
+		{
+			final Timer postTimer = (minPostPeriod > 0) ? getTimer(callback) : null;
+			if (postTimer != null)
+			{
+				final long now = System.nanoTime();
+				final long delay = posted ? lastPostTime + minPostPeriod - now : 0;
+				if (postScheduled || delay > 0)
+				{
+					// coalesce to the latest event
+					pendingEvent = event;
+					pendingMask |= mask;
+					pendingCallback = callback;
+
+					if (!postScheduled)
+					{
+						postScheduled = true;
+						postTimer.executeAfterDelay((delay + 999999) / 1000000, deferredPostTask);
+					}
+					return;
+				}
+				lastPostTime = now;
+				posted = true;
+			}
+
+			// post under lock to preserve order with deferred posts
+			callback.postEvent(mask, event);
+		}
+	}
+
+	/**
+	 * Check deadbands and post an event (respecting maximum posting rate).
+	 * @param callback event callback to post to.
+	 * @param mask <code>Monitor.[mask]</code> event type.
+	 * @param event event to post (must not be modified afterwards).
+	 */
+	public void checkAndPost(ProcessVariableEventCallback callback, int mask, DBR event)
+	{
+		post(callback, checkDeadbands(mask, event.getValue(), event.getCount()), event);
+	}
+
+	/**
+	 * Get timer to be used to post deferred events to given callback.
+	 * NOTE: to be called while holding a lock on <code>this</code>.
+	 * @param callback event callback.
+	 * @return timer, <code>null</code> if none.
+	 */
+	private Timer getTimer(ProcessVariableEventCallback callback)
+	{
+		if (timer != null)
+			return timer;
+		else if (callback instanceof ProcessVariableEventDispatcher)
+			return ((ProcessVariableEventDispatcher)callback).getTimer();
+		else
+			return null;
+	}
+
+	/**
+	 * Post deferred event.
+	 */
+	private synchronized void postPending()
+	{
+		postScheduled = false;
+		if (pendingEvent == null)
+			return;
+
+		lastPostTime = System.nanoTime();
+		try {
+			pendingCallback.postEvent(pendingMask, pendingEvent);
+		} finally {
+			pendingEvent = null;
+			pendingMask = 0;
+			pendingCallback = null;
+		}
+	}
+
+	/**
+	 * Check if value differs from the last one by more than deadband.
+	 * @param last last value, <code>null</code> if none.
+	 * @param lastCount number of elements of the last value.
+	 * @param value new value.
+	 * @param count number of elements of the new value.
+	 * @param deadband deadband (&gt;= 0).
+	 * @return <code>true</code> if deadband is exceeded.
+	 */
+	private static boolean exceeds(double[] last, int lastCount, Object value, int count, double deadband)
+	{
+		if (last == null || lastCount != count)
+			return true;
+
+		for (int i = 0; i < count; i++)
+		{
+			final double v = element(value, i);
+			final double l = last[i];
+			if (Double.isNaN(v) || Double.isNaN(l))
+			{
+				// NaN state change
+				if (Double.isNaN(v) != Double.isNaN(l))
+					return true;
+			}
+			else if (deadband == 0 ? v != l : Math.abs(v - l) > deadband)
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Store value (reusing the array, if possible).
+	 * @param store array to reuse, can be <code>null</code>.
+	 * @param value value to store.
+	 * @param count number of elements.
+	 * @return array with stored value.
+	 */
+	private static double[] store(double[] store, Object value, int count)
+	{
+		if (store == null || store.length < count)
+			store = new double[count];
+		for (int i = 0; i < count; i++)
+			store[i] = element(value, i);
+		return store;
+	}
+
+	/**
+	 * Check if value is a numeric array.
+	 * @param value value to check.
+	 * @return <code>true</code> if numeric array.
+	 */
+	private static boolean isNumeric(Object value)
+	{
+		return value instanceof double[] || value instanceof float[] ||
+			   value instanceof int[] || value instanceof short[] || value instanceof byte[];
+	}
+
+	/**
+	 * Get element of a numeric array as double.
+	 * @param value numeric array.
+	 * @param index element index.
+	 * @return element value.
+	 */
+	private static double element(Object value, int index)
+	{
+		if (value instanceof double[])
+			return ((double[])value)[index];
+		else if (value instanceof float[])
+			return ((float[])value)[index];
+		else if (value instanceof int[])
+			return ((int[])value)[index];
+		else if (value instanceof short[])
+			return ((short[])value)[index];
+		else if (value instanceof byte[])
+			return ((byte[])value)[index];
+		else
+			throw new IllegalArgumentException("numeric array expected");
+	}
+
+}
@@ -16,7 +16,6 @@ package com.cosylab.epics.caj.cas.util;
 
 import gov.aps.jca.CAException;
 import gov.aps.jca.CAStatus;
-import gov.aps.jca.cas.ProcessVariable;
 import gov.aps.jca.cas.ProcessVariableEventCallback;
 import gov.aps.jca.cas.ProcessVariableReadCallback;
 import gov.aps.jca.cas.ProcessVariableWriteCallback;
@@ -28,7 +27,7 @@ import gov.aps.jca.dbr.GR;
  * Enum process variable implementation. 
  * Implementation does not handle status, severity and alarms.
  */
-public abstract class NumericProcessVariable extends ProcessVariable
+public abstract class NumericProcessVariable extends FilteredProcessVariable
 {
 	/**
 	 * Numeric PV constructor.
@@ -236,7 +235,7 @@ public abstract class NumericProcessVariable extends ProcessVariable
 	 *			fillInDBR(monitorDBR);
 	 *			fillInStatusAndTime((TIME)monitorDBR);
 	 *		
-	 * 	    	eventCallback.postEvent(Monitor.VALUE|Monitor.LOG, value);
+	 * 	    	postEvent(Monitor.VALUE|Monitor.LOG, monitorDBR);
 	 * 		}
 	 * 
 	 * 		// return read completion status
@@ -347,7 +347,7 @@ public class CounterProcessVariable extends NumericProcessVariable implements Ru
 			fillInStatusAndTime((TIME)monitorDBR);
 			
 			// port event
- 	    	eventCallback.postEvent(mask, monitorDBR);
+ 	    	postEvent(mask, monitorDBR);
 		}
 		
 		return CAStatus.NORMAL;
@@ -90,5 +90,24 @@ public class BroadcastConnector implements Connector {
             
 	}
 
+	/**
+	 * Connects synchronously (there is nothing to wait for).
+	 * @see com.cosylab.epics.caj.impl.Connector#connectAsync(com.cosylab.epics.caj.impl.TransportClient, com.cosylab.epics.caj.impl.ResponseHandler, java.net.InetSocketAddress, short, short, com.cosylab.epics.caj.impl.ConnectCallback)
+	 */
+	public void connectAsync(TransportClient client, ResponseHandler responseHandler, InetSocketAddress connectAddress,
+							 short transportRevision, short priority, ConnectCallback callback)
+	{
+		Transport transport;
+		try
+		{
+			transport = connect(client, responseHandler, connectAddress, transportRevision, priority);
+		}
+		catch (ConnectionException ce)
+		{
+			callback.connectFailed(connectAddress, ce);
+			return;
+		}
+		callback.connectCompleted(transport);
+	}
 
 }
@@ -266,7 +266,7 @@ public class BroadcastTransport implements Transport, ReactorHandler {
 	 * @param address	send address. 
 	 * @throws IOException
 	 */
-	protected void send(ByteBuffer buffer, InetSocketAddress address) throws IOException
+	public void send(ByteBuffer buffer, InetSocketAddress address) throws IOException
 	{
 		context.getLogger().finest("Sending " + buffer.limit() + " bytes to " + address + ".");
 		buffer.flip();
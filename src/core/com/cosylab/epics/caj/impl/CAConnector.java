@@ -20,20 +20,30 @@ import java.io.IOException;
 import java.net.InetSocketAddress;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.logging.Level;
 
 import com.cosylab.epics.caj.CAJContext;
+import com.cosylab.epics.caj.impl.reactor.Reactor;
 import com.cosylab.epics.caj.impl.reactor.ReactorHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersHandler;
 import com.cosylab.epics.caj.impl.requests.HostNameRequest;
 import com.cosylab.epics.caj.impl.requests.UserNameRequest;
 import com.cosylab.epics.caj.impl.requests.VersionRequest;
 import com.cosylab.epics.caj.impl.sync.NamedLockPattern;
+import com.cosylab.epics.caj.util.Timer;
 
 
 /**
  * Channel Access TCP connector.
+ * Asynchronous connect (<code>connectAsync</code>) never blocks the calling thread: connection is established
+ * by the reactor (<code>OP_CONNECT</code>), concurrent requests to the same server are queued and served
+ * by a single connection attempt.
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
@@ -65,6 +75,21 @@ public class CAConnector implements Connector {
 	 */
 	private final Map<InetSocketAddress, RetryFailedConnection> failedToConnect = new ConcurrentHashMap<InetSocketAddress, RetryFailedConnection>();
 
+	/**
+	 * Number of connect attempts.
+	 */
+	private static final int CONNECT_TRIES = 3;
+
+	/**
+	 * Delay between connect attempts (ms).
+	 */
+	private static final long CONNECT_RETRY_DELAY = 100;
+
+	/**
+	 * Pending (asynchronous) connections, keyed by <code>pendingConnectKey()</code>.
+	 */
+	private final Map<String, PendingConnect> pendingConnects = new HashMap<String, PendingConnect>();
+
 	/**
 	 * @param context
 	 */
@@ -83,14 +108,8 @@ public class CAConnector implements Connector {
 	{
 		// If already tried and failed to connect check that it is now time
 		// to retry, otherwise bail out
-		RetryFailedConnection prevConnect = failedToConnect.get(address);
-		if (prevConnect != null)
-		{
-			if (System.currentTimeMillis() < prevConnect.getRetryTime())
-			{
-				return null;
-			}
-		}
+		if (!isRetryAllowed(address))
+			return null;
 		
 		SocketChannel socket = null;
 		
@@ -119,40 +138,8 @@ public class CAConnector implements Connector {
 				     
 				context.getLogger().finer("Connecting to CA server: " + address);
 				
-				socket = tryConnect(address, 3);
-	
-				// use non-blocking channel (no need for soTimeout)			
-				socket.configureBlocking(false);
-			
-				// enable TCP_NODELAY (disable Nagle's algorithm)
-				socket.socket().setTcpNoDelay(true);
-				
-				// enable TCP_KEEPALIVE
-				socket.socket().setKeepAlive(true);
-			
-				// TODO tune buffer sizes?! Win32 defaults are 8k, which is OK
-				//socket.socket().setReceiveBufferSize();
-				//socket.socket().setSendBufferSize();
-	
-				// create transport
-				transport = new CATransport(context, client, responseHandler, socket, transportRevision, priority);
-				ReactorHandler handler = transport;
-				if (context.getLeaderFollowersThreadPool() != null)
-				    handler = new LeaderFollowersHandler(context.getReactor(), handler, context.getLeaderFollowersThreadPool());
-				
-				// register to reactor
-				context.getReactor().register(socket, SelectionKey.OP_READ, handler);
-				
-				// issue version including priority, username and local hostname
-				new VersionRequest(transport, priority).submit();
-				new UserNameRequest(transport).submit();
-				new HostNameRequest(transport).submit();
-				
-				context.getLogger().finer("Connected to CA server: " + address);
-				
-				// If previously unable connect now remove from map tracking
-				// failed connections
-				failedToConnect.remove(address);
+				socket = tryConnect(address, CONNECT_TRIES);
+				transport = createTransport(client, responseHandler, address, socket, null, transportRevision, priority);
 	
 				return transport;
 	
@@ -160,16 +147,8 @@ public class CAConnector implements Connector {
 			catch (Throwable th)
 			{
 				// close socket, if open
-				try
-				{
-					if (socket != null)
-						socket.close();
-				}
-				catch (Throwable t) { /* noop */ }
-	
-				// If previously unable to connect then increase the delay
-				// time before the next attempt otherwise add to failed connections map
-				failedToConnect.computeIfAbsent(address, k -> new RetryFailedConnection()).increaseRetryTime();
+				close(socket);
+				connectFailed(address);
 
 				throw new ConnectionException("Failed to connect to '" + address + "'.", address, th);
 			}
@@ -184,6 +163,179 @@ public class CAConnector implements Connector {
 		}
 	}
 
+	/**
+	 * @see com.cosylab.epics.caj.impl.Connector#connectAsync(com.cosylab.epics.caj.impl.TransportClient, com.cosylab.epics.caj.impl.ResponseHandler, java.net.InetSocketAddress, short, short, com.cosylab.epics.caj.impl.ConnectCallback)
+	 */
+	public void connectAsync(TransportClient client, ResponseHandler responseHandler,
+							 InetSocketAddress address, short transportRevision, short priority, ConnectCallback callback)
+	{
+		// If already tried and failed to connect check that it is now time
+		// to retry, otherwise bail out
+		if (!isRetryAllowed(address))
+		{
+			callback.connectFailed(address, null);
+			return;
+		}
+		
+		CATransport transport;
+		PendingConnect pendingConnect = null;
+		synchronized (pendingConnects)
+		{
+			// check cache (transport is put to the registry before pending connect is removed)
+			transport = (CATransport)context.getTransportRegistry().get(address, priority);
+			if (transport == null || !transport.acquire(client))
+			{
+				transport = null;
+				
+				// connection already being established, just wait for it
+				final String key = pendingConnectKey(address, priority);
+				pendingConnect = pendingConnects.get(key);
+				if (pendingConnect != null)
+				{
+					pendingConnect.addWaiter(client, callback);
+					return;
+				}
+				
+				pendingConnect = new PendingConnect(key, address, responseHandler, transportRevision, priority);
+				pendingConnect.addWaiter(client, callback);
+				pendingConnects.put(key, pendingConnect);
+			}
+		}
+		
+		if (transport != null)
+		{
+			context.getLogger().finer("Reusing existant connection to CA server: " + address);
+			callback.connectCompleted(transport);
+		}
+		else
+		{
+			context.getLogger().finer("Connecting (asynchronously) to CA server: " + address);
+			pendingConnect.start();
+		}
+	}
+
+	/**
+	 * Pending connection key.
+	 * @param address address of the server.
+	 * @param priority process priority.
+	 * @return key.
+	 */
+	private static String pendingConnectKey(InetSocketAddress address, short priority)
+	{
+		return address.toString() + '/' + priority;
+	}
+
+	/**
+	 * Check if (re)connection to given address is allowed, i.e. retry delay after failed connection elapsed.
+	 * @param address address to check.
+	 * @return <code>true</code> if connection can be tried.
+	 */
+	private boolean isRetryAllowed(InetSocketAddress address)
+	{
+		RetryFailedConnection prevConnect = failedToConnect.get(address);
+		return prevConnect == null || System.currentTimeMillis() >= prevConnect.getRetryTime();
+	}
+	
+	/**
+	 * Record failed connection.
+	 * @param address address of the server.
+	 */
+	private void connectFailed(InetSocketAddress address)
+	{
+		// If previously unable to connect then increase the delay
+		// time before the next attempt otherwise add to failed connections map
+		failedToConnect.computeIfAbsent(address, k -> new RetryFailedConnection()).increaseRetryTime();
+	}
+
+	/**
+	 * Close socket, if open.
+	 * @param socket socket to close, can be <code>null</code>.
+	 */
+	private static void close(SocketChannel socket)
+	{
+		try
+		{
+			if (socket != null)
+				socket.close();
+		}
+		catch (Throwable t) { /* noop */ }
+	}
+	
+	/**
+	 * Create transport of connected socket (register it to the reactor or start blocking I/O)
+	 * and issue version including priority, username and local hostname.
+	 * @param client client requesting connection (transport).
+	 * @param responseHandler reponse handler.
+	 * @param address address of the server.
+	 * @param socket connected socket.
+	 * @param key selection key of the socket already registered to the reactor (asynchronous connect), can be <code>null</code>.
+	 * @param transportRevision transport revision to be used.
+	 * @param priority process priority.
+	 * @return created transport.
+	 * @throws IOException
+	 */
+	private CATransport createTransport(TransportClient client, ResponseHandler responseHandler, InetSocketAddress address,
+										SocketChannel socket, SelectionKey key, short transportRevision, short priority)
+		throws IOException
+	{
+		// blocking I/O mode executor, null if reactor is used
+		final ExecutorService blockingIOExecutor = context.getBlockingIOExecutor();
+		
+		// use non-blocking channel (no need for soTimeout)			
+		socket.configureBlocking(blockingIOExecutor != null);
+	
+		// enable TCP_NODELAY (disable Nagle's algorithm)
+		socket.socket().setTcpNoDelay(true);
+		
+		// enable TCP_KEEPALIVE
+		socket.socket().setKeepAlive(true);
+	
+		// TODO tune buffer sizes?! Win32 defaults are 8k, which is OK
+		//socket.socket().setReceiveBufferSize();
+		//socket.socket().setSendBufferSize();
+
+		// create transport
+		CATransport transport = new CATransport(context, client, responseHandler, socket, transportRevision, priority);
+		if (blockingIOExecutor != null)
+		{
+			// dedicated reader and writer (no reactor)
+			transport.startBlockingIO(blockingIOExecutor);
+		}
+		else
+		{
+			Reactor reactor = transport.getReactor();
+			ReactorHandler handler = transport;
+			// NOTE: sharded reactors are processed by their own threads (no LF)
+			if (reactor == context.getReactor() && context.getLeaderFollowersThreadPool() != null)
+			    handler = new LeaderFollowersHandler(reactor, handler, context.getLeaderFollowersThreadPool());
+			
+			if (key != null)
+			{
+				// replace connect handler, if disabled (LF) new interest ops are applied when enabled
+				key.attach(handler);
+				reactor.setInterestOps(socket, SelectionKey.OP_READ);
+			}
+			else
+			{
+				// register to reactor
+				reactor.register(socket, SelectionKey.OP_READ, handler);
+			}
+		}
+		
+		// issue version including priority, username and local hostname
+		new VersionRequest(transport, priority).submit();
+		new UserNameRequest(transport).submit();
+		new HostNameRequest(transport).submit();
+		
+		context.getLogger().finer("Connected to CA server: " + address);
+		
+		// If previously unable connect now remove from map tracking
+		// failed connections
+		failedToConnect.remove(address);
+
+		return transport;
+	}
+
 	/**
 	 * Tries to connect to the given adresss.
 	 * @param address
@@ -204,7 +356,7 @@ public class CAConnector implements Connector {
 			if (tryCount > 0)
 			{
 				try {
-					Thread.sleep(100);
+					Thread.sleep(CONNECT_RETRY_DELAY);
 				} catch (InterruptedException ie) {}
 			}
 
@@ -228,6 +380,338 @@ public class CAConnector implements Connector {
 		throw lastException;
 	}
 	
+	/**
+	 * Asynchronous connection being established, i.e. non-blocking socket registered to the reactor
+	 * (<code>OP_CONNECT</code>) and all the clients waiting for it.
+	 * In blocking I/O mode connection is established by the blocking I/O executor instead.
+	 */
+	private class PendingConnect implements ReactorHandler {
+		
+		private final String key;
+		private final InetSocketAddress address;
+		private final ResponseHandler responseHandler;
+		private final short transportRevision;
+		private final short priority;
+		
+		/**
+		 * Waiting clients, guarded by <code>pendingConnects</code>.
+		 */
+		private final List<Waiter> waiters = new ArrayList<Waiter>(2);
+
+		/**
+		 * Current connect attempt (0-based) and its socket and timeout task.
+		 */
+		private int attempt = 0;
+		private SocketChannel socket = null;
+		private Object timeoutTaskID = null;
+		
+		/**
+		 * Completion flag.
+		 */
+		private boolean done = false;
+		
+		public PendingConnect(String key, InetSocketAddress address, ResponseHandler responseHandler,
+							  short transportRevision, short priority)
+		{
+			this.key = key;
+			this.address = address;
+			this.responseHandler = responseHandler;
+			this.transportRevision = transportRevision;
+			this.priority = priority;
+		}
+
+		/**
+		 * Add waiter, to be called with <code>pendingConnects</code> lock held.
+		 * @param client client requesting connection.
+		 * @param callback callback to be notified.
+		 */
+		void addWaiter(TransportClient client, ConnectCallback callback)
+		{
+			waiters.add(new Waiter(client, callback));
+		}
+		
+		/**
+		 * Start connecting.
+		 */
+		void start()
+		{
+			final ExecutorService blockingIOExecutor = context.getBlockingIOExecutor();
+			if (blockingIOExecutor != null)
+			{
+				// blocking I/O mode, blocking connect on executor thread
+				try
+				{
+					blockingIOExecutor.execute(new Runnable() {
+						public void run() {
+							SocketChannel socket = null;
+							try {
+								socket = tryConnect(address, CONNECT_TRIES);
+							} catch (Throwable th) {
+								failed(th);
+								return;
+							}
+							
+							if (complete())
+								connected(socket, null);
+							else
+								close(socket);
+						}
+					});
+				}
+				catch (Throwable th)
+				{
+					failed(th);
+				}
+			}
+			else
+				connectAttempt();
+		}
+		
+		/**
+		 * Initiate (non-blocking) connect attempt.
+		 */
+		private void connectAttempt()
+		{
+			final SocketChannel connectedSocket;
+			synchronized (this)
+			{
+				if (done)
+					return;
+				
+				context.getLogger().finest("Openning socket to CA server " + address + ", attempt " + (attempt+1) + ".");
+				
+				try
+				{
+					socket = SocketChannel.open();
+					socket.configureBlocking(false);
+					if (!socket.connect(address))
+					{
+						final int currentAttempt = attempt;
+						final long socketConnectTimeoutMs = (long)(socketConnectTimeout * 1000);
+						timeoutTaskID = context.getTimer().executeAfterDelay(socketConnectTimeoutMs, new Timer.TimerRunnable() {
+							public void timeout(long timeToRun) {
+								attemptFailed(currentAttempt, new IOException("Connect timed out."));
+							}
+						});
+		
+						// connect handler, replaced by transport handler when connected
+						// NOTE: sharded reactors are processed by their own threads (no LF)
+						Reactor reactor = context.getTransportReactor(address);
+						ReactorHandler handler = this;
+						if (reactor == context.getReactor() && context.getLeaderFollowersThreadPool() != null)
+						    handler = new LeaderFollowersHandler(reactor, handler, context.getLeaderFollowersThreadPool());
+						reactor.register(socket, SelectionKey.OP_CONNECT, handler);
+						return;
+					}
+				}
+				catch (Throwable th)
+				{
+					attemptFailed(attempt, th);
+					return;
+				}
+				
+				// connected immediately (local server)
+				connectedSocket = socket;
+				complete();
+			}
+
+			connected(connectedSocket, null);
+		}
+
+		/**
+		 * Handle <code>OP_CONNECT</code> event.
+		 * @see com.cosylab.epics.caj.impl.reactor.ReactorHandler#handleEvent(java.nio.channels.SelectionKey)
+		 */
+		public void handleEvent(SelectionKey key)
+		{
+			final SocketChannel connectedSocket;
+			synchronized (this)
+			{
+				if (done || !key.isValid() || !key.isConnectable())
+					return;
+				
+				try
+				{
+					if (!socket.finishConnect())
+						return;
+				}
+				catch (Throwable th)
+				{
+					attemptFailed(attempt, th);
+					return;
+				}
+	
+				connectedSocket = socket;
+				complete();
+			}
+
+			connected(connectedSocket, key);
+		}
+		
+		/**
+		 * Mark connecting as completed (no more attempts).
+		 * @return <code>false</code> if already completed.
+		 */
+		private synchronized boolean complete()
+		{
+			if (done)
+				return false;
+			done = true;
+			
+			if (timeoutTaskID != null)
+			{
+				Timer.cancel(timeoutTaskID);
+				timeoutTaskID = null;
+			}
+			return true;
+		}
+
+		/**
+		 * Connect attempt failed, retry or give up.
+		 * @param failedAttempt failed attempt, ignored if not current.
+		 * @param cause failure cause.
+		 */
+		private synchronized void attemptFailed(int failedAttempt, Throwable cause)
+		{
+			if (done || failedAttempt != attempt)
+				return;
+
+			if (timeoutTaskID != null)
+			{
+				Timer.cancel(timeoutTaskID);
+				timeoutTaskID = null;
+			}
+			
+			// closing also cancels selection key
+			close(socket);
+			socket = null;
+			
+			if (++attempt < CONNECT_TRIES)
+			{
+				try
+				{
+					context.getTimer().executeAfterDelay(CONNECT_RETRY_DELAY, new Timer.TimerRunnable() {
+						public void timeout(long timeToRun) {
+							connectAttempt();
+						}
+					});
+					return;
+				}
+				catch (Throwable th)
+				{
+					cause = th;
+				}
+			}
+
+			failed(cause);
+		}
+		
+		/**
+		 * Socket connected (and connecting completed), create transport and notify all the waiters.
+		 * @param socket connected socket.
+		 * @param key selection key of the socket (registered to the reactor), <code>null</code> if not registered.
+		 */
+		private void connected(SocketChannel socket, SelectionKey key)
+		{
+			// the first waiter is the owner of the transport
+			final TransportClient firstClient;
+			synchronized (pendingConnects)
+			{
+				firstClient = waiters.get(0).client;
+			}
+			
+			final CATransport transport;
+			try
+			{
+				transport = createTransport(firstClient, responseHandler, address, socket, key, transportRevision, priority);
+			}
+			catch (Throwable th)
+			{
+				close(socket);
+				failedToConnect(th);
+				return;
+			}
+			
+			// transport is already in the registry, new clients will reuse it
+			for (Waiter waiter : removeWaiters())
+			{
+				try
+				{
+					if (waiter.client == firstClient || transport.acquire(waiter.client))
+						waiter.callback.connectCompleted(transport);
+					else
+						waiter.callback.connectFailed(address, new IOException("Transport closed."));
+				}
+				catch (Throwable th)
+				{
+					context.getLogger().log(Level.SEVERE, "", th);
+				}
+			}
+		}
+
+		/**
+		 * Give up connecting, notify all the waiters.
+		 * @param cause failure cause.
+		 */
+		private void failed(Throwable cause)
+		{
+			if (complete())
+				failedToConnect(cause);
+		}
+
+		/**
+		 * Record failed connection and notify all the waiters.
+		 * @param cause failure cause.
+		 */
+		private void failedToConnect(Throwable cause)
+		{
+			connectFailed(address);
+			
+			final ConnectionException ce = new ConnectionException("Failed to connect to '" + address + "'.", address, cause);
+			for (Waiter waiter : removeWaiters())
+			{
+				try
+				{
+					waiter.callback.connectFailed(address, ce);
+				}
+				catch (Throwable th)
+				{
+					context.getLogger().log(Level.SEVERE, "", th);
+				}
+			}
+		}
+		
+		/**
+		 * Remove this pending connection and get its waiters.
+		 * @return waiters.
+		 */
+		private List<Waiter> removeWaiters()
+		{
+			synchronized (pendingConnects)
+			{
+				pendingConnects.remove(key);
+				
+				List<Waiter> list = new ArrayList<Waiter>(waiters);
+				waiters.clear();
+				return list;
+			}
+		}
+	}
+	
+	/**
+	 * Client waiting for pending connection.
+	 */
+	private static class Waiter {
+		final TransportClient client;
+		final ConnectCallback callback;
+		
+		Waiter(TransportClient client, ConnectCallback callback)
+		{
+			this.client = client;
+			this.callback = callback;
+		}
+	}
+
 	/**
 	 * Class defining the next time to retry the connection for
 	 * a given socket address.
@@ -14,6 +14,8 @@
 
 package com.cosylab.epics.caj.impl;
 
+import java.net.InetSocketAddress;
+
 import com.cosylab.epics.caj.impl.reactor.Reactor;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersThreadPool;
 import com.cosylab.epics.caj.util.Timer;
@@ -32,6 +34,15 @@ public interface CAContext extends LoggerProvider {
 	 */
 	public Reactor getReactor();
 
+	/**
+	 * Get reactor serving TCP transport connected to given address.
+	 * If sharded reactors are used, connections are consistently assigned to shards,
+	 * otherwise context reactor is returned.
+	 * @param address remote address of the transport.
+	 * @return reactor serving the transport.
+	 */
+	public Reactor getTransportReactor(InetSocketAddress address);
+
     /**
      * Get LF thread pool.
      * @return LF thread pool, can be <code>null</code> if disabled.
@@ -83,7 +83,10 @@ public class CAJNameClient implements TransportClient, TimerRunnable, Request {
 
 	@Override
 	public ByteBuffer getRequestMessage() {
-		return sendBuffer;
+		// sendBuffer is reused, while transport sends the message buffer as is (i.e. later) - give a copy 
+		ByteBuffer message = sendBuffer.duplicate();
+		message.flip();
+		return ByteBuffer.allocate(message.remaining()).put(message);
 	}
 
 	@Override
@@ -25,14 +25,18 @@ import java.nio.ByteBuffer;
 import java.nio.channels.SelectionKey;
 import java.nio.channels.SocketChannel;
 import java.util.HashMap;
-import java.util.LinkedList;
 import java.util.Map;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.ReentrantLock;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import com.cosylab.epics.caj.CAJContext;
+import com.cosylab.epics.caj.impl.reactor.Reactor;
 import com.cosylab.epics.caj.impl.reactor.ReactorHandler;
 import com.cosylab.epics.caj.impl.reactor.lf.LeaderFollowersThreadPool;
 import com.cosylab.epics.caj.impl.requests.EchoRequest;
@@ -41,7 +45,6 @@ import com.cosylab.epics.caj.impl.requests.EventsOnRequest;
 import com.cosylab.epics.caj.impl.requests.UserNameRequest;
 import com.cosylab.epics.caj.util.Timer;
 
-import java.nio.BufferOverflowException;
 
 /**
  * CA transport implementation.
@@ -78,11 +81,22 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 	 */
 	private InetSocketAddress socketAddress;
 
+	/**
+	 * Reactor serving this transport.
+	 */
+	private final Reactor reactor;
+
 	/**
 	 * Receive buffer.
 	 */
 	private ByteBuffer[] receiveBuffer;
 
+	/**
+	 * Default (initial) payload receive buffer, used for messages that fit into it.
+	 * Larger payloads are received into buffers borrowed from the buffer allocator.
+	 */
+	private ByteBuffer defaultPayloadBuffer;
+
 	/**
 	 * Flow control "buffer full" count limit.
 	 */
@@ -97,11 +111,59 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 	 * Local receive (socket) buffer.
 	 */
 	private ByteBuffer socketBuffer;
+
+	/**
+	 * Response views over the socket buffer (header, payload),
+	 * used to handle messages that are completely contained in the socket buffer without copying.
+	 */
+	private ByteBuffer[] inPlaceResponse;
+
+	/**
+	 * Scattering read buffers (payload, socket buffer),
+	 * used to read (large) payloads directly into the payload buffer.
+	 */
+	private ByteBuffer[] scatterBuffers;
 	
 	/**
-	 * Send queue.
+	 * Send queue (multiple producers, single consumer) of message buffers to be sent.
+	 */
+	private ConcurrentLinkedQueue sendQueue;
+
+	/**
+	 * Number of messages in the send queue.
+	 */
+	private AtomicInteger sendQueueSize;
+
+	/**
+	 * Number of bytes submitted since last flush.
+	 */
+	private AtomicInteger unflushedBytes;
+
+	/**
+	 * Send queue disposed (transport closed) flag.
+	 */
+	private volatile boolean sendQueueDisposed = false;
+
+	/**
+	 * Gathering write buffers, used only by the thread holding the send lock.
+	 */
+	private ByteBuffer[] gatherBuffers;
+
+	/**
+	 * Maximum number of messages in the send queue,
+	 * when exceeded producers are sending the queue themselves (backpressure).
+	 */
+	private static final int MAX_SEND_QUEUE_SIZE = 16384;
+
+	/**
+	 * Maximum number of buffers written by one gathering write.
+	 */
+	private static final int MAX_GATHER_BUFFERS = 256;
+
+	/**
+	 * Maximum number of bytes written by one write.
 	 */
-	private LinkedList sendQueue;
+	private static final int SEND_BUFFER_LIMIT = 16000;
 	
 	/**
 	 * Remote side transport revision.
@@ -119,27 +181,20 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 	private ReentrantLock sendLock = new ReentrantLock();
 
 	/**
-	 * Flu8sh pending status.
+	 * Flush pending status.
 	 */
-	private volatile boolean flushPending = false;
-	
+	private final AtomicBoolean flushPending = new AtomicBoolean(false);
+
 	/**
-	 * Current active send buffer.
+	 * Writer task signal (blocking I/O mode), <code>null</code> if reactor is used.
 	 */
-	private ByteBuffer sendBuffer;
+	private volatile Semaphore writerSignal = null;
 	
 	/**
 	 * Byte buffer allocator.
 	 */
 	private CachedByteBufferAllocator bufferAllocator;
 
-	/**
-	 * Last active send buffer.
-	 * This is used to possibly optimize high frequency flushes, it merges current buffer with the last 
-	 * (if it there is enough of space and it is wainting in the sendQueue). 
-	 */
-	private ByteBuffer lastActiveSendBuffer = null;
-
 	/**
 	 * Process priority.
 	 */
@@ -167,24 +222,30 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 		this.priority = priority;
 
 		socketAddress = (InetSocketAddress)channel.socket().getRemoteSocketAddress();
+		reactor = context.getTransportReactor(socketAddress);
 		
 		// initialize buffers
+		defaultPayloadBuffer = ByteBuffer.allocateDirect(INITIAL_RX_BUFFER_SIZE);
 		receiveBuffer = new ByteBuffer[] {
 							ByteBuffer.allocateDirect(CAConstants.CA_EXTENDED_MESSAGE_HEADER_SIZE),
-							ByteBuffer.allocateDirect(INITIAL_RX_BUFFER_SIZE)
+							defaultPayloadBuffer
 						};
 		// first limit to a reading of an standard message header
 		receiveBuffer[0].limit(CAConstants.CA_MESSAGE_HEADER_SIZE);
 
 		socketBuffer = ByteBuffer.allocateDirect(CAConstants.MAX_TCP_RECV);
+		inPlaceResponse = new ByteBuffer[] { socketBuffer.duplicate(), socketBuffer.duplicate() };
+		scatterBuffers = new ByteBuffer[] { null, socketBuffer };
 		
 		// initialize owners list, send queue
 		owners = new HashMap();
 		acquire(client);
 
-		sendQueue = new LinkedList();
+		sendQueue = new ConcurrentLinkedQueue();
+		sendQueueSize = new AtomicInteger(0);
+		unflushedBytes = new AtomicInteger(0);
+		gatherBuffers = new ByteBuffer[MAX_GATHER_BUFFERS];
 		bufferAllocator = context.getCachedBufferAllocator();
-		sendBuffer = bufferAllocator.get();
 		
 		// read beacon timeout and start timer (watchdog)
 		connectionTimeout = (long)(context.getConnectionTimeout() * 1000);
@@ -230,23 +291,70 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 		
 		context.getLogger().finer("Connection to " + socketAddress + " closed.");
 
-		context.getReactor().unregisterAndClose(channel);
+		if (writerSignal != null)
+		{
+			// wake up the writer and unblock the reader
+			writerSignal.release();
+			try {
+				channel.close();
+			} catch (IOException e) { /* noop */ }
+		}
+		else
+			reactor.unregisterAndClose(channel);
 	}
 
 	/**
-	 * Free all send buffers (return them to the cached buffer allocator).
+	 * Start blocking I/O mode, i.e. reader and writer tasks are run by given executor
+	 * (the transport is not registered to the reactor).
+	 * NOTE: channel must be in blocking mode. 
+	 * @param executor executor to run reader and writer (long-running) tasks.
 	 */
-	private void freeSendBuffers() {
-		synchronized (sendQueue) {
-			sendBuffer = null;
-			lastActiveSendBuffer = null;
-			while (sendQueue.size() > 0) {
-				ByteBuffer buf = (ByteBuffer)sendQueue.removeFirst();
-				if(buf.capacity()==CachedByteBufferAllocator.bufferSize)
-					bufferAllocator.put(buf);
-				// else discard big buffer
+	public void startBlockingIO(Executor executor)
+	{
+		writerSignal = new Semaphore(0);
+		
+		executor.execute(new Runnable() {
+	        /**
+	    	 * Reader task.
+	    	 * @see java.lang.Runnable#run()
+	    	 */
+			public void run() {
+				// blocks in read
+				while (!closed)
+					processRead();
 			}
-		}
+		});
+		
+		executor.execute(new Runnable() {
+	        /**
+	    	 * Writer task, drains send queue when signaled.
+	    	 * @see java.lang.Runnable#run()
+	    	 */
+			public void run() {
+				final Semaphore signal = writerSignal;
+				while (!closed)
+				{
+					try {
+						signal.acquire();
+					} catch (InterruptedException e) {
+						return;
+					}
+					signal.drainPermits();
+					
+					if (!closed)
+						flushInternal();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Free all send buffers (dispose send queue).
+	 */
+	private void freeSendBuffers() {
+		sendQueueDisposed = true;
+		sendQueue.clear();
+		sendQueueSize.set(0);
 	}
 	
 	/**
@@ -387,7 +495,25 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 				socketBuffer.clear();
 				
 				// read
-				int bytesRead = channel.read(socketBuffer);
+				long bytesRead;
+				boolean bufferFull;
+				final ByteBuffer payloadBuffer = receiveBuffer[1];
+				if (!receiveBuffer[0].hasRemaining() && payloadBuffer.hasRemaining())
+				{
+					// in the middle of the payload, read it directly into the payload buffer
+					// (the rest of the data goes into the socket buffer)
+					int requested = payloadBuffer.remaining() + socketBuffer.remaining();
+					scatterBuffers[0] = payloadBuffer;
+					bytesRead = channel.read(scatterBuffers);
+					scatterBuffers[0] = null;
+					bufferFull = (bytesRead == requested);
+				}
+				else
+				{
+					bytesRead = channel.read(socketBuffer);
+					bufferFull = !socketBuffer.hasRemaining();
+				}
+
 				if (bytesRead < 0)
 				{
 					// error (disconnect, end-of-stream) detected
@@ -404,7 +530,7 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 				}
 				
 				// flow control check
-				if (socketBuffer.hasRemaining())
+				if (!bufferFull)
 				{
 					// buffer not full, disable flow control
 					bufferFullCount = 0;
@@ -450,7 +576,10 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 			// are we reading the header
 			if (headerBuffer.hasRemaining())
 			{
-				// TODO can be optimized simply by wrapping...
+				// complete message in the socket buffer, handle it in place (no copying)
+				if (headerBuffer.position() == 0 && processInPlace(socketBuffer))
+					continue;
+
 				readFromByteBuffer(socketBuffer, headerBuffer);
 				
 				// not done reading the header...
@@ -495,10 +624,9 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 						
 					}
 					
-					final int PAGE_SIZE = 4096;
-					int newSize = Math.min(maxPayloadSize, (payloadSize & ~(PAGE_SIZE-1)) + PAGE_SIZE);
-
-					receiveBuffer[1] = ByteBuffer.allocateDirect(newSize);
+					// borrow larger buffer (returned when message is processed)
+					releasePayloadBuffer();
+					receiveBuffer[1] = bufferAllocator.get(payloadSize);
 					payloadBuffer = receiveBuffer[1];
 				}
 
@@ -508,56 +636,110 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 			}
 
 			// are we reading the payload
-			if (payloadBuffer.limit() == 0)
-			{
-				try
-				{
-					// prepare buffer for reading
-					headerBuffer.flip();
-
-					// handle response					
-					responseHandler.handleResponse(socketAddress, this, receiveBuffer);
-				}
-				catch (Throwable th)
-				{
-					// catch all bad code responses...	
-					logger.log(Level.SEVERE, "", th);
-				}
-
-				// reset header buffer
-				headerBuffer.clear();
-				headerBuffer.limit(CAConstants.CA_MESSAGE_HEADER_SIZE);
-			}
-			else if (payloadBuffer.hasRemaining())
+			// (payload might also be already read directly by the scattering read)
+			if (payloadBuffer.hasRemaining())
 			{
-				// TODO can be optimized simply by wrapping...
 				readFromByteBuffer(socketBuffer, payloadBuffer);
 				
 				// not done reading the payload...
 				if (payloadBuffer.hasRemaining())
 					break; 
-					
-				// prepare buffer for reading
-				headerBuffer.flip();
-
-				// prepare buffer for reading
-				payloadBuffer.flip();
+			}
 				
-				try
-				{
-					// handle response
-					responseHandler.handleResponse(socketAddress, this, receiveBuffer);
-				}
-				catch (Throwable th)
-				{
-					// catch all bad code responses...	
-					logger.log(Level.SEVERE, "", th);
-				}
+			// prepare buffer for reading
+			headerBuffer.flip();
 
-				// reset header buffer
-				headerBuffer.clear();
-				headerBuffer.limit(CAConstants.CA_MESSAGE_HEADER_SIZE);
+			// prepare buffer for reading
+			payloadBuffer.flip();
+			
+			try
+			{
+				// handle response
+				responseHandler.handleResponse(socketAddress, this, receiveBuffer);
+			}
+			catch (Throwable th)
+			{
+				// catch all bad code responses...	
+				logger.log(Level.SEVERE, "", th);
 			}
+
+			// return borrowed buffer
+			releasePayloadBuffer();
+
+			// reset header buffer
+			headerBuffer.clear();
+			headerBuffer.limit(CAConstants.CA_MESSAGE_HEADER_SIZE);
+		}
+	}
+
+	/**
+	 * Handle message directly from the socket buffer, if it is completely contained in it.
+	 * Header and payload are passed to the response handler as views over the socket buffer.
+	 * @param socketBuffer	socket buffer, position set to the start of the message.
+	 * @return <code>true</code> if message was handled (socket buffer position is set to the end of the message),
+	 * 		   <code>false</code> if message is not completely contained in the socket buffer.
+	 */
+	private boolean processInPlace(ByteBuffer socketBuffer)
+	{
+		final int start = socketBuffer.position();
+		final int available = socketBuffer.remaining();
+		if (available < CAConstants.CA_MESSAGE_HEADER_SIZE)
+			return false;
+		
+		// peek for payload size (convert unsigned short to signed int) 
+		int headerSize = CAConstants.CA_MESSAGE_HEADER_SIZE;
+		int payloadSize = socketBuffer.getShort(start + 2) & 0xFFFF;
+		
+		// extended message header
+		if (payloadSize == 0xFFFF)
+		{
+			headerSize = CAConstants.CA_EXTENDED_MESSAGE_HEADER_SIZE;
+			if (available < headerSize)
+				return false;
+			payloadSize = socketBuffer.getInt(start + CAConstants.CA_MESSAGE_HEADER_SIZE);
+		}
+
+		// negative (too large) payload size is handled (rejected) by the copying code
+		if (payloadSize < 0 || payloadSize > available - headerSize)
+			return false;
+		
+		final int payloadStart = start + headerSize;
+		final int end = payloadStart + payloadSize;
+		
+		final ByteBuffer headerView = inPlaceResponse[0];
+		headerView.clear();
+		headerView.limit(payloadStart);
+		headerView.position(start);
+
+		final ByteBuffer payloadView = inPlaceResponse[1];
+		payloadView.clear();
+		payloadView.limit(end);
+		payloadView.position(payloadStart);
+
+		try
+		{
+			// handle response
+			responseHandler.handleResponse(socketAddress, this, inPlaceResponse);
+		}
+		catch (Throwable th)
+		{
+			// catch all bad code responses...	
+			logger.log(Level.SEVERE, "", th);
+		}
+		
+		socketBuffer.position(end);
+		return true;
+	}
+
+	/**
+	 * Return borrowed payload buffer (if any) to the allocator and revert to the default one.
+	 */
+	private void releasePayloadBuffer()
+	{
+		if (receiveBuffer[1] != defaultPayloadBuffer)
+		{
+			bufferAllocator.put(receiveBuffer[1]);
+			receiveBuffer[1] = defaultPayloadBuffer;
 		}
 	}
 
@@ -570,9 +752,12 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 		int srcBufferPosition = srcBuffer.position();
 		int destPosition = destBuffer.position();
 		int bytesToRead = Math.min(destBuffer.remaining(), srcBuffer.remaining());
-                ByteBuffer toCopy = srcBuffer.slice();
-                toCopy.limit(bytesToRead);
-                destBuffer.put(toCopy);
+		if (bytesToRead == 0)
+			return;
+		int srcBufferLimit = srcBuffer.limit();
+		srcBuffer.limit(srcBufferPosition + bytesToRead);
+		destBuffer.put(srcBuffer);
+		srcBuffer.limit(srcBufferLimit);
 		destBuffer.position(destPosition + bytesToRead);
 		srcBuffer.position(srcBufferPosition + bytesToRead);
 	}
@@ -653,68 +838,79 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 	 * @param buffer	buffer to be sent
 	 * @throws IOException 
 	 */
-	// TODO optimize !!!
 	private void noSyncSend(ByteBuffer buffer, boolean asyncCloseOnError) throws IOException
 	{
-		try
-		{
-			// prepare buffer
-			buffer.flip();
+		// prepare buffer
+		buffer.flip();
 
-			final int SEND_BUFFER_LIMIT = 16000;
-			int bufferLimit = buffer.limit();
+		int bufferLimit = buffer.limit();
 
-			// TODO remove?!
-			context.getLogger().finest("Sending " + bufferLimit + " bytes to " + socketAddress + ".");
+		// TODO remove?!
+		context.getLogger().finest("Sending " + bufferLimit + " bytes to " + socketAddress + ".");
+
+		// limit sending large buffers, split the into parts
+		try
+		{
+			gatherBuffers[0] = buffer;
+			while (buffer.hasRemaining())
+			{
+				buffer.limit(Math.min(buffer.position() + SEND_BUFFER_LIMIT, bufferLimit));
+				noSyncWrite(gatherBuffers, 1);
+			}
+		}
+		finally
+		{
+			gatherBuffers[0] = null;
+			buffer.limit(bufferLimit);
+		}
+	}
 
-			// limit sending large buffers, split the into parts
-			int parts = (buffer.limit()-1) / SEND_BUFFER_LIMIT + 1;
-			for (int part = 1; part <= parts; part++)
+	/**
+	 * Write (gathering write) buffers to the socket, blocks until all the buffers are written.
+	 * NOTE: TCP sent buffer/sending has to be synchronized. 
+	 * @param buffers	buffers to be written.
+	 * @param count		number of buffers (starting at 0) to be written.
+	 * @throws IOException 
+	 */
+	private void noSyncWrite(ByteBuffer[] buffers, int count) throws IOException
+	{
+		try
+		{
+			int offset = 0;
+			final int TRIES = 10;
+			for (int tries = 0; /* tries <= TRIES */ ; tries++)
 			{
-				if (parts > 1)
+				// send
+				long bytesSent = channel.write(buffers, offset, count - offset);
+				if (bytesSent < 0)
+					throw new IOException("bytesSent < 0");
+				
+				// skip completely sent buffers
+				while (offset < count && !buffers[offset].hasRemaining())
+					offset++;
+				
+				if (offset == count)
+					break;
+				
+				if (closed)
+					throw new IOException("transport closed on the client side");
+				
+				if (tries >= TRIES)
 				{
-					buffer.limit(Math.min(part * SEND_BUFFER_LIMIT, bufferLimit));
-					context.getLogger().finest("[Parted] Sending (part " + part + "/" + parts + ") " + (buffer.limit()-buffer.position()) + " bytes to " + socketAddress + ".");
+					context.getLogger().warning("Failed to send message to " + socketAddress + " - buffer full, will retry.");
+
+					//if (tries >= 2*TRIES)
+					//	throw new IOException("TCP send buffer persistently full, disconnecting!");
 				}
 				
-				final int TRIES = 10;
-				for (int tries = 0; /* tries <= TRIES */ ; tries++)
-				{
-					
-					// send
-					int bytesSent = channel.write(buffer);
-					if (bytesSent < 0)
-						throw new IOException("bytesSent < 0");
-					
-					// bytesSend == buffer.position(), so there is no need for flip()
-					if (buffer.position() != buffer.limit())
-					{
-						if (closed)
-							throw new IOException("transport closed on the client side");
-						
-						if (tries >= TRIES)
-						{
-							context.getLogger().warning("Failed to send message to " + socketAddress + " - buffer full, will retry.");
-
-							//if (tries >= 2*TRIES)
-							//	throw new IOException("TCP send buffer persistently full, disconnecting!");
-							
-						}
-						
-						// flush & wait for a while...
-						context.getLogger().finest("Send buffer full for " + socketAddress + ", waiting...");
-						channel.socket().getOutputStream().flush();
-						try {
-							Thread.sleep(Math.min(15000,10+tries*100));
-						} catch (InterruptedException e) {
-							// noop
-						}
-						continue;
-					}
-					else
-						break;
+				// flush & wait for a while...
+				context.getLogger().finest("Send buffer full for " + socketAddress + ", waiting...");
+				channel.socket().getOutputStream().flush();
+				try {
+					Thread.sleep(Math.min(15000,10+tries*100));
+				} catch (InterruptedException e) {
+					// noop
 				}
-			
 			}
 		}
 		catch (IOException ioex) 
@@ -725,6 +921,75 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 		}
 	}
 
+	/**
+	 * Send all the messages in the send queue, using gathering writes.
+	 * NOTE: send lock must be held (single consumer).
+	 * @throws IOException 
+	 */
+	private void noSyncSendQueue() throws IOException
+	{
+		final ByteBuffer[] buffers = gatherBuffers;
+
+		// part of the (large) message not yet sent
+		ByteBuffer remainder = null;
+		try
+		{
+			while (true)
+			{
+				int count = 0;
+				int bytes = 0;
+				
+				if (remainder != null)
+				{
+					buffers[count++] = remainder;
+					bytes = remainder.remaining();
+					remainder = null;
+				}
+				
+				while (count < buffers.length && bytes < SEND_BUFFER_LIMIT)
+				{
+					ByteBuffer buffer = (ByteBuffer)sendQueue.poll();
+					if (buffer == null)
+						break;
+					sendQueueSize.decrementAndGet();
+					
+					buffers[count++] = buffer;
+					bytes += buffer.remaining();
+				}
+				
+				if (count == 0)
+					return;
+				
+				// limit sending large buffers, the rest is sent in next write
+				ByteBuffer last = buffers[count - 1];
+				int lastLimit = last.limit();
+				if (bytes > SEND_BUFFER_LIMIT)
+				{
+					last.limit(lastLimit - (bytes - SEND_BUFFER_LIMIT));
+					bytes = SEND_BUFFER_LIMIT;
+				}
+				
+				// TODO remove?!
+				context.getLogger().finest("Sending " + bytes + " bytes (" + count + " buffer(s)) to " + socketAddress + ".");
+
+				noSyncWrite(buffers, count);
+				
+				last.limit(lastLimit);
+				if (last.hasRemaining())
+					remainder = last;
+				
+				// do not hold references to sent messages
+				for (int i = 0; i < count; i++)
+					buffers[i] = null;
+			}
+		}
+		finally
+		{
+			for (int i = 0; i < buffers.length && buffers[i] != null; i++)
+				buffers[i] = null;
+		}
+	}
+
 	/**
 	 * Flush task (to be executed by an thread pool).
 	 */
@@ -743,42 +1008,20 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 	 * ... by enabling SelectionKey.OP_WRITE and process in reactor. 
 	 * @see com.cosylab.epics.caj.impl.Transport#flush()
 	 */
-	public synchronized boolean flush()
+	public boolean flush()
 	{
+	    if (closed || sendQueueDisposed)
+	        return false;
+	    
+	    unflushedBytes.set(0);
+	    
+        // noop check
+	    if (sendQueue.isEmpty())
+	    	return true;
 
-	    // add to queue and flush
-		synchronized(sendQueue)
-		{
-		    if (closed || sendBuffer == null)
-		        return false;
-		    
-	        // noop check
-	        if (sendBuffer.position() == 0)
-	            return true;
-	        else
-	        {
-	            // reuse old buffer
-	            if (lastActiveSendBuffer != null &&
-	                lastActiveSendBuffer.position()+sendBuffer.position() <= lastActiveSendBuffer.capacity())
-	            {
-	                sendBuffer.flip();
-	                lastActiveSendBuffer.put(sendBuffer);
-	                sendBuffer.clear();
-	                return true;
-	            }
-	            
-	            sendQueue.add(sendBuffer);
-
-	            // acquire new buffer
-	            lastActiveSendBuffer = sendBuffer;
-	    		sendBuffer = bufferAllocator.get();
-	        }
-	        
-		    if (flushPending)
-		        return true;
-		    // NOTE: must be sure that code below will not fail
-		    flushPending = true;
-		}
+	    // already pending
+	    if (!flushPending.compareAndSet(false, true))
+	        return true;
 	    
 	    return spawnFlushing();
 	}
@@ -788,6 +1031,14 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
      */
     private boolean spawnFlushing()
     {
+        // blocking I/O, signal the writer
+        final Semaphore signal = writerSignal;
+        if (signal != null)
+        {
+        	signal.release();
+        	return true;
+        }
+
         LeaderFollowersThreadPool lftp = context.getLeaderFollowersThreadPool();
 	    if (lftp != null)
 	    {
@@ -798,7 +1049,7 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 	    else
 	    {
 		    // enable SelectionKey.OP_WRITE via reactor (this will also enable OP_READ, but its OK)
-		    context.getReactor().setInterestOps(channel, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+		    reactor.setInterestOps(channel, SelectionKey.OP_READ | SelectionKey.OP_WRITE);
 		    return true;
 	    }
     }
@@ -811,35 +1062,19 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 	public boolean flushInternal()
 	{
 	    // tricky closed check
-	    if (sendBuffer == null)
+	    if (sendQueueDisposed)
 	        return false;
 	    
 		try
 		{
-			while (sendQueue.size() > 0)
+			sendLock.lock();
+			try
 			{
-				ByteBuffer buf;
-				// dont want to block while sending...
-				synchronized (sendQueue)
-				{
-					if (sendQueue.size() == 0)
-						return true;
-						
-					buf = (ByteBuffer)sendQueue.removeFirst();
-					// 'deactivate' lastActiveSendBuffer
-					if (buf == lastActiveSendBuffer)
-					    lastActiveSendBuffer = null;
-				}
-				
-				try {
-				    send(buf, false);
-				}
-				finally {
-				    // return back to the cache
-					if(buf.capacity()==CachedByteBufferAllocator.bufferSize)
-						bufferAllocator.put(buf);
-					// else drop big buf
-				}
+				noSyncSendQueue();
+			}
+			finally
+			{
+				sendLock.unlock();
 			}
 			
 			return true;
@@ -852,15 +1087,12 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 		}
 		finally
 		{
-			synchronized (sendQueue)
-			{
-			    // ack
-			    flushPending = false;
-			    
-			    // possible race condition check
-				if (!closed && sendQueue.size() > 0)
-				    spawnFlushing();
-			}
+		    // ack
+		    flushPending.set(false);
+		    
+		    // possible race condition check
+			if (!closed && !sendQueue.isEmpty() && flushPending.compareAndSet(false, true))
+			    spawnFlushing();
 		}
 	}
 
@@ -873,62 +1105,43 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 		// empty message
 		if (message.capacity() == 0)
 			return;
+
+	    if (sendQueueDisposed)
+		    throw new IllegalStateException("transport closed");
 				
-		// send or enqueue
+		// enqueue (no copying), request message itself is left untouched
+		ByteBuffer messageView = message.duplicate();
+		messageView.flip();
+		sendQueue.add(messageView);
+		int queueSize = sendQueueSize.incrementAndGet();
+
+		// send immediately, unless someone else is already sending (then flush)
 		if (requestMessage.getPriority() == Request.SEND_IMMEDIATELY_PRIORITY)
 		{
-			try
+			if (sendLock.tryLock())
 			{
-				if (sendLock.tryLock(100, TimeUnit.MILLISECONDS))
+				try
 				{
-					try
-					{
-						noSyncSend(message, true);
-						return;
-					}
-					finally
-					{
-						sendLock.unlock();
-					}
+					noSyncSendQueue();
+					return;
+				}
+				finally
+				{
+					sendLock.unlock();
 				}
 			}
-			catch (InterruptedException ie) {
-				// noop
-			}
+			
+			flush();
 		}
-		
-		
-		
+		// send queue full, send it (blocks the producer)
+		else if (queueSize > MAX_SEND_QUEUE_SIZE)
 		{
-			message.flip();
-
-			synchronized (sendQueue) {
-
-			    if (sendBuffer == null)
-				    throw new IllegalStateException("transport closed");
-			    
-			    // forced flush check
-				if (message.limit()+sendBuffer.position() >= sendBuffer.capacity())
-				    flush();
-
-				try {
-					sendBuffer.put(message);
-				} catch(BufferOverflowException ex) {
-					try {
-						logger.fine("Expending sendBuffer for "+Integer.toString(message.limit()));
-						sendBuffer.flip();
-						ByteBuffer bigbuf = ByteBuffer.allocateDirect(sendBuffer.remaining()+message.limit());
-						bigbuf.put(sendBuffer);
-						bigbuf.put(message);
-						if(sendBuffer.capacity()==CachedByteBufferAllocator.bufferSize)
-							bufferAllocator.put(sendBuffer);
-						sendBuffer = bigbuf;
-					} catch(Exception ex2) {
-						System.out.println("XX "+Integer.toString(sendBuffer.remaining())+" "+Integer.toString(message.limit()));
-						throw new RuntimeException("Message exceeds write buffer size (com.cosylab.epics.caj.impl.CachedByteBufferAllocator.buffer_size)", ex2);
-					}
-				}
-			}
+			flushInternal();
+		}
+	    // forced flush check
+		else if (unflushedBytes.addAndGet(messageView.remaining()) >= CachedByteBufferAllocator.bufferSize)
+		{
+			flush();
 		}
 	}
 
@@ -946,6 +1159,22 @@ public class CATransport implements Transport, ReactorHandler, Timer.TimerRunnab
 		return socketAddress;
 	}
 
+	/**
+	 * Check if transport is in blocking I/O mode (not served by a reactor).
+	 * @return <code>true</code> if in blocking I/O mode.
+	 */
+	public boolean isBlockingIO() {
+		return writerSignal != null;
+	}
+
+	/**
+	 * Get reactor serving this transport.
+	 * @return reactor serving this transport.
+	 */
+	public Reactor getReactor() {
+		return reactor;
+	}
+
 	/**
 	 * @see com.cosylab.epics.caj.impl.Transport#getPriority()
 	 */
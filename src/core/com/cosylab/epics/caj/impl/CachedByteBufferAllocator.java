@@ -14,13 +14,25 @@
 
 package com.cosylab.epics.caj.impl;
 
+import java.io.PrintStream;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
 import java.nio.ByteBuffer;
-import java.util.LinkedList;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import gov.aps.jca.JCALibrary;
 
 /**
  * A buffer allocator which allocates and caches NIO (direct) byte buffers.
+ * Buffers are pooled in size classes, starting at <code>bufferSize</code> and doubling up to
+ * the maximum buffer size (typically <code>max_array_bytes</code>); each (platform) thread keeps a small cache
+ * of buffers, the rest is kept in a global pool. Cached bytes (thread caches included) are bounded by
+ * <code>maxPoolSize</code>, buffers not fitting into the pool are released (left to GC) instead of being cached.
+ * NOTE: only buffers obtained by <code>get()</code> methods are to be returned via <code>put()</code>.
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
@@ -32,58 +44,468 @@ public class CachedByteBufferAllocator {
      */
     // TODO determine (if possible)...
     public static int bufferSize = 16*1024 + CAConstants.CA_EXTENDED_MESSAGE_HEADER_SIZE;
-    
+
+    /**
+     * Maximum number of bytes kept in the pool (per-thread caches included).
+     */
+    public static long maxPoolSize = 64*1024*1024;
+
+    /**
+     * Number of buffers (per size class) kept in a per-thread cache.
+     */
+    public static int threadCacheSize = 2;
+
+    /**
+     * Size classes larger than this are not cached per-thread.
+     */
+    private static final int MAX_THREAD_CACHED_CLASS = 1;
+
+    /**
+     * Maximum number of size classes.
+     */
+    private static final int MAX_CLASSES = 24;
+
+    /**
+     * <code>Thread.isVirtual()</code> method, <code>null</code> if not available (pre Java 21).
+     */
+    private static final Method IS_VIRTUAL_METHOD;
+
     static {
-        String strSize = JCALibrary.getInstance().getProperty(CachedByteBufferAllocator.class.getName() + ".buffer_size");
+        final String thisClassName = CachedByteBufferAllocator.class.getName();
+        final JCALibrary jcaLibrary = JCALibrary.getInstance();
+        String strSize = jcaLibrary.getProperty(thisClassName + ".buffer_size");
         if (strSize != null)
         {
-	        try 
+	        try
 	        {
 	            bufferSize = Integer.parseInt(strSize);
 	        } catch (NumberFormatException nfe) { /* noop */ }
         }
+        maxPoolSize = jcaLibrary.getPropertyAsLong(thisClassName + ".max_pool_size", maxPoolSize);
+        threadCacheSize = jcaLibrary.getPropertyAsInt(thisClassName + ".thread_cache_size", threadCacheSize);
+
+        Method isVirtualMethod = null;
+        try
+        {
+        	isVirtualMethod = Thread.class.getMethod("isVirtual");
+        } catch (Throwable th) { /* noop */ }
+        IS_VIRTUAL_METHOD = isVirtualMethod;
     }
 
     /**
-     * Cache for the byte buffers.
-     */    
-    private LinkedList cache = new LinkedList();
+     * Sizes of the size classes.
+     */
+    private volatile int[] classSizes;
+
+    /**
+     * Global pool, one LIFO queue per size class.
+     */
+    @SuppressWarnings("unchecked")
+    private final ArrayDeque<ByteBuffer>[] pool = (ArrayDeque<ByteBuffer>[]) new ArrayDeque<?>[MAX_CLASSES];
+
+    /**
+     * Per-thread caches, <code>null</code> value for threads not having a cache (virtual threads).
+     */
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+		protected ThreadCache initialValue() {
+			return createThreadCache();
+		}
+    };
 
     /**
-     * Get a byte buffer.
+     * List of all thread caches (for <code>reclaim()</code> and cleanup of caches of terminated threads).
+     */
+    private final List<ThreadCache> threadCaches = new ArrayList<ThreadCache>();
+
+    /**
+     * Number of bytes currently kept in the pool (per-thread caches included).
+     */
+    private final AtomicLong pooledBytes = new AtomicLong();
+
+    /**
+     * Number of bytes handed out and not yet returned.
+     */
+    private final AtomicLong outstandingBytes = new AtomicLong();
+
+    /**
+     * Number of requests served from a cache.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Number of requests that required allocation.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Number of returned buffers that were released (not cached).
+     */
+    private final AtomicLong reclaimed = new AtomicLong();
+
+    /**
+     * Per-thread cache, accessed (uncontended) by its owner thread and by <code>reclaim()</code>.
+     */
+    private static final class ThreadCache {
+    	final WeakReference<Thread> owner;
+    	final ByteBuffer[][] buffers = new ByteBuffer[MAX_THREAD_CACHED_CLASS + 1][threadCacheSize];
+    	final int[] counts = new int[MAX_THREAD_CACHED_CLASS + 1];
+
+    	ThreadCache(Thread owner) {
+    		this.owner = new WeakReference<Thread>(owner);
+    	}
+
+    	boolean isOwnerAlive() {
+    		Thread thread = owner.get();
+    		return thread != null && thread.isAlive();
+    	}
+    }
+
+    /**
+     * Constructor, only default size class is available until <code>setMaxBufferSize()</code> is called.
+     */
+    public CachedByteBufferAllocator()
+    {
+    	for (int i = 0; i < MAX_CLASSES; i++)
+    		pool[i] = new ArrayDeque<ByteBuffer>();
+    	classSizes = new int[] { bufferSize };
+    }
+
+    /**
+     * Set maximum size of the pooled buffer (e.g. <code>max_array_bytes</code> + header size).
+     * Requests for larger buffers are still served, but such buffers are not pooled.
+     * @param maxBufferSize maximum size of the pooled buffer.
+     */
+    public synchronized void setMaxBufferSize(int maxBufferSize)
+    {
+    	int count = 1;
+    	long size = bufferSize;
+    	while (size < maxBufferSize && count < MAX_CLASSES)
+    	{
+    		size <<= 1;
+    		count++;
+    	}
+
+    	int[] sizes = new int[count];
+    	size = bufferSize;
+    	for (int i = 0; i < count; i++, size <<= 1)
+    		sizes[i] = (int)Math.min(size, Math.max(maxBufferSize, bufferSize));
+    	classSizes = sizes;
+    }
+
+    /**
+     * Get maximum size of the pooled buffer.
+     * @return maximum size of the pooled buffer.
+     */
+    public int getMaxBufferSize()
+    {
+    	final int[] sizes = classSizes;
+    	return sizes[sizes.length - 1];
+    }
+
+    /**
+     * Get a byte buffer of default size (<code>bufferSize</code>).
      * @return a byte buffer.
-     */    
+     */
     public ByteBuffer get()
     {
-        ByteBuffer buffer = null;
-        
-        synchronized (cache)
-        {
-            if (cache.size() > 0)
-            {
-                buffer = (ByteBuffer)cache.removeFirst();
-                buffer.clear();
-            }
-        }
+    	return get(bufferSize);
+    }
+
+    /**
+     * Get a byte buffer with capacity of at least <code>size</code> bytes.
+     * @param size minimal required capacity.
+     * @return a (cleared) byte buffer.
+     */
+    public ByteBuffer get(int size)
+    {
+    	final int[] sizes = classSizes;
+    	final int sizeClass = sizeClassFor(sizes, size);
+
+    	// not pooled
+    	if (sizeClass < 0)
+    	{
+    		misses.incrementAndGet();
+    		outstandingBytes.addAndGet(size);
+    		return ByteBuffer.allocateDirect(size);
+    	}
+
+    	ByteBuffer buffer = null;
+
+    	// thread cache first
+    	if (sizeClass <= MAX_THREAD_CACHED_CLASS)
+    	{
+    		ThreadCache cache = threadCache.get();
+    		if (cache != null)
+    		{
+    			synchronized (cache)
+    			{
+		    		int count = cache.counts[sizeClass];
+		    		if (count > 0)
+		    		{
+		    			count--;
+		    			buffer = cache.buffers[sizeClass][count];
+		    			cache.buffers[sizeClass][count] = null;
+		    			cache.counts[sizeClass] = count;
+		    		}
+    			}
+    		}
+    	}
+
+    	// global pool
+    	if (buffer == null)
+    	{
+	    	final ArrayDeque<ByteBuffer> queue = pool[sizeClass];
+	        synchronized (queue)
+	        {
+	        	buffer = queue.pollFirst();
+	        }
+    	}
+
+    	if (buffer != null)
+    		pooledBytes.addAndGet(-buffer.capacity());
 
         if (buffer == null) {
-            buffer = ByteBuffer.allocateDirect(bufferSize); 
-        } 
+        	misses.incrementAndGet();
+            buffer = ByteBuffer.allocateDirect(sizes[sizeClass]);
+        }
+        else {
+        	hits.incrementAndGet();
+        	buffer.clear();
+        }
 
+		outstandingBytes.addAndGet(buffer.capacity());
         return buffer;
     }
 
     /**
      * Return buffer to a cache.
      * @param buffer buffer to be returned in the cache.
-     */    
+     */
     public void put(ByteBuffer buffer)
     {
-        synchronized (cache)
+    	final int capacity = buffer.capacity();
+		outstandingBytes.addAndGet(-capacity);
+
+		final int[] sizes = classSizes;
+    	final int sizeClass = sizeClassOf(sizes, capacity);
+    	if (sizeClass < 0 || !buffer.isDirect())
+    	{
+    		// not pooled, left to GC
+    		reclaimed.incrementAndGet();
+    		return;
+    	}
+
+    	// bounded pool (thread caches included)
+    	if (pooledBytes.addAndGet(capacity) > maxPoolSize)
+    	{
+    		pooledBytes.addAndGet(-capacity);
+    		reclaimed.incrementAndGet();
+    		return;
+    	}
+
+    	// thread cache first
+    	if (sizeClass <= MAX_THREAD_CACHED_CLASS)
+    	{
+    		ThreadCache cache = threadCache.get();
+    		if (cache != null)
+    		{
+    			synchronized (cache)
+    			{
+		    		int count = cache.counts[sizeClass];
+		    		if (count < cache.buffers[sizeClass].length)
+		    		{
+		    			cache.buffers[sizeClass][count] = buffer;
+		    			cache.counts[sizeClass] = count + 1;
+		    			return;
+		    		}
+    			}
+    		}
+    	}
+
+    	final ArrayDeque<ByteBuffer> queue = pool[sizeClass];
+        synchronized (queue)
         {
             // LIFO to maximize CPU cache affinity
-            cache.addFirst(buffer);
+        	queue.addFirst(buffer);
         }
     }
 
+    /**
+     * Release all buffers kept in the global pool and in the per-thread caches.
+     */
+    public void reclaim()
+    {
+    	synchronized (threadCaches)
+    	{
+    		for (Iterator<ThreadCache> iter = threadCaches.iterator(); iter.hasNext(); )
+    		{
+    			ThreadCache cache = iter.next();
+    			releaseThreadCache(cache);
+    			if (!cache.isOwnerAlive())
+    				iter.remove();
+    		}
+    	}
+
+    	for (int i = 0; i < MAX_CLASSES; i++)
+    	{
+    		final ArrayDeque<ByteBuffer> queue = pool[i];
+    		synchronized (queue)
+    		{
+    			while (!queue.isEmpty())
+    			{
+    				ByteBuffer buffer = queue.pollFirst();
+    				pooledBytes.addAndGet(-buffer.capacity());
+    				reclaimed.incrementAndGet();
+    			}
+    		}
+    	}
+    }
+
+    /**
+     * Create (and register) a cache for the current thread.
+     * Virtual threads get no cache (there can be many short-lived ones), caches of terminated threads are released.
+     * @return thread cache, <code>null</code> if the current thread is not to have one.
+     */
+    private ThreadCache createThreadCache()
+    {
+    	final Thread thread = Thread.currentThread();
+    	if (isVirtual(thread))
+    		return null;
+
+    	ThreadCache cache = new ThreadCache(thread);
+    	synchronized (threadCaches)
+    	{
+    		for (Iterator<ThreadCache> iter = threadCaches.iterator(); iter.hasNext(); )
+    		{
+    			ThreadCache c = iter.next();
+    			if (!c.isOwnerAlive())
+    			{
+    				releaseThreadCache(c);
+    				iter.remove();
+    			}
+    		}
+    		threadCaches.add(cache);
+    	}
+    	return cache;
+    }
+
+    /**
+     * Release all buffers kept in the given thread cache.
+     * @param cache thread cache.
+     */
+    private void releaseThreadCache(ThreadCache cache)
+    {
+    	synchronized (cache)
+    	{
+    		for (int i = 0; i < cache.buffers.length; i++)
+    		{
+    			for (int j = 0; j < cache.counts[i]; j++)
+    			{
+    				pooledBytes.addAndGet(-cache.buffers[i][j].capacity());
+    				cache.buffers[i][j] = null;
+    				reclaimed.incrementAndGet();
+    			}
+    			cache.counts[i] = 0;
+    		}
+    	}
+    }
+
+    /**
+     * Check if given thread is a virtual thread.
+     * @param thread thread to check.
+     * @return <code>true</code> if virtual thread.
+     */
+    private static boolean isVirtual(Thread thread)
+    {
+    	if (IS_VIRTUAL_METHOD == null)
+    		return false;
+
+    	try
+    	{
+    		return ((Boolean)IS_VIRTUAL_METHOD.invoke(thread)).booleanValue();
+    	} catch (Throwable th) {
+    		return false;
+    	}
+    }
+
+    /**
+     * Find smallest size class that can hold <code>size</code> bytes.
+     * @return size class index, <code>-1</code> if too large.
+     */
+    private static int sizeClassFor(int[] sizes, int size)
+    {
+    	for (int i = 0; i < sizes.length; i++)
+    		if (size <= sizes[i])
+    			return i;
+    	return -1;
+    }
+
+    /**
+     * Find size class of exactly <code>capacity</code> bytes.
+     * @return size class index, <code>-1</code> if none.
+     */
+    private static int sizeClassOf(int[] sizes, int capacity)
+    {
+    	for (int i = 0; i < sizes.length; i++)
+    		if (capacity == sizes[i])
+    			return i;
+    	return -1;
+    }
+
+    /**
+     * Get number of requests served from a cache.
+     * @return number of cache hits.
+     */
+    public long getHits()
+    {
+    	return hits.get();
+    }
+
+    /**
+     * Get number of requests that required allocation.
+     * @return number of cache misses.
+     */
+    public long getMisses()
+    {
+    	return misses.get();
+    }
+
+    /**
+     * Get number of bytes handed out and not yet returned.
+     * @return number of outstanding bytes.
+     */
+    public long getOutstandingBytes()
+    {
+    	return outstandingBytes.get();
+    }
+
+    /**
+     * Get number of bytes kept in the pool (per-thread caches included).
+     * @return number of pooled bytes.
+     */
+    public long getPooledBytes()
+    {
+    	return pooledBytes.get();
+    }
+
+    /**
+     * Get number of returned buffers that were released instead of cached.
+     * @return number of released buffers.
+     */
+    public long getReclaimed()
+    {
+    	return reclaimed.get();
+    }
+
+    /**
+     * Prints allocator statistics.
+     * @param out output stream.
+     */
+    public void printInfo(PrintStream out)
+    {
+		out.println("BUFFER_POOL : hits=" + getHits() + ", misses=" + getMisses() +
+				", outstanding=" + getOutstandingBytes() + "B, pooled=" + getPooledBytes() +
+				"B, reclaimed=" + getReclaimed() + ", max_buffer_size=" + getMaxBufferSize());
+    }
+
 }
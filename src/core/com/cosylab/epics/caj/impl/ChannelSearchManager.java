@@ -39,13 +39,94 @@ public class ChannelSearchManager {
 	
 	private static final int MESSAGE_COALESCENCE_TIME_MS = 3;
 	
-	private static final int MAX_NUMBER_IMMEDIATE_PACKETS = 5;
-	private static final int IMMEDIATE_PACKETS_DELAY_MS = 10;
+	/**
+	 * Minimum (and initial) round-trip time estimate (ms).
+	 */
+	private static final long MIN_ROUND_TRIP_ESTIMATE_MS = 32;
+
+	/**
+	 * Maximum round-trip time estimate (ms).
+	 */
+	private static final long MAX_ROUND_TRIP_ESTIMATE_MS = 5000;
+
+	/**
+	 * Round-trip time estimator gain.
+	 */
+	private static final double ROUND_TRIP_ESTIMATE_GAIN = 0.125;
+
+	/**
+	 * Average number of search requests per frame estimator gain.
+	 */
+	private static final double SEARCHES_PER_FRAME_GAIN = 0.125;
+
+	/**
+	 * Send rate (frames per second) limits.
+	 */
+	private static final double MIN_FRAMES_PER_SECOND = 10;
+	private static final double INITIAL_FRAMES_PER_SECOND = 100;
+	private static final double MAX_FRAMES_PER_SECOND = 500;
+
+	/**
+	 * Number of frames that can be sent immediately (burst).
+	 */
+	private static final double MAX_BURST_FRAMES = 5;
 	
+	/**
+	 * Minimum send rate evaluation period (ms).
+	 */
+	private static final long MIN_RATE_EVALUATION_PERIOD_MS = 1000;
+
+	/**
+	 * Number of sent frames remembered (for round-trip time measurement), power of 2.
+	 */
+	private static final int FRAME_HISTORY_SIZE = 256;
+
 	private final SearchTimer timer = new SearchTimer();
 	private final AtomicBoolean canceled = new AtomicBoolean();
+
+	/**
+	 * Lock guarding round-trip and send rate estimation state.
+	 */
+	private final Object rateLock = new Object();
+
+	/**
+	 * Round-trip time estimate (ms).
+	 */
+	private double roundTripEstimate = MIN_ROUND_TRIP_ESTIMATE_MS;
+
+	/**
+	 * Allowed send rate (frames per second), additive increase (on answered frames), 
+	 * multiplicative decrease (no answers within evaluation period).
+	 */
+	private double framesPerSecond = INITIAL_FRAMES_PER_SECOND;
+
+	/**
+	 * Send rate threshold, below it send rate increases faster (slow start).
+	 */
+	private double framesPerSecondThreshold = MAX_FRAMES_PER_SECOND;
+
+	/**
+	 * Send credit (in frames), negative when sending ahead of rate.
+	 */
+	private double sendCredit = MAX_BURST_FRAMES;
+	private long lastCreditUpdateTime = System.currentTimeMillis();
+
+	private long rateEvaluationTime = System.currentTimeMillis();
+	private int framesSent = 0;
+	private int framesAnswered = 0;
 	
-	private final AtomicInteger immediatePacketCount = new AtomicInteger();
+	/**
+	 * Average number of search requests per frame (initially assuming 64 bytes per request).
+	 */
+	private double searchesPerFrame = CAConstants.MAX_UDP_SEND / 64;
+	private int frameSearchCount = 0;
+
+	/**
+	 * Sent frames history (sequence number, send time, answered flag).
+	 */
+	private final int[] frameSequenceNumber = new int[FRAME_HISTORY_SIZE];
+	private final long[] frameSendTime = new long[FRAME_HISTORY_SIZE];
+	private final boolean[] frameAnswered = new boolean[FRAME_HISTORY_SIZE];
 	
 	private class ChannelSearchTimerTask extends SearchTimer.TimerTask
 	{
@@ -62,18 +143,16 @@ public class ChannelSearchManager {
 			generateSearchRequestMessage(channel, true);
 			
 			if (!timer.hasNext(MESSAGE_COALESCENCE_TIME_MS))
-			{
 				flushSendBuffer();
-				immediatePacketCount.set(0);
-			}
 			
 			// reschedule
 			long dT = getDelay();
 			dT *= intervalMultiplier;
 			if (dT > maxSendInterval)
 				dT = maxSendInterval;
-			if (dT < minSendInterval)
-				dT = minSendInterval;
+			long minDelay = getMinimumRetryDelay();
+			if (dT < minDelay)
+				dT = minDelay;
 			
 			return dT;
 		}
@@ -100,6 +179,32 @@ public class ChannelSearchManager {
 		return true;
 	}
 	
+	/**
+	 * Register channels (bulk version).
+	 * All the channels are scheduled to be searched at the same time, i.e. their search requests are packed densely into frames.
+	 * @param channels the channels to register.
+	 * @param count number of channels (starting at index 0) to register.
+	 * @return true if the channels were successfully registered.
+ 	 */
+	public boolean registerChannels(CAJChannel[] channels, int count)
+	{
+		if (canceled.get())
+			return false;
+
+		ChannelSearchTimerTask[] timerTasks = new ChannelSearchTimerTask[count];
+		for (int i = 0; i < count; i++)
+		{
+			timerTasks[i] = new ChannelSearchTimerTask(channels[i]);
+			channels[i].setTimerId(timerTasks[i]);
+		}
+		
+		timer.executeAfterDelay(MESSAGE_COALESCENCE_TIME_MS, timerTasks, count);
+		
+		channelCount.addAndGet(count);
+		
+		return true;
+	}
+	
 	/**
 	 * Unregister channel.
 	 * @param channel
@@ -131,14 +236,59 @@ public class ChannelSearchManager {
 	
 	/**
 	 * Beacon anomaly detected.
-	 * Boost searching of all channels.
+	 * Boost searching of all channels, spread over the period needed to search all channels at current send rate.
 	 */
 	public void beaconAnomalyNotify()
 	{
 		if (canceled.get())
 			return;
 		
-		timer.rescheduleAllAfterDelay(0);
+		long spreadPeriod;
+		synchronized (rateLock)
+		{
+			double searchesPerSecond = framesPerSecond * searchesPerFrame;
+			spreadPeriod = (long)(channelCount.get() * 1000 / searchesPerSecond);
+		}
+		if (spreadPeriod > maxSendInterval)
+			spreadPeriod = maxSendInterval;
+		
+		timer.rescheduleAllAfterDelay(0, spreadPeriod);
+	}
+
+	/**
+	 * Get minimum delay between search retries of a channel (ms),
+	 * <code>max(minSendInterval, 2 * round-trip time estimate)</code>.
+	 * @return minimum retry delay (ms).
+	 */
+	public long getMinimumRetryDelay()
+	{
+		long rtt;
+		synchronized (rateLock) {
+			rtt = (long)roundTripEstimate;
+		}
+		return Math.max(minSendInterval, 2 * rtt);
+	}
+
+	/**
+	 * Get search response round-trip time estimate.
+	 * @return round-trip time estimate (ms).
+	 */
+	public double getRoundTripEstimate()
+	{
+		synchronized (rateLock) {
+			return roundTripEstimate;
+		}
+	}
+
+	/**
+	 * Get current search send rate limit.
+	 * @return send rate limit (frames per second).
+	 */
+	public double getFramesPerSecond()
+	{
+		synchronized (rateLock) {
+			return framesPerSecond;
+		}
 	}
 	
 	/**
@@ -217,23 +367,125 @@ public class ChannelSearchManager {
 
 	/**
 	 * Flush send buffer.
+	 * Sending is paced (search timer thread is delayed) to the allowed send rate.
 	 */
 	private synchronized void flushSendBuffer()
 	{
-		if (immediatePacketCount.incrementAndGet() >= MAX_NUMBER_IMMEDIATE_PACKETS)
+		long delay = acquireSendCredit();
+		if (delay > 0)
 		{
 			try {
-				Thread.sleep(IMMEDIATE_PACKETS_DELAY_MS);
+				Thread.sleep(delay);
 			} catch (InterruptedException e) {
 				// noop
 			}
-			immediatePacketCount.set(0);
 		}
 		
+		// record before sending, response might arrive before send() returns
+		frameSent(sequenceNumber, System.currentTimeMillis());
 		context.getBroadcastTransport().send(sendBuffer);
 		initializeSendBuffer();
 	}
 
+	/**
+	 * Acquire credit to send one frame (token bucket), also periodically evaluates the send rate.
+	 * @return time to wait before sending (ms).
+	 */
+	private long acquireSendCredit()
+	{
+		synchronized (rateLock)
+		{
+			long now = System.currentTimeMillis();
+			
+			// no answers at all within evaluation period - decrease the rate (multiplicative decrease)
+			long evaluationPeriod = Math.max(MIN_RATE_EVALUATION_PERIOD_MS, (long)(4 * roundTripEstimate));
+			if (now - rateEvaluationTime >= evaluationPeriod)
+			{
+				if (framesSent > 0 && framesAnswered == 0)
+				{
+					framesPerSecond = Math.max(MIN_FRAMES_PER_SECOND, framesPerSecond / 2);
+					framesPerSecondThreshold = framesPerSecond;
+				}
+				framesSent = 0;
+				framesAnswered = 0;
+				rateEvaluationTime = now;
+			}
+			
+			// refill
+			sendCredit = Math.min(MAX_BURST_FRAMES, sendCredit + (now - lastCreditUpdateTime) * framesPerSecond / 1000.0);
+			lastCreditUpdateTime = now;
+
+			sendCredit -= 1;
+			if (sendCredit >= 0)
+				return 0;
+			else
+				return (long)Math.ceil(-sendCredit * 1000.0 / framesPerSecond);
+		}
+	}
+
+	/**
+	 * Record sent frame.
+	 * @param sequenceNumber frame sequence number.
+	 * @param sendTime send time.
+	 */
+	private void frameSent(int sequenceNumber, long sendTime)
+	{
+		synchronized (rateLock)
+		{
+			int index = sequenceNumber & (FRAME_HISTORY_SIZE - 1);
+			frameSequenceNumber[index] = sequenceNumber;
+			frameSendTime[index] = sendTime;
+			frameAnswered[index] = false;
+			framesSent++;
+			
+			searchesPerFrame += SEARCHES_PER_FRAME_GAIN * (Math.max(1, frameSearchCount) - searchesPerFrame);
+			frameSearchCount = 0;
+		}
+	}
+
+	/**
+	 * Search response to a frame received, update round-trip time estimate and send rate.
+	 * Without valid sequence number (older servers) every response counts as an answered frame and
+	 * round-trip time estimate is not updated.
+	 * @param sequenceNumber frame sequence number.
+	 * @param isSequenceNumberValid valid flag of <code>sequenceNumber</code>.
+	 * @param responseTime response time.
+	 */
+	private void frameAnswered(int sequenceNumber, boolean isSequenceNumberValid, long responseTime)
+	{
+		synchronized (rateLock)
+		{
+			long rtt = -1;
+			if (isSequenceNumberValid)
+			{
+				int index = sequenceNumber & (FRAME_HISTORY_SIZE - 1);
+				if (frameSequenceNumber[index] != sequenceNumber || frameAnswered[index])
+					return;
+				frameAnswered[index] = true;
+				rtt = responseTime - frameSendTime[index];
+			}
+			framesAnswered++;
+			
+			// round-trip time estimate (exponential moving average)
+			if (rtt >= 0)
+			{
+				roundTripEstimate += ROUND_TRIP_ESTIMATE_GAIN * (rtt - roundTripEstimate);
+				if (roundTripEstimate < MIN_ROUND_TRIP_ESTIMATE_MS)
+					roundTripEstimate = MIN_ROUND_TRIP_ESTIMATE_MS;
+				else if (roundTripEstimate > MAX_ROUND_TRIP_ESTIMATE_MS)
+					roundTripEstimate = MAX_ROUND_TRIP_ESTIMATE_MS;
+			}
+			
+			// additive increase (faster below threshold)
+			if (framesPerSecond < framesPerSecondThreshold)
+				framesPerSecond += 1;
+			else
+				framesPerSecond += 1 / framesPerSecond;
+			if (framesPerSecond > MAX_FRAMES_PER_SECOND)
+				framesPerSecond = MAX_FRAMES_PER_SECOND;
+		}
+	}
+
 	/**
 	 * Generate (put on send buffer) search request 
 	 * @param channel 
@@ -248,10 +500,11 @@ public class ChannelSearchManager {
 		if (!success)
 		{
 			flushSendBuffer();
-			if (allowNewFrame)
-				channel.generateSearchRequestMessage(context.getBroadcastTransport(), sendBuffer);
+			if (allowNewFrame && channel.generateSearchRequestMessage(context.getBroadcastTransport(), sendBuffer))
+				frameSearchCount++;
 			return true;
 		}
+		frameSearchCount++;
 
 		for(CAJNameClient client : context.nameClients) {
 			//TODO: race?
@@ -287,6 +540,8 @@ public class ChannelSearchManager {
 	{
 		unregisterChannel(channel);
 		
+		frameAnswered(responseSequenceNumber, isSequenceNumberValid, responseTime);
+		
 		// TODO we could destroy timer thread when there is no channel to search
 	}
 
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.impl;
+
+import java.net.InetSocketAddress;
+
+/**
+ * Asynchronous connect (<code>Connector.connectAsync</code>) completion callback.
+ * Exactly one of the methods is called, possibly already by the thread requesting connection.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public interface ConnectCallback {
+
+	/**
+	 * Connection established (or existing transport reused).
+	 * @param transport transport, already acquired for the requesting client.
+	 */
+	public void connectCompleted(Transport transport);
+
+	/**
+	 * Failed to connect.
+	 * @param address address of the server.
+	 * @param cause failure cause, <code>null</code> if connection was not even tried (retry delay not elapsed).
+	 */
+	public void connectFailed(InetSocketAddress address, Throwable cause);
+
+}
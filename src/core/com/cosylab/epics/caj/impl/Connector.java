@@ -35,5 +35,17 @@ public interface Connector {
 	 */
 	public Transport connect(TransportClient client, ResponseHandler responseHandler, 
 							 InetSocketAddress address, short transportRevision, short priority) throws ConnectionException;
+
+	/**
+	 * Connect asynchronously, i.e. without blocking the calling thread until connection is established.
+	 * @param client	client requesting connection (transport).
+	 * @param responseHandler	reponse handler.
+	 * @param address			address of the server.
+	 * @param transportRevision	transport revision to be used.
+	 * @param priority process priority.
+	 * @param callback completion callback.
+	 */
+	public void connectAsync(TransportClient client, ResponseHandler responseHandler,
+							 InetSocketAddress address, short transportRevision, short priority, ConnectCallback callback);
 	
 }
@@ -66,12 +66,9 @@ import java.util.logging.Logger;
 
 /**
  * DBR decoder - deserializes data payload.
- * 
- * N  N  O  TTT EEE 
- * NN N O O  T  E_      due to exisiting JCA API (strict constructors, n/a setters), this class is very messy...
- * N NN O O  T  E       sth like DBRType.create(Object data) is missing...
- * N  N  O   T  EEE
- * 
+ * Decoding is table-driven: there is one (monomorphic) decoder per DBR type, looked-up by DBR type value.
+ * A DBR instance (of requested count) is created first (or given one is reused) and then filled in place.
+ *
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
@@ -90,9 +87,68 @@ public class DBRDecoder {
 	 */
 	private static final int OPTIMIZED_COPY_THRESHOLD = 10;
 
+	/**
+	 * Max units string size.
+	 */
+	private static final int MAX_UNITS_SIZE = 8;
+
+	/**
+	 * Max enum label string size.
+	 */
+	private static final int MAX_ENUM_STRING_SIZE = 26;
+
+	/**
+	 * Max number of enum labels.
+	 */
+	private static final int MAX_ENUM_STATES = 16;
+
 	// Get Logger
 	private static final Logger logger = Logger.getLogger(DBRDecoder.class.getName());
-	
+
+	/**
+	 * Decoder of a particular DBR type.
+	 */
+	private static abstract class Decoder {
+		/**
+		 * Decode payload.
+		 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
+		 * @param dataCount	data count.
+		 * @param dataPayloadBuffer	data payload buffer.
+		 * @return decoded DBR.
+		 */
+		abstract DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer);
+	}
+
+	/**
+	 * Decoders, indexed by DBR type value (<code>null</code> for unsupported types).
+	 */
+	private static final Decoder[] DECODERS = new Decoder[DBR_STSACK_String.TYPE.getValue() + 1];
+
+	/**
+	 * Register decoder.
+	 * @param type	DBR type.
+	 * @param decoder	decoder of the given type.
+	 */
+	private static void register(DBRType type, Decoder decoder)
+	{
+		DECODERS[type.getValue()] = decoder;
+	}
+
+	/**
+	 * Get view of the value elements of the data payload buffer, i.e. view positioned after the metadata.
+	 * Returned buffer shares content with the payload buffer (position of the latter is not changed) and is big endian,
+	 * e.g. use <code>getValueView(type, payload).asDoubleBuffer().get(array, 0, count)</code> to bulk copy doubles.
+	 * @param dataType data type.
+	 * @param dataPayloadBuffer	data payload buffer, position set at the start of the payload.
+	 * @return view of the value elements.
+	 */
+	public static ByteBuffer getValueView(DBRType dataType, ByteBuffer dataPayloadBuffer)
+	{
+		ByteBuffer view = dataPayloadBuffer.duplicate();
+		view.position(view.position() + DBREncoder.getValueOffset((short)dataType.getValue()));
+		return view.slice();
+	}
+
 	/**
 	 * Get (deserialize) data payload buffer to DBR structure.
 	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
@@ -102,62 +158,27 @@ public class DBRDecoder {
 	 * @param dataPayloadBuffer		data payload buffer received from server, non-<code>null</code>.
 	 * @return DBR structure, <code>null</code> in case of error.
 	 */
-	// TODO optimize if (use fast lookup table)
 	public static DBR getDBR(DBR inDBR, short dataTypeValue, int dataCount, ByteBuffer dataPayloadBuffer)
 	{
 		try
 		{
 			// check if valid
-			DBRType dataType = DBRType.forValue(dataTypeValue);
-			if (dataType == null)
+			if (dataTypeValue < 0 || dataTypeValue >= DECODERS.length)
 				throw new IllegalArgumentException("Invalid data type.");
-				
+
 			// DBR consistency check
 			if (inDBR != null)
 			{
-				if (inDBR.getType() != dataType || inDBR.getCount() != dataCount)
+				if (inDBR.getType().getValue() != dataTypeValue || inDBR.getCount() != dataCount)
 					throw new IllegalArgumentException("Encoded DBR and expected DBR are not consistant.");
 			}
-			
-			// invalid type
-			if (dataTypeValue < DBR_String.TYPE.getValue())
-				return null;
-			
-			// normal (value only)
-			else if (dataTypeValue < DBR_STS_String.TYPE.getValue())
-				return getValueDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-			
-			// status
-			else if (dataTypeValue < DBR_TIME_String.TYPE.getValue())
-				return getStatusDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-			
-			// time
-			else if (dataTypeValue < DBR_GR_Short.TYPE.getValue() - 1)
-				return getTimeDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-	
-			// graphics (there is no string)
-			else if (dataTypeValue < DBR_CTRL_Short.TYPE.getValue() - 1)
-				return getGraphicsDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-	
-			// control
-			else if (dataTypeValue < DBR_PutAckT.TYPE.getValue())
-				return getControlDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-				
-			// ackT
-			else if (dataType == DBR_PutAckT.TYPE)
-				return getAckTDBR(inDBR, dataCount, dataPayloadBuffer);
-	
-			// ackS
-			else if (dataType == DBR_PutAckS.TYPE)
-				return getAckSDBR(inDBR, dataCount, dataPayloadBuffer);
-	
-			// stsAckString
-			else if (dataType == DBR_STSACK_String.TYPE)
-				return getStatusAckStringDBR(inDBR, dataCount, dataPayloadBuffer);
-	
+
 			// NOTE: DBR_CLASS_NAME not supported
-			else // if (dataType > DBR_STSACK_String.TYPE.getValue())
+			final Decoder decoder = DECODERS[dataTypeValue];
+			if (decoder == null)
 				return null;
+
+			return decoder.decode(inDBR, dataCount, dataPayloadBuffer);
 		}
 		catch (Throwable th)
 		{
@@ -166,872 +187,827 @@ public class DBRDecoder {
 			return null;
 		}
 	}
-	
+
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataType
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Get size of a value element of a value-only (plain) DBR type, i.e. type whose payload can be decoded incrementally.
+	 * Note that a single string is not padded to <code>MAX_STRING_SIZE</code>, therefore it cannot be decoded incrementally.
+	 * @param dataTypeValue	data type, see <code>DBRType</code>.
+	 * @return element size in bytes, <code>-1</code> if type is not a value-only type.
+	 * @see #decodeValueElements(DBR, int, ByteBuffer)
 	 */
-	private static DBR getValueDBR(DBR inDBR, DBRType dataType, int dataCount, ByteBuffer dataPayloadBuffer)
+	public static int getValueElementSize(short dataTypeValue)
 	{
-		DBR retVal = inDBR;
-		
-		if (dataType == DBR_String.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_String((String[])readValues(null, DBR_String.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(retVal, DBR_String.TYPE, dataCount, dataPayloadBuffer);	
-		}
-		else if (dataType == DBR_Short.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_Short((short[])readValues(null, DBR_Short.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(retVal, DBR_Short.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_Float.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_Float((float[])readValues(null, DBR_Float.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(retVal, DBR_Float.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_Enum.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_Enum((short[])readValues(null, DBR_Enum.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(retVal, DBR_Enum.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_Byte.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_Byte((byte[])readValues(null, DBR_Byte.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(retVal, DBR_Byte.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_Int.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_Int((int[])readValues(null, DBR_Int.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(retVal, DBR_Int.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_Double.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_Double((double[])readValues(null, DBR_Double.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(retVal, DBR_Double.TYPE, dataCount, dataPayloadBuffer);
+		switch (dataTypeValue)
+		{
+			case 0:	// DBR_STRING
+				return CAConstants.MAX_STRING_SIZE;
+			case 1:	// DBR_SHORT
+			case 3:	// DBR_ENUM
+				return 2;
+			case 2:	// DBR_FLOAT
+			case 5:	// DBR_LONG
+				return 4;
+			case 4:	// DBR_CHAR
+				return 1;
+			case 6:	// DBR_DOUBLE
+				return 8;
+			default:
+				return -1;
 		}
-
-		return retVal;
 	}
 
 	/**
-	 * No bound checking is done (payload is trusted to be OK, otherwise an exception will be thown and later handled.
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataType	only plain types are aaccepted.
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Incrementally decode value elements of a value-only (plain) DBR type, i.e. payload can be decoded in chunks
+	 * as it arrives without the need of buffering the whole payload.
+	 * Only whole elements are decoded, remaining bytes (partial element) are left in the buffer.
+	 * @param dbr	DBR to be set, non-<code>null</code> value-only DBR.
+	 * @param offset	index of the first element to decode.
+	 * @param dataPayloadBuffer	buffer holding (a part of) the payload, position set at the element at <code>offset</code>.
+	 * @return number of decoded elements.
+	 * @see #getValueElementSize(short)
 	 */
-	private static Object readValues(DBR inDBR, DBRType dataType, int dataCount, ByteBuffer dataPayloadBuffer)
+	public static int decodeValueElements(DBR dbr, int offset, ByteBuffer dataPayloadBuffer)
 	{
-		if (dataType == DBR_String.TYPE)
+		final short dataTypeValue = (short)dbr.getType().getValue();
+		final int elementSize = getValueElementSize(dataTypeValue);
+		if (elementSize <= 0)
+			throw new IllegalArgumentException("Not a value-only DBR type: " + dbr.getType());
+
+		final int count = Math.min(dbr.getCount() - offset, dataPayloadBuffer.remaining() / elementSize);
+		if (count <= 0)
+			return 0;
+
+		switch (dataTypeValue)
 		{
-			String[] arr;
-			if (inDBR != null)
-				arr = (String[])inDBR.getValue();
-			else
-				arr = new String[dataCount];
-
-			if (dataCount == 1) {
-				int start = dataPayloadBuffer.position();
-				final int bufferEnd = dataPayloadBuffer.limit();
-				int end = start;
-				
-				// find zero char (string terminator)
-				while (dataPayloadBuffer.get(end) != 0 && end < bufferEnd)
-					end++;
-
-				// If the buffer is array backed, we can simply
-				// use it directly. If not, we need to make a copy
-				if (dataPayloadBuffer.hasArray()) {
-					// NOTE: rest of the bytes are left in the buffer
-					arr[0] = new String(dataPayloadBuffer.array(), start, end-start);
-				}
-				else
+			case 0:
 				{
-					int length = end-start;
-					byte[] data = new byte[length];
-					if (length < OPTIMIZED_COPY_THRESHOLD) {
-						for (int i = 0; i < length; i++)
-							data[i] = dataPayloadBuffer.get();
-					} else {
-						dataPayloadBuffer.get(data, 0, length);
+					String[] arr = ((DBR_String)dbr).getStringValue();
+					byte[] rawBuffer = new byte[CAConstants.MAX_STRING_SIZE];
+					for (int i = 0; i < count; i++)
+					{
+						dataPayloadBuffer.get(rawBuffer);
+						arr[offset + i] = extractString(rawBuffer);
 					}
-					arr[0] = new String(data, 0, length);
-				}
-			}
-			else 
-			{
-			    byte[] rawBuffer = new byte[CAConstants.MAX_STRING_SIZE];
-				for (int i = 0; i < dataCount; i++)
-				{
-					dataPayloadBuffer.get(rawBuffer);
-					arr[i] = extractString(rawBuffer);
 				}
-			}
-			
-			return arr;
-		}
-		else if (dataType == DBR_Short.TYPE)
-		{
-			short[] arr;
-			if (inDBR != null)
-				arr = (short[])inDBR.getValue();
-			else
-				arr = new short[dataCount];
-
-			if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
-				for (int i = 0; i < dataCount; i++)
-					arr[i] = dataPayloadBuffer.getShort();
-			}
-			else
-			{
-				dataPayloadBuffer.asShortBuffer().get(arr, 0, dataCount);
-			}
-			return arr;
-		}
-		else if (dataType == DBR_Float.TYPE)
-		{
-			float[] arr;
-			if (inDBR != null)
-				arr = (float[])inDBR.getValue();
-			else
-				arr = new float[dataCount];
+				return count;
+			case 1:
+				dataPayloadBuffer.asShortBuffer().get(((DBR_Short)dbr).getShortValue(), offset, count);
+				break;
+			case 3:
+				dataPayloadBuffer.asShortBuffer().get(((DBR_Enum)dbr).getEnumValue(), offset, count);
+				break;
+			case 2:
+				dataPayloadBuffer.asFloatBuffer().get(((DBR_Float)dbr).getFloatValue(), offset, count);
+				break;
+			case 5:
+				dataPayloadBuffer.asIntBuffer().get(((DBR_Int)dbr).getIntValue(), offset, count);
+				break;
+			case 4:
+				dataPayloadBuffer.get(((DBR_Byte)dbr).getByteValue(), offset, count);
+				return count;
+			case 6:
+				dataPayloadBuffer.asDoubleBuffer().get(((DBR_Double)dbr).getDoubleValue(), offset, count);
+				break;
+		}
+		dataPayloadBuffer.position(dataPayloadBuffer.position() + count * elementSize);
+		return count;
+	}
 
-			if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
-				for (int i = 0; i < dataCount; i++)
-					arr[i] = dataPayloadBuffer.getFloat();
-			}
-			else
-			{
-				dataPayloadBuffer.asFloatBuffer().get(arr, 0, dataCount);
-			}
-			return arr;
-		}
-		else if (dataType == DBR_Enum.TYPE)
-		{
-			// enum is short (16-bit integer)
-			short[] arr;
-			if (inDBR != null)
-				arr = (short[])inDBR.getValue();
-			else
-				arr = new short[dataCount];
+	/*
+	 * Value readers.
+	 * No bound checking is done (payload is trusted to be OK, otherwise an exception will be thown and later handled).
+	 */
 
-			if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
-				for (int i = 0; i < dataCount; i++)
-					arr[i] = dataPayloadBuffer.getShort();
+	/**
+	 * Read strings.
+	 * @param arr	array to be filled.
+	 * @param dataCount	number of elements to read.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readStrings(String[] arr, int dataCount, ByteBuffer dataPayloadBuffer)
+	{
+		if (dataCount == 1) {
+			int start = dataPayloadBuffer.position();
+			final int bufferEnd = dataPayloadBuffer.limit();
+			int end = start;
+
+			// find zero char (string terminator)
+			while (end < bufferEnd && dataPayloadBuffer.get(end) != 0)
+				end++;
+
+			// If the buffer is array backed, we can simply
+			// use it directly. If not, we need to make a copy
+			if (dataPayloadBuffer.hasArray()) {
+				// NOTE: rest of the bytes are left in the buffer
+				arr[0] = new String(dataPayloadBuffer.array(), dataPayloadBuffer.arrayOffset() + start, end-start);
 			}
 			else
 			{
-				dataPayloadBuffer.asShortBuffer().get(arr, 0, dataCount);
+				int length = end-start;
+				byte[] data = new byte[length];
+				if (length < OPTIMIZED_COPY_THRESHOLD) {
+					for (int i = 0; i < length; i++)
+						data[i] = dataPayloadBuffer.get();
+				} else {
+					dataPayloadBuffer.get(data, 0, length);
+				}
+				arr[0] = new String(data, 0, length);
 			}
-			return arr;
 		}
-		else if (dataType == DBR_Byte.TYPE)
+		else
 		{
-			byte[] arr;
-			if (inDBR != null)
-				arr = (byte[])inDBR.getValue();
-			else
-				arr = new byte[dataCount];
-
-			if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
-				for (int i = 0; i < dataCount; i++)
-					arr[i] = dataPayloadBuffer.get();
-			}
-			else
+		    byte[] rawBuffer = new byte[CAConstants.MAX_STRING_SIZE];
+			for (int i = 0; i < dataCount; i++)
 			{
-				dataPayloadBuffer.get(arr, 0, dataCount);
+				dataPayloadBuffer.get(rawBuffer);
+				arr[i] = extractString(rawBuffer);
 			}
-			return arr;
 		}
-		else if (dataType == DBR_Int.TYPE)
-		{
-			int[] arr;
-			if (inDBR != null)
-				arr = (int[])inDBR.getValue();
-			else
-				arr = new int[dataCount];
+	}
 
-			if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
-				for (int i = 0; i < dataCount; i++)
-					arr[i] = dataPayloadBuffer.getInt();
-			}
-			else
-			{
-				dataPayloadBuffer.asIntBuffer().get(arr, 0, dataCount);
-			}
-			return arr;
+	/**
+	 * Read shorts (also used for enums).
+	 * @param arr	array to be filled.
+	 * @param dataCount	number of elements to read.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readShorts(short[] arr, int dataCount, ByteBuffer dataPayloadBuffer)
+	{
+		if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
+			for (int i = 0; i < dataCount; i++)
+				arr[i] = dataPayloadBuffer.getShort();
 		}
-		else if (dataType == DBR_Double.TYPE)
+		else
 		{
-			double[] arr;
-			if (inDBR != null)
-				arr = (double[])inDBR.getValue();
-			else
-				arr = new double[dataCount];
-
-			if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
-				for (int i = 0; i < dataCount; i++)
-					arr[i] = dataPayloadBuffer.getDouble();
-			}
-			else
-			{
-				dataPayloadBuffer.asDoubleBuffer().get(arr, 0, dataCount);
-			}
-			return arr;
+			dataPayloadBuffer.asShortBuffer().get(arr, 0, dataCount);
+			dataPayloadBuffer.position(dataPayloadBuffer.position() + dataCount * 2);
 		}
-		else
-			return null;
 	}
 
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataType
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Read floats.
+	 * @param arr	array to be filled.
+	 * @param dataCount	number of elements to read.
+	 * @param dataPayloadBuffer	payload buffer.
 	 */
-	private static DBR getStatusDBR(DBR inDBR, DBRType dataType, int dataCount, ByteBuffer dataPayloadBuffer)
+	private static void readFloats(float[] arr, int dataCount, ByteBuffer dataPayloadBuffer)
 	{
-		STS retVal = (STS)inDBR;
-		
-		int status = dataPayloadBuffer.getShort() & 0xFFFF;
-		int severity = dataPayloadBuffer.getShort() & 0xFFFF;
-		
-		if (dataType == DBR_STS_String.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_STS_String((String[])readValues(null, DBR_String.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_String.TYPE, dataCount, dataPayloadBuffer);
+		if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
+			for (int i = 0; i < dataCount; i++)
+				arr[i] = dataPayloadBuffer.getFloat();
 		}
-		else if (dataType == DBR_GR_String.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_GR_String((String[])readValues(null, DBR_String.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_String.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_CTRL_String.TYPE)
+		else
 		{
-			if (retVal == null)
-				retVal = new DBR_CTRL_String((String[])readValues(null, DBR_String.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_String.TYPE, dataCount, dataPayloadBuffer);
+			dataPayloadBuffer.asFloatBuffer().get(arr, 0, dataCount);
+			dataPayloadBuffer.position(dataPayloadBuffer.position() + dataCount * 4);
 		}
-		else if (dataType == DBR_STS_Short.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_STS_Short((short[])readValues(null, DBR_Short.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Short.TYPE, dataCount, dataPayloadBuffer);
+	}
+
+	/**
+	 * Read bytes.
+	 * @param arr	array to be filled.
+	 * @param dataCount	number of elements to read.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readBytes(byte[] arr, int dataCount, ByteBuffer dataPayloadBuffer)
+	{
+		if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
+			for (int i = 0; i < dataCount; i++)
+				arr[i] = dataPayloadBuffer.get();
 		}
-		else if (dataType == DBR_STS_Float.TYPE)
+		else
 		{
-			if (retVal == null)
-				retVal = new DBR_STS_Float((float[])readValues(null, DBR_Float.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Float.TYPE, dataCount, dataPayloadBuffer);
+			dataPayloadBuffer.get(arr, 0, dataCount);
 		}
-		else if (dataType == DBR_STS_Enum.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_STS_Enum((short[])readValues(null, DBR_Enum.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Enum.TYPE, dataCount, dataPayloadBuffer);
+	}
+
+	/**
+	 * Read ints.
+	 * @param arr	array to be filled.
+	 * @param dataCount	number of elements to read.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readInts(int[] arr, int dataCount, ByteBuffer dataPayloadBuffer)
+	{
+		if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
+			for (int i = 0; i < dataCount; i++)
+				arr[i] = dataPayloadBuffer.getInt();
 		}
-		else if (dataType == DBR_STS_Byte.TYPE)
+		else
 		{
-			// RISC padding
-			dataPayloadBuffer.get();
-			if (retVal == null)
-				retVal = new DBR_STS_Byte((byte[])readValues(null, DBR_Byte.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Byte.TYPE, dataCount, dataPayloadBuffer);
+			dataPayloadBuffer.asIntBuffer().get(arr, 0, dataCount);
+			dataPayloadBuffer.position(dataPayloadBuffer.position() + dataCount * 4);
 		}
-		else if (dataType == DBR_STS_Int.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_STS_Int((int[])readValues(null, DBR_Int.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Int.TYPE, dataCount, dataPayloadBuffer);
+	}
+
+	/**
+	 * Read doubles.
+	 * @param arr	array to be filled.
+	 * @param dataCount	number of elements to read.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readDoubles(double[] arr, int dataCount, ByteBuffer dataPayloadBuffer)
+	{
+		if (dataCount < OPTIMIZED_COPY_THRESHOLD) {
+			for (int i = 0; i < dataCount; i++)
+				arr[i] = dataPayloadBuffer.getDouble();
 		}
-		else if (dataType == DBR_STS_Double.TYPE)
+		else
 		{
-			// RISC padding
-			dataPayloadBuffer.getInt();
-			if (retVal == null)
-				retVal = new DBR_STS_Double((double[])readValues(null, DBR_Double.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Double.TYPE, dataCount, dataPayloadBuffer);
+			dataPayloadBuffer.asDoubleBuffer().get(arr, 0, dataCount);
+			dataPayloadBuffer.position(dataPayloadBuffer.position() + dataCount * 8);
 		}
-
-		retVal.setStatus(status);
-		retVal.setSeverity(severity);
-		
-		return (DBR)retVal;
 	}
 
+	/*
+	 * Metadata readers.
+	 */
+
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataType
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Read status and severity.
+	 * @param sts	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
 	 */
-	private static DBR getTimeDBR(DBR inDBR, DBRType dataType, int dataCount, ByteBuffer dataPayloadBuffer)
+	private static void readStatus(STS sts, ByteBuffer dataPayloadBuffer)
 	{
-		TIME retVal = (TIME)inDBR;
-
-		int status = dataPayloadBuffer.getShort() & 0xFFFF;
-		int severity = dataPayloadBuffer.getShort() & 0xFFFF;
+		sts.setStatus(dataPayloadBuffer.getShort() & 0xFFFF);
+		sts.setSeverity(dataPayloadBuffer.getShort() & 0xFFFF);
+	}
 
+	/**
+	 * Read timestamp.
+	 * @param time	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readTimeStamp(TIME time, ByteBuffer dataPayloadBuffer)
+	{
 		// seconds since 0000 Jan 1, 1990
 		long secPastEpoch = dataPayloadBuffer.getInt() & 0x00000000FFFFFFFFL;
 		// nanoseconds within second
 		long nsec = dataPayloadBuffer.getInt() & 0x00000000FFFFFFFFL;
-
-		
-		if (dataType == DBR_TIME_String.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_TIME_String((String[])readValues(null, DBR_String.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_String.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_TIME_Short.TYPE)
-		{
-			// RISC padding
-			dataPayloadBuffer.getShort();
-			if (retVal == null)
-				retVal = new DBR_TIME_Short((short[])readValues(null, DBR_Short.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Short.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_TIME_Float.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_TIME_Float((float[])readValues(null, DBR_Float.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Float.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_TIME_Enum.TYPE)
-		{
-			// RISC padding
-			dataPayloadBuffer.getShort();
-			if (retVal == null)
-				retVal = new DBR_TIME_Enum((short[])readValues(null, DBR_Enum.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Enum.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_TIME_Byte.TYPE)
-		{
-			// RISC padding
-			dataPayloadBuffer.getShort();
-			dataPayloadBuffer.get();
-			if (retVal == null)
-				retVal = new DBR_TIME_Byte((byte[])readValues(null, DBR_Byte.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Byte.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_TIME_Int.TYPE)
-		{
-			if (retVal == null)
-				retVal = new DBR_TIME_Int((int[])readValues(null, DBR_Int.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Int.TYPE, dataCount, dataPayloadBuffer);
-		}
-		else if (dataType == DBR_TIME_Double.TYPE)
-		{
-			// RISC padding
-			dataPayloadBuffer.getInt();
-			if (retVal == null)
-				retVal = new DBR_TIME_Double((double[])readValues(null, DBR_Double.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Double.TYPE, dataCount, dataPayloadBuffer);
-		}
-
-		retVal.setStatus(status);
-		retVal.setSeverity(severity);
-		retVal.setTimeStamp(new TimeStamp(secPastEpoch, nsec));
-		
-		return (DBR)retVal;
+		time.setTimeStamp(new TimeStamp(secPastEpoch, nsec));
 	}
 
 	/**
-	 * Create (extract) string (zero-terminated) from byte buffer.
-	 * @param rawBuffer
-	 * @return decoded DBR.
+	 * Read precision (followed by RISC padding).
+	 * @param dataPayloadBuffer	payload buffer.
+	 * @return precision.
 	 */
-	private static String extractString(byte[] rawBuffer)
+	private static short readPrecision(ByteBuffer dataPayloadBuffer)
 	{
-		int len = 0;
-		final int rawBufferLen = rawBuffer.length;
-		while (len < rawBufferLen && rawBuffer[len] != 0)
-			len++;
-		return new String(rawBuffer, 0, len);
+		short precision = (short)(dataPayloadBuffer.getShort() & 0xFFFF);
+		// RISC padding
+		dataPayloadBuffer.getShort();
+		return precision;
 	}
 
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataType
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Read units.
+	 * @param gr	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
 	 */
-	private static DBR getGraphicsDBR(DBR inDBR, DBRType dataType, int dataCount, ByteBuffer dataPayloadBuffer)
+	private static void readUnits(GR gr, ByteBuffer dataPayloadBuffer)
 	{
-		// GR_String is actually a STS
-		if (dataType == DBR_GR_String.TYPE)
-			return getStatusDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-		
-		int status = dataPayloadBuffer.getShort() & 0xFFFF;
-		int severity = dataPayloadBuffer.getShort() & 0xFFFF;
-
-		// special case
-		if (dataType == DBR_LABELS_Enum.TYPE || dataType == DBR_CTRL_Enum.TYPE)
-		{
-			final int MAX_ENUM_STRING_SIZE = 26;
-			final int MAX_ENUM_STATES = 16;
+		byte[] rawUnits = new byte[MAX_UNITS_SIZE];
+		dataPayloadBuffer.get(rawUnits);
+		gr.setUnits(extractString(rawUnits));
+	}
 
-			int count = dataPayloadBuffer.getShort() & 0xFFFF;
-			
-			byte[] rawBuffer = new byte[MAX_ENUM_STRING_SIZE];
+	/**
+	 * Read enum labels.
+	 * @param labels	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readLabels(DBR_LABELS_Enum labels, ByteBuffer dataPayloadBuffer)
+	{
+		int count = dataPayloadBuffer.getShort() & 0xFFFF;
 
-			// read labels
-			String[] labels = new String[count];
-			for (int i = 0; i < count; i++)
-			{
-				dataPayloadBuffer.get(rawBuffer);
-				labels[i] = extractString(rawBuffer);
-			}
-			
-			// read rest
-			int restEntries = MAX_ENUM_STATES - count; 
-			for (int i = 0; i < restEntries; i++)
-				dataPayloadBuffer.get(rawBuffer);
+		byte[] rawBuffer = new byte[MAX_ENUM_STRING_SIZE];
 
-			DBR_LABELS_Enum le = (DBR_LABELS_Enum)inDBR;
-			if (le == null)
-			{
-				if (dataType == DBR_LABELS_Enum.TYPE)
-					le = new DBR_LABELS_Enum((short[])readValues(null, DBR_Enum.TYPE, dataCount, dataPayloadBuffer));
-				else
-					le = new DBR_CTRL_Enum((short[])readValues(null, DBR_Enum.TYPE, dataCount, dataPayloadBuffer));
-			}
-			else
-				readValues(le, DBR_Enum.TYPE, dataCount, dataPayloadBuffer);
-			
-			le.setStatus(status);
-			le.setSeverity(severity);
-			le.setLabels(labels);
-			
-			return le;
+		// read labels
+		String[] strs = new String[count];
+		for (int i = 0; i < count; i++)
+		{
+			dataPayloadBuffer.get(rawBuffer);
+			strs[i] = extractString(rawBuffer);
 		}
 
-		GR retVal = (GR)inDBR;
+		// skip rest
+		int restEntries = MAX_ENUM_STATES - count;
+		dataPayloadBuffer.position(dataPayloadBuffer.position() + restEntries * MAX_ENUM_STRING_SIZE);
 
-		int precision = 0;
-		if (dataType == DBR_GR_Float.TYPE || dataType == DBR_GR_Double.TYPE)
-		{
-			precision = dataPayloadBuffer.getShort() & 0xFFFF;
-			// RISC padding
-			dataPayloadBuffer.getShort();
-		}
+		labels.setLabels(strs);
+	}
 
-		// read units
-		final int MAX_UNITS_SIZE = 8;
-		byte[] rawUnits = new byte[MAX_UNITS_SIZE];
-		dataPayloadBuffer.get(rawUnits);
+	/**
+	 * Read (graphic) short limits.
+	 * @param gr	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readShortLimits(GR gr, ByteBuffer dataPayloadBuffer)
+	{
+		gr.setUpperDispLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+		gr.setLowerDispLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+		gr.setUpperAlarmLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+		gr.setUpperWarningLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+		gr.setLowerWarningLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+		gr.setLowerAlarmLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+	}
 
-		String units = extractString(rawUnits);			
-		
-		if (dataType == DBR_GR_Short.TYPE)
-		{
-			// GR values
-			Short upperDisplay = new Short(dataPayloadBuffer.getShort());
-			Short lowerDisplay = new Short(dataPayloadBuffer.getShort());
-			Short upperAlarm   = new Short(dataPayloadBuffer.getShort());
-			Short upperWarning = new Short(dataPayloadBuffer.getShort());
-			Short lowerWarning = new Short(dataPayloadBuffer.getShort());
-			Short lowerAlarm   = new Short(dataPayloadBuffer.getShort());
-
-			if (retVal == null)
-				retVal = new DBR_GR_Short((short[])readValues(null, DBR_Short.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Short.TYPE, dataCount, dataPayloadBuffer);
-			
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-		}
-		else if (dataType == DBR_GR_Float.TYPE)
-		{
-			// GR values
-			Float upperDisplay = new Float(dataPayloadBuffer.getFloat());
-			Float lowerDisplay = new Float(dataPayloadBuffer.getFloat());
-			Float upperAlarm   = new Float(dataPayloadBuffer.getFloat());
-			Float upperWarning = new Float(dataPayloadBuffer.getFloat());
-			Float lowerWarning = new Float(dataPayloadBuffer.getFloat());
-			Float lowerAlarm   = new Float(dataPayloadBuffer.getFloat());
-
-			DBR_GR_Float val = (DBR_GR_Float)inDBR;
-			if (val == null) 
-				val = new DBR_GR_Float((float[])readValues(null, DBR_Float.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(val, DBR_Float.TYPE, dataCount, dataPayloadBuffer);				
-			val.setPrecision((short)precision);
-			retVal = val;
-
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-		}
-		else if (dataType == DBR_GR_Byte.TYPE)
-		{
-			// GR values
-			Byte upperDisplay = new Byte(dataPayloadBuffer.get());
-			Byte lowerDisplay = new Byte(dataPayloadBuffer.get());
-			Byte upperAlarm   = new Byte(dataPayloadBuffer.get());
-			Byte upperWarning = new Byte(dataPayloadBuffer.get());
-			Byte lowerWarning = new Byte(dataPayloadBuffer.get());
-			Byte lowerAlarm   = new Byte(dataPayloadBuffer.get());
-
-			// RISC padding
-			dataPayloadBuffer.get();
-			if (retVal == null)
-				retVal = new DBR_GR_Byte((byte[])readValues(null, DBR_Byte.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Byte.TYPE, dataCount, dataPayloadBuffer);
-
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-		}
-		else if (dataType == DBR_GR_Int.TYPE)
-		{
-			// GR values
-			Integer upperDisplay = new Integer(dataPayloadBuffer.getInt());
-			Integer lowerDisplay = new Integer(dataPayloadBuffer.getInt());
-			Integer upperAlarm   = new Integer(dataPayloadBuffer.getInt());
-			Integer upperWarning = new Integer(dataPayloadBuffer.getInt());
-			Integer lowerWarning = new Integer(dataPayloadBuffer.getInt());
-			Integer lowerAlarm   = new Integer(dataPayloadBuffer.getInt());
-
-			if (retVal == null)
-				retVal = new DBR_GR_Int((int[])readValues(null, DBR_Int.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Int.TYPE, dataCount, dataPayloadBuffer);
-				
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-		}
-		else if (dataType == DBR_GR_Double.TYPE)
-		{
-			// GR values
-			Double upperDisplay = new Double(dataPayloadBuffer.getDouble());
-			Double lowerDisplay = new Double(dataPayloadBuffer.getDouble());
-			Double upperAlarm   = new Double(dataPayloadBuffer.getDouble());
-			Double upperWarning = new Double(dataPayloadBuffer.getDouble());
-			Double lowerWarning = new Double(dataPayloadBuffer.getDouble());
-			Double lowerAlarm   = new Double(dataPayloadBuffer.getDouble());
-
-			DBR_GR_Double val = (DBR_GR_Double)inDBR;
-			if (val == null)
-				val = new DBR_GR_Double((double[])readValues(null, DBR_Double.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(val, DBR_Double.TYPE, dataCount, dataPayloadBuffer);
-			val.setPrecision((short)precision);
-			retVal = val;
-
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-		}
+	/**
+	 * Read (control) short limits.
+	 * @param ctrl	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readShortCtrlLimits(CTRL ctrl, ByteBuffer dataPayloadBuffer)
+	{
+		ctrl.setUpperCtrlLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+		ctrl.setLowerCtrlLimit(Short.valueOf(dataPayloadBuffer.getShort()));
+	}
 
-		retVal.setStatus(status);
-		retVal.setSeverity(severity);
-		retVal.setUnits(units);
-		
-		return (DBR)retVal;
+	/**
+	 * Read (graphic) float limits.
+	 * @param gr	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readFloatLimits(GR gr, ByteBuffer dataPayloadBuffer)
+	{
+		gr.setUpperDispLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
+		gr.setLowerDispLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
+		gr.setUpperAlarmLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
+		gr.setUpperWarningLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
+		gr.setLowerWarningLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
+		gr.setLowerAlarmLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
 	}
 
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataType
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Read (control) float limits.
+	 * @param ctrl	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
 	 */
-	private static DBR getControlDBR(DBR inDBR, DBRType dataType, int dataCount, ByteBuffer dataPayloadBuffer)
+	private static void readFloatCtrlLimits(CTRL ctrl, ByteBuffer dataPayloadBuffer)
 	{
-		// CTRL_String is actually a STS
-		if (dataType == DBR_CTRL_String.TYPE)
-			return getStatusDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-		// CTRL_Enum is actially LABEL (GRAPHICS)
-		else if (dataType == DBR_CTRL_Enum.TYPE)
-			return getGraphicsDBR(inDBR, dataType, dataCount, dataPayloadBuffer);
-			
-		int status = dataPayloadBuffer.getShort() & 0xFFFF;
-		int severity = dataPayloadBuffer.getShort() & 0xFFFF;
-		
-		CTRL retVal = (CTRL)inDBR;
-
-		int precision = 0;
-		if (dataType == DBR_CTRL_Float.TYPE || dataType == DBR_CTRL_Double.TYPE)
-		{
-			precision = dataPayloadBuffer.getShort() & 0xFFFF;
-			// RISC padding
-			dataPayloadBuffer.getShort();
-		}
+		ctrl.setUpperCtrlLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
+		ctrl.setLowerCtrlLimit(Float.valueOf(dataPayloadBuffer.getFloat()));
+	}
 
-		// read units
-		final int MAX_UNITS_SIZE = 8;
-		byte[] rawUnits = new byte[MAX_UNITS_SIZE];
-		dataPayloadBuffer.get(rawUnits);
+	/**
+	 * Read (graphic) byte limits.
+	 * @param gr	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readByteLimits(GR gr, ByteBuffer dataPayloadBuffer)
+	{
+		gr.setUpperDispLimit(Byte.valueOf(dataPayloadBuffer.get()));
+		gr.setLowerDispLimit(Byte.valueOf(dataPayloadBuffer.get()));
+		gr.setUpperAlarmLimit(Byte.valueOf(dataPayloadBuffer.get()));
+		gr.setUpperWarningLimit(Byte.valueOf(dataPayloadBuffer.get()));
+		gr.setLowerWarningLimit(Byte.valueOf(dataPayloadBuffer.get()));
+		gr.setLowerAlarmLimit(Byte.valueOf(dataPayloadBuffer.get()));
+	}
 
-		String units = extractString(rawUnits);			
-		
-		if (dataType == DBR_CTRL_Short.TYPE)
-		{
-			// CTRL values
-			Short upperDisplay = new Short(dataPayloadBuffer.getShort());
-			Short lowerDisplay = new Short(dataPayloadBuffer.getShort());
-			Short upperAlarm   = new Short(dataPayloadBuffer.getShort());
-			Short upperWarning = new Short(dataPayloadBuffer.getShort());
-			Short lowerWarning = new Short(dataPayloadBuffer.getShort());
-			Short lowerAlarm   = new Short(dataPayloadBuffer.getShort());
-			Short upperControl = new Short(dataPayloadBuffer.getShort());
-			Short lowerControl = new Short(dataPayloadBuffer.getShort());
-
-			if (retVal == null)
-				retVal = new DBR_CTRL_Short((short[])readValues(null, DBR_Short.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Short.TYPE, dataCount, dataPayloadBuffer);
-				
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-			retVal.setUpperCtrlLimit(upperControl);
-			retVal.setLowerCtrlLimit(lowerControl);
-		}
-		else if (dataType == DBR_CTRL_Float.TYPE)
-		{
-			// CTRL values
-			Float upperDisplay = new Float(dataPayloadBuffer.getFloat());
-			Float lowerDisplay = new Float(dataPayloadBuffer.getFloat());
-			Float upperAlarm   = new Float(dataPayloadBuffer.getFloat());
-			Float upperWarning = new Float(dataPayloadBuffer.getFloat());
-			Float lowerWarning = new Float(dataPayloadBuffer.getFloat());
-			Float lowerAlarm   = new Float(dataPayloadBuffer.getFloat());
-			Float upperControl = new Float(dataPayloadBuffer.getFloat());
-			Float lowerControl = new Float(dataPayloadBuffer.getFloat());
-
-				
-			DBR_CTRL_Float val = (DBR_CTRL_Float)inDBR;
-			if (val == null) 
-				val = new DBR_CTRL_Float((float[])readValues(null, DBR_Float.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(val, DBR_Float.TYPE, dataCount, dataPayloadBuffer);
-			val.setPrecision((short)precision);
-			retVal = val;
-
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-			retVal.setUpperCtrlLimit(upperControl);
-			retVal.setLowerCtrlLimit(lowerControl);
-		}
-		else if (dataType == DBR_CTRL_Byte.TYPE)
-		{
-			// CTRL values
-			Byte upperDisplay = new Byte(dataPayloadBuffer.get());
-			Byte lowerDisplay = new Byte(dataPayloadBuffer.get());
-			Byte upperAlarm   = new Byte(dataPayloadBuffer.get());
-			Byte upperWarning = new Byte(dataPayloadBuffer.get());
-			Byte lowerWarning = new Byte(dataPayloadBuffer.get());
-			Byte lowerAlarm   = new Byte(dataPayloadBuffer.get());
-			Byte upperControl = new Byte(dataPayloadBuffer.get());
-			Byte lowerControl = new Byte(dataPayloadBuffer.get());
-
-			// RISC padding
-			dataPayloadBuffer.get();
-			if (retVal == null)
-				retVal = new DBR_CTRL_Byte((byte[])readValues(null, DBR_Byte.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Byte.TYPE, dataCount, dataPayloadBuffer);				
-
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-			retVal.setUpperCtrlLimit(upperControl);
-			retVal.setLowerCtrlLimit(lowerControl);
-		}
-		else if (dataType == DBR_CTRL_Int.TYPE)
-		{
-			// CTRL values
-			Integer upperDisplay = new Integer(dataPayloadBuffer.getInt());
-			Integer lowerDisplay = new Integer(dataPayloadBuffer.getInt());
-			Integer upperAlarm   = new Integer(dataPayloadBuffer.getInt());
-			Integer upperWarning = new Integer(dataPayloadBuffer.getInt());
-			Integer lowerWarning = new Integer(dataPayloadBuffer.getInt());
-			Integer lowerAlarm   = new Integer(dataPayloadBuffer.getInt());
-			Integer upperControl = new Integer(dataPayloadBuffer.getInt());
-			Integer lowerControl = new Integer(dataPayloadBuffer.getInt());
-
-			if (retVal == null)
-				retVal = new DBR_CTRL_Int((int[])readValues(null, DBR_Int.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(inDBR, DBR_Int.TYPE, dataCount, dataPayloadBuffer);
-			
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-			retVal.setUpperCtrlLimit(upperControl);
-			retVal.setLowerCtrlLimit(lowerControl);
-		}
-		else if (dataType == DBR_CTRL_Double.TYPE)
-		{
-			// CTRL values
-			Double upperDisplay = new Double(dataPayloadBuffer.getDouble());
-			Double lowerDisplay = new Double(dataPayloadBuffer.getDouble());
-			Double upperAlarm   = new Double(dataPayloadBuffer.getDouble());
-			Double upperWarning = new Double(dataPayloadBuffer.getDouble());
-			Double lowerWarning = new Double(dataPayloadBuffer.getDouble());
-			Double lowerAlarm   = new Double(dataPayloadBuffer.getDouble());
-			Double upperControl = new Double(dataPayloadBuffer.getDouble());
-			Double lowerControl = new Double(dataPayloadBuffer.getDouble());
-
-			DBR_CTRL_Double val = (DBR_CTRL_Double)inDBR;
-			 if (val == null)
-				val = new DBR_CTRL_Double((double[])readValues(null, DBR_Double.TYPE, dataCount, dataPayloadBuffer));
-			else
-				readValues(val, DBR_Double.TYPE, dataCount, dataPayloadBuffer);
-			val.setPrecision((short)precision);
-			retVal = val;
-
-			retVal.setUpperDispLimit(upperDisplay);
-			retVal.setUpperAlarmLimit(upperAlarm);
-			retVal.setUpperWarningLimit(upperWarning);
-			retVal.setLowerWarningLimit(lowerWarning);
-			retVal.setLowerAlarmLimit(lowerAlarm);
-			retVal.setLowerDispLimit(lowerDisplay);
-			retVal.setUpperCtrlLimit(upperControl);
-			retVal.setLowerCtrlLimit(lowerControl);
-		}
+	/**
+	 * Read (control) byte limits.
+	 * @param ctrl	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readByteCtrlLimits(CTRL ctrl, ByteBuffer dataPayloadBuffer)
+	{
+		ctrl.setUpperCtrlLimit(Byte.valueOf(dataPayloadBuffer.get()));
+		ctrl.setLowerCtrlLimit(Byte.valueOf(dataPayloadBuffer.get()));
+	}
 
-		retVal.setStatus(status);
-		retVal.setSeverity(severity);
-		retVal.setUnits(units);
-		
-		return (DBR)retVal;
+	/**
+	 * Read (graphic) int limits.
+	 * @param gr	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readIntLimits(GR gr, ByteBuffer dataPayloadBuffer)
+	{
+		gr.setUpperDispLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
+		gr.setLowerDispLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
+		gr.setUpperAlarmLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
+		gr.setUpperWarningLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
+		gr.setLowerWarningLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
+		gr.setLowerAlarmLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
 	}
 
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Read (control) int limits.
+	 * @param ctrl	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
 	 */
-	private static DBR getAckTDBR(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer)
+	private static void readIntCtrlLimits(CTRL ctrl, ByteBuffer dataPayloadBuffer)
 	{
-		if (inDBR == null)
-			return new DBR_PutAckT((short[])readValues(null, DBR_Short.TYPE, dataCount, dataPayloadBuffer));
-		else
-		{
-			readValues(inDBR, DBR_Short.TYPE, dataCount, dataPayloadBuffer);
-			return inDBR;
-		}
+		ctrl.setUpperCtrlLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
+		ctrl.setLowerCtrlLimit(Integer.valueOf(dataPayloadBuffer.getInt()));
 	}
 
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataCount
-	 * @param dataPayloadBuffer
-	 * @return decoded DBR.
+	 * Read (graphic) double limits.
+	 * @param gr	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
 	 */
-	private static DBR getAckSDBR(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer)
+	private static void readDoubleLimits(GR gr, ByteBuffer dataPayloadBuffer)
 	{
-		if (inDBR == null)
-			return new DBR_PutAckS((short[])readValues(null, DBR_Short.TYPE, dataCount, dataPayloadBuffer));
-		else
-		{
-			readValues(inDBR, DBR_Short.TYPE, dataCount, dataPayloadBuffer);
-			return inDBR;
-		}
+		gr.setUpperDispLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
+		gr.setLowerDispLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
+		gr.setUpperAlarmLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
+		gr.setUpperWarningLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
+		gr.setLowerWarningLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
+		gr.setLowerAlarmLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
 	}
 
 	/**
-	 * @param inDBR	DBR to be used (set), do not create a new instance of DBR if non-<code>null</code>.
-	 * @param dataCount
-	 * @param dataPayloadBuffer
+	 * Read (control) double limits.
+	 * @param ctrl	DBR to be set.
+	 * @param dataPayloadBuffer	payload buffer.
+	 */
+	private static void readDoubleCtrlLimits(CTRL ctrl, ByteBuffer dataPayloadBuffer)
+	{
+		ctrl.setUpperCtrlLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
+		ctrl.setLowerCtrlLimit(Double.valueOf(dataPayloadBuffer.getDouble()));
+	}
+
+	/**
+	 * Create (extract) string (zero-terminated) from byte buffer.
+	 * @param rawBuffer
 	 * @return decoded DBR.
 	 */
-	private static DBR getStatusAckStringDBR(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer)
+	private static String extractString(byte[] rawBuffer)
 	{
-		int status = dataPayloadBuffer.getShort() & 0xFFFF;
-		int severity = dataPayloadBuffer.getShort() & 0xFFFF;
+		int len = 0;
+		final int rawBufferLen = rawBuffer.length;
+		while (len < rawBufferLen && rawBuffer[len] != 0)
+			len++;
+		return new String(rawBuffer, 0, len);
+	}
 
-		int ackT = dataPayloadBuffer.getShort() & 0xFFFF;
-		int ackS = dataPayloadBuffer.getShort() & 0xFFFF;
+	/*
+	 * Decoders (RISC padding is skipped where needed).
+	 */
+	static {
 
-		DBR_STSACK_String retVal = (DBR_STSACK_String)inDBR;
-		if (retVal == null) 
-			retVal = new DBR_STSACK_String((String[])readValues(null, DBR_String.TYPE, dataCount, dataPayloadBuffer));
-		else
-			readValues(retVal, DBR_String.TYPE, dataCount, dataPayloadBuffer);
-			
-		retVal.setStatus(status);
-		retVal.setSeverity(severity);
-		retVal.setAckT(ackT);
-		retVal.setAckS(ackS);
-		
-		return retVal;
+		// normal (value only)
+
+		register(DBR_String.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_String dbr = (inDBR != null) ? (DBR_String)inDBR : new DBR_String(dataCount);
+				readStrings(dbr.getStringValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_Short.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_Short dbr = (inDBR != null) ? (DBR_Short)inDBR : new DBR_Short(dataCount);
+				readShorts(dbr.getShortValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_Float.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_Float dbr = (inDBR != null) ? (DBR_Float)inDBR : new DBR_Float(dataCount);
+				readFloats(dbr.getFloatValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_Enum.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_Enum dbr = (inDBR != null) ? (DBR_Enum)inDBR : new DBR_Enum(dataCount);
+				readShorts(dbr.getEnumValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_Byte.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_Byte dbr = (inDBR != null) ? (DBR_Byte)inDBR : new DBR_Byte(dataCount);
+				readBytes(dbr.getByteValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_Int.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_Int dbr = (inDBR != null) ? (DBR_Int)inDBR : new DBR_Int(dataCount);
+				readInts(dbr.getIntValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_Double.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_Double dbr = (inDBR != null) ? (DBR_Double)inDBR : new DBR_Double(dataCount);
+				readDoubles(dbr.getDoubleValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+
+		// status
+
+		register(DBR_STS_String.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STS_String dbr = (inDBR != null) ? (DBR_STS_String)inDBR : new DBR_STS_String(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readStrings(dbr.getStringValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_STS_Short.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STS_Short dbr = (inDBR != null) ? (DBR_STS_Short)inDBR : new DBR_STS_Short(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readShorts(dbr.getShortValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_STS_Float.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STS_Float dbr = (inDBR != null) ? (DBR_STS_Float)inDBR : new DBR_STS_Float(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readFloats(dbr.getFloatValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_STS_Enum.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STS_Enum dbr = (inDBR != null) ? (DBR_STS_Enum)inDBR : new DBR_STS_Enum(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readShorts(dbr.getEnumValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_STS_Byte.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STS_Byte dbr = (inDBR != null) ? (DBR_STS_Byte)inDBR : new DBR_STS_Byte(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.get();
+				readBytes(dbr.getByteValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_STS_Int.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STS_Int dbr = (inDBR != null) ? (DBR_STS_Int)inDBR : new DBR_STS_Int(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readInts(dbr.getIntValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_STS_Double.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STS_Double dbr = (inDBR != null) ? (DBR_STS_Double)inDBR : new DBR_STS_Double(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.getInt();
+				readDoubles(dbr.getDoubleValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+
+		// time
+
+		register(DBR_TIME_String.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_TIME_String dbr = (inDBR != null) ? (DBR_TIME_String)inDBR : new DBR_TIME_String(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readTimeStamp(dbr, dataPayloadBuffer);
+				readStrings(dbr.getStringValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_TIME_Short.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_TIME_Short dbr = (inDBR != null) ? (DBR_TIME_Short)inDBR : new DBR_TIME_Short(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readTimeStamp(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.getShort();
+				readShorts(dbr.getShortValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_TIME_Float.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_TIME_Float dbr = (inDBR != null) ? (DBR_TIME_Float)inDBR : new DBR_TIME_Float(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readTimeStamp(dbr, dataPayloadBuffer);
+				readFloats(dbr.getFloatValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_TIME_Enum.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_TIME_Enum dbr = (inDBR != null) ? (DBR_TIME_Enum)inDBR : new DBR_TIME_Enum(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readTimeStamp(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.getShort();
+				readShorts(dbr.getEnumValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_TIME_Byte.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_TIME_Byte dbr = (inDBR != null) ? (DBR_TIME_Byte)inDBR : new DBR_TIME_Byte(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readTimeStamp(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.getShort();
+				dataPayloadBuffer.get();
+				readBytes(dbr.getByteValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_TIME_Int.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_TIME_Int dbr = (inDBR != null) ? (DBR_TIME_Int)inDBR : new DBR_TIME_Int(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readTimeStamp(dbr, dataPayloadBuffer);
+				readInts(dbr.getIntValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_TIME_Double.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_TIME_Double dbr = (inDBR != null) ? (DBR_TIME_Double)inDBR : new DBR_TIME_Double(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readTimeStamp(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.getInt();
+				readDoubles(dbr.getDoubleValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+
+		// graphics (GR_String is actually a STS)
+
+		register(DBR_GR_String.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_GR_String dbr = (inDBR != null) ? (DBR_GR_String)inDBR : new DBR_GR_String(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readStrings(dbr.getStringValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_GR_Short.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_GR_Short dbr = (inDBR != null) ? (DBR_GR_Short)inDBR : new DBR_GR_Short(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readUnits(dbr, dataPayloadBuffer);
+				readShortLimits(dbr, dataPayloadBuffer);
+				readShorts(dbr.getShortValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_GR_Float.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_GR_Float dbr = (inDBR != null) ? (DBR_GR_Float)inDBR : new DBR_GR_Float(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				dbr.setPrecision(readPrecision(dataPayloadBuffer));
+				readUnits(dbr, dataPayloadBuffer);
+				readFloatLimits(dbr, dataPayloadBuffer);
+				readFloats(dbr.getFloatValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_LABELS_Enum.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_LABELS_Enum dbr = (inDBR != null) ? (DBR_LABELS_Enum)inDBR : new DBR_LABELS_Enum(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readLabels(dbr, dataPayloadBuffer);
+				readShorts(dbr.getEnumValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_GR_Byte.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_GR_Byte dbr = (inDBR != null) ? (DBR_GR_Byte)inDBR : new DBR_GR_Byte(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readUnits(dbr, dataPayloadBuffer);
+				readByteLimits(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.get();
+				readBytes(dbr.getByteValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_GR_Int.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_GR_Int dbr = (inDBR != null) ? (DBR_GR_Int)inDBR : new DBR_GR_Int(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readUnits(dbr, dataPayloadBuffer);
+				readIntLimits(dbr, dataPayloadBuffer);
+				readInts(dbr.getIntValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_GR_Double.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_GR_Double dbr = (inDBR != null) ? (DBR_GR_Double)inDBR : new DBR_GR_Double(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				dbr.setPrecision(readPrecision(dataPayloadBuffer));
+				readUnits(dbr, dataPayloadBuffer);
+				readDoubleLimits(dbr, dataPayloadBuffer);
+				readDoubles(dbr.getDoubleValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+
+		// control (CTRL_String is actually a STS, CTRL_Enum is actually a LABELS)
+
+		register(DBR_CTRL_String.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_CTRL_String dbr = (inDBR != null) ? (DBR_CTRL_String)inDBR : new DBR_CTRL_String(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readStrings(dbr.getStringValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_CTRL_Short.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_CTRL_Short dbr = (inDBR != null) ? (DBR_CTRL_Short)inDBR : new DBR_CTRL_Short(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readUnits(dbr, dataPayloadBuffer);
+				readShortLimits(dbr, dataPayloadBuffer);
+				readShortCtrlLimits(dbr, dataPayloadBuffer);
+				readShorts(dbr.getShortValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_CTRL_Float.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_CTRL_Float dbr = (inDBR != null) ? (DBR_CTRL_Float)inDBR : new DBR_CTRL_Float(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				dbr.setPrecision(readPrecision(dataPayloadBuffer));
+				readUnits(dbr, dataPayloadBuffer);
+				readFloatLimits(dbr, dataPayloadBuffer);
+				readFloatCtrlLimits(dbr, dataPayloadBuffer);
+				readFloats(dbr.getFloatValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_CTRL_Enum.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_CTRL_Enum dbr = (inDBR != null) ? (DBR_CTRL_Enum)inDBR : new DBR_CTRL_Enum(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readLabels(dbr, dataPayloadBuffer);
+				readShorts(dbr.getEnumValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_CTRL_Byte.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_CTRL_Byte dbr = (inDBR != null) ? (DBR_CTRL_Byte)inDBR : new DBR_CTRL_Byte(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readUnits(dbr, dataPayloadBuffer);
+				readByteLimits(dbr, dataPayloadBuffer);
+				readByteCtrlLimits(dbr, dataPayloadBuffer);
+				dataPayloadBuffer.get();
+				readBytes(dbr.getByteValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_CTRL_Int.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_CTRL_Int dbr = (inDBR != null) ? (DBR_CTRL_Int)inDBR : new DBR_CTRL_Int(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				readUnits(dbr, dataPayloadBuffer);
+				readIntLimits(dbr, dataPayloadBuffer);
+				readIntCtrlLimits(dbr, dataPayloadBuffer);
+				readInts(dbr.getIntValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_CTRL_Double.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_CTRL_Double dbr = (inDBR != null) ? (DBR_CTRL_Double)inDBR : new DBR_CTRL_Double(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				dbr.setPrecision(readPrecision(dataPayloadBuffer));
+				readUnits(dbr, dataPayloadBuffer);
+				readDoubleLimits(dbr, dataPayloadBuffer);
+				readDoubleCtrlLimits(dbr, dataPayloadBuffer);
+				readDoubles(dbr.getDoubleValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+
+		// ackT, ackS, stsAckString
+
+		register(DBR_PutAckT.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_PutAckT dbr = (inDBR != null) ? (DBR_PutAckT)inDBR : new DBR_PutAckT(dataCount);
+				readShorts(dbr.getShortValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_PutAckS.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_PutAckS dbr = (inDBR != null) ? (DBR_PutAckS)inDBR : new DBR_PutAckS(dataCount);
+				readShorts(dbr.getShortValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
+		register(DBR_STSACK_String.TYPE, new Decoder() {
+			DBR decode(DBR inDBR, int dataCount, ByteBuffer dataPayloadBuffer) {
+				DBR_STSACK_String dbr = (inDBR != null) ? (DBR_STSACK_String)inDBR : new DBR_STSACK_String(dataCount);
+				readStatus(dbr, dataPayloadBuffer);
+				dbr.setAckT(dataPayloadBuffer.getShort() & 0xFFFF);
+				dbr.setAckS(dataPayloadBuffer.getShort() & 0xFFFF);
+				readStrings(dbr.getStringValue(), dataCount, dataPayloadBuffer);
+				return dbr;
+			}
+		});
 	}
 }
@@ -27,11 +27,11 @@ import gov.aps.jca.dbr.Status;
 import gov.aps.jca.dbr.TIME;
 import gov.aps.jca.dbr.TimeStamp;
 
-import java.lang.reflect.Array;
 import java.nio.ByteBuffer;
 
 /**
  * DBR encode - serializes DBR.
+ * Encoding is table-driven: there is one (monomorphic) encoder per DBR type, looked-up by DBR type value.
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
@@ -87,6 +87,187 @@ public class DBREncoder {
 		8	/* string with status/ack 	*/
 	};  
 	
+	/**
+	 * Threshold at which the method to copy the array is changed.
+	 * If lower, the elements are copied one by one. If higher, the
+	 * data is copied with ByteBuffer bulk operations.
+	 */
+	private static final int OPTIMIZED_COPY_THRESHOLD = 10;
+
+	/**
+	 * Max units string size.
+	 */
+	private static final int MAX_UNITS_SIZE = 8;
+
+	/**
+	 * Max enum label string size.
+	 */
+	private static final int MAX_ENUM_STRING_SIZE = 26;
+
+	/**
+	 * Max number of enum labels.
+	 */
+	private static final int MAX_ENUM_STATES = 16;
+
+	/**
+	 * Empty (zero-filled) enum label.
+	 */
+	private static final byte[] EMPTY_LABEL = new byte[MAX_ENUM_STRING_SIZE];
+
+	/**
+	 * Empty (zero-filled) units.
+	 */
+	private static final byte[] EMPTY_UNITS = new byte[MAX_UNITS_SIZE];
+
+	/**
+	 * Encoder of a particular DBR type.
+	 */
+	private static abstract class Encoder {
+		/**
+		 * Size of one value element.
+		 */
+		final int elementSize;
+
+		/**
+		 * Constructor.
+		 * @param elementSize size of one value element.
+		 */
+		Encoder(int elementSize) {
+			this.elementSize = elementSize;
+		}
+
+		/**
+		 * Insert value (array) payload.
+		 * @param payloadBuffer payload buffer.
+		 * @param dataCount data count.
+		 * @param value value array.
+		 */
+		abstract void insertValue(ByteBuffer payloadBuffer, int dataCount, Object value);
+
+		/**
+		 * Insert DBR (metadata and value) payload.
+		 * @param payloadBuffer payload buffer.
+		 * @param dataCount data count.
+		 * @param value DBR.
+		 */
+		abstract void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value);
+	}
+
+	/**
+	 * Encoder of string values.
+	 */
+	private static abstract class StringEncoder extends Encoder {
+		StringEncoder() {
+			super(CAConstants.MAX_STRING_SIZE);
+		}
+		void insertValue(ByteBuffer payloadBuffer, int dataCount, Object value) {
+			putStrings(payloadBuffer, dataCount, (String[])value);
+		}
+	}
+
+	/**
+	 * Encoder of short (also enum and ackT/S) values.
+	 */
+	private static abstract class ShortEncoder extends Encoder {
+		ShortEncoder() {
+			super(2);
+		}
+		void insertValue(ByteBuffer payloadBuffer, int dataCount, Object value) {
+			putShorts(payloadBuffer, dataCount, (short[])value);
+		}
+	}
+
+	/**
+	 * Encoder of float values.
+	 */
+	private static abstract class FloatEncoder extends Encoder {
+		FloatEncoder() {
+			super(4);
+		}
+		void insertValue(ByteBuffer payloadBuffer, int dataCount, Object value) {
+			putFloats(payloadBuffer, dataCount, (float[])value);
+		}
+	}
+
+	/**
+	 * Encoder of byte values.
+	 */
+	private static abstract class ByteEncoder extends Encoder {
+		ByteEncoder() {
+			super(1);
+		}
+		void insertValue(ByteBuffer payloadBuffer, int dataCount, Object value) {
+			putBytes(payloadBuffer, dataCount, (byte[])value);
+		}
+	}
+
+	/**
+	 * Encoder of int values.
+	 */
+	private static abstract class IntEncoder extends Encoder {
+		IntEncoder() {
+			super(4);
+		}
+		void insertValue(ByteBuffer payloadBuffer, int dataCount, Object value) {
+			putInts(payloadBuffer, dataCount, (int[])value);
+		}
+	}
+
+	/**
+	 * Encoder of double values.
+	 */
+	private static abstract class DoubleEncoder extends Encoder {
+		DoubleEncoder() {
+			super(8);
+		}
+		void insertValue(ByteBuffer payloadBuffer, int dataCount, Object value) {
+			putDoubles(payloadBuffer, dataCount, (double[])value);
+		}
+	}
+
+	/**
+	 * Encoders, indexed by DBR type value (<code>null</code> for unsupported types).
+	 */
+	private static final Encoder[] ENCODERS = new Encoder[PAYLOAD_SIZE.length];
+
+	/**
+	 * Register encoder.
+	 * @param type	DBR type.
+	 * @param encoder	encoder of the given type.
+	 */
+	private static void register(DBRType type, Encoder encoder)
+	{
+		ENCODERS[type.getValue()] = encoder;
+	}
+
+	/**
+	 * Get encoder.
+	 * @param dataTypeValue	data type, see <code>DBRType</code>.
+	 * @return encoder, non-<code>null</code>.
+	 * @throws IllegalArgumentException if type is invalid or not supported.
+	 */
+	private static Encoder getEncoder(short dataTypeValue)
+	{
+		if (dataTypeValue < 0 || dataTypeValue >= ENCODERS.length)
+			throw new IllegalArgumentException("Invalid data type value: " + dataTypeValue);
+
+		final Encoder encoder = ENCODERS[dataTypeValue];
+		if (encoder == null)
+			throw new IllegalArgumentException("Unsupported data type: " + DBRType.forValue(dataTypeValue));
+
+		return encoder;
+	}
+
+	/**
+	 * Get size of the metadata (status, time, graphic/control info) preceding the value elements in the payload.
+	 * @param dataTypeValue data type, see <code>DBRType</code>.
+	 * @return offset of the first value element in the payload.
+	 */
+	public static int getValueOffset(short dataTypeValue)
+	{
+		return PAYLOAD_SIZE[dataTypeValue];
+	}
+	
 	/**
 	 * NOTE: alignment (8) is done externally
 	 * @param dataTypeValue
@@ -94,429 +275,732 @@ public class DBREncoder {
 	 * @param value
 	 * @return calculated (non-aligned) payload size.
 	 */
-	// TODO size could be extracted from DBR type object
-	// TODO converting TYPE -> short and now short -> TYPE
 	public static int calculatePayloadSize(short dataTypeValue, int dataCount, Object value)
 	{
-		DBRType dataType = DBRType.forValue(dataTypeValue);
-		if (dataType == null)
-			throw new IllegalArgumentException("Invalid data type value: " + dataTypeValue);
+		final Encoder encoder = getEncoder(dataTypeValue);
 
-		int additionalPayload = PAYLOAD_SIZE[dataTypeValue];
-		
-		return calculateValuePayloadSize(dataCount, value, dataType) + additionalPayload;
+		// Even if the count is zero, the payload must contain at least one element.
+		return PAYLOAD_SIZE[dataTypeValue] + Math.max(dataCount, 1) * encoder.elementSize;
+	}
 
+	/**
+	 * Insert value payload.
+	 * @param dataTypeValue
+	 * @param dataCount
+	 * @param value
+	 */
+	public static void insertPayload(ByteBuffer payloadBuffer, short dataTypeValue, int dataCount, Object value)
+	{
+		getEncoder(dataTypeValue).insertValue(payloadBuffer, dataCount, value);
 	}
 
 	/**
-	 * Calculate palyoad value size.
+	 * Insert DBR payload.
+	 * NOTE: non-null CTRL, GR values required.
+	 * @param dataTypeValue
 	 * @param dataCount
 	 * @param value
-	 * @param dataType
-	 * @return calculated value payload size.
 	 */
-	private static int calculateValuePayloadSize(int dataCount, Object value, DBRType dataType) 
+	public static void insertPayload(ByteBuffer payloadBuffer, short dataTypeValue, int dataCount, DBR value)
 	{
-		// Even if the count is zero, the payload must contain at least one element.
-		if (dataCount <= 0) {
-			dataCount = 1;
-		}
-		if (dataType.isDOUBLE())
-		{
-			return dataCount * 8;
-		}
-		else if (dataType.isINT())
-		{
-			return dataCount * 4;
-		}
-		else if (dataType.isSTRING())
+		getEncoder(dataTypeValue).insertDBR(payloadBuffer, dataCount, value);
+	}
+
+	/*
+	 * Value writers.
+	 * Even if the array is empty, there has to be at least one element in the payload.
+	 */
+
+	/**
+	 * Put strings.
+	 * @param payloadBuffer payload buffer.
+	 * @param dataCount max. number of elements to write.
+	 * @param array array to write.
+	 */
+	private static void putStrings(ByteBuffer payloadBuffer, int dataCount, String[] array)
+	{
+		final int count = Math.min(array.length, dataCount);
+		if (count <= 0)
 		{
-			return dataCount * CAConstants.MAX_STRING_SIZE;
+		    int pos = payloadBuffer.position();
+		    payloadBuffer.put((byte)0);
+			payloadBuffer.position(pos + CAConstants.MAX_STRING_SIZE);
+			return;
 		}
-		else if (dataType.isSHORT())
+
+		for (int i = 0; i < count; i++)
 		{
-			return dataCount * 2;
+		    // limit string size, leave one byte for termination
+		    int pos = payloadBuffer.position();
+		    if (array[i] != null)
+		    {
+		    	int bytesToWrite = Math.min(array[i].length(), CAConstants.MAX_STRING_SIZE - 1); 
+		    	payloadBuffer.put(array[i].getBytes(), 0, bytesToWrite);
+		    }
+		    payloadBuffer.put((byte)0);
+			payloadBuffer.position(pos + CAConstants.MAX_STRING_SIZE);
 		}
-		else if (dataType.isFLOAT())
+	}
+
+	/**
+	 * Put shorts.
+	 * @param payloadBuffer payload buffer.
+	 * @param dataCount max. number of elements to write.
+	 * @param array array to write.
+	 */
+	private static void putShorts(ByteBuffer payloadBuffer, int dataCount, short[] array)
+	{
+		final int count = Math.min(array.length, dataCount);
+		if (count <= 0)
+			payloadBuffer.putShort((short)0);
+		else if (count < OPTIMIZED_COPY_THRESHOLD)
 		{
-			return dataCount * 4;
+			for (int i = 0; i < count; i++)
+				payloadBuffer.putShort(array[i]);
 		}
-		else if (dataType.isENUM())
+		else
 		{
-			return dataCount * 2;
+			payloadBuffer.asShortBuffer().put(array, 0, count);
+			payloadBuffer.position(payloadBuffer.position() + count * 2);
 		}
-		else if (dataType.isBYTE())
+	}
+
+	/**
+	 * Put floats.
+	 * @param payloadBuffer payload buffer.
+	 * @param dataCount max. number of elements to write.
+	 * @param array array to write.
+	 */
+	private static void putFloats(ByteBuffer payloadBuffer, int dataCount, float[] array)
+	{
+		final int count = Math.min(array.length, dataCount);
+		if (count <= 0)
+			payloadBuffer.putFloat(0.0f);
+		else if (count < OPTIMIZED_COPY_THRESHOLD)
 		{
-			return dataCount * 1;
+			for (int i = 0; i < count; i++)
+				payloadBuffer.putFloat(array[i]);
 		}
-		else if (dataType == DBRType.PUT_ACKT ||
-				 dataType == DBRType.PUT_ACKS)
+		else
 		{
-			return dataCount * 2;
+			payloadBuffer.asFloatBuffer().put(array, 0, count);
+			payloadBuffer.position(payloadBuffer.position() + count * 4);
 		}
-		else
-			throw new IllegalArgumentException("Unsupported data type: " + dataType);
 	}
 
 	/**
-	 * Insert value payload.
-	 * @param dataTypeValue
-	 * @param dataCount
-	 * @param value
+	 * Put bytes.
+	 * @param payloadBuffer payload buffer.
+	 * @param dataCount max. number of elements to write.
+	 * @param array array to write.
 	 */
-	public static void insertPayload(ByteBuffer payloadBuffer, short dataTypeValue, int dataCount, Object value)
+	private static void putBytes(ByteBuffer payloadBuffer, int dataCount, byte[] array)
 	{
-		DBRType dataType = DBRType.forValue(dataTypeValue);
-		if (dataType == null)
-			throw new IllegalArgumentException("Invalid data type value: " + dataTypeValue);
-
-		final int count = Math.min(Array.getLength(value), dataCount);
-		
-		if (dataType.isDOUBLE())
+		final int count = Math.min(array.length, dataCount);
+		if (count <= 0)
+			payloadBuffer.put((byte)0);
+		else if (count < OPTIMIZED_COPY_THRESHOLD)
 		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-				payloadBuffer.putDouble(0.0);
-			}
-			double[] array = (double[])value;
 			for (int i = 0; i < count; i++)
-				payloadBuffer.putDouble(array[i]);
+				payloadBuffer.put(array[i]);
 		}
-		else if (dataType.isINT())
+		else
+			payloadBuffer.put(array, 0, count);
+	}
+
+	/**
+	 * Put ints.
+	 * @param payloadBuffer payload buffer.
+	 * @param dataCount max. number of elements to write.
+	 * @param array array to write.
+	 */
+	private static void putInts(ByteBuffer payloadBuffer, int dataCount, int[] array)
+	{
+		final int count = Math.min(array.length, dataCount);
+		if (count <= 0)
+			payloadBuffer.putInt(0);
+		else if (count < OPTIMIZED_COPY_THRESHOLD)
 		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-				payloadBuffer.putInt(0);
-			}
-			int[] array = (int[])value;
 			for (int i = 0; i < count; i++)
 				payloadBuffer.putInt(array[i]);
 		}
-		else if (dataType.isSTRING())
+		else
 		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-			    int pos = payloadBuffer.position();
-			    payloadBuffer.put((byte)0);
-				payloadBuffer.position(pos + CAConstants.MAX_STRING_SIZE);
-			}
-			String[] array = (String[])value;
-			for (int i = 0; i < count; i++)
-			{
-			    // limit string size, leave one byte for termination
-			    int pos = payloadBuffer.position();
-			    if (array[i] != null)
-			    {
-				    	int bytesToWrite = Math.min(array[i].length(), CAConstants.MAX_STRING_SIZE - 1); 
-				    	payloadBuffer.put(array[i].getBytes(), 0, bytesToWrite);
-			    }
-			    payloadBuffer.put((byte)0);
-				payloadBuffer.position(pos + CAConstants.MAX_STRING_SIZE);
-			}
+			payloadBuffer.asIntBuffer().put(array, 0, count);
+			payloadBuffer.position(payloadBuffer.position() + count * 4);
 		}
-		else if (dataType.isSHORT())
-		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-				payloadBuffer.putShort((short)0);
-			}
-			short[] array = (short[])value;
-			for (int i = 0; i < count; i++)
-				payloadBuffer.putShort(array[i]);
-		}
-		else if (dataType.isFLOAT())
+	}
+
+	/**
+	 * Put doubles.
+	 * @param payloadBuffer payload buffer.
+	 * @param dataCount max. number of elements to write.
+	 * @param array array to write.
+	 */
+	private static void putDoubles(ByteBuffer payloadBuffer, int dataCount, double[] array)
+	{
+		final int count = Math.min(array.length, dataCount);
+		if (count <= 0)
+			payloadBuffer.putDouble(0.0);
+		else if (count < OPTIMIZED_COPY_THRESHOLD)
 		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-				payloadBuffer.putFloat(0.0f);
-			}
-			float[] array = (float[])value;
 			for (int i = 0; i < count; i++)
-				payloadBuffer.putFloat(array[i]);
+				payloadBuffer.putDouble(array[i]);
 		}
-		else if (dataType.isENUM())
+		else
 		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-				payloadBuffer.putShort((short)0);
-			}
-			short[] array = (short[])value;
-			for (int i = 0; i < count; i++)
-				payloadBuffer.putShort(array[i]);
+			payloadBuffer.asDoubleBuffer().put(array, 0, count);
+			payloadBuffer.position(payloadBuffer.position() + count * 8);
 		}
-		else if (dataType.isBYTE())
+	}
+
+	/*
+	 * Metadata writers.
+	 */
+
+	/**
+	 * Put status and severity.
+	 * @param payloadBuffer payload buffer.
+	 * @param sts DBR.
+	 */
+	private static void putStatus(ByteBuffer payloadBuffer, STS sts)
+	{
+		Status status = sts.getStatus(); 
+		if (status == null)
+			payloadBuffer.putShort((short)Status.UDF_ALARM.getValue());
+		else
+			payloadBuffer.putShort((short)status.getValue());
+		
+		Severity severity = sts.getSeverity();
+		if (severity == null)
+			payloadBuffer.putShort((short)Severity.INVALID_ALARM.getValue());
+		else
+			payloadBuffer.putShort((short)severity.getValue());
+	}
+
+	/**
+	 * Put timestamp.
+	 * @param payloadBuffer payload buffer.
+	 * @param time DBR.
+	 */
+	private static void putTimeStamp(ByteBuffer payloadBuffer, TIME time)
+	{
+		TimeStamp ts = time.getTimeStamp();
+		
+		// special case if timestamp is null
+		if (ts == null)
 		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-				payloadBuffer.put((byte)0);
-			}
-			byte[] array = (byte[])value;
-			for (int i = 0; i < count; i++)
-				payloadBuffer.put(array[i]);
+			payloadBuffer.putInt(0);
+			payloadBuffer.putInt(0);
 		}
-		else if (dataType == DBRType.PUT_ACKT ||
-				 dataType == DBRType.PUT_ACKS)
+		else
 		{
-			if (count <= 0)
-			{
-				// Even if the array is empty, there has to be at least one element in the payload.
-				payloadBuffer.putShort((short)0);
-			}
-			short[] array = (short[])value;
-			for (int i = 0; i < count; i++)
-				payloadBuffer.putShort(array[i]);
+			payloadBuffer.putInt((int)ts.secPastEpoch());
+			payloadBuffer.putInt((int)ts.nsec());
 		}
-		else
-			throw new IllegalArgumentException("Unsupported data type: " + dataType);
+	}
 
+	/**
+	 * Put ackT and ackS.
+	 * @param payloadBuffer payload buffer.
+	 * @param ack DBR.
+	 */
+	private static void putAck(ByteBuffer payloadBuffer, ACK ack)
+	{
+		payloadBuffer.putShort(ack.getAckT() ? (short)1 : (short)0);
+		
+		Severity severity = ack.getAckS();
+		if (severity == null)
+			payloadBuffer.putShort((short)Severity.INVALID_ALARM.getValue());
+		else
+			payloadBuffer.putShort((short)severity.getValue());
 	}
 
 	/**
-	 * Insert DBR payload.
-	 * NOTE: non-null CTRL, GR values required.
-	 * @param dataTypeValue
-	 * @param dataCount
-	 * @param value
+	 * Put precision (followed by RISC padding).
+	 * @param payloadBuffer payload buffer.
+	 * @param precision DBR.
 	 */
-	// TODO optimize!!!
-	public static void insertPayload(ByteBuffer payloadBuffer, short dataTypeValue, int dataCount, DBR value)
+	private static void putPrecision(ByteBuffer payloadBuffer, PRECISION precision)
 	{
-		DBRType dataType = DBRType.forValue(dataTypeValue);
-		if (dataType == null)
-			throw new IllegalArgumentException("Invalid data type value: " + dataTypeValue);
+		payloadBuffer.putShort(precision.getPrecision());
+		// RISC padding
+		payloadBuffer.putShort((short)0);
+	}
 
-		if (dataType.isSTS())
+	/**
+	 * Put units.
+	 * @param payloadBuffer payload buffer.
+	 * @param gr DBR.
+	 */
+	private static void putUnits(ByteBuffer payloadBuffer, GR gr)
+	{
+		String units = gr.getUnits();
+		if (units == null)
 		{
-			STS sts = (STS)value;
-
-			Status status = sts.getStatus(); 
-			if (status == null)
-				payloadBuffer.putShort((short)Status.UDF_ALARM.getValue());
-			else
-				payloadBuffer.putShort((short)status.getValue());
-			
-			Severity severity = sts.getSeverity();
-			if (severity == null)
-				payloadBuffer.putShort((short)Severity.INVALID_ALARM.getValue());
-			else
-				payloadBuffer.putShort((short)severity.getValue());
+			payloadBuffer.put(EMPTY_UNITS);
+			return;
 		}
+
+		byte[] unitsBytes = units.getBytes();
+		int toCopy = Math.min(MAX_UNITS_SIZE-1, unitsBytes.length);
+		payloadBuffer.put(unitsBytes, 0, toCopy);
+		payloadBuffer.put(EMPTY_UNITS, 0, MAX_UNITS_SIZE - toCopy);
+	}
+
+	/**
+	 * Put enum labels.
+	 * @param payloadBuffer payload buffer.
+	 * @param labels DBR.
+	 */
+	private static void putLabels(ByteBuffer payloadBuffer, LABELS labels)
+	{
+		String[] labelsArray = labels.getLabels();
+		final int count = (labelsArray != null) ? Math.min(labelsArray.length, MAX_ENUM_STATES) : 0;
+
+		payloadBuffer.putShort((short)count);
 		
-		// special case DBR_STSACK_String
-		if (dataType == DBRType.STSACK_STRING)
+		for (int i = 0; i < count; i++)
 		{
-			ACK ack = (ACK)value;
-
-			payloadBuffer.putShort(ack.getAckT() ? (short)1 : (short)0);
-			
-			Severity severity = ack.getAckS();
-			if (severity == null)
-				payloadBuffer.putShort((short)Severity.INVALID_ALARM.getValue());
+			String label = labelsArray[i];
+			if (label == null)
+				payloadBuffer.put(EMPTY_LABEL);
 			else
-				payloadBuffer.putShort((short)severity.getValue());
+			{
+				// check (and fix) length, watch for zero terminator
+				byte[] labelBytes = label.getBytes();
+				int labelLen = Math.min(labelBytes.length, MAX_ENUM_STRING_SIZE - 1);
+				payloadBuffer.put(labelBytes, 0, labelLen);
+				payloadBuffer.put(EMPTY_LABEL, 0, MAX_ENUM_STRING_SIZE - labelLen);
+			}
 		}
-		// special case DBR_LABELS_Enum
-		else if (dataType.isLABELS())
-		{
-			LABELS labels = (LABELS)value;
 			
-			String[] labelsArray = labels.getLabels();
-			final int count = (labelsArray != null) ? labelsArray.length : 0;
+		// fill the rest
+		final int labelsLeft = (MAX_ENUM_STATES - count);
+		for (int i = 0; i < labelsLeft; i++)
+			payloadBuffer.put(EMPTY_LABEL);
+	}
 
-			payloadBuffer.putShort((short)count);
-			
-			final int MAX_ENUM_STRING_SIZE = 26;
-			final int MAX_ENUM_STATES = 16;
-			final byte[] EMPTY_LABEL = new byte[MAX_ENUM_STRING_SIZE];
-			
-			for (int i = 0; i < count; i++)
-			{
-				String label = labelsArray[i];
-				if (label == null)
-					payloadBuffer.put(EMPTY_LABEL);
-				else
-				{
-					// check (and fix) length, watch for zero terminator
-					int labelLen = label.length();
-					if (labelLen >= MAX_ENUM_STRING_SIZE)
-					{
-						labelLen = MAX_ENUM_STATES - 1;
-						label = label.substring(0, labelLen);
-					}
-					
-					// insert label
-					payloadBuffer.put(label.getBytes());
-					for (int j = labelLen; j < MAX_ENUM_STRING_SIZE; j++)
-						payloadBuffer.put((byte)0);
-				}
-			}
-				
-			// fill the rest
-			final int labelsLeft = (MAX_ENUM_STATES - count);
-			for (int i = 0; i < labelsLeft; i++)
-				payloadBuffer.put(EMPTY_LABEL);
-				
-		}
-		else
-		{
-		
-			// RISC padding
-			if (dataType == DBRType.STS_BYTE)
+	/**
+	 * Put (graphic) short limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param gr DBR.
+	 */
+	private static void putShortLimits(ByteBuffer payloadBuffer, GR gr)
+	{
+		payloadBuffer.putShort(gr.getUpperDispLimit().shortValue());
+		payloadBuffer.putShort(gr.getLowerDispLimit().shortValue());
+		payloadBuffer.putShort(gr.getUpperAlarmLimit().shortValue());
+		payloadBuffer.putShort(gr.getUpperWarningLimit().shortValue());
+		payloadBuffer.putShort(gr.getLowerWarningLimit().shortValue());
+		payloadBuffer.putShort(gr.getLowerAlarmLimit().shortValue());
+	}
+
+	/**
+	 * Put (control) short limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param ctrl DBR.
+	 */
+	private static void putShortCtrlLimits(ByteBuffer payloadBuffer, CTRL ctrl)
+	{
+		payloadBuffer.putShort(ctrl.getUpperCtrlLimit().shortValue());
+		payloadBuffer.putShort(ctrl.getLowerCtrlLimit().shortValue());
+	}
+
+	/**
+	 * Put (graphic) float limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param gr DBR.
+	 */
+	private static void putFloatLimits(ByteBuffer payloadBuffer, GR gr)
+	{
+		payloadBuffer.putFloat(gr.getUpperDispLimit().floatValue());
+		payloadBuffer.putFloat(gr.getLowerDispLimit().floatValue());
+		payloadBuffer.putFloat(gr.getUpperAlarmLimit().floatValue());
+		payloadBuffer.putFloat(gr.getUpperWarningLimit().floatValue());
+		payloadBuffer.putFloat(gr.getLowerWarningLimit().floatValue());
+		payloadBuffer.putFloat(gr.getLowerAlarmLimit().floatValue());
+	}
+
+	/**
+	 * Put (control) float limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param ctrl DBR.
+	 */
+	private static void putFloatCtrlLimits(ByteBuffer payloadBuffer, CTRL ctrl)
+	{
+		payloadBuffer.putFloat(ctrl.getUpperCtrlLimit().floatValue());
+		payloadBuffer.putFloat(ctrl.getLowerCtrlLimit().floatValue());
+	}
+
+	/**
+	 * Put (graphic) byte limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param gr DBR.
+	 */
+	private static void putByteLimits(ByteBuffer payloadBuffer, GR gr)
+	{
+		payloadBuffer.put(gr.getUpperDispLimit().byteValue());
+		payloadBuffer.put(gr.getLowerDispLimit().byteValue());
+		payloadBuffer.put(gr.getUpperAlarmLimit().byteValue());
+		payloadBuffer.put(gr.getUpperWarningLimit().byteValue());
+		payloadBuffer.put(gr.getLowerWarningLimit().byteValue());
+		payloadBuffer.put(gr.getLowerAlarmLimit().byteValue());
+	}
+
+	/**
+	 * Put (control) byte limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param ctrl DBR.
+	 */
+	private static void putByteCtrlLimits(ByteBuffer payloadBuffer, CTRL ctrl)
+	{
+		payloadBuffer.put(ctrl.getUpperCtrlLimit().byteValue());
+		payloadBuffer.put(ctrl.getLowerCtrlLimit().byteValue());
+	}
+
+	/**
+	 * Put (graphic) int limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param gr DBR.
+	 */
+	private static void putIntLimits(ByteBuffer payloadBuffer, GR gr)
+	{
+		payloadBuffer.putInt(gr.getUpperDispLimit().intValue());
+		payloadBuffer.putInt(gr.getLowerDispLimit().intValue());
+		payloadBuffer.putInt(gr.getUpperAlarmLimit().intValue());
+		payloadBuffer.putInt(gr.getUpperWarningLimit().intValue());
+		payloadBuffer.putInt(gr.getLowerWarningLimit().intValue());
+		payloadBuffer.putInt(gr.getLowerAlarmLimit().intValue());
+	}
+
+	/**
+	 * Put (control) int limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param ctrl DBR.
+	 */
+	private static void putIntCtrlLimits(ByteBuffer payloadBuffer, CTRL ctrl)
+	{
+		payloadBuffer.putInt(ctrl.getUpperCtrlLimit().intValue());
+		payloadBuffer.putInt(ctrl.getLowerCtrlLimit().intValue());
+	}
+
+	/**
+	 * Put (graphic) double limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param gr DBR.
+	 */
+	private static void putDoubleLimits(ByteBuffer payloadBuffer, GR gr)
+	{
+		payloadBuffer.putDouble(gr.getUpperDispLimit().doubleValue());
+		payloadBuffer.putDouble(gr.getLowerDispLimit().doubleValue());
+		payloadBuffer.putDouble(gr.getUpperAlarmLimit().doubleValue());
+		payloadBuffer.putDouble(gr.getUpperWarningLimit().doubleValue());
+		payloadBuffer.putDouble(gr.getLowerWarningLimit().doubleValue());
+		payloadBuffer.putDouble(gr.getLowerAlarmLimit().doubleValue());
+	}
+
+	/**
+	 * Put (control) double limits.
+	 * @param payloadBuffer payload buffer.
+	 * @param ctrl DBR.
+	 */
+	private static void putDoubleCtrlLimits(ByteBuffer payloadBuffer, CTRL ctrl)
+	{
+		payloadBuffer.putDouble(ctrl.getUpperCtrlLimit().doubleValue());
+		payloadBuffer.putDouble(ctrl.getLowerCtrlLimit().doubleValue());
+	}
+
+	/*
+	 * Encoders (RISC padding is inserted where needed).
+	 * NOTE: metadata is accessed via interfaces, since DBR given might be a subclass of the requested type.
+	 */
+	static {
+
+		// normal (value only)
+
+		register(DBRType.STRING, new StringEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStrings(payloadBuffer, dataCount, (String[])value.getValue());
+			}
+		});
+		register(DBRType.SHORT, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.FLOAT, new FloatEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putFloats(payloadBuffer, dataCount, (float[])value.getValue());
+			}
+		});
+		register(DBRType.ENUM, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.BYTE, new ByteEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putBytes(payloadBuffer, dataCount, (byte[])value.getValue());
+			}
+		});
+		register(DBRType.INT, new IntEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putInts(payloadBuffer, dataCount, (int[])value.getValue());
+			}
+		});
+		register(DBRType.DOUBLE, new DoubleEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putDoubles(payloadBuffer, dataCount, (double[])value.getValue());
+			}
+		});
+
+		// status
+
+		register(DBRType.STS_STRING, new StringEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putStrings(payloadBuffer, dataCount, (String[])value.getValue());
+			}
+		});
+		register(DBRType.STS_SHORT, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.STS_FLOAT, new FloatEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putFloats(payloadBuffer, dataCount, (float[])value.getValue());
+			}
+		});
+		register(DBRType.STS_ENUM, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.STS_BYTE, new ByteEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
 				payloadBuffer.put((byte)0);
-			else if (dataType == DBRType.STS_DOUBLE)
+				putBytes(payloadBuffer, dataCount, (byte[])value.getValue());
+			}
+		});
+		register(DBRType.STS_INT, new IntEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putInts(payloadBuffer, dataCount, (int[])value.getValue());
+			}
+		});
+		register(DBRType.STS_DOUBLE, new DoubleEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
 				payloadBuffer.putInt(0);
-			
-			// GR is not actually a TIME, TODO clean up this mess
-			if (dataType.isTIME() && !dataType.isGR() && 
-					!(dataTypeValue == 21 || dataTypeValue == 28))     // not GR_STRING, CTRL_STRING
-			{
-				TIME time = (TIME)value;
-				TimeStamp ts = time.getTimeStamp();
-				
-				// speical case if timestamp is null
-				if (ts == null)
-				{
-					payloadBuffer.putInt(0);
-					payloadBuffer.putInt(0);
-				}
-				else
-				{
-					payloadBuffer.putInt((int)ts.secPastEpoch());
-					payloadBuffer.putInt((int)ts.nsec());
-				}
+				putDoubles(payloadBuffer, dataCount, (double[])value.getValue());
 			}
-			
-			// RISC padding
-			if (dataType == DBRType.TIME_SHORT ||
-				dataType == DBRType.TIME_ENUM)
+		});
+
+		// time
+
+		register(DBRType.TIME_STRING, new StringEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putTimeStamp(payloadBuffer, (TIME)value);
+				putStrings(payloadBuffer, dataCount, (String[])value.getValue());
+			}
+		});
+		register(DBRType.TIME_SHORT, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putTimeStamp(payloadBuffer, (TIME)value);
 				payloadBuffer.putShort((short)0);
-			else if (dataType == DBRType.TIME_BYTE)
-			{
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.TIME_FLOAT, new FloatEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putTimeStamp(payloadBuffer, (TIME)value);
+				putFloats(payloadBuffer, dataCount, (float[])value.getValue());
+			}
+		});
+		register(DBRType.TIME_ENUM, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putTimeStamp(payloadBuffer, (TIME)value);
+				payloadBuffer.putShort((short)0);
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.TIME_BYTE, new ByteEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putTimeStamp(payloadBuffer, (TIME)value);
 				payloadBuffer.putShort((short)0);
 				payloadBuffer.put((byte)0);
+				putBytes(payloadBuffer, dataCount, (byte[])value.getValue());
+			}
+		});
+		register(DBRType.TIME_INT, new IntEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putTimeStamp(payloadBuffer, (TIME)value);
+				putInts(payloadBuffer, dataCount, (int[])value.getValue());
 			}
-			else if (dataType == DBRType.TIME_DOUBLE)
+		});
+		register(DBRType.TIME_DOUBLE, new DoubleEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putTimeStamp(payloadBuffer, (TIME)value);
 				payloadBuffer.putInt(0);
-	
-			if (dataType.isGR()) 
-			{
-				
-				if (dataType.isPRECISION())
-				{
-					PRECISION precision = (PRECISION)value;
-					payloadBuffer.putShort(precision.getPrecision());
-					// RISC padding
-					payloadBuffer.putShort((short)0);
-				}
-				
-				GR gr = (GR)value;
-	
-				// write units
-				final int MAX_UNITS_SIZE = 8;
-				String units = gr.getUnits();
-				int unitsLength = units.length();
-				int toCopy = Math.min(MAX_UNITS_SIZE-1, unitsLength);
-				payloadBuffer.put(units.getBytes(), 0, toCopy);
-				
-				final int zeros = MAX_UNITS_SIZE - toCopy;
-				for (int i = zeros; i > 0; i--)
-					payloadBuffer.put((byte)0);
-				
-				if (dataType.isSHORT())
-				{
-					payloadBuffer.putShort(gr.getUpperDispLimit().shortValue());
-					payloadBuffer.putShort(gr.getLowerDispLimit().shortValue());
-					payloadBuffer.putShort(gr.getUpperAlarmLimit().shortValue());
-					payloadBuffer.putShort(gr.getUpperWarningLimit().shortValue());
-					payloadBuffer.putShort(gr.getLowerWarningLimit().shortValue());
-					payloadBuffer.putShort(gr.getLowerAlarmLimit().shortValue());
-				}
-				else if (dataType.isFLOAT())
-				{
-					payloadBuffer.putFloat(gr.getUpperDispLimit().floatValue());
-					payloadBuffer.putFloat(gr.getLowerDispLimit().floatValue());
-					payloadBuffer.putFloat(gr.getUpperAlarmLimit().floatValue());
-					payloadBuffer.putFloat(gr.getUpperWarningLimit().floatValue());
-					payloadBuffer.putFloat(gr.getLowerWarningLimit().floatValue());
-					payloadBuffer.putFloat(gr.getLowerAlarmLimit().floatValue());
-				}
-				else if (dataType.isBYTE())
-				{
-					payloadBuffer.put(gr.getUpperDispLimit().byteValue());
-					payloadBuffer.put(gr.getLowerDispLimit().byteValue());
-					payloadBuffer.put(gr.getUpperAlarmLimit().byteValue());
-					payloadBuffer.put(gr.getUpperWarningLimit().byteValue());
-					payloadBuffer.put(gr.getLowerWarningLimit().byteValue());
-					payloadBuffer.put(gr.getLowerAlarmLimit().byteValue());
-				}
-				else if (dataType.isINT())
-				{
-					payloadBuffer.putInt(gr.getUpperDispLimit().intValue());
-					payloadBuffer.putInt(gr.getLowerDispLimit().intValue());
-					payloadBuffer.putInt(gr.getUpperAlarmLimit().intValue());
-					payloadBuffer.putInt(gr.getUpperWarningLimit().intValue());
-					payloadBuffer.putInt(gr.getLowerWarningLimit().intValue());
-					payloadBuffer.putInt(gr.getLowerAlarmLimit().intValue());
-				}
-				else if (dataType.isDOUBLE())
-				{
-					payloadBuffer.putDouble(gr.getUpperDispLimit().doubleValue());
-					payloadBuffer.putDouble(gr.getLowerDispLimit().doubleValue());
-					payloadBuffer.putDouble(gr.getUpperAlarmLimit().doubleValue());
-					payloadBuffer.putDouble(gr.getUpperWarningLimit().doubleValue());
-					payloadBuffer.putDouble(gr.getLowerWarningLimit().doubleValue());
-					payloadBuffer.putDouble(gr.getLowerAlarmLimit().doubleValue());
-				}
-	
+				putDoubles(payloadBuffer, dataCount, (double[])value.getValue());
 			}
-			
-			if (dataType.isCTRL()) 
-			{
-				CTRL ctrl = (CTRL)value;
-	
-				if (dataType.isSHORT())
-				{
-					payloadBuffer.putShort(ctrl.getUpperCtrlLimit().shortValue());
-					payloadBuffer.putShort(ctrl.getLowerCtrlLimit().shortValue());
-				}
-				else if (dataType.isFLOAT())
-				{
-					payloadBuffer.putFloat(ctrl.getUpperCtrlLimit().floatValue());
-					payloadBuffer.putFloat(ctrl.getLowerCtrlLimit().floatValue());
-				}
-				else if (dataType.isBYTE())
-				{
-					payloadBuffer.put(ctrl.getUpperCtrlLimit().byteValue());
-					payloadBuffer.put(ctrl.getLowerCtrlLimit().byteValue());
-				}
-				else if (dataType.isINT())
-				{
-					payloadBuffer.putInt(ctrl.getUpperCtrlLimit().intValue());
-					payloadBuffer.putInt(ctrl.getLowerCtrlLimit().intValue());
-				}
-				else if (dataType.isDOUBLE())
-				{
-					payloadBuffer.putDouble(ctrl.getUpperCtrlLimit().doubleValue());
-					payloadBuffer.putDouble(ctrl.getLowerCtrlLimit().doubleValue());
-				}
+		});
+
+		// graphics (GR_STRING is actually a STS)
+
+		register(DBRType.GR_STRING, new StringEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putStrings(payloadBuffer, dataCount, (String[])value.getValue());
+			}
+		});
+		register(DBRType.GR_SHORT, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putUnits(payloadBuffer, (GR)value);
+				putShortLimits(payloadBuffer, (GR)value);
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.GR_FLOAT, new FloatEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putPrecision(payloadBuffer, (PRECISION)value);
+				putUnits(payloadBuffer, (GR)value);
+				putFloatLimits(payloadBuffer, (GR)value);
+				putFloats(payloadBuffer, dataCount, (float[])value.getValue());
 			}
+		});
+		register(DBRType.LABELS_ENUM, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putLabels(payloadBuffer, (LABELS)value);
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.GR_BYTE, new ByteEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putUnits(payloadBuffer, (GR)value);
+				putByteLimits(payloadBuffer, (GR)value);
+				payloadBuffer.put((byte)0);
+				putBytes(payloadBuffer, dataCount, (byte[])value.getValue());
+			}
+		});
+		register(DBRType.GR_INT, new IntEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putUnits(payloadBuffer, (GR)value);
+				putIntLimits(payloadBuffer, (GR)value);
+				putInts(payloadBuffer, dataCount, (int[])value.getValue());
+			}
+		});
+		register(DBRType.GR_DOUBLE, new DoubleEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putPrecision(payloadBuffer, (PRECISION)value);
+				putUnits(payloadBuffer, (GR)value);
+				putDoubleLimits(payloadBuffer, (GR)value);
+				putDoubles(payloadBuffer, dataCount, (double[])value.getValue());
+			}
+		});
 
-		}
-		
-		// RISC padding
-		if (dataType == DBRType.GR_BYTE ||
-		    dataType == DBRType.CTRL_BYTE)
-			payloadBuffer.put((byte)0);
+		// control (CTRL_STRING is actually a STS, CTRL_ENUM is actually a LABELS)
+
+		register(DBRType.CTRL_STRING, new StringEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putStrings(payloadBuffer, dataCount, (String[])value.getValue());
+			}
+		});
+		register(DBRType.CTRL_SHORT, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putUnits(payloadBuffer, (GR)value);
+				putShortLimits(payloadBuffer, (GR)value);
+				putShortCtrlLimits(payloadBuffer, (CTRL)value);
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.CTRL_FLOAT, new FloatEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putPrecision(payloadBuffer, (PRECISION)value);
+				putUnits(payloadBuffer, (GR)value);
+				putFloatLimits(payloadBuffer, (GR)value);
+				putFloatCtrlLimits(payloadBuffer, (CTRL)value);
+				putFloats(payloadBuffer, dataCount, (float[])value.getValue());
+			}
+		});
+		register(DBRType.CTRL_ENUM, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putLabels(payloadBuffer, (LABELS)value);
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.CTRL_BYTE, new ByteEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putUnits(payloadBuffer, (GR)value);
+				putByteLimits(payloadBuffer, (GR)value);
+				putByteCtrlLimits(payloadBuffer, (CTRL)value);
+				payloadBuffer.put((byte)0);
+				putBytes(payloadBuffer, dataCount, (byte[])value.getValue());
+			}
+		});
+		register(DBRType.CTRL_INT, new IntEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putUnits(payloadBuffer, (GR)value);
+				putIntLimits(payloadBuffer, (GR)value);
+				putIntCtrlLimits(payloadBuffer, (CTRL)value);
+				putInts(payloadBuffer, dataCount, (int[])value.getValue());
+			}
+		});
+		register(DBRType.CTRL_DOUBLE, new DoubleEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putPrecision(payloadBuffer, (PRECISION)value);
+				putUnits(payloadBuffer, (GR)value);
+				putDoubleLimits(payloadBuffer, (GR)value);
+				putDoubleCtrlLimits(payloadBuffer, (CTRL)value);
+				putDoubles(payloadBuffer, dataCount, (double[])value.getValue());
+			}
+		});
+
+		// ackT, ackS, stsAckString
 
-		// write values
-		insertPayload(payloadBuffer, dataTypeValue, dataCount, value.getValue());
+		register(DBRType.PUT_ACKT, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.PUT_ACKS, new ShortEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putShorts(payloadBuffer, dataCount, (short[])value.getValue());
+			}
+		});
+		register(DBRType.STSACK_STRING, new StringEncoder() {
+			void insertDBR(ByteBuffer payloadBuffer, int dataCount, DBR value) {
+				putStatus(payloadBuffer, (STS)value);
+				putAck(payloadBuffer, (ACK)value);
+				putStrings(payloadBuffer, dataCount, (String[])value.getValue());
+			}
+		});
 	}
 
 }
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.impl;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pending (synchronous) requests counter, i.e. scope of <code>pendIO()</code> or of a sync. group.
+ * Requests decrement the counter only if issued in the current IO session (sequence number),
+ * <code>reset()</code> starts a new session.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class PendingRequestsCounter {
+
+	/**
+	 * Pending requests counter.
+	 */
+	private final AtomicInteger pendingRequestsCount = new AtomicInteger(0);
+
+	/**
+	 * IO sequence number (to prevent future IO request to interfere with current session).
+	 */
+	private final AtomicInteger sequenceNumberIO = new AtomicInteger(0);
+
+	/**
+	 * Zero pending requests condition - triggered when counter drops to 0.
+	 */
+	private final Object zeroPendingRequestsCondition = new Object();
+
+	/**
+	 * Disposed flag, stops waiting.
+	 */
+	private volatile boolean disposed = false;
+
+	/**
+	 * Increment pending requests counter.
+	 * @return IO sequence number (session sequence number).
+	 */
+	public int incrementPendingRequests()
+	{
+		synchronized (sequenceNumberIO)
+		{
+			pendingRequestsCount.incrementAndGet();
+			return sequenceNumberIO.get();
+		}
+	}
+
+	/**
+	 * Decrement pending requests counter.
+	 * @param usedSequenceNumberIO	IO sequence number returned by incrementPendingRequests
+	 */
+	public void decrementPendingRequests(int usedSequenceNumberIO)
+	{
+		if (usedSequenceNumberIO == sequenceNumberIO.get())
+		{
+			int count = pendingRequestsCount.decrementAndGet();
+
+			// notify if zero
+			if (count == 0)
+			{
+				synchronized (zeroPendingRequestsCondition)
+				{
+					zeroPendingRequestsCondition.notifyAll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get number of pending requests.
+	 * @return number of pending requests.
+	 */
+	public int getPendingRequests()
+	{
+		return pendingRequestsCount.get();
+	}
+
+	/**
+	 * Wait until there are no pending requests.
+	 * @param timeout timeout in seconds, 0 means wait forever, negative no waiting.
+	 * @param startTime time (in ms) timeout is measured from.
+	 * @return time left to wait (in ms) when timed waiting ended, 0 otherwise.
+	 * @throws InterruptedException
+	 */
+	public long waitForZero(double timeout, long startTime) throws InterruptedException
+	{
+		long timeToWaitInMS = 0;
+		if (timeout >= 0.0)
+		{
+			synchronized (zeroPendingRequestsCondition)
+			{
+				// wait until completed
+				if (timeout == 0.0)
+				{
+					while (pendingRequestsCount.get() > 0 && !disposed)
+						zeroPendingRequestsCondition.wait();
+				}
+				else
+				{
+					final long endTime = startTime + (long)(timeout*1000);
+					while (pendingRequestsCount.get() > 0 && (timeToWaitInMS = (endTime - System.currentTimeMillis())) > 0 && !disposed)
+					{
+						zeroPendingRequestsCondition.wait(timeToWaitInMS);
+					}
+				}
+			}
+		}
+		return timeToWaitInMS;
+	}
+
+	/**
+	 * Reset pending requests counter and increase sequence number (new session).
+	 * @return number of requests that were still pending.
+	 */
+	public int reset()
+	{
+		synchronized (sequenceNumberIO)
+		{
+			sequenceNumberIO.incrementAndGet();
+			return pendingRequestsCount.getAndSet(0);
+		}
+	}
+
+	/**
+	 * Dispose, stops all the waiting.
+	 */
+	public void dispose()
+	{
+		disposed = true;
+		synchronized (zeroPendingRequestsCondition)
+		{
+			zeroPendingRequestsCondition.notifyAll();
+		}
+	}
+
+	/**
+	 * Check if disposed.
+	 * @return <code>true</code> if disposed.
+	 */
+	public boolean isDisposed()
+	{
+		return disposed;
+	}
+
+}
@@ -51,7 +51,8 @@ public interface Request {
 	public byte getPriority();
 	
 	/**
-	 * Get request message to be sent.
+	 * Get request message to be sent (data from 0 to position).
+	 * NOTE: transport enqueues the message without copying it, the content must not be modified until sent.
 	 * @return	request message to be sent.
 	 */
 	public ByteBuffer getRequestMessage();
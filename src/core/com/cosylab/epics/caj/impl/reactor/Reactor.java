@@ -231,11 +231,28 @@ public class Reactor {
 	 */
 	private volatile Object shutdownMonitor = new Object();
 
+	/**
+	 * Process whole selected key set per select flag (otherwise only one key is processed).
+	 */
+	private final boolean processSelectedKeySet;
+
 	/**
 	 * Creates a new instance of reactor.
 	 * @throws IOException
 	 */  
 	public Reactor() throws IOException {
+		this(false);
+	}
+
+	/**
+	 * Creates a new instance of reactor.
+	 * @param processSelectedKeySet	process whole selected key set per select, to be used only if
+	 * 								reactor is processed by a single thread (i.e. no leader/followers pattern);
+	 * 								otherwise only one key is processed per select (to support concurrent processing).
+	 * @throws IOException
+	 */  
+	public Reactor(boolean processSelectedKeySet) throws IOException {
+		this.processSelectedKeySet = processSelectedKeySet;
 		initialize();
 	}
 
@@ -377,31 +394,35 @@ public class Reactor {
 
 			Iterator selectedKeys = selector.selectedKeys().iterator();
 			
-			// process only one request per select (to support concurrent processing)
-			SelectionKey selectedKey = (SelectionKey) selectedKeys.next();
-
-			// the definition of OP_WRITE in select agrees with the Unix definition, ie. not edge triggered like Win32
-			// this means that you must add and remove OP_WRITE from the interestOps depending on the actual ability to write
-			// clear SelectionKey.OP_WRITE here...
-			int ops = 0;
-			try
+			if (processSelectedKeySet)
 			{
-				ops = selectedKey.interestOps(); 
-				if ((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE)
-				    selectedKey.interestOps(ops & (~SelectionKey.OP_WRITE));
-			} catch (CancelledKeyException cke) {
-				// noop
+				// process all the selected keys (single processing thread)
+				while (selectedKeys.hasNext())
+				{
+					SelectionKey selectedKey = (SelectionKey) selectedKeys.next();
+					selectedKeys.remove();
+					try
+					{
+						dispatch(selectedKey);
+					}
+					catch (Throwable th)
+					{
+						// TODO report exception
+						logger.log(Level.SEVERE, "", th);
+					}
+				}
+				return;
 			}
 			
-			// get handler as attachment
-			ReactorHandler handler = (ReactorHandler) selectedKey.attachment();
+			// process only one request per select (to support concurrent processing)
+			SelectionKey selectedKey = (SelectionKey) selectedKeys.next();
 
 			// request accepted, remove key from set
 			// NOTE: this has to be done before processing (to support concurrent processing)
 			selectedKeys.remove();
 			
 			// process request
-			handler.handleEvent(selectedKey);
+			dispatch(selectedKey);
 			
 		}
 		catch (Throwable th)
@@ -413,6 +434,32 @@ public class Reactor {
 		//System.err.println("[processInternal done] " + Thread.currentThread().getName());
 	}
 	
+	/**
+	 * Dispatch selected key to its handler.
+	 * @param selectedKey	selected key (already removed from the selected key set).
+	 */
+	private void dispatch(SelectionKey selectedKey)
+	{
+		// the definition of OP_WRITE in select agrees with the Unix definition, ie. not edge triggered like Win32
+		// this means that you must add and remove OP_WRITE from the interestOps depending on the actual ability to write
+		// clear SelectionKey.OP_WRITE here...
+		int ops = 0;
+		try
+		{
+			ops = selectedKey.interestOps(); 
+			if ((ops & SelectionKey.OP_WRITE) == SelectionKey.OP_WRITE)
+			    selectedKey.interestOps(ops & (~SelectionKey.OP_WRITE));
+		} catch (CancelledKeyException cke) {
+			// noop
+		}
+		
+		// get handler as attachment
+		ReactorHandler handler = (ReactorHandler) selectedKey.attachment();
+
+		// process request
+		handler.handleEvent(selectedKey);
+	}
+	
 	/**
 	 * Deregisters <code>SelectableChannel</code> from the reactor.
 	 * @param selectableChannel	channel to be unregistered.
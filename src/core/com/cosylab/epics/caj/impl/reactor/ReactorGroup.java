@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.impl.reactor;
+
+import java.io.IOException;
+import java.net.SocketAddress;
+
+/**
+ * Group of reactors (shards), each owning a disjoint set of channels and processed by its own thread.
+ * Every reactor processes whole selected key set per select (no leader/followers hand-off).
+ * Channels are assigned to reactors consistently by their (remote) address.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class ReactorGroup {
+
+	/**
+	 * Reactors.
+	 */
+	private final Reactor[] reactors;
+
+	/**
+	 * Constructor, creates reactors and starts their processing threads.
+	 * @param size number of reactors, if &lt;= 0 number of available processors is used.
+	 * @param threadName name of the processing threads (index is appended).
+	 * @throws IOException
+	 */
+	public ReactorGroup(int size, String threadName) throws IOException {
+		if (size <= 0)
+			size = Runtime.getRuntime().availableProcessors();
+
+		reactors = new Reactor[size];
+		try
+		{
+			for (int i = 0; i < size; i++)
+				reactors[i] = new Reactor(true);
+		}
+		catch (IOException ioex)
+		{
+			shutdown();
+			throw ioex;
+		}
+
+		for (int i = 0; i < size; i++)
+		{
+			final Reactor reactor = reactors[i];
+			Thread thread = new Thread(
+			        new Runnable() {
+			            /**
+			        	 * @see java.lang.Runnable#run()
+			        	 */
+			        	public void run() {
+			        		// do the work
+			        		while (reactor.process());
+			        	}
+
+			        }, threadName + " " + (i + 1));
+			thread.setDaemon(true);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Get reactor (shard) for given address, the same address is always mapped to the same reactor.
+	 * @param address (remote) address of the channel.
+	 * @return reactor.
+	 */
+	public Reactor getReactor(SocketAddress address) {
+		if (reactors.length == 1 || address == null)
+			return reactors[0];
+
+		// spread (Fibonacci hashing)
+		final int hash = address.hashCode() * 0x9E3779B9;
+		return reactors[(hash >>> 1) % reactors.length];
+	}
+
+	/**
+	 * Get all the reactors.
+	 * @return reactors.
+	 */
+	public Reactor[] getReactors() {
+		return reactors;
+	}
+
+	/**
+	 * Get number of reactors.
+	 * @return number of reactors.
+	 */
+	public int size() {
+		return reactors.length;
+	}
+
+	/**
+	 * Shutdown all the reactors.
+	 */
+	public void shutdown() {
+		for (int i = 0; i < reactors.length; i++)
+			if (reactors[i] != null)
+				reactors[i].shutdown();
+	}
+
+}
@@ -22,10 +22,12 @@ import gov.aps.jca.event.MonitorEvent;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.logging.Level;
 
 import com.cosylab.epics.caj.CAJChannel;
 import com.cosylab.epics.caj.CAJContext;
 import com.cosylab.epics.caj.CAJMonitor;
+import com.cosylab.epics.caj.MonitorPayloadListener;
 import com.cosylab.epics.caj.impl.CAConstants;
 import com.cosylab.epics.caj.impl.DBRDecoder;
 import com.cosylab.epics.caj.impl.NotifyResponseRequest;
@@ -193,8 +195,26 @@ public class EventAddRequest extends AbstractCARequest implements NotifyResponse
 		if (caStatus == CAStatus.NORMAL)     
 		{
 			subscriptionUpdateNeeded = false;
-			if (dataPayloadBuffer.limit() > 0)
+			if (dataPayloadBuffer.hasRemaining())
+			{
+				// raw payload (synchronous, no decoding)
+				MonitorPayloadListener payloadListener = monitor.getPayloadListener();
+				if (payloadListener != null)
+				{
+					notifyPayloadListener(payloadListener, dataType, dataCount, dataPayloadBuffer);
+					
+					// nobody is interested in decoded value
+					if (!monitor.hasMonitorListeners())
+						return;
+				}
+				
+				// reuse DBR, if set and consistent
+				DBR decodeTarget = monitor.getDecodeTarget();
+				if (decodeTarget != null && decodeTarget.getType().getValue() == dataType && decodeTarget.getCount() == dataCount)
+					readVal = decodeTarget;
+
 				readVal = DBRDecoder.getDBR(readVal, dataType, dataCount, dataPayloadBuffer);
+			}
 			else
 			{
 				// TODO is this OK, but is this OK for older/other versions?!
@@ -216,6 +236,26 @@ public class EventAddRequest extends AbstractCARequest implements NotifyResponse
 			);
 	}
 
+	/**
+	 * Notify payload listener with a read-only view of the payload.
+	 * @param payloadListener listener to notify.
+	 * @param dataType data type.
+	 * @param dataCount data count.
+	 * @param dataPayloadBuffer payload buffer (its position is not changed).
+	 */
+	private void notifyPayloadListener(MonitorPayloadListener payloadListener, short dataType, int dataCount, ByteBuffer dataPayloadBuffer)
+	{
+		try
+		{
+			payloadListener.payloadReceived(monitor, DBRType.forValue(dataType), dataCount,
+					dataPayloadBuffer.slice().asReadOnlyBuffer());
+		}
+		catch (Throwable th)
+		{
+			context.getLogger().log(Level.WARNING, "Unexpected exception caught while notifying monitor payload listener.", th);
+		}
+	}
+
 	/**
 	 * @see com.cosylab.epics.caj.impl.ResponseRequest#cancel()
 	 */
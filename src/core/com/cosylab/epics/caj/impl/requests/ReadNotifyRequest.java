@@ -15,6 +15,7 @@
 package com.cosylab.epics.caj.impl.requests;
 
 import gov.aps.jca.CAStatus;
+import gov.aps.jca.CAStatusException;
 import gov.aps.jca.dbr.DBR;
 import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.event.ContextExceptionEvent;
@@ -23,11 +24,13 @@ import gov.aps.jca.event.GetListener;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 
 import com.cosylab.epics.caj.CAJChannel;
 import com.cosylab.epics.caj.CAJContext;
 import com.cosylab.epics.caj.impl.DBRDecoder;
 import com.cosylab.epics.caj.impl.NotifyResponseRequest;
+import com.cosylab.epics.caj.impl.PendingRequestsCounter;
 import com.cosylab.epics.caj.impl.Transport;
 
 /**
@@ -57,6 +60,11 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 	 */
 	protected GetListener callback;
 
+	/**
+	 * Response future (completed directly, i.e. not via event dispatcher).
+	 */
+	protected final CompletableFuture<DBR> future;
+
 	/**
 	 * DBR to be set (sync. request).
 	 */
@@ -72,6 +80,11 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 	 */
 	protected int sequenceNumberIO;
 
+	/**
+	 * Pending requests counter (sync. request), context or sync. group scope.
+	 */
+	protected final PendingRequestsCounter pendingRequests;
+
 	/**
 	 * Channel.
 	 */
@@ -103,10 +116,58 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 	 */
 	public ReadNotifyRequest(CAJChannel channel, GetListener callback, DBR dbr,
 							 Transport transport, int sid, int dataType, int dataCount) {
+		this(channel, callback, null, dbr, transport, sid, dataType, dataCount, null);
+	}
+
+	/**
+	 * Sync. read request (w/o callback) tracked by given pending requests counter (e.g. sync. group).
+	 * @param channel 
+	 * @param dbr
+	 * @param transport
+	 * @param sid
+	 * @param dataType
+	 * @param dataCount
+	 * @param pendingRequests
+	 */
+	public ReadNotifyRequest(CAJChannel channel, DBR dbr, Transport transport, int sid, int dataType, int dataCount,
+							 PendingRequestsCounter pendingRequests) {
+		this(channel, null, null, dbr, transport, sid, dataType, dataCount, pendingRequests);
+	}
+
+	/**
+	 * Read request completing given future.
+	 * @param channel 
+	 * @param future
+	 * @param transport
+	 * @param sid
+	 * @param dataType
+	 * @param dataCount
+	 */
+	public ReadNotifyRequest(CAJChannel channel, CompletableFuture<DBR> future,
+							 Transport transport, int sid, int dataType, int dataCount) {
+		this(channel, null, future, null, transport, sid, dataType, dataCount, null);
+	}
+
+	/**
+	 * All the fields are set before the request is registered (i.e. visible to <code>timeout()</code>/<code>exception()</code>).
+	 * @param channel 
+	 * @param callback
+	 * @param future
+	 * @param dbr
+	 * @param transport
+	 * @param sid
+	 * @param dataType
+	 * @param dataCount
+	 * @param pendingRequests pending requests counter, <code>null</code> for context's one.
+	 */
+	public ReadNotifyRequest(CAJChannel channel, GetListener callback, CompletableFuture<DBR> future, DBR dbr,
+							  Transport transport, int sid, int dataType, int dataCount,
+							  PendingRequestsCounter pendingRequests) {
 		super(transport);
 
 		this.channel = channel;
 		this.callback = callback;
+		this.future = future;
 		this.dbr = dbr; 
 		this.sid = sid;
 		this.requestedDataType = dataType;
@@ -119,6 +180,7 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 		sync = (dbr != null); 
 		// TODO not clean
 		context = (CAJContext)transport.getContext(); // or channel.getContext()
+		this.pendingRequests = (pendingRequests != null) ? pendingRequests : context.getPendingRequests();
 		ioid = context.registerResponseRequest(this);
 		channel.registerResponseRequest(this);
 		
@@ -143,6 +205,8 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 		int dataCount,
 		ByteBuffer dataPayloadBuffer) {
 
+		// status of decoded response
+		CAStatus responseStatus = null;
 		try
 		{			
 			// HexDump.hexDump(description, dataPayloadBuffer.array(), dataPayloadBuffer.limit());
@@ -153,6 +217,7 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 			else
 				// do not decrement pending IO, if non-callback read is used
 				prohibitIOCancel = true;
+			responseStatus = caStatus;
 			
 			// notify
 			if (callback != null )
@@ -165,9 +230,26 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 		{
 			// allways cancel request
 			cancel();
+			
+			if (future != null)
+				completeFuture(responseStatus, null);
 		}
 	}
 
+	/**
+	 * Complete future.
+	 * @param caStatus response status, <code>null</code> on decode failure.
+	 * @param errorMessage error message, can be <code>null</code>.
+	 */
+	protected void completeFuture(CAStatus caStatus, String errorMessage) {
+		if (caStatus == CAStatus.NORMAL)
+			future.complete(dbr);
+		else if (caStatus == null)
+			future.completeExceptionally(new CAStatusException(CAStatus.GETFAIL, "Invalid response."));
+		else
+			future.completeExceptionally(new CAStatusException(caStatus, errorMessage != null ? errorMessage : caStatus.getMessage()));
+	}
+
 	/**
 	 * If sync. request (i.e. w/o callback), additionally increment context pending requests.
 	 * @see com.cosylab.epics.caj.impl.Request#submit()
@@ -175,7 +257,7 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 	public void submit() throws IOException {
 		super.submit();
 		if (sync)
-			sequenceNumberIO = context.incrementPendingRequests();
+			sequenceNumberIO = pendingRequests.incrementPendingRequests();
 	}
 
 	/**
@@ -185,7 +267,7 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 		// unregister response request
 		boolean alreadyCanceled = (context.unregisterResponseRequest(this) == null);
 		if (!alreadyCanceled && sync && !prohibitIOCancel)
-			context.decrementPendingRequests(sequenceNumberIO);
+			pendingRequests.decrementPendingRequests(sequenceNumberIO);
 		channel.unregisterResponseRequest(this);
 	}
 
@@ -204,6 +286,8 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 			        new GetEvent(channel, null, CAStatus.TIMEOUT),
 					callback
 				);
+		else if (future != null)
+			completeFuture(CAStatus.TIMEOUT, null);
 	}
 
 	/**
@@ -216,6 +300,14 @@ public class ReadNotifyRequest extends AbstractCARequest implements NotifyRespon
 
 		cancel();
 
+		// future gets the status
+		if (future != null)
+		{
+			CAStatus status = CAStatus.forStatusCode(errorCode);
+			completeFuture(status != null ? status : CAStatus.GETFAIL, errorMessage);
+			return;
+		}
+
 		// TODO no status is dispatched 
 		if (errorMessage == null)
 		{
@@ -15,18 +15,22 @@
 package com.cosylab.epics.caj.impl.requests;
 
 import gov.aps.jca.CAStatus;
+import gov.aps.jca.CAStatusException;
 import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.event.ContextExceptionEvent;
 import gov.aps.jca.event.PutEvent;
 import gov.aps.jca.event.PutListener;
 
+import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.util.concurrent.CompletableFuture;
 
 import com.cosylab.epics.caj.CAJChannel;
 import com.cosylab.epics.caj.CAJContext;
 import com.cosylab.epics.caj.impl.CAConstants;
 import com.cosylab.epics.caj.impl.DBREncoder;
 import com.cosylab.epics.caj.impl.NotifyResponseRequest;
+import com.cosylab.epics.caj.impl.PendingRequestsCounter;
 import com.cosylab.epics.caj.impl.Transport;
 
 /**
@@ -51,11 +55,31 @@ public class WriteNotifyRequest extends AbstractCARequest implements NotifyRespo
 	 */
 	protected PutListener callback;
 
+	/**
+	 * Response future (completed directly, i.e. not via event dispatcher).
+	 */
+	protected final CompletableFuture<CAStatus> future;
+
 	/**
 	 * Channel.
 	 */
 	protected CAJChannel channel;
 
+	/**
+	 * Pending requests counter (sync. group), <code>null</code> if not tracked.
+	 */
+	protected final PendingRequestsCounter pendingRequests;
+
+	/**
+	 * IO sequence number.
+	 */
+	protected int sequenceNumberIO;
+
+	/**
+	 * Do not decrement pending requests (failed request).
+	 */
+	protected boolean prohibitIOCancel = false;
+
 	/**
 	 * Requested data type.
 	 */
@@ -78,10 +102,61 @@ public class WriteNotifyRequest extends AbstractCARequest implements NotifyRespo
 	public WriteNotifyRequest(CAJChannel channel, PutListener callback,
 							 Transport transport, int sid, int dataType, int dataCount,
 							 Object value) {
+		this(channel, callback, null, transport, sid, dataType, dataCount, value, null);
+	}
+
+	/**
+	 * Write request tracked by given pending requests counter (e.g. sync. group).
+	 * @param channel 
+	 * @param transport
+	 * @param sid
+	 * @param dataType
+	 * @param dataCount
+	 * @param value
+	 * @param pendingRequests
+	 */
+	public WriteNotifyRequest(CAJChannel channel, Transport transport, int sid, int dataType, int dataCount,
+							 Object value, PendingRequestsCounter pendingRequests) {
+		this(channel, null, null, transport, sid, dataType, dataCount, value, pendingRequests);
+	}
+
+	/**
+	 * Write request completing given future.
+	 * @param channel 
+	 * @param future
+	 * @param transport
+	 * @param sid
+	 * @param dataType
+	 * @param dataCount
+	 * @param value
+	 */
+	public WriteNotifyRequest(CAJChannel channel, CompletableFuture<CAStatus> future,
+							 Transport transport, int sid, int dataType, int dataCount,
+							 Object value) {
+		this(channel, null, future, transport, sid, dataType, dataCount, value, null);
+	}
+
+	/**
+	 * All the fields are set before the request is registered (i.e. visible to <code>timeout()</code>/<code>exception()</code>).
+	 * @param channel 
+	 * @param callback
+	 * @param future
+	 * @param transport
+	 * @param sid
+	 * @param dataType
+	 * @param dataCount
+	 * @param value
+	 * @param pendingRequests pending requests counter, <code>null</code> if not tracked.
+	 */
+	public WriteNotifyRequest(CAJChannel channel, PutListener callback, CompletableFuture<CAStatus> future,
+							   Transport transport, int sid, int dataType, int dataCount,
+							   Object value, PendingRequestsCounter pendingRequests) {
 		super(transport);
 
 		this.channel = channel;
 		this.callback = callback; 
+		this.future = future;
+		this.pendingRequests = pendingRequests;
 		this.requestedDataType = dataType;
 		this.requestedDataCount = dataCount;
 		// TODO not clean
@@ -131,10 +206,14 @@ public class WriteNotifyRequest extends AbstractCARequest implements NotifyRespo
 			
 		try
 		{
+			// do not decrement pending IO, if failed
+			CAStatus caStatus = CAStatus.forStatusCode(status);
+			if (caStatus == null || !caStatus.isSuccessful())
+				prohibitIOCancel = true;
+
 			if (callback != null)
 			{
 				DBRType type = DBRType.forValue(dataType);
-				CAStatus caStatus = CAStatus.forStatusCode(status);
 			
 				// notify
 				context.getEventDispatcher().dispatch(
@@ -147,16 +226,46 @@ public class WriteNotifyRequest extends AbstractCARequest implements NotifyRespo
 		{
 			// allways cancel request
 			cancel();
+
+			if (future != null)
+				completeFuture(CAStatus.forStatusCode(status), null);
 		}
 		
 	}
 
+	/**
+	 * Complete future.
+	 * @param caStatus response status, <code>null</code> if unknown.
+	 * @param errorMessage error message, can be <code>null</code>.
+	 */
+	protected void completeFuture(CAStatus caStatus, String errorMessage) {
+		if (caStatus == null)
+			caStatus = CAStatus.PUTFAIL;
+		
+		if (caStatus.isSuccessful())
+			future.complete(caStatus);
+		else
+			future.completeExceptionally(new CAStatusException(caStatus, errorMessage != null ? errorMessage : caStatus.getMessage()));
+	}
+
+	/**
+	 * If tracked, additionally increment pending requests.
+	 * @see com.cosylab.epics.caj.impl.Request#submit()
+	 */
+	public void submit() throws IOException {
+		super.submit();
+		if (pendingRequests != null)
+			sequenceNumberIO = pendingRequests.incrementPendingRequests();
+	}
+
 	/**
 	 * @see com.cosylab.epics.caj.impl.ResponseRequest#cancel()
 	 */
 	public void cancel() {
 		// unregister response request
-		context.unregisterResponseRequest(this);
+		boolean alreadyCanceled = (context.unregisterResponseRequest(this) == null);
+		if (!alreadyCanceled && pendingRequests != null && !prohibitIOCancel)
+			pendingRequests.decrementPendingRequests(sequenceNumberIO);
 		channel.unregisterResponseRequest(this);
 	}
 
@@ -164,6 +273,7 @@ public class WriteNotifyRequest extends AbstractCARequest implements NotifyRespo
 	 * @see com.cosylab.epics.caj.impl.ResponseRequest#timeout()
 	 */
 	public void timeout() {
+		prohibitIOCancel = true;
 		cancel();
 		// ... and notify
 		if (callback != null)
@@ -171,14 +281,24 @@ public class WriteNotifyRequest extends AbstractCARequest implements NotifyRespo
 			        new PutEvent(channel, DBRType.UNKNOWN, 0, CAStatus.TIMEOUT),
 					callback
 				);
+		else if (future != null)
+			completeFuture(CAStatus.TIMEOUT, null);
 	}
 
 	/**
 	 * @see com.cosylab.epics.caj.impl.ResponseRequest#exception(int, java.lang.String)
 	 */
 	public void exception(int errorCode, String errorMessage) {
+		prohibitIOCancel = true;
 		cancel();
 
+		// future gets the status
+		if (future != null)
+		{
+			completeFuture(CAStatus.forStatusCode(errorCode), errorMessage);
+			return;
+		}
+
 		// TODO no status is dispatched
 		if (errorMessage == null)
 		{
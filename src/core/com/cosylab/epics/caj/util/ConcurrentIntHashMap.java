@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util;
+
+import java.util.Arrays;
+
+/**
+ * <p>Thread-safe hash map that uses primitive ints for the key instead of objects
+ * (concurrent variant of <code>IntHashMap</code>).</p>
+ *
+ * <p>Reads (<code>get</code>, <code>containsKey</code>) are lock-free, writes are striped,
+ * i.e. the map is split into segments each guarded by its own lock.
+ * Hash chains are immutable (except values), so a reader never sees inconsistent chain;
+ * table is replaced on rehash, removal clones the part of the chain in front of removed entry.
+ * Iteration (<code>toArray</code>) is weakly consistent.</p>
+ *
+ * <p><code>null</code> values are allowed (e.g. to reserve a key),
+ * <code>get</code> does not distinguish them from non-existing mappings.</p>
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ * @see IntHashMap
+ */
+public class ConcurrentIntHashMap {
+
+	/**
+	 * Default number of segments.
+	 */
+	private static final int DEFAULT_CONCURRENCY_LEVEL = 16;
+
+	/**
+	 * Maximum number of segments.
+	 */
+	private static final int MAX_SEGMENTS = 1 << 16;
+
+	/**
+	 * Load factor.
+	 */
+	private static final float LOAD_FACTOR = 0.75f;
+
+	/**
+	 * Marker returned by internal put when the key was not mapped.
+	 */
+	private static final Object ABSENT = new Object();
+
+	/**
+	 * Hash chain entry, only value is mutable.
+	 */
+	private static final class Entry {
+		final int key;
+		volatile Object value;
+		final Entry next;
+
+		Entry(int key, Object value, Entry next) {
+			this.key = key;
+			this.value = value;
+			this.next = next;
+		}
+	}
+
+	/**
+	 * Segment, hash table guarded by its own lock (segment itself).
+	 * Writes to <code>count</code> (volatile) publish changes of <code>table</code> slots.
+	 */
+	private static final class Segment {
+
+		/**
+		 * Hash table, length is power of two.
+		 */
+		volatile Entry[] table;
+
+		/**
+		 * Number of entries in this segment.
+		 */
+		volatile int count;
+
+		/**
+		 * Rehash threshold.
+		 */
+		int threshold;
+
+		Segment(int capacity) {
+			setTable(new Entry[capacity]);
+		}
+
+		void setTable(Entry[] newTable) {
+			threshold = (int)(newTable.length * LOAD_FACTOR);
+			table = newTable;
+		}
+
+		Object get(int key, int hash) {
+			// volatile read first
+			if (count != 0) {
+				Entry[] tab = table;
+				for (Entry e = tab[hash & (tab.length - 1)]; e != null; e = e.next) {
+					if (e.key == key)
+						return e.value;
+				}
+			}
+			return null;
+		}
+
+		boolean containsKey(int key, int hash) {
+			if (count != 0) {
+				Entry[] tab = table;
+				for (Entry e = tab[hash & (tab.length - 1)]; e != null; e = e.next) {
+					if (e.key == key)
+						return true;
+				}
+			}
+			return false;
+		}
+
+		synchronized Object put(int key, int hash, Object value, boolean onlyIfAbsent) {
+			Entry[] tab = table;
+			int index = hash & (tab.length - 1);
+			for (Entry e = tab[index]; e != null; e = e.next) {
+				if (e.key == key) {
+					Object old = e.value;
+					if (!onlyIfAbsent)
+						e.value = value;
+					return old;
+				}
+			}
+
+			int c = count;
+			if (c >= threshold) {
+				tab = rehash();
+				index = hash & (tab.length - 1);
+			}
+
+			tab[index] = new Entry(key, value, tab[index]);
+			// publish
+			count = c + 1;
+
+			return ABSENT;
+		}
+
+		private Entry[] rehash() {
+			Entry[] oldTable = table;
+			Entry[] newTable = new Entry[oldTable.length << 1];
+			int mask = newTable.length - 1;
+
+			// entries are immutable, copy them (readers may still traverse the old table)
+			for (int i = 0; i < oldTable.length; i++) {
+				for (Entry e = oldTable[i]; e != null; e = e.next) {
+					int index = hash(e.key) & mask;
+					newTable[index] = new Entry(e.key, e.value, newTable[index]);
+				}
+			}
+
+			setTable(newTable);
+			return newTable;
+		}
+
+		synchronized Object remove(int key, int hash) {
+			Entry[] tab = table;
+			int index = hash & (tab.length - 1);
+			Entry first = tab[index];
+			Entry e = first;
+			while (e != null && e.key != key)
+				e = e.next;
+			if (e == null)
+				return null;
+
+			// clone entries in front of the removed one
+			Entry newFirst = e.next;
+			for (Entry p = first; p != e; p = p.next)
+				newFirst = new Entry(p.key, p.value, newFirst);
+			tab[index] = newFirst;
+			// publish
+			count = count - 1;
+
+			return e.value;
+		}
+
+		synchronized void clear() {
+			if (count != 0) {
+				Entry[] tab = table;
+				for (int i = 0; i < tab.length; i++)
+					tab[i] = null;
+				count = 0;
+			}
+		}
+	}
+
+	/**
+	 * Segments.
+	 */
+	private final Segment[] segments;
+
+	/**
+	 * Shift of hash to get segment index (upper bits are used).
+	 */
+	private final int segmentShift;
+
+	/**
+	 * <p>Constructs a new, empty map with a default initial capacity (<code>20</code>) and
+	 * concurrency level (<code>16</code>).</p>
+	 */
+	public ConcurrentIntHashMap() {
+		this(20, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * <p>Constructs a new, empty map with the specified initial capacity and default
+	 * concurrency level (<code>16</code>).</p>
+	 * @param initialCapacity the initial capacity.
+	 * @throws IllegalArgumentException if the initial capacity is less than zero.
+	 */
+	public ConcurrentIntHashMap(int initialCapacity) {
+		this(initialCapacity, DEFAULT_CONCURRENCY_LEVEL);
+	}
+
+	/**
+	 * <p>Constructs a new, empty map with the specified initial capacity and concurrency level.</p>
+	 * @param initialCapacity the initial capacity.
+	 * @param concurrencyLevel estimated number of concurrently updating threads (number of segments).
+	 * @throws IllegalArgumentException if the initial capacity is less than zero or concurrency level is nonpositive.
+	 */
+	public ConcurrentIntHashMap(int initialCapacity, int concurrencyLevel) {
+		if (initialCapacity < 0)
+			throw new IllegalArgumentException("Illegal Capacity: " + initialCapacity);
+		if (concurrencyLevel <= 0)
+			throw new IllegalArgumentException("Illegal Concurrency Level: " + concurrencyLevel);
+
+		int segmentCount = 1;
+		int bits = 0;
+		while (segmentCount < concurrencyLevel && segmentCount < MAX_SEGMENTS) {
+			segmentCount <<= 1;
+			bits++;
+		}
+		// do not shift by 32 (single segment)
+		segmentShift = bits == 0 ? 31 : 32 - bits;
+
+		int segmentCapacity = 2;
+		int perSegment = (int)(initialCapacity / LOAD_FACTOR / segmentCount) + 1;
+		while (segmentCapacity < perSegment)
+			segmentCapacity <<= 1;
+
+		segments = new Segment[segmentCount];
+		for (int i = 0; i < segmentCount; i++)
+			segments[i] = new Segment(segmentCapacity);
+	}
+
+	/**
+	 * Spread key (sequential IDs are expected), Fibonacci hashing.
+	 * @param key key.
+	 * @return hash.
+	 */
+	private static int hash(int key) {
+		return key * 0x9E3779B9;
+	}
+
+	/**
+	 * Get segment for given hash.
+	 * @param hash hash.
+	 * @return segment.
+	 */
+	private Segment segmentFor(int hash) {
+		return segments[(hash >>> segmentShift) & (segments.length - 1)];
+	}
+
+	/**
+	 * <p>Returns the number of keys in this map.</p>
+	 * @return the number of keys in this map.
+	 */
+	public int size() {
+		long sum = 0;
+		for (int i = 0; i < segments.length; i++)
+			sum += segments[i].count;
+		return (int)Math.min(sum, Integer.MAX_VALUE);
+	}
+
+	/**
+	 * <p>Tests if this map maps no keys to values.</p>
+	 * @return <code>true</code> if this map maps no keys to values; <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		for (int i = 0; i < segments.length; i++)
+			if (segments[i].count != 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * <p>Tests if the specified key is mapped (also to <code>null</code>) in this map. Lock-free.</p>
+	 * @param key possible key.
+	 * @return <code>true</code> if and only if the specified key is mapped.
+	 */
+	public boolean containsKey(int key) {
+		int hash = hash(key);
+		return segmentFor(hash).containsKey(key, hash);
+	}
+
+	/**
+	 * <p>Returns the value to which the specified key is mapped in this map. Lock-free.</p>
+	 * @param key a key in the map.
+	 * @return the value to which the key is mapped in this map;
+	 *         <code>null</code> if the key is not mapped to any value in this map.
+	 * @see #put(int, Object)
+	 */
+	public Object get(int key) {
+		int hash = hash(key);
+		return segmentFor(hash).get(key, hash);
+	}
+
+	/**
+	 * <p>Maps the specified <code>key</code> to the specified <code>value</code> in this map.</p>
+	 * @param key the key.
+	 * @param value the value, can be <code>null</code>.
+	 * @return the previous value of the specified key in this map,
+	 *         or <code>null</code> if it did not have one.
+	 * @see #get(int)
+	 */
+	public Object put(int key, Object value) {
+		int hash = hash(key);
+		Object old = segmentFor(hash).put(key, hash, value, false);
+		return old == ABSENT ? null : old;
+	}
+
+	/**
+	 * <p>Maps the specified <code>key</code> to the specified <code>value</code>
+	 * only if the key is not already mapped (also to <code>null</code>), atomically.</p>
+	 * NOTE: unlike <code>java.util.concurrent.ConcurrentMap</code> a flag is returned,
+	 * since <code>null</code> values are allowed.
+	 * @param key the key.
+	 * @param value the value, can be <code>null</code> (reservation of the key).
+	 * @return <code>true</code> if the key was not mapped and the value has been put.
+	 */
+	public boolean putIfAbsent(int key, Object value) {
+		int hash = hash(key);
+		return segmentFor(hash).put(key, hash, value, true) == ABSENT;
+	}
+
+	/**
+	 * <p>Removes the key (and its corresponding value) from this map.</p>
+	 * @param key the key that needs to be removed.
+	 * @return the value to which the key had been mapped in this map,
+	 *         or <code>null</code> if the key did not have a mapping.
+	 */
+	public Object remove(int key) {
+		int hash = hash(key);
+		return segmentFor(hash).remove(key, hash);
+	}
+
+	/**
+	 * <p>Clears this map so that it contains no keys.</p>
+	 */
+	public void clear() {
+		for (int i = 0; i < segments.length; i++)
+			segments[i].clear();
+	}
+
+	/**
+	 * <p>Copies non-<code>null</code> values to array (weakly consistent).</p>
+	 * @param arr array to be filled, a new instance of the same component type is returned
+	 * 			  if given is not large enough or has to be trimmed, <code>null</code> means <code>Object[]</code>.
+	 * @return array of values, its length is exactly the number of values copied.
+	 */
+	public Object[] toArray(Object[] arr) {
+		if (arr == null)
+			arr = new Object[size()];
+
+		int pos = 0;
+		for (int s = 0; s < segments.length; s++) {
+			Segment segment = segments[s];
+			if (segment.count == 0)
+				continue;
+
+			Entry[] tab = segment.table;
+			for (int i = 0; i < tab.length; i++) {
+				for (Entry e = tab[i]; e != null; e = e.next) {
+					Object value = e.value;
+					if (value == null)
+						continue;
+					if (pos == arr.length)
+						arr = Arrays.copyOf(arr, Math.max(16, pos << 1));
+					arr[pos++] = value;
+				}
+			}
+		}
+
+		if (pos != arr.length)
+			arr = Arrays.copyOf(arr, pos);
+		return arr;
+	}
+
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util;
+
+/**
+ * <p>Counting Bloom filter of strings, supports removal.
+ * <code>mightContain</code> never returns <code>false</code> for a contained string (no false negatives),
+ * but can return <code>true</code> for a non-contained one (false positive).</p>
+ *
+ * <p>Lookups are lock-free, modifications are synchronized.
+ * Counters are 8-bit, a saturated counter is never decremented (to preserve no false negatives guarantee).
+ * Positions are computed by double hashing of <code>String.hashCode()</code> and FNV-1a hash.</p>
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class CountingBloomFilter {
+
+	/**
+	 * Saturated counter value.
+	 */
+	private static final int SATURATED = 0xFF;
+
+	/**
+	 * Counters.
+	 */
+	private final byte[] counters;
+
+	/**
+	 * Number of hash functions.
+	 */
+	private final int hashFunctions;
+
+	/**
+	 * Modification count, volatile write publishes changes of <code>counters</code>.
+	 */
+	private volatile int modCount = 0;
+
+	/**
+	 * Constructor.
+	 * @param expectedElements expected number of elements.
+	 * @param falsePositiveProbability desired false positive probability (when <code>expectedElements</code> are contained).
+	 */
+	public CountingBloomFilter(int expectedElements, double falsePositiveProbability) {
+		if (expectedElements <= 0)
+			throw new IllegalArgumentException("expectedElements <= 0");
+		if (falsePositiveProbability <= 0 || falsePositiveProbability >= 1)
+			throw new IllegalArgumentException("falsePositiveProbability not in (0, 1)");
+
+		// optimal size and number of hash functions
+		final double LN2 = Math.log(2);
+		long size = (long)Math.ceil(-expectedElements * Math.log(falsePositiveProbability) / (LN2 * LN2));
+		size = Math.max(64, Math.min(size, Integer.MAX_VALUE - 8));
+
+		counters = new byte[(int)size];
+		hashFunctions = Math.max(1, (int)Math.round((double)size / expectedElements * LN2));
+	}
+
+	/**
+	 * Add a string.
+	 * @param value string to add.
+	 */
+	public synchronized void add(String value) {
+		final int h1 = value.hashCode();
+		final int h2 = secondaryHash(value);
+		for (int i = 0; i < hashFunctions; i++)
+		{
+			final int index = index(h1, h2, i);
+			final int count = counters[index] & 0xFF;
+			if (count != SATURATED)
+				counters[index] = (byte)(count + 1);
+		}
+		modCount++;
+	}
+
+	/**
+	 * Remove a string, only previously added strings must be removed.
+	 * @param value string to remove.
+	 */
+	public synchronized void remove(String value) {
+		final int h1 = value.hashCode();
+		final int h2 = secondaryHash(value);
+		for (int i = 0; i < hashFunctions; i++)
+		{
+			final int index = index(h1, h2, i);
+			final int count = counters[index] & 0xFF;
+			if (count != SATURATED && count != 0)
+				counters[index] = (byte)(count - 1);
+		}
+		modCount++;
+	}
+
+	/**
+	 * Check if a string might be contained.
+	 * @param value string to check.
+	 * @return <code>false</code> if string is definitely not contained, <code>true</code> if it might be.
+	 */
+	public boolean mightContain(String value) {
+		// volatile read (see modCount)
+		if (modCount == 0)
+			return false;
+
+		final int h1 = value.hashCode();
+		final int h2 = secondaryHash(value);
+		for (int i = 0; i < hashFunctions; i++)
+			if (counters[index(h1, h2, i)] == 0)
+				return false;
+		return true;
+	}
+
+	/**
+	 * Remove all the strings.
+	 */
+	public synchronized void clear() {
+		for (int i = 0; i < counters.length; i++)
+			counters[i] = 0;
+		modCount++;
+	}
+
+	/**
+	 * Get number of counters.
+	 * @return number of counters.
+	 */
+	public int size() {
+		return counters.length;
+	}
+
+	/**
+	 * Get number of hash functions.
+	 * @return number of hash functions.
+	 */
+	public int getHashFunctions() {
+		return hashFunctions;
+	}
+
+	/**
+	 * Compute i-th counter index.
+	 * @param h1 primary hash.
+	 * @param h2 secondary hash.
+	 * @param i hash function index.
+	 * @return counter index.
+	 */
+	private int index(int h1, int h2, int i) {
+		return ((h1 + i * h2) & 0x7FFFFFFF) % counters.length;
+	}
+
+	/**
+	 * Secondary (FNV-1a) hash, always odd.
+	 * @param value string to hash.
+	 * @return hash value.
+	 */
+	private static int secondaryHash(String value) {
+		int hash = 0x811C9DC5;
+		final int len = value.length();
+		for (int i = 0; i < len; i++)
+		{
+			hash ^= value.charAt(i);
+			hash *= 0x01000193;
+		}
+		return hash | 1;
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util;
+
+/**
+ * <p>Fixed-size FIFO ring buffer, if full the oldest element is overwritten.
+ * No allocation is done after construction (unless capacity is changed).</p>
+ * NOTE: this implementation is not synced, client has to care of that.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class RingBuffer {
+
+	/**
+	 * Elements.
+	 */
+	private Object[] elements;
+
+	/**
+	 * Index of the first (oldest) element.
+	 */
+	private int head = 0;
+
+	/**
+	 * Number of elements.
+	 */
+	private int count = 0;
+
+	/**
+	 * Constructor.
+	 * @param capacity capacity of the buffer, must be &gt; 0.
+	 */
+	public RingBuffer(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity <= 0");
+		elements = new Object[capacity];
+	}
+
+	/**
+	 * Get capacity.
+	 * @return capacity.
+	 */
+	public int capacity() {
+		return elements.length;
+	}
+
+	/**
+	 * Get number of elements.
+	 * @return number of elements.
+	 */
+	public int size() {
+		return count;
+	}
+
+	/**
+	 * Check if empty.
+	 * @return <code>true</code> if there are no elements.
+	 */
+	public boolean isEmpty() {
+		return count == 0;
+	}
+
+	/**
+	 * Add element to the end of the buffer, if full the oldest element is discarded.
+	 * @param element element to add.
+	 * @return <code>true</code> if the oldest element was discarded (overwritten).
+	 */
+	public boolean addLast(Object element) {
+		final int capacity = elements.length;
+		int tail = head + count;
+		if (tail >= capacity)
+			tail -= capacity;
+		elements[tail] = element;
+
+		if (count == capacity) {
+			// overwritten the oldest
+			if (++head == capacity)
+				head = 0;
+			return true;
+		}
+
+		count++;
+		return false;
+	}
+
+	/**
+	 * Remove the first (oldest) element.
+	 * @return removed element, <code>null</code> if empty.
+	 */
+	public Object removeFirst() {
+		if (count == 0)
+			return null;
+
+		Object element = elements[head];
+		elements[head] = null;
+		if (++head == elements.length)
+			head = 0;
+		count--;
+		return element;
+	}
+
+	/**
+	 * Get the last (newest) element.
+	 * @return the last element, <code>null</code> if empty.
+	 */
+	public Object getLast() {
+		if (count == 0)
+			return null;
+		int tail = head + count - 1;
+		if (tail >= elements.length)
+			tail -= elements.length;
+		return elements[tail];
+	}
+
+	/**
+	 * Discard all but the last (newest) element.
+	 * @return number of discarded elements.
+	 */
+	public int keepLast() {
+		if (count <= 1)
+			return 0;
+
+		final int discarded = count - 1;
+		Object last = getLast();
+		clear();
+		addLast(last);
+		return discarded;
+	}
+
+	/**
+	 * Clear the buffer.
+	 */
+	public void clear() {
+		final int capacity = elements.length;
+		for (int i = 0, pos = head; i < count; i++) {
+			elements[pos] = null;
+			if (++pos == capacity)
+				pos = 0;
+		}
+		head = 0;
+		count = 0;
+	}
+
+	/**
+	 * Change capacity, the newest elements are kept.
+	 * @param capacity new capacity, must be &gt; 0.
+	 */
+	public void setCapacity(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException("capacity <= 0");
+		if (capacity == elements.length)
+			return;
+
+		Object[] newElements = new Object[capacity];
+		// skip the oldest ones that do not fit
+		int skip = Math.max(0, count - capacity);
+		int newCount = count - skip;
+		for (int i = 0, pos = head + skip; i < newCount; i++, pos++) {
+			if (pos >= elements.length)
+				pos -= elements.length;
+			newElements[i] = elements[pos];
+		}
+
+		elements = newElements;
+		head = 0;
+		count = newCount;
+	}
+
+}
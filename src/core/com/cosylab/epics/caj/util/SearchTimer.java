@@ -14,52 +14,119 @@
 
 package com.cosylab.epics.caj.util;
 
-import java.util.Iterator;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.ArrayList;
 
 /**
- * Timer. Based on <code>EDU.oswego.cs.dl.util.concurrent</code>. Timer tasks
- * should complete quickly. If a timer task takes excessive time to complete, it
+ * Timer implemented as a hashed timing wheel, i.e. O(1) task (re)scheduling and cancellation.
+ * Tasks are kept in (intrusive, doubly linked) lists, one per wheel slot (tick);
+ * tasks scheduled beyond the wheel span share the slot and are kept there (for more wheel rounds) until their tick.
+ * Tasks are run in timer's thread; they are executed at most one tick late, never early.
+ * Timer tasks should complete quickly. If a timer task takes excessive time to complete, it
  * "hogs" the timer's task execution thread. This can, in turn, delay the
  * execution of subsequent tasks, which may "bunch up" and execute in rapid
  * succession when (and if) the offending task finally completes.
- * 
+ *
  * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
  * @version $id$
  */
 public class SearchTimer extends Thread {
 
 	/**
-	 * Tasks are maintained in a standard priority queue.
-	 **/
-	protected final PriorityBlockingQueue<TimerTask> heap = new PriorityBlockingQueue<>(64);
+	 * Default tick duration (ms).
+	 */
+	public static final int DEFAULT_TICK_MS = 5;
+
+	/**
+	 * Default number of wheel slots (power of 2).
+	 */
+	public static final int DEFAULT_WHEEL_SIZE = 1024;
+
+	/**
+	 * Tick duration (ms).
+	 */
+	protected final long tickDuration;
+
+	/**
+	 * Wheel slots (list heads).
+	 */
+	protected final TimerTask[] wheel;
+
+	/**
+	 * Wheel slot index mask.
+	 */
+	protected final int mask;
+
+	/**
+	 * Wheel start time (time of tick 0).
+	 */
+	protected final long startTime;
+
+	/**
+	 * Next tick to be processed.
+	 */
+	protected long currentTick;
+
+	/**
+	 * Number of scheduled tasks (in the wheel).
+	 */
+	protected int size = 0;
+
+	/**
+	 * Number of expired tasks, extracted from the wheel, but not yet run.
+	 */
+	protected volatile int pendingExpired = 0;
 
 	protected final RunLoop runLoop = new RunLoop();
 
 	/**
-	 * Protected constructor (singleton pattern).
+	 * Constructor.
 	 */
 	public SearchTimer() {
+		this(DEFAULT_TICK_MS, DEFAULT_WHEEL_SIZE);
 	}
 
+	/**
+	 * Constructor.
+	 * @param tickDuration tick duration (ms).
+	 * @param wheelSize number of wheel slots, rounded up to the power of 2.
+	 */
+	public SearchTimer(long tickDuration, int wheelSize) {
+		if (tickDuration <= 0)
+			throw new IllegalArgumentException("tickDuration <= 0");
+		if (wheelSize <= 0 || wheelSize > (1 << 30))
+			throw new IllegalArgumentException("wheelSize out of range");
+
+		int slots = 1;
+		while (slots < wheelSize)
+			slots <<= 1;
+
+		this.tickDuration = tickDuration;
+		this.wheel = new TimerTask[slots];
+		this.mask = slots - 1;
+		this.startTime = System.currentTimeMillis();
+		this.currentTick = 0;
+	}
 
-	public static abstract class TimerTask implements Comparable {
+	public static abstract class TimerTask {
 		private long timeToRun; // The time to run command
 		private long delay; // The delay
 
-		// Cancellation does not immediately remove node, it just
-		// sets up lazy deletion bit, so is thrown away when next
-		// encountered in run loop
-		private boolean cancelled = false;
+		// wheel bookkeeping (guarded by the timer)
+		private volatile SearchTimer timer;
+		private TimerTask prev;
+		private TimerTask next;
+		private long tick;
+		private boolean scheduled = false;
 
 		// Access to cancellation status and and run time needs sync
 		// since they can be written and read in different threads
+		private volatile boolean cancelled = false;
 
-		synchronized void setCancelled() {
+		void setCancelled() {
 			cancelled = true;
 		}
 
-		synchronized boolean getCancelled() {
+		boolean getCancelled() {
 			return cancelled;
 		}
 
@@ -77,15 +144,9 @@ public class SearchTimer extends Thread {
 			return delay;
 		}
 
-		public int compareTo(Object other) {
-			long a = getTimeToRun();
-			long b = ((TimerTask) (other)).getTimeToRun();
-			return (a < b) ? -1 : ((a == b) ? 0 : 1);
-		}
-
         /**
          * Method invoked by timer at requested time.
-         * 
+         *
          * @return delay (in ms) after which to reschedule, not rescheduled if &le; 0.
          */
         public abstract long timeout();
@@ -93,7 +154,8 @@ public class SearchTimer extends Thread {
 
 	/**
 	 * Execute the given command after waiting for the given delay.
-	 * 
+	 * If the task is already scheduled, it is rescheduled.
+	 *
 	 * @param millisecondsToDelay
 	 *            -- the number of milliseconds from now to run the command.
 	 * @param task
@@ -104,32 +166,87 @@ public class SearchTimer extends Thread {
 			TimerTask task) {
 		long runtime = System.currentTimeMillis() + millisecondsToDelay;
 		task.setTimeToRun(millisecondsToDelay, runtime);
-		heap.offer(task);
+		if (task.scheduled)
+			unlink(task);
+		link(task, runtime);
 		restart();
 	}
 
-	public synchronized void rescheduleAllAfterDelay(long millisecondsToDelay) {
-		long timeToRun = System.currentTimeMillis() + millisecondsToDelay;
+	/**
+	 * Execute the given commands after waiting for the given delay (bulk version, single lock acquisition).
+	 *
+	 * @param millisecondsToDelay
+	 *            -- the number of milliseconds from now to run the commands.
+	 * @param tasks
+	 *            -- the commands to run after the delay.
+	 * @param count
+	 *            -- number of commands (starting at index 0) to schedule.
+	 **/
+	public synchronized void executeAfterDelay(
+			long millisecondsToDelay,
+			TimerTask[] tasks, int count) {
+		long runtime = System.currentTimeMillis() + millisecondsToDelay;
+		for (int i = 0; i < count; i++) {
+			TimerTask task = tasks[i];
+			task.setTimeToRun(millisecondsToDelay, runtime);
+			if (task.scheduled)
+				unlink(task);
+			link(task, runtime);
+		}
+		restart();
+	}
 
-		synchronized (heap) {
-			Iterator<TimerTask> nodes = heap.iterator();
-			while (nodes.hasNext()) {
-				TimerTask t = nodes.next();
+	/**
+	 * Reschedule all the scheduled tasks, uniformly spread over given period.
+	 * Tasks that are already scheduled to run earlier are not postponed.
+	 * Delay of all the tasks (<code>TimerTask.getDelay()</code>) is set to <code>millisecondsToDelay</code>.
+	 * @param millisecondsToDelay minimum delay (ms).
+	 * @param spreadPeriod period (ms) over which tasks are spread, i.e. tasks are scheduled in
+	 * 		  [<code>millisecondsToDelay</code>, <code>millisecondsToDelay + spreadPeriod</code>) interval.
+	 */
+	public synchronized void rescheduleAllAfterDelay(long millisecondsToDelay, long spreadPeriod) {
+		if (size == 0)
+			return;
+
+		long now = System.currentTimeMillis();
+		long start = now + millisecondsToDelay;
+
+		// collect first, rescheduling modifies the wheel
+		TimerTask[] tasks = new TimerTask[size];
+		int count = 0;
+		for (int i = 0; i < wheel.length; i++)
+			for (TimerTask t = wheel[i]; t != null; t = t.next)
+				tasks[count++] = t;
+
+		for (int i = 0; i < count; i++) {
+			TimerTask t = tasks[i];
+			long timeToRun = start + (spreadPeriod * i) / count;
+			if (timeToRun < t.getTimeToRun()) {
+				unlink(t);
 				t.setTimeToRun(millisecondsToDelay, timeToRun);
+				link(t, timeToRun);
 			}
+			else
+				t.setTimeToRun(millisecondsToDelay, t.getTimeToRun());
 		}
 
 		restart();
 	}
 
 	/**
-	 * Cancel a scheduled task that has not yet been run. The task will be
-	 * cancelled upon the <em>next</em> opportunity to run it. This has no
-	 * effect if this is a one-shot task that has already executed. Also, if an
-	 * execution is in progress, it will complete normally. (It may however be
-	 * interrupted via getThread().interrupt()). But if it is a periodic task,
-	 * future iterations are cancelled.
-	 * 
+	 * Reschedule all the scheduled tasks.
+	 * @param millisecondsToDelay delay (ms).
+	 */
+	public void rescheduleAllAfterDelay(long millisecondsToDelay) {
+		rescheduleAllAfterDelay(millisecondsToDelay, 0);
+	}
+
+	/**
+	 * Cancel a scheduled task that has not yet been run. The task is
+	 * removed from the timer immediately (O(1)). If an
+	 * execution is in progress, it will complete normally, but
+	 * the task will not be rescheduled.
+	 *
 	 * @param taskID
 	 *            -- a task reference returned by one of the execute commands
 	 * @exception ClassCastException
@@ -137,7 +254,98 @@ public class SearchTimer extends Thread {
 	 *                execute command.
 	 **/
 	public static void cancel(Object taskID) {
-		((TimerTask) taskID).setCancelled();
+		TimerTask task = (TimerTask) taskID;
+		task.setCancelled();
+		SearchTimer timer = task.timer;
+		if (timer != null)
+			timer.remove(task);
+	}
+
+	/**
+	 * Remove task from the wheel (if scheduled).
+	 * @param task task to remove.
+	 */
+	protected synchronized void remove(TimerTask task) {
+		if (task.scheduled && task.timer == this)
+			unlink(task);
+	}
+
+	/**
+	 * Get number of scheduled tasks.
+	 * @return number of scheduled tasks.
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Convert time to tick (rounded up, so that tasks are never run early).
+	 */
+	private long timeToTick(long time) {
+		long t = time - startTime;
+		if (t <= 0)
+			return 0;
+		return (t + tickDuration - 1) / tickDuration;
+	}
+
+	/**
+	 * Time of a tick.
+	 */
+	private long tickToTime(long tick) {
+		return startTime + tick * tickDuration;
+	}
+
+	/**
+	 * Link task to the wheel.
+	 * NOTE: sync. on timer required.
+	 */
+	private void link(TimerTask task, long timeToRun) {
+		long tick = Math.max(timeToTick(timeToRun), currentTick);
+		int slot = (int)(tick & mask);
+
+		task.timer = this;
+		task.tick = tick;
+		task.prev = null;
+		task.next = wheel[slot];
+		if (task.next != null)
+			task.next.prev = task;
+		wheel[slot] = task;
+		task.scheduled = true;
+
+		size++;
+	}
+
+	/**
+	 * Unlink task from the wheel.
+	 * NOTE: sync. on timer required.
+	 */
+	private void unlink(TimerTask task) {
+		if (task.prev != null)
+			task.prev.next = task.next;
+		else
+			wheel[(int)(task.tick & mask)] = task.next;
+		if (task.next != null)
+			task.next.prev = task.prev;
+		task.prev = task.next = null;
+		task.scheduled = false;
+
+		size--;
+	}
+
+	/**
+	 * Extract expired tasks (scheduled up to given tick) of the given slot.
+	 * NOTE: sync. on timer required.
+	 */
+	private void expire(int slot, long tick, ArrayList<TimerTask> expired) {
+		TimerTask t = wheel[slot];
+		while (t != null) {
+			TimerTask next = t.next;
+			if (t.tick <= tick) {
+				unlink(t);
+				expired.add(t);
+			}
+			t = next;
+		}
 	}
 
 	/** The thread used to process commands **/
@@ -180,54 +388,76 @@ public class SearchTimer extends Thread {
 	 * thread is started via restart().
 	 **/
 	public synchronized void shutDown() {
-		heap.clear();
+		for (int i = 0; i < wheel.length; i++) {
+			TimerTask t = wheel[i];
+			while (t != null) {
+				TimerTask next = t.next;
+				t.prev = t.next = null;
+				t.scheduled = false;
+				t = next;
+			}
+			wheel[i] = null;
+		}
+		size = 0;
+
 		if (thread != null)
 			thread.interrupt();
 		thread = null;
 	}
 
 	/**
-	 * Return the next task to execute, or null if thread is interrupted.
+	 * Extract next tasks to execute (blocks until available), or return <code>false</code> if thread is interrupted.
 	 **/
-	protected synchronized TimerTask nextTask(boolean blockAndExtract, long dt) {
+	protected synchronized boolean nextTasks(ArrayList<TimerTask> expired) {
 
 		// Note: This code assumes that there is only one run loop thread
 
 		try {
 			while (!Thread.interrupted()) {
 
-				// Using peek simplifies dealing with spurious wakeups
-
-				TimerTask task = (TimerTask) (heap.peek());
+				long now = System.currentTimeMillis();
 
-				if (task == null) {
-					if (!blockAndExtract)
-						return null;
+				if (size == 0) {
+					// nothing to process, skip idle ticks
+					currentTick = Math.max(currentTick, timeToTick(now));
 					wait();
-				} else {
-					long now = System.currentTimeMillis();
-					long when = task.getTimeToRun();
-
-					if ((when - dt) > now) { // false alarm wakeup
-						if (!blockAndExtract)
-							return null;
-						wait(when - now);
-					} else {
-						if (!blockAndExtract)
-							return task;
-						
-						task = (TimerTask) (heap.poll());
-
-						if (!task.getCancelled()) { // Skip if cancelled by
-							return task;
-						}
+					continue;
+				}
+
+				// process all elapsed ticks
+				long lastElapsedTick = (now - startTime) / tickDuration;
+				if (lastElapsedTick - currentTick >= wheel.length) {
+					// more than one wheel round elapsed (e.g. clock jump), check all slots once
+					for (int slot = 0; slot < wheel.length; slot++)
+						expire(slot, lastElapsedTick, expired);
+					currentTick = lastElapsedTick + 1;
+				}
+				else {
+					while (currentTick <= lastElapsedTick) {
+						expire((int)(currentTick & mask), currentTick, expired);
+						currentTick++;
 					}
 				}
+
+				if (!expired.isEmpty()) {
+					pendingExpired = expired.size();
+					return true;
+				}
+
+				// find next non-empty slot
+				long nextTick = currentTick;
+				long lastTick = currentTick + wheel.length;
+				while (nextTick < lastTick && wheel[(int)(nextTick & mask)] == null)
+					nextTick++;
+
+				long waitTime = tickToTime(nextTick) - now;
+				if (waitTime > 0)
+					wait(waitTime);
 			}
 		} catch (InterruptedException ex) {
 		} // fall through
 
-		return null; // on interrupt
+		return false; // on interrupt
 	}
 
 	/**
@@ -235,11 +465,24 @@ public class SearchTimer extends Thread {
 	 * @param dT period in ms to check
 	 * @return true if a task is scheduled within dT ms
 	 */
-	public boolean hasNext(long dT)
+	public synchronized boolean hasNext(long dT)
 	{
-		return (nextTask(false, dT) != null);
+		// expired, but not yet run
+		if (pendingExpired > 0)
+			return true;
+
+		if (size == 0)
+			return false;
+
+		long lastTick = Math.min(timeToTick(System.currentTimeMillis() + dT), currentTick + wheel.length - 1);
+		for (long tick = currentTick; tick <= lastTick; tick++)
+			for (TimerTask t = wheel[(int)(tick & mask)]; t != null; t = t.next)
+				if (t.tick <= lastTick)
+					return true;
+
+		return false;
 	}
-	
+
 	/**
 	 * The run loop is isolated in its own Runnable class just so that the main
 	 * class need not implement Runnable, which would allow others to directly
@@ -248,19 +491,32 @@ public class SearchTimer extends Thread {
 
 	protected class RunLoop implements Runnable {
 		public void run() {
+			final ArrayList<TimerTask> expired = new ArrayList<TimerTask>();
 			try {
-				for (;;) {
-					TimerTask task = nextTask(true, 0);
-					if (task != null) {
+				while (nextTasks(expired)) {
+					for (int i = 0; i < expired.size(); i++) {
+						TimerTask task = expired.get(i);
+						expired.set(i, null);
+						pendingExpired = expired.size() - i - 1;
+
+						if (task.getCancelled())
+							continue;
+
 						long millisecondsToDelay = task.timeout();
 						if (millisecondsToDelay > 0) {
-							long runtime = System.currentTimeMillis()
-									+ millisecondsToDelay;
-							task.setTimeToRun(millisecondsToDelay, runtime);
-							heap.offer(task);
+							synchronized (SearchTimer.this) {
+								// not cancelled (or rescheduled) meanwhile
+								if (!task.getCancelled() && !task.scheduled) {
+									long runtime = System.currentTimeMillis()
+											+ millisecondsToDelay;
+									task.setTimeToRun(millisecondsToDelay, runtime);
+									link(task, runtime);
+								}
+							}
 						}
-					} else
-						break;
+					}
+					expired.clear();
+					pendingExpired = 0;
 				}
 			} finally {
 				clearThread();
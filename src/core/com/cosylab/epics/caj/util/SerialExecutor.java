@@ -0,0 +1,204 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Executor that runs tasks one by one (in submission order) on a shared (asynchronous) executor.
+ * At most one task of this executor is being run at any time, i.e. many serial executors can share
+ * a small thread pool and still preserve ordering. To achieve fairness among serial executors,
+ * at most <code>batchSize</code> tasks are run before the executor is rescheduled.
+ * Execution can be suspended (queued tasks are kept) and resumed.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class SerialExecutor implements Executor, Runnable {
+
+	/**
+	 * Default batch size.
+	 */
+	public static final int DEFAULT_BATCH_SIZE = 64;
+
+	/**
+	 * Shared executor.
+	 */
+	private final Executor executor;
+
+	/**
+	 * Max. number of tasks run at once.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Logger (for task exceptions).
+	 */
+	private final Logger logger;
+
+	/**
+	 * Task queue, also used as a lock.
+	 */
+	private final ArrayDeque<Runnable> tasks = new ArrayDeque<Runnable>();
+
+	/**
+	 * Scheduled (or running) on the shared executor flag.
+	 * NOTE: synchronized on <code>tasks</code>'s monitor.
+	 */
+	private boolean scheduled = false;
+
+	/**
+	 * Suspended flag.
+	 * NOTE: synchronized on <code>tasks</code>'s monitor.
+	 */
+	private boolean suspended = false;
+
+	/**
+	 * Shutdown flag.
+	 * NOTE: synchronized on <code>tasks</code>'s monitor.
+	 */
+	private boolean shutdown = false;
+
+	/**
+	 * Constructor.
+	 * @param executor shared executor (must not execute tasks in the calling thread).
+	 * @param logger logger to log task exceptions to.
+	 */
+	public SerialExecutor(Executor executor, Logger logger) {
+		this(executor, DEFAULT_BATCH_SIZE, logger);
+	}
+
+	/**
+	 * Constructor.
+	 * @param executor shared executor (must not execute tasks in the calling thread).
+	 * @param batchSize max. number of tasks run at once, before executor is rescheduled.
+	 * @param logger logger to log task exceptions to.
+	 */
+	public SerialExecutor(Executor executor, int batchSize, Logger logger) {
+		if (executor == null)
+			throw new IllegalArgumentException("executor == null");
+		if (batchSize <= 0)
+			throw new IllegalArgumentException("batchSize <= 0");
+		this.executor = executor;
+		this.batchSize = batchSize;
+		this.logger = logger;
+	}
+
+	/**
+	 * Enqueue a task.
+	 * @param task task to execute.
+	 * @throws RejectedExecutionException if executor is shutdown.
+	 * @see java.util.concurrent.Executor#execute(java.lang.Runnable)
+	 */
+	public void execute(Runnable task) {
+		synchronized (tasks) {
+			if (shutdown)
+				throw new RejectedExecutionException("executor shutdown");
+			tasks.addLast(task);
+			schedule();
+		}
+	}
+
+	/**
+	 * Schedule on the shared executor, if necessary.
+	 * NOTE: to be called while holding <code>tasks</code>'s monitor.
+	 */
+	private void schedule() {
+		if (scheduled || suspended || shutdown || tasks.isEmpty())
+			return;
+
+		scheduled = true;
+		try {
+			executor.execute(this);
+		} catch (RejectedExecutionException ree) {
+			// shared executor shutdown
+			scheduled = false;
+		}
+	}
+
+	/**
+	 * Run a batch of tasks.
+	 * @see java.lang.Runnable#run()
+	 */
+	public void run() {
+		for (int i = 0; i < batchSize; i++) {
+			Runnable task;
+			synchronized (tasks) {
+				if (suspended || shutdown || tasks.isEmpty()) {
+					scheduled = false;
+					return;
+				}
+				task = tasks.removeFirst();
+			}
+
+			try {
+				task.run();
+			} catch (Throwable th) {
+				if (logger != null)
+					logger.log(Level.SEVERE, "", th);
+			}
+		}
+
+		// give other serial executors a chance
+		synchronized (tasks) {
+			scheduled = false;
+			schedule();
+		}
+	}
+
+	/**
+	 * Suspend execution, queued and new tasks are kept until resumed.
+	 * A task being run is not interrupted.
+	 */
+	public void suspend() {
+		synchronized (tasks) {
+			suspended = true;
+		}
+	}
+
+	/**
+	 * Resume execution.
+	 */
+	public void resume() {
+		synchronized (tasks) {
+			suspended = false;
+			schedule();
+		}
+	}
+
+	/**
+	 * Shutdown, queued tasks are discarded.
+	 */
+	public void shutdown() {
+		synchronized (tasks) {
+			shutdown = true;
+			tasks.clear();
+		}
+	}
+
+	/**
+	 * Get number of queued tasks.
+	 * @return number of queued tasks.
+	 */
+	public int size() {
+		synchronized (tasks) {
+			return tasks.size();
+		}
+	}
+
+}
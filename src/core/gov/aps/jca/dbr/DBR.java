@@ -65,6 +65,33 @@ public abstract class DBR {
 	  return convert(convertType);
   }
 
+  /**
+   * Convert into given (caller-supplied) DBR, its value array is reused.
+   * Destination type determines the conversion, metadata supported by both DBRs
+   * (status, timestamp, limits, precision, labels) is copied.
+   * <code>min(getCount(), destination.getCount())</code> elements are converted.
+   * @param destination DBR to convert into.
+   * @return <code>destination</code>.
+   * @throws CAStatusException if conversion is not supported or fails.
+   */
+  public DBR convert(DBR destination) throws CAStatusException {
+	  return convert(destination, null);
+  }
+
+  /**
+   * Convert into given (caller-supplied) DBR using conversion parameters (e.g. enum labels).
+   * @param destination DBR to convert into.
+   * @param params conversion parameters, can be <code>null</code>.
+   * @return <code>destination</code>.
+   * @throws CAStatusException if conversion is not supported or fails.
+   * @see #convert(DBR)
+   */
+  public DBR convert(DBR destination, Object params) throws CAStatusException {
+	  DBRConverter.convertValue(this, destination, params);
+	  DBRConverter.copyMetadata(this, destination);
+	  return destination;
+  }
+
   public void printInfo() {
     printInfo( System.out );
   }
@@ -0,0 +1,704 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package gov.aps.jca.dbr;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.CAStatusException;
+
+/**
+ * DBR value conversion engine, shared by all <code>DBR.convert()</code> implementations.
+ * Every source/destination primitive type pair has its own (simple counted, JIT vectorizable) loop.
+ * Conversion can be done into a caller-supplied DBR, reusing its value array
+ * (e.g. when the same value is converted for many clients).
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public final class DBRConverter {
+
+	/**
+	 * Empty string, used for undefined enum labels.
+	 */
+	private static final String EMPTY = "";
+
+	/**
+	 * Static class.
+	 */
+	private DBRConverter() {
+	}
+
+	/**
+	 * Convert value of one DBR into (value of) another DBR, destination type determines the conversion.
+	 * Only value is converted, use <code>copyMetadata</code> to copy status, timestamp, limits, etc.
+	 * <code>min(from.getCount(), to.getCount())</code> elements are converted.
+	 * @param from source DBR.
+	 * @param to destination DBR.
+	 * @param params conversion parameters (enum labels for string to enum conversion), can be <code>null</code>.
+	 * @throws CAStatusException if conversion is not supported or fails (e.g. not a number).
+	 */
+	public static void convertValue(DBR from, DBR to, Object params) throws CAStatusException {
+		final Object src = from.getValue();
+		final Object dst = to.getValue();
+		final int count = Math.min(from.getCount(), to.getCount());
+
+		if (src instanceof String[])
+		{
+			convertFromString((String[])src, to, dst, count, params);
+			return;
+		}
+
+		if (dst instanceof String[])
+		{
+			final String[] toValue = (String[])dst;
+			if (src instanceof double[])
+				convert((double[])src, toValue, count, precision(from));
+			else if (src instanceof float[])
+				convert((float[])src, toValue, count, precision(from));
+			else if (src instanceof short[] && from.isENUM())
+				convert((short[])src, toValue, count, from.isLABELS() ? ((LABELS)from).getLabels() : null);
+			else if (src instanceof int[])
+				convert((int[])src, toValue, count);
+			else if (src instanceof short[])
+				convert((short[])src, toValue, count);
+			else if (src instanceof byte[])
+				convert((byte[])src, toValue, count);
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		}
+		else if (src instanceof double[])
+		{
+			final double[] fromValue = (double[])src;
+			if (dst instanceof byte[])
+				convert(fromValue, (byte[])dst, count);
+			else if (dst instanceof short[])
+				convert(fromValue, (short[])dst, count);
+			else if (dst instanceof int[])
+				convert(fromValue, (int[])dst, count);
+			else if (dst instanceof float[])
+				convert(fromValue, (float[])dst, count);
+			else if (dst instanceof double[])
+				convert(fromValue, (double[])dst, count);
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		}
+		else if (src instanceof float[])
+		{
+			final float[] fromValue = (float[])src;
+			if (dst instanceof byte[])
+				convert(fromValue, (byte[])dst, count);
+			else if (dst instanceof short[])
+				convert(fromValue, (short[])dst, count);
+			else if (dst instanceof int[])
+				convert(fromValue, (int[])dst, count);
+			else if (dst instanceof float[])
+				convert(fromValue, (float[])dst, count);
+			else if (dst instanceof double[])
+				convert(fromValue, (double[])dst, count);
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		}
+		else if (src instanceof int[])
+		{
+			final int[] fromValue = (int[])src;
+			if (dst instanceof byte[])
+				convert(fromValue, (byte[])dst, count);
+			else if (dst instanceof short[])
+				convert(fromValue, (short[])dst, count);
+			else if (dst instanceof int[])
+				convert(fromValue, (int[])dst, count);
+			else if (dst instanceof float[])
+				convert(fromValue, (float[])dst, count);
+			else if (dst instanceof double[])
+				convert(fromValue, (double[])dst, count);
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		}
+		else if (src instanceof short[])
+		{
+			final short[] fromValue = (short[])src;
+			if (dst instanceof byte[])
+				convert(fromValue, (byte[])dst, count);
+			else if (dst instanceof short[])
+				convert(fromValue, (short[])dst, count);
+			else if (dst instanceof int[])
+				convert(fromValue, (int[])dst, count);
+			else if (dst instanceof float[])
+				convert(fromValue, (float[])dst, count);
+			else if (dst instanceof double[])
+				convert(fromValue, (double[])dst, count);
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		}
+		else if (src instanceof byte[])
+		{
+			final byte[] fromValue = (byte[])src;
+			if (dst instanceof byte[])
+				convert(fromValue, (byte[])dst, count);
+			else if (dst instanceof short[])
+				convert(fromValue, (short[])dst, count);
+			else if (dst instanceof int[])
+				convert(fromValue, (int[])dst, count);
+			else if (dst instanceof float[])
+				convert(fromValue, (float[])dst, count);
+			else if (dst instanceof double[])
+				convert(fromValue, (double[])dst, count);
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		}
+		else
+		{
+			throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		}
+	}
+
+	/**
+	 * Convert string array into DBR value.
+	 */
+	private static void convertFromString(String[] src, DBR to, Object dst, int count, Object params) throws CAStatusException {
+		try
+		{
+			if (dst instanceof String[])
+			{
+				final String[] toValue = (String[])dst;
+				for (int i = 0; i < count; i++)
+					toValue[i] = String.valueOf(src[i]);
+			}
+			else if (dst instanceof short[] && to.isENUM())
+				convert(src, (short[])dst, count, (String[])params);
+			else if (dst instanceof short[])
+				convert(src, (short[])dst, count);
+			else if (dst instanceof float[])
+				convert(src, (float[])dst, count);
+			else if (dst instanceof byte[])
+				convert(src, (byte[])dst, count);
+			else if (dst instanceof int[])
+				convert(src, (int[])dst, count);
+			else if (dst instanceof double[])
+				convert(src, (double[])dst, count);
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
+		} catch (NumberFormatException nfr) {
+			throw new CAStatusException(CAStatus.NOCONVERT);
+		}
+	}
+
+	/**
+	 * Copy metadata (status, severity, timestamp, units, limits, precision, labels) from one DBR to another,
+	 * only metadata supported by both DBRs is copied.
+	 * @param from source DBR.
+	 * @param to destination DBR.
+	 */
+	public static void copyMetadata(DBR from, DBR to) {
+		if (from.isSTS() && to.isSTS())
+		{
+			final STS fromSTS = (STS)from;
+			final STS toSTS = (STS)to;
+			// not set (null) values are rejected by setters
+			if (fromSTS.getSeverity() != null)
+				toSTS.setSeverity(fromSTS.getSeverity());
+			if (fromSTS.getStatus() != null)
+				toSTS.setStatus(fromSTS.getStatus());
+		}
+
+		if (from.isTIME() && to.isTIME())
+			((TIME)to).setTimeStamp(((TIME)from).getTimeStamp());
+
+		if (from.isGR() && to.isGR())
+		{
+			final GR fromGR = (GR)from;
+			final GR toGR = (GR)to;
+			toGR.setUnits(fromGR.getUnits());
+			toGR.setUpperDispLimit(fromGR.getUpperDispLimit());
+			toGR.setLowerDispLimit(fromGR.getLowerDispLimit());
+			toGR.setUpperAlarmLimit(fromGR.getUpperAlarmLimit());
+			toGR.setUpperWarningLimit(fromGR.getUpperWarningLimit());
+			toGR.setLowerWarningLimit(fromGR.getLowerWarningLimit());
+			toGR.setLowerAlarmLimit(fromGR.getLowerAlarmLimit());
+		}
+
+		if (from.isCTRL() && to.isCTRL())
+		{
+			final CTRL fromCTRL = (CTRL)from;
+			final CTRL toCTRL = (CTRL)to;
+			toCTRL.setUpperCtrlLimit(fromCTRL.getUpperCtrlLimit());
+			toCTRL.setLowerCtrlLimit(fromCTRL.getLowerCtrlLimit());
+		}
+
+		if (from.isPRECSION() && to.isPRECSION())
+			((PRECISION)to).setPrecision(((PRECISION)from).getPrecision());
+
+		if (from.isLABELS() && to.isLABELS())
+			((LABELS)to).setLabels(((LABELS)from).getLabels());
+	}
+
+	/**
+	 * Get precision of a DBR.
+	 * @param dbr DBR.
+	 * @return precision, -1 if not defined.
+	 */
+	private static int precision(DBR dbr) {
+		return dbr.isPRECSION() ? ((PRECISION)dbr).getPrecision() : -1;
+	}
+
+	/**
+	 * Convert enum array to string array (labels).
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @param labels enum labels, undefined labels are converted to empty strings.
+	 */
+	public static void convert(short[] src, String[] dst, int count, String[] labels) {
+		for (int i = 0; i < count; i++)
+		{
+			final short index = src[i];
+			final String label = (labels != null && index >= 0 && index < labels.length) ? labels[index] : null;
+			// do not allow nulls
+			dst[i] = (label != null) ? label : EMPTY;
+		}
+	}
+
+	/**
+	 * Convert string array to enum array (label indices).
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @param labels enum labels.
+	 * @throws CAStatusException if no labels are given or string is not a valid label.
+	 */
+	public static void convert(String[] src, short[] dst, int count, String[] labels) throws CAStatusException {
+		// check if any
+		if (labels == null)
+			throw new CAStatusException(CAStatus.NOCONVERT, "no labels provided");
+
+		for (int i = 0; i < count; i++)
+		{
+			short pos = 0;
+			for (; pos < (short)labels.length; pos++)
+				if (labels[pos] != null && labels[pos].equals(src[i]))
+					break;
+
+			// found
+			if (pos < labels.length)
+				dst[i] = pos;
+			else
+				throw new CAStatusException(CAStatus.NOCONVERT, "'" + src[i] + "' is not a valid choice");
+		}
+	}
+
+	/**
+	 * Convert <code>byte</code> array to <code>byte</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(byte[] src, byte[] dst, int count) {
+		System.arraycopy(src, 0, dst, 0, count);
+	}
+
+	/**
+	 * Convert <code>byte</code> array to <code>short</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(byte[] src, short[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (short)src[i];
+	}
+
+	/**
+	 * Convert <code>byte</code> array to <code>int</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(byte[] src, int[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (int)src[i];
+	}
+
+	/**
+	 * Convert <code>byte</code> array to <code>float</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(byte[] src, float[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (float)src[i];
+	}
+
+	/**
+	 * Convert <code>byte</code> array to <code>double</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(byte[] src, double[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (double)src[i];
+	}
+
+	/**
+	 * Convert <code>short</code> array to <code>byte</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(short[] src, byte[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (byte)src[i];
+	}
+
+	/**
+	 * Convert <code>short</code> array to <code>short</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(short[] src, short[] dst, int count) {
+		System.arraycopy(src, 0, dst, 0, count);
+	}
+
+	/**
+	 * Convert <code>short</code> array to <code>int</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(short[] src, int[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (int)src[i];
+	}
+
+	/**
+	 * Convert <code>short</code> array to <code>float</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(short[] src, float[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (float)src[i];
+	}
+
+	/**
+	 * Convert <code>short</code> array to <code>double</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(short[] src, double[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (double)src[i];
+	}
+
+	/**
+	 * Convert <code>int</code> array to <code>byte</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(int[] src, byte[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (byte)src[i];
+	}
+
+	/**
+	 * Convert <code>int</code> array to <code>short</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(int[] src, short[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (short)src[i];
+	}
+
+	/**
+	 * Convert <code>int</code> array to <code>int</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(int[] src, int[] dst, int count) {
+		System.arraycopy(src, 0, dst, 0, count);
+	}
+
+	/**
+	 * Convert <code>int</code> array to <code>float</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(int[] src, float[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (float)src[i];
+	}
+
+	/**
+	 * Convert <code>int</code> array to <code>double</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(int[] src, double[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (double)src[i];
+	}
+
+	/**
+	 * Convert <code>float</code> array to <code>byte</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(float[] src, byte[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (byte)src[i];
+	}
+
+	/**
+	 * Convert <code>float</code> array to <code>short</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(float[] src, short[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (short)src[i];
+	}
+
+	/**
+	 * Convert <code>float</code> array to <code>int</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(float[] src, int[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (int)src[i];
+	}
+
+	/**
+	 * Convert <code>float</code> array to <code>float</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(float[] src, float[] dst, int count) {
+		System.arraycopy(src, 0, dst, 0, count);
+	}
+
+	/**
+	 * Convert <code>float</code> array to <code>double</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(float[] src, double[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (double)src[i];
+	}
+
+	/**
+	 * Convert <code>double</code> array to <code>byte</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(double[] src, byte[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (byte)src[i];
+	}
+
+	/**
+	 * Convert <code>double</code> array to <code>short</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(double[] src, short[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (short)src[i];
+	}
+
+	/**
+	 * Convert <code>double</code> array to <code>int</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(double[] src, int[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (int)src[i];
+	}
+
+	/**
+	 * Convert <code>double</code> array to <code>float</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(double[] src, float[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = (float)src[i];
+	}
+
+	/**
+	 * Convert <code>double</code> array to <code>double</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(double[] src, double[] dst, int count) {
+		System.arraycopy(src, 0, dst, 0, count);
+	}
+
+	/**
+	 * Convert <code>byte</code> array to string array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(byte[] src, String[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = String.valueOf(src[i]);
+	}
+
+	/**
+	 * Convert <code>short</code> array to string array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(short[] src, String[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = String.valueOf(src[i]);
+	}
+
+	/**
+	 * Convert <code>int</code> array to string array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 */
+	public static void convert(int[] src, String[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = String.valueOf(src[i]);
+	}
+
+	/**
+	 * Convert <code>float</code> array to string array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @param precision number of decimals, &lt; 0 if not defined (<code>String.valueOf()</code> is used).
+	 */
+	public static void convert(float[] src, String[] dst, int count, int precision) {
+		if (precision >= 0)
+		{
+			final char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+			for (int i = 0; i < count; i++)
+				dst[i] = PrecisionFormatter.format(src[i], precision, buffer);
+		}
+		else
+		{
+			for (int i = 0; i < count; i++)
+				dst[i] = String.valueOf(src[i]);
+		}
+	}
+
+	/**
+	 * Convert <code>double</code> array to string array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @param precision number of decimals, &lt; 0 if not defined (<code>String.valueOf()</code> is used).
+	 */
+	public static void convert(double[] src, String[] dst, int count, int precision) {
+		if (precision >= 0)
+		{
+			final char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+			for (int i = 0; i < count; i++)
+				dst[i] = PrecisionFormatter.format(src[i], precision, buffer);
+		}
+		else
+		{
+			for (int i = 0; i < count; i++)
+				dst[i] = String.valueOf(src[i]);
+		}
+	}
+
+	/**
+	 * Convert (parse) string array to <code>byte</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @throws NumberFormatException if a string is not a valid number.
+	 */
+	public static void convert(String[] src, byte[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = Byte.parseByte(src[i]);
+	}
+
+	/**
+	 * Convert (parse) string array to <code>short</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @throws NumberFormatException if a string is not a valid number.
+	 */
+	public static void convert(String[] src, short[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = Short.parseShort(src[i]);
+	}
+
+	/**
+	 * Convert (parse) string array to <code>int</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @throws NumberFormatException if a string is not a valid number.
+	 */
+	public static void convert(String[] src, int[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = Integer.parseInt(src[i]);
+	}
+
+	/**
+	 * Convert (parse) string array to <code>float</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @throws NumberFormatException if a string is not a valid number.
+	 */
+	public static void convert(String[] src, float[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = Float.parseFloat(src[i]);
+	}
+
+	/**
+	 * Convert (parse) string array to <code>double</code> array.
+	 * @param src source array.
+	 * @param dst destination array.
+	 * @param count number of elements to convert.
+	 * @throws NumberFormatException if a string is not a valid number.
+	 */
+	public static void convert(String[] src, double[] dst, int count) {
+		for (int i = 0; i < count; i++)
+			dst[i] = Double.parseDouble(src[i]);
+	}
+
+}
@@ -25,7 +25,6 @@
 
 package gov.aps.jca.dbr;
 
-import gov.aps.jca.CAStatus;
 import gov.aps.jca.CAStatusException;
 
 public class DBR_Enum extends DBR implements ENUM {
@@ -65,79 +64,8 @@ public class DBR_Enum extends DBR implements ENUM {
 		if (convertType.isENUM() && convertType.getValue() <= getType().getValue())
 			return this;
 
-		final short[] fromValue = getEnumValue();
 		DBR dbr = DBRFactory.create(convertType, _count);
-		
-		if (convertType.isSTRING())
-		{
-			String[] toValue = ((DBR_String)dbr).getStringValue();
-
-			String[] labels = null;
-			if (isLABELS())
-				labels = ((LABELS)this).getLabels();
-			
-			final String EMPTY = "";
-			
-			// set empty labels as default
-			if (labels == null)
-			{
-				for (int i = 0; i < _count; i++)
-					toValue[i] = EMPTY;
-			}
-			else
-			{
-				for (int i = 0; i < _count; i++)
-				{
-					if (fromValue[i] < labels.length)
-						toValue[i] = labels[fromValue[i]];
-					
-					// do not allow nulls
-					if (toValue[i] == null)
-						toValue[i] = EMPTY;
-				}
-			}
-		}
-		else if (convertType.isSHORT())
-		{
-			short[] toValue = ((DBR_Short)dbr).getShortValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (short)fromValue[i];
-		}
-		else if (convertType.isFLOAT())
-		{
-			float[] toValue = ((DBR_Float)dbr).getFloatValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (float)fromValue[i];
-		} 
-		else if (convertType.isENUM())
-		{
-			short[] toValue = ((DBR_Enum)dbr).getEnumValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (short)fromValue[i];
-		} 
-		else if (convertType.isBYTE())
-		{
-			byte[] toValue = ((DBR_Byte)dbr).getByteValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (byte)fromValue[i];
-		} 
-		else if (convertType.isINT())
-		{
-			int[] toValue = ((DBR_Int)dbr).getIntValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (int)fromValue[i];
-		}
-		else if (convertType.isDOUBLE())
-		{
-			double[] toValue = ((DBR_Double)dbr).getDoubleValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (double)fromValue[i];
-		}
-		else
-		{
-			throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
-		}
-		
+		DBRConverter.convertValue(this, dbr, null);
 		return dbr;
 	}
   
@@ -25,9 +25,6 @@
 
 package gov.aps.jca.dbr;
 
-import java.util.Locale;
-
-import gov.aps.jca.CAStatus;
 import gov.aps.jca.CAStatusException;
 
 public class DBR_Float extends DBR implements FLOAT {
@@ -69,80 +66,8 @@ public class DBR_Float extends DBR implements FLOAT {
 		if (convertType.isFLOAT() && convertType.getValue() <= getType().getValue())
 			return this;
 
-		final float[] fromValue = getFloatValue();
 		DBR dbr = DBRFactory.create(convertType, _count);
-		
-		if (convertType.isSTRING())
-		{
-			String[] toValue = ((DBR_String)dbr).getStringValue();
-			// consider precision
-			int decimals = -1;
-			if (isPRECSION())
-				decimals = ((PRECISION)this).getPrecision();
-			
-			if (decimals >= 0)
-			{
-				// TODO performance, performance!!!
-				// NOTE: for %g formatting is horrible
-				final String formatFString = "%." + decimals + "f";
-				for (int i = 0; i < _count; i++)
-				{
-					final Object[] params = new Object[] { new Float(fromValue[i]) } ;
-					toValue[i] = String.format(Locale.US, formatFString, params);
-					if (toValue[i].length() > 16)
-					{
-						final String formatEString = "%." + decimals + "e";
-						toValue[i] = String.format(Locale.US, formatEString, params);
-					}
-				}
-			}
-			else
-			{
-				for (int i = 0; i < _count; i++)
-					toValue[i] = String.valueOf(fromValue[i]);
-			}
-		}
-		else if (convertType.isSHORT())
-		{
-			short[] toValue = ((DBR_Short)dbr).getShortValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (short)fromValue[i];
-		} 
-		else if (convertType.isFLOAT())
-		{
-			float[] toValue = ((DBR_Float)dbr).getFloatValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (float)fromValue[i];
-		} 
-		else if (convertType.isENUM())
-		{
-			short[] toValue = ((DBR_Enum)dbr).getEnumValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (short)fromValue[i];
-		} 
-		else if (convertType.isBYTE())
-		{
-			byte[] toValue = ((DBR_Byte)dbr).getByteValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (byte)fromValue[i];
-		} 
-		else if (convertType.isINT())
-		{
-			int[] toValue = ((DBR_Int)dbr).getIntValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (int)fromValue[i];
-		}
-		else if (convertType.isDOUBLE())
-		{
-			double[] toValue = ((DBR_Double)dbr).getDoubleValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (double)fromValue[i];
-		}
-		else
-		{
-			throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
-		}
-		
+		DBRConverter.convertValue(this, dbr, null);
 		return dbr;
 	}
 
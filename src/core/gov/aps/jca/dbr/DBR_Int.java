@@ -25,7 +25,6 @@
 
 package gov.aps.jca.dbr;
 
-import gov.aps.jca.CAStatus;
 import gov.aps.jca.CAStatusException;
 
 public class DBR_Int extends DBR implements INT {
@@ -66,56 +65,8 @@ public class DBR_Int extends DBR implements INT {
 		if (convertType.isINT() && convertType.getValue() <= getType().getValue())
 			return this;
 
-		final int[] fromValue = getIntValue();
 		DBR dbr = DBRFactory.create(convertType, _count);
-		
-		if (convertType.isSTRING())
-		{
-			String[] toValue = ((DBR_String)dbr).getStringValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = String.valueOf(fromValue[i]);
-		}
-		else if (convertType.isSHORT())
-		{
-			short[] toValue = ((DBR_Short)dbr).getShortValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (short)fromValue[i];
-		}
-		else if (convertType.isFLOAT())
-		{
-			float[] toValue = ((DBR_Float)dbr).getFloatValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (float)fromValue[i];
-		}
-		else if (convertType.isENUM())
-		{
-			short[] toValue = ((DBR_Enum)dbr).getEnumValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (short)fromValue[i];
-		} 
-		else if (convertType.isBYTE())
-		{
-			byte[] toValue = ((DBR_Byte)dbr).getByteValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (byte)fromValue[i];
-		} 
-		else if (convertType.isINT())
-		{
-			int[] toValue = ((DBR_Int)dbr).getIntValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (int)fromValue[i];
-		} 
-		else if (convertType.isDOUBLE())
-		{
-			double[] toValue = ((DBR_Double)dbr).getDoubleValue();
-			for (int i = 0; i < _count; i++)
-				toValue[i] = (double)fromValue[i];
-		}
-		else
-		{
-			throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
-		}
-		
+		DBRConverter.convertValue(this, dbr, null);
 		return dbr;
 	}
 
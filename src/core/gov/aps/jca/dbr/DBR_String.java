@@ -25,7 +25,6 @@
 
 package gov.aps.jca.dbr;
 
-import gov.aps.jca.CAStatus;
 import gov.aps.jca.CAStatusException;
 
 public class DBR_String extends DBR implements STRING {
@@ -91,86 +90,8 @@ public class DBR_String extends DBR implements STRING {
 		if (convertType.isSTRING() && convertType.getValue() <= getType().getValue())
 			return this;
 
-		final String[] fromValue = getStringValue();
 		DBR dbr = DBRFactory.create(convertType, _count);
-	
-		try
-		{
-			
-			if (convertType.isSTRING())
-			{
-				String[] toValue = ((DBR_String)dbr).getStringValue();
-				for (int i = 0; i < _count; i++)
-					toValue[i] = String.valueOf(fromValue[i]);
-			}
-			else if (convertType.isSHORT())
-			{
-				short[] toValue = ((DBR_Short)dbr).getShortValue();
-				for (int i = 0; i < _count; i++)
-					toValue[i] = Short.parseShort(fromValue[i]);
-			}
-			else if (convertType.isFLOAT())
-			{
-				float[] toValue = ((DBR_Float)dbr).getFloatValue();
-				for (int i = 0; i < _count; i++)
-					toValue[i] = Float.parseFloat(fromValue[i]);
-			}
-			else if (convertType.isENUM())
-			{
-				short[] toValue = ((DBR_Enum)dbr).getEnumValue();
-
-				String[] labels = (String[])params;
-				
-				// check if any
-				if (labels == null)
-					throw new CAStatusException(CAStatus.NOCONVERT, "no labels provided");
-				
-				for (int i = 0; i < _count; i++)
-				{
-					short pos = 0;
-					for (; pos < (short)labels.length; pos++)
-						if (labels[pos] != null && labels[pos].equals(fromValue[i]))
-							break;
-					
-					// found
-					if (pos < labels.length)
-						toValue[i] = pos;
-					else
-						throw new CAStatusException(CAStatus.NOCONVERT, "'" + fromValue[i] + "' is not a valid choice");
-						
-				}
-
-				/*
-				for (int i = 0; i < _count; i++)
-					toValue[i] = Short.parseShort(fromValue[i]);
-				*/
-			} 
-			else if (convertType.isBYTE())
-			{
-				byte[] toValue = ((DBR_Byte)dbr).getByteValue();
-				for (int i = 0; i < _count; i++)
-					toValue[i] = Byte.parseByte(fromValue[i]);
-			} 
-			else if (convertType.isINT())
-			{
-				int[] toValue = ((DBR_Int)dbr).getIntValue();
-				for (int i = 0; i < _count; i++)
-					toValue[i] = Integer.parseInt(fromValue[i]);
-			}
-			else if (convertType.isDOUBLE())
-			{
-				double[] toValue = ((DBR_Double)dbr).getDoubleValue();
-				for (int i = 0; i < _count; i++)
-					toValue[i] = Double.parseDouble(fromValue[i]);
-			}
-			else
-			{
-				throw new CAStatusException(CAStatus.NOCONVERT, "converstion not supported");
-			}
-		} catch (NumberFormatException nfr) {
-			throw new CAStatusException(CAStatus.NOCONVERT);
-		}
-		
+		DBRConverter.convertValue(this, dbr, params);
 		return dbr;
 	}
 
@@ -0,0 +1,246 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package gov.aps.jca.dbr;
+
+import java.util.Locale;
+
+/**
+ * Precision-aware number to string formatter, used for conversion of numeric DBRs to <code>DBR_STRING</code>.
+ * Output is the same as of <code>String.format(Locale.US, "%.&lt;precision&gt;f", value)</code>, if longer than
+ * 16 characters <code>"%.&lt;precision&gt;e"</code> format is used instead.
+ * Fixed-point formatting is done with <code>long</code> arithmetic into a caller-provided buffer
+ * (no <code>Formatter</code>, boxing and intermediate strings); values whose rounding cannot be decided
+ * safely this way (too many significant digits, ties not exactly representable, exponential format)
+ * are formatted by <code>String.format</code>.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public final class PrecisionFormatter {
+
+	/**
+	 * Buffer size required by <code>format</code> methods (size of CA string).
+	 */
+	public static final int BUFFER_SIZE = 40;
+
+	/**
+	 * Maximum length of fixed-point formatted value, longer values are formatted in exponential format.
+	 */
+	private static final int MAX_FIXED_LENGTH = 16;
+
+	/**
+	 * Maximum precision handled by fixed-point formatting (powers of 10 are exact doubles and fit in a long).
+	 */
+	private static final int MAX_FAST_PRECISION = 17;
+
+	/**
+	 * Integer part limit for fixed-point formatting (integer doubles are exact).
+	 */
+	private static final double MAX_FAST_INTEGER_PART = 1L << 53;
+
+	/**
+	 * Powers of 10, as long and as double.
+	 */
+	private static final long[] POW10 = new long[MAX_FAST_PRECISION + 1];
+	private static final double[] POW10D = new double[MAX_FAST_PRECISION + 1];
+
+	/**
+	 * Number of significant bits of 5^n (10^n = 5^n * 2^n).
+	 */
+	private static final int[] POW5_BITS = new int[MAX_FAST_PRECISION + 1];
+
+	static {
+		long pow10 = 1, pow5 = 1;
+		for (int i = 0; i <= MAX_FAST_PRECISION; i++)
+		{
+			POW10[i] = pow10;
+			POW10D[i] = pow10;
+			POW5_BITS[i] = 64 - Long.numberOfLeadingZeros(pow5);
+			pow10 *= 10;
+			pow5 *= 5;
+		}
+	}
+
+	/**
+	 * Static class.
+	 */
+	private PrecisionFormatter() {
+	}
+
+	/**
+	 * Format value with given precision.
+	 * @param value value to format.
+	 * @param precision number of decimals, &gt;= 0.
+	 * @return formatted value.
+	 */
+	public static String format(double value, int precision) {
+		return format(value, precision, new char[BUFFER_SIZE]);
+	}
+
+	/**
+	 * Format value with given precision, using given buffer.
+	 * The buffer can be reused for multiple calls (e.g. for all elements of an array).
+	 * @param value value to format.
+	 * @param precision number of decimals, &gt;= 0.
+	 * @param buffer work buffer, at least <code>BUFFER_SIZE</code> characters.
+	 * @return formatted value.
+	 */
+	public static String format(double value, int precision, char[] buffer) {
+		final int len = formatFixed(value, precision, buffer);
+		if (len >= 0)
+			return new String(buffer, 0, len);
+		else
+			return formatSlow(value, precision);
+	}
+
+	/**
+	 * Format value with given precision into given buffer (<code>"%.&lt;precision&gt;f"</code> format).
+	 * @param value value to format.
+	 * @param precision number of decimals, &gt;= 0.
+	 * @param buffer buffer, at least <code>BUFFER_SIZE</code> characters.
+	 * @return number of characters written, -1 if value cannot be (safely) formatted by this method
+	 * 			or its length exceeds fixed-point format limit (nothing is written then).
+	 */
+	public static int formatFixed(double value, int precision, char[] buffer) {
+
+		// special values (same as Formatter)
+		if (value != value)
+			return write("NaN", buffer, 0);
+		else if (value == Double.POSITIVE_INFINITY)
+			return write("Infinity", buffer, 0);
+		else if (value == Double.NEGATIVE_INFINITY)
+			return write("-Infinity", buffer, 0);
+
+		if (precision < 0 || precision > MAX_FAST_PRECISION)
+			return -1;
+
+		// NOTE: -0.0 is negative
+		final boolean negative = Double.compare(value, 0.0) < 0;
+		final double abs = Math.abs(value);
+		if (abs >= MAX_FAST_INTEGER_PART)
+			return -1;
+
+		// exact split to integer and fractional part
+		long integerPart = (long)abs;
+		final double fraction = abs - integerPart;
+
+		// scaled fraction, Formatter rounds (HALF_UP) decimal digits of value (Double.toString digits),
+		// they differ from the exact value by at most half ulp, scaled product rounding adds another half ulp
+		final double scaled = fraction * POW10D[precision];
+		final double error = Math.ulp(abs) * POW10D[precision] + Math.ulp(scaled);
+		if (error >= 0.25)
+			return -1;
+
+		long fractionPart = (long)scaled;
+		final double remainder = scaled - fractionPart;
+		if (remainder == 0.5)
+		{
+			// tie, decidable only if both the fraction and the product are exact (value is a decimal ending with 5)
+			if (!isProductExact(fraction, precision))
+				return -1;
+			fractionPart++;
+		}
+		else if (Math.abs(remainder - 0.5) <= error)
+			return -1;
+		else if (remainder > 0.5)
+			fractionPart++;
+
+		// carry
+		if (fractionPart >= POW10[precision])
+		{
+			fractionPart -= POW10[precision];
+			integerPart++;
+		}
+
+		// length check
+		final int integerDigits = digits(integerPart);
+		final int len = (negative ? 1 : 0) + integerDigits + (precision > 0 ? precision + 1 : 0);
+		if (len > MAX_FIXED_LENGTH)
+			return -1;
+
+		// write backwards
+		int pos = len;
+		for (int i = 0; i < precision; i++)
+		{
+			buffer[--pos] = (char)('0' + (int)(fractionPart % 10));
+			fractionPart /= 10;
+		}
+		if (precision > 0)
+			buffer[--pos] = '.';
+		for (int i = 0; i < integerDigits; i++)
+		{
+			buffer[--pos] = (char)('0' + (int)(integerPart % 10));
+			integerPart /= 10;
+		}
+		if (negative)
+			buffer[--pos] = '-';
+
+		return len;
+	}
+
+	/**
+	 * Format value using <code>Formatter</code>.
+	 * @param value value to format.
+	 * @param precision number of decimals.
+	 * @return formatted value.
+	 */
+	private static String formatSlow(double value, int precision) {
+		final Object[] params = new Object[] { Double.valueOf(value) };
+		String str = String.format(Locale.US, "%." + precision + "f", params);
+		if (str.length() > MAX_FIXED_LENGTH)
+			str = String.format(Locale.US, "%." + precision + "e", params);
+		return str;
+	}
+
+	/**
+	 * Check if <code>fraction * 10^precision</code> is exactly representable (has no more than 53 significant bits).
+	 * @param fraction fraction, <code>[0, 1)</code>.
+	 * @param precision precision.
+	 * @return <code>true</code> if product is exact.
+	 */
+	private static boolean isProductExact(double fraction, int precision) {
+		final long bits = Double.doubleToRawLongBits(fraction);
+		final long mantissa = (bits & 0x000FFFFFFFFFFFFFL) | ((bits & 0x7FF0000000000000L) != 0 ? 0x0010000000000000L : 0);
+		if (mantissa == 0)
+			return true;
+		final int significantBits = 64 - Long.numberOfLeadingZeros(mantissa) - Long.numberOfTrailingZeros(mantissa);
+		return significantBits + POW5_BITS[precision] <= 53;
+	}
+
+	/**
+	 * Number of decimal digits.
+	 * @param value non-negative value.
+	 * @return number of digits, 1 for 0.
+	 */
+	private static int digits(long value) {
+		int digits = 1;
+		while (digits < POW10.length && value >= POW10[digits])
+			digits++;
+		return digits;
+	}
+
+	/**
+	 * Write string to buffer.
+	 * @param str string to write.
+	 * @param buffer buffer.
+	 * @param offset offset.
+	 * @return number of characters written.
+	 */
+	private static int write(String str, char[] buffer, int offset) {
+		final int len = str.length();
+		str.getChars(0, len, buffer, offset);
+		return len;
+	}
+
+}
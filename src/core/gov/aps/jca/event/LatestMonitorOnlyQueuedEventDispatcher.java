@@ -8,32 +8,70 @@ import gov.aps.jca.configuration.ConfigurationException;
 import java.io.FileNotFoundException;
 import java.io.PrintStream;
 import java.text.SimpleDateFormat;
-import java.util.ArrayList;
 import java.util.Date;
 import java.util.EventListener;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.BiFunction;
 
 /**
  * This EventDispatcher uses an internal thread to dispatch events and overrides older (obsolete) monitor values.
+ * Each monitor (source and listener(s) pair) has its own slot holding only the latest value; a new value
+ * only swaps the slot reference and, if the slot was not already pending, queues the slot to the dispatch queue.
  */
 public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatcher implements
         Runnable, Configurable {
     
     static protected int _count = 0;
 
+    /**
+     * Period (in ms) of removal of unused monitor slots.
+     */
+    protected static final long SLOT_PURGE_PERIOD = 30000;
+
     protected volatile boolean _killed = false;
     protected int _priority = Thread.NORM_PRIORITY;
     protected Thread _dispatcherThread;
-    protected List _queue;
     protected int _queueLimit = 100;
 
     protected Map _sourcesEventCount;
     protected int _limit = 5;
     
-    protected Map _overrideMap;
+    /**
+     * Map of monitor slots (chained by listener), keyed by source.
+     */
+    protected final ConcurrentHashMap<Object, MonitorSlot> _monitorSlots = new ConcurrentHashMap<Object, MonitorSlot>();
+
+    /**
+     * Dispatch queue (intrusive multi-producer single-consumer queue), tail and consumer's head.
+     */
+    private final Node _stub = new Node() {
+        public void dispatch() { /* noop */ }
+    };
+    private final AtomicReference<Node> _queueTail = new AtomicReference<Node>(_stub);
+    private Node _queueHead = _stub;
+
+    /**
+     * Number of queued nodes.
+     */
+    protected final AtomicInteger _queueSize = new AtomicInteger();
+
+    /**
+     * Lock producers wait on while queue is full.
+     */
+    protected final Object _queueFullLock = new Object();
+
+    /**
+     * Set when dispatcher thread is (about to be) parked.
+     */
+    private volatile boolean _waiting = false;
 
     protected String _monitorOutput = null;
     protected Thread _monitorThread;
@@ -42,7 +80,6 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
         _dispatcherThread = new Thread(this, "LatestMonitorOnlyQueuedEventDispatcher-" + (_count++));
         _dispatcherThread.setDaemon(true);
         setPriority(JCALibrary.getInstance().getPropertyAsInt(LatestMonitorOnlyQueuedEventDispatcher.class.getName() + ".priority", _priority));
-        _queue = new ArrayList();
         _queueLimit = JCALibrary.getInstance().getPropertyAsInt(LatestMonitorOnlyQueuedEventDispatcher.class.getName() + ".queue_limit", _queueLimit);
         if (_queueLimit < 10)
         	_queueLimit = 10;
@@ -52,8 +89,6 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
         if (_limit < 3)
         	_limit = 3;
     
-        _overrideMap = new HashMap();
-        
         _monitorOutput = JCALibrary.getInstance().getProperty(LatestMonitorOnlyQueuedEventDispatcher.class.getName() + ".monitor_output", _monitorOutput);
         if (_monitorOutput != null)
         {
@@ -69,35 +104,219 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
         _dispatcherThread.start();
     }
 
-    abstract class Event {
-        CAEvent _ev;
+    /**
+     * Dispatch queue node.
+     */
+    static abstract class Node {
+        volatile Node _next;
+
+        abstract public void dispatch();
+    }
+
+    abstract class Event extends Node {
+        final CAEvent _ev;
         final EventListener _listener;
         final Object[] _listeners;
-        final Object _overrideId;
 
         Event(CAEvent ev, Object[] listeners) {
-        	this(ev, listeners, null);
-        }
-        
-        Event(CAEvent ev, Object[] listeners, Object overrideId) {
             _ev = ev;
             _listener = null;
             _listeners = listeners;
-            _overrideId = overrideId;
         }
 
         Event(CAEvent ev, EventListener listener) {
-        	this(ev, listener, null);
-        }
-        
-        Event(CAEvent ev, EventListener listener, Object overrideId) {
             _ev = ev;
             _listener = listener;
             _listeners = null;
-            _overrideId = overrideId;
         }
+    }
 
-        abstract public void dispatch();
+    private static final AtomicReferenceFieldUpdater<MonitorSlot, MonitorEvent> PENDING_UPDATER =
+    	AtomicReferenceFieldUpdater.newUpdater(MonitorSlot.class, MonitorEvent.class, "_pending");
+
+    /**
+     * Monitor slot, holds only the latest (pending) monitor event.
+     * Slot is queued at most once, i.e. when pending value changes from <code>null</code>.
+     */
+    static final class MonitorSlot extends Node {
+        final MonitorListener _listener;
+        final Object[] _listeners;
+
+        /**
+         * Next slot of the same source (different listener(s)).
+         */
+        volatile MonitorSlot _sibling;
+
+        volatile MonitorEvent _pending;
+
+        /**
+         * Set on dispatch, cleared by purge.
+         */
+        volatile boolean _used = true;
+
+        MonitorSlot(MonitorListener listener, Object[] listeners) {
+            _listener = listener;
+            _listeners = listeners;
+        }
+
+        final boolean matches(MonitorListener listener, List<?> listeners) {
+            if (listeners == null)
+                return _listener == listener;
+            else if (_listeners == null || _listeners.length != listeners.size())
+                return false;
+
+            for (int t = 0; t < _listeners.length; ++t)
+                if (_listeners[t] != listeners.get(t))
+                    return false;
+            return true;
+        }
+
+        /**
+         * Set latest value.
+         * @return <code>true</code> if slot needs to be queued.
+         */
+        final boolean post(MonitorEvent ev) {
+            return PENDING_UPDATER.getAndSet(this, ev) == null;
+        }
+
+        public void dispatch() {
+            final MonitorEvent ev = PENDING_UPDATER.getAndSet(this, null);
+            if (ev == null)
+                return;
+            _used = true;
+
+            if (_listeners == null)
+            {
+                try {
+                    _listener.monitorChanged(ev);
+                } catch (Throwable th) {
+                    th.printStackTrace();
+                }
+            }
+            else
+            {
+                for (int t = 0; t < _listeners.length; ++t)
+                {
+                    if (_listeners[t] instanceof MonitorListener)
+                    {
+                        ((MonitorListener) _listeners[t]).monitorChanged(ev);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get (or create) slot of given monitor.
+     * @param source	event source.
+     * @param listener	listener, <code>null</code> if <code>listeners</code> is used.
+     * @param listeners	listeners, <code>null</code> if <code>listener</code> is used.
+     * @return monitor slot.
+     */
+    private MonitorSlot getMonitorSlot(Object source, MonitorListener listener, List<?> listeners)
+    {
+    	// NOTE: hash code of source should not change !!!
+    	for (MonitorSlot slot = _monitorSlots.get(source); slot != null; slot = slot._sibling)
+    		if (slot.matches(listener, listeners))
+    			return slot;
+
+    	// new monitor (concurrent creation for the same monitor is harmless, unused slot gets purged)
+    	final MonitorSlot slot = new MonitorSlot(listener, listeners != null ? listeners.toArray() : null);
+    	_monitorSlots.compute(source, new BiFunction<Object, MonitorSlot, MonitorSlot>() {
+    		public MonitorSlot apply(Object key, MonitorSlot head) {
+    			slot._sibling = head;
+    			return slot;
+    		}
+    	});
+    	return slot;
+    }
+
+    /**
+     * Remove slots that were not dispatched since last purge.
+     */
+    private void purgeMonitorSlots()
+    {
+    	final BiFunction<Object, MonitorSlot, MonitorSlot> purge = new BiFunction<Object, MonitorSlot, MonitorSlot>() {
+    		public MonitorSlot apply(Object key, MonitorSlot head) {
+    			MonitorSlot first = null, last = null;
+    			for (MonitorSlot slot = head; slot != null; slot = slot._sibling)
+    			{
+    				if (slot._used || slot._pending != null)
+    				{
+    					slot._used = false;
+    					if (last == null)
+    						first = slot;
+    					else
+    						last._sibling = slot;
+    					last = slot;
+    				}
+    			}
+    			if (last != null)
+    				last._sibling = null;
+    			return first;
+    		}
+    	};
+
+    	for (Iterator<Object> iter = _monitorSlots.keySet().iterator(); iter.hasNext(); )
+    		_monitorSlots.computeIfPresent(iter.next(), purge);
+    }
+
+    /**
+     * Add node to the dispatch queue (non-blocking, multiple producers).
+     */
+    private void enqueue(Node node)
+    {
+    	_queueSize.incrementAndGet();
+    	push(node);
+    	if (_waiting)
+    	{
+    		final Thread thread = _dispatcherThread;
+    		if (thread != null)
+    			LockSupport.unpark(thread);
+    	}
+    }
+
+    private void push(Node node)
+    {
+    	node._next = null;
+    	final Node prev = _queueTail.getAndSet(node);
+    	prev._next = node;
+    }
+
+    /**
+     * Take node from the dispatch queue (dispatcher thread only).
+     * @return node, <code>null</code> if empty (or producer is in the middle of push).
+     */
+    private Node poll()
+    {
+    	Node head = _queueHead;
+    	Node next = head._next;
+    	if (head == _stub)
+    	{
+    		if (next == null)
+    			return null;
+    		_queueHead = next;
+    		head = next;
+    		next = next._next;
+    	}
+
+    	if (next != null)
+    	{
+    		_queueHead = next;
+    		return head;
+    	}
+
+    	if (_queueTail.get() != head)
+    		return null;
+
+    	push(_stub);
+    	next = head._next;
+    	if (next != null)
+    	{
+    		_queueHead = next;
+    		return head;
+    	}
+    	return null;
     }
 
     protected void nonBlockingQueueEvent(Event ev)
@@ -119,21 +338,23 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
     	boolean doNotBlock = doNotBlockRequired || (Thread.currentThread() == _dispatcherThread);
     	incrementSyncCounter(ev, doNotBlock);
 
-        synchronized (_queue)
-        {
-        	while (!doNotBlock && _queue.size() >= _queueLimit && !_killed)
-        	{
-				try {
-					_queue.wait();
-				} catch (InterruptedException e) { }
-        	}
-        	
-        	if (_killed) return;
+    	if (!doNotBlock)
+    	{
+    		synchronized (_queueFullLock)
+    		{
+	        	while (_queueSize.get() >= _queueLimit && !_killed)
+	        	{
+					try {
+						// timed, dispatcher notifies only on limit crossing
+						_queueFullLock.wait(100);
+					} catch (InterruptedException e) { }
+	        	}
+    		}
+    	}
 
-        	_queue.add(ev);
-            // notify event arrival
-            _queue.notifyAll();
-        }
+    	if (_killed) return;
+
+    	enqueue(ev);
     }
 
     /**
@@ -177,78 +398,65 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
 	}
 
 	/**
-     * Process events in the queue as they are added. The queue must be
-     * synchronized for thread safety but we must be careful not to block for
-     * too long or else new events get blocked from being added to the queue
-     * causing long delays. The design is to process events in batches. This
-     * allows for the most efficient use of computer cycles since much of the
-     * time the queue will not be blocked.
-     * 
-     * This method was modified by tap on 6/17/2004 to allow both efficient event processing and thread safety.
-     * Later optimized by msekoranja.
+     * Process events in the queue as they are added. Producers never lock the queue,
+     * monitor updates only swap the value in the monitor slot (only the latest value is dispatched).
+     * Unused monitor slots are purged periodically.
      */
     public void run()
     {
-        // eventBatch is local and only referenced by a single thread so we
-        // don't have to synchronize it
-        int eventsToProcess = 0;
-        Event[] eventBatch = new Event[0];
-
+        long nextPurge = System.currentTimeMillis() + SLOT_PURGE_PERIOD;
+        int dispatched = 0;
         while (!_killed)
         {
             try
             {
-                // for performance reasons we don't want to block for too long
-                // synchronize _queue for thread safety
-                // copy all of the new queued events to the local batch and clear _queue
-                synchronized (_queue)
+                final Node node = poll();
+                if (node == null)
                 {
-                    // wait for new requests
-                    while (!_killed && _queue.isEmpty())
-                        _queue.wait();
-                    
-                    if (!_killed)
+                    // producer in the middle of push
+                    if (_queueSize.get() > 0)
                     {
-                        eventsToProcess = _queue.size();
-                        // create new instance of batch array only if necessary
-                        if (eventsToProcess > eventBatch.length)
-                            eventBatch = new Event[eventsToProcess];
-                        
-                        // only copy (will not recreate array)                          
-                        _queue.toArray(eventBatch);
-                        _queue.clear();
-
-                        // notify queue clean-up
-                        _queue.notifyAll();
+                        Thread.yield();
+                        continue;
                     }
+
+                    _waiting = true;
+                    if (_queueSize.get() == 0 && !_killed)
+                        LockSupport.parkNanos(this, SLOT_PURGE_PERIOD * 1000000L);
+                    _waiting = false;
                 }
-                
-                // process all events in the local batch until it is empty
-                for (int i = 0; !_killed && i < eventsToProcess; i++)
+                else
                 {
+                    // notify queue clean-up
+                    if (_queueSize.decrementAndGet() == _queueLimit - 1)
+                    {
+                        synchronized (_queueFullLock) {
+                            _queueFullLock.notifyAll();
+                        }
+                    }
+
                     // catch all exceptions, so that one buggy listener does not harm the others  
-                	final Event event = eventBatch[i];
-                	try
+                    try
                     {
-                		// remove from override id
-                    	final Object overrideId = eventBatch[i]._overrideId;
-                    	if (overrideId != null)
-                    	{
-                    		synchronized (_overrideMap) {
-                    			_overrideMap.remove(overrideId);
-							}
-                    	}
-                	
-                    	event.dispatch();
+                        node.dispatch();
                     }
                     catch (Throwable th) {
                         th.printStackTrace();
                     }
-                    
-                    decrementSyncCounter(eventBatch[i]);
-                    
-				    eventBatch[i] = null;	// allow to be gc'ed
-                    Thread.yield();
+
+                    if (node instanceof Event)
+                        decrementSyncCounter((Event)node);
+                }
+
+                // check purge time when idle or every 256 events
+                if (node == null || (++dispatched & 0xFF) == 0)
+                {
+                    final long now = System.currentTimeMillis();
+                    if (now >= nextPurge)
+                    {
+                        purgeMonitorSlots();
+                        nextPurge = now + SLOT_PURGE_PERIOD;
+                    }
                 }
                 
             } catch (Throwable th) {
@@ -260,12 +468,15 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
     public void dispose()
     {
         _killed = true;
+        final Thread thread = _dispatcherThread;
         _dispatcherThread = null;
 
-        // notify _queue
-        synchronized (_queue)
+        // wake-up dispatcher and blocked producers
+        if (thread != null)
+            LockSupport.unpark(thread);
+        synchronized (_queueFullLock)
         {
-            _queue.notifyAll();
+            _queueFullLock.notifyAll();
         }
 
         // destroy all locks
@@ -278,11 +489,7 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
         	_sourcesEventCount.clear();
 		}
 
-        // clear _overrideMap
-        synchronized (_overrideMap)
-        {
-            _overrideMap.clear();
-        }
+        _monitorSlots.clear();
     }
 
     public void configure(Configuration conf) throws ConfigurationException
@@ -395,31 +602,10 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
 	    	return;
 	    }
 
-    	// override check, add to override map or override old event
-    	synchronized (_overrideMap) {
-    		Event existingEvent = (Event)_overrideMap.get(ev.getSource());
-    		if (existingEvent != null) {
-    			existingEvent._ev = ev;
-    		}
-    		else
-    		{
-    			final Event event = new Event(ev, listeners.toArray(), ev.getSource()) {
-    	            public void dispatch()
-    	            {
-    	                for (int t = 0; t < _listeners.length; ++t)
-    	                {
-    	                    if (_listeners[t] instanceof MonitorListener)
-    	                    {
-    	                        ((MonitorListener) _listeners[t])
-    	                        		.monitorChanged((MonitorEvent) _ev);
-    	                    }
-    	                }
-    	            }
-    			};
-    			_overrideMap.put(ev.getSource(), event);
-    		    queueEvent(event);
-    		}
-    	}
+    	// only the latest value is kept in the monitor slot
+    	final MonitorSlot slot = getMonitorSlot(ev.getSource(), null, listeners);
+    	if (slot.post(ev))
+    		enqueue(slot);
     }
 
     public void dispatch(GetEvent ev, List listeners)
@@ -517,35 +703,10 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
   {
   	if (_killed) return;
 
-  	// override check, add to override map or override old event
-   	Event event = null;
-   	synchronized (_overrideMap) 
-   	{
-  		Event existingEvent = (Event)_overrideMap.get(ev.getSource());
-  		if (existingEvent != null && existingEvent._listener == ml) 
-      	{
-  			existingEvent._ev = ev;
-  		}
-  		else
-  		{
-  			event = new Event(ev, ml, ev.getSource()) 
-		        {
-	  	            public void dispatch()
-	  	            {
-						try  {
-		  	                 ((MonitorListener)_listener).monitorChanged((MonitorEvent) _ev);
-		  	          	} 
-	                    catch (Throwable th)  {
-	                       th.printStackTrace();
-		  	          	}
-	  	            }
-	  			};
-  			_overrideMap.put(ev.getSource(), event);
-  		}
-  	}
-
-   	if( event != null ) 
-    	queueEvent(event);
+  	// only the latest value is kept in the monitor slot
+  	final MonitorSlot slot = getMonitorSlot(ev.getSource(), ml, null);
+  	if (slot.post(ev))
+  		enqueue(slot);
   }
 
   public void dispatch( GetEvent ev, GetListener gl ) {
@@ -603,9 +764,7 @@ public class LatestMonitorOnlyQueuedEventDispatcher extends AbstractEventDispatc
 	  final SimpleDateFormat ISO8601FORMAT = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss");		
       while (!_killed)
       {
-    	  synchronized (_queue) {
-        	  output.println(ISO8601FORMAT.format(new Date()) + "\t" + _queue.size());
-    	  }
+    	  output.println(ISO8601FORMAT.format(new Date()) + "\t" + _queueSize.get());
     	  output.flush();
     	  
     	 try {
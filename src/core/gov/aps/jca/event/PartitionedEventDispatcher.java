@@ -0,0 +1,560 @@
+package gov.aps.jca.event;
+
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.configuration.Configurable;
+import gov.aps.jca.configuration.Configuration;
+import gov.aps.jca.configuration.ConfigurationException;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * This EventDispatcher uses multiple internal threads (lanes) to dispatch events.
+ * Events are partitioned by their source (channel), i.e. all the events of one source
+ * are dispatched by the same lane thread in the order they were queued.
+ * Each lane is a bounded lock-free (multi-producer, single-consumer) ring buffer,
+ * number of queued events per source is limited the same way as by <code>QueuedEventDispatcher</code>.
+ */
+public class PartitionedEventDispatcher extends AbstractEventDispatcher implements Configurable {
+
+    private static final Logger logger = Logger.getLogger(PartitionedEventDispatcher.class.getName());
+
+    static protected int _count = 0;
+
+    protected volatile boolean _killed = false;
+    protected int _priority = Thread.NORM_PRIORITY;
+    protected Lane[] _lanes;
+    protected int _laneCapacity = 1024;
+
+    protected ConcurrentHashMap<Object, SourceCounter> _sourcesEventCount;
+    protected int _limit = 5;
+
+    public PartitionedEventDispatcher() {
+        final String className = PartitionedEventDispatcher.class.getName();
+        final int id;
+        synchronized (PartitionedEventDispatcher.class) {
+            id = _count++;
+        }
+
+        int lanes = JCALibrary.getInstance().getPropertyAsInt(className + ".lanes", Runtime.getRuntime().availableProcessors());
+        if (lanes < 1)
+            lanes = 1;
+
+        // power of 2
+        _laneCapacity = JCALibrary.getInstance().getPropertyAsInt(className + ".lane_capacity", _laneCapacity);
+        if (_laneCapacity < 16)
+            _laneCapacity = 16;
+        _laneCapacity = Integer.highestOneBit(_laneCapacity - 1) << 1;
+
+        _sourcesEventCount = new ConcurrentHashMap<Object, SourceCounter>();
+        _limit = JCALibrary.getInstance().getPropertyAsInt(className + ".channel_queue_limit", _limit);
+        if (_limit < 1)
+            _limit = 1;
+
+        _lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++)
+            _lanes[i] = new Lane("PartitionedEventDispatcher-" + id + "-" + i, _laneCapacity);
+
+        setPriority(JCALibrary.getInstance().getPropertyAsInt(className + ".priority", _priority));
+
+        for (int i = 0; i < lanes; i++)
+            _lanes[i]._thread.start();
+    }
+
+    /**
+     * Queued event, a listener or an array of listeners.
+     */
+    static final class Event {
+        final CAEvent _ev;
+        final Object _listener;
+        final Object[] _listeners;
+
+        Event(CAEvent ev, Object listener, Object[] listeners) {
+            _ev = ev;
+            _listener = listener;
+            _listeners = listeners;
+        }
+
+        void dispatch() {
+            if (_listeners == null)
+                dispatch(_ev, _listener);
+            else
+                for (int t = 0; t < _listeners.length; ++t)
+                    dispatch(_ev, _listeners[t]);
+        }
+
+        private static void dispatch(CAEvent ev, Object listener) {
+            // catch all exceptions, so that one buggy listener does not harm the others
+            try {
+                if (ev instanceof MonitorEvent) {
+                    if (listener instanceof MonitorListener)
+                        ((MonitorListener) listener).monitorChanged((MonitorEvent) ev);
+                } else if (ev instanceof GetEvent) {
+                    if (listener instanceof GetListener)
+                        ((GetListener) listener).getCompleted((GetEvent) ev);
+                } else if (ev instanceof PutEvent) {
+                    if (listener instanceof PutListener)
+                        ((PutListener) listener).putCompleted((PutEvent) ev);
+                } else if (ev instanceof ConnectionEvent) {
+                    if (listener instanceof ConnectionListener)
+                        ((ConnectionListener) listener).connectionChanged((ConnectionEvent) ev);
+                } else if (ev instanceof AccessRightsEvent) {
+                    if (listener instanceof AccessRightsListener)
+                        ((AccessRightsListener) listener).accessRightsChanged((AccessRightsEvent) ev);
+                } else if (ev instanceof ContextExceptionEvent) {
+                    if (listener instanceof ContextExceptionListener)
+                        ((ContextExceptionListener) listener).contextException((ContextExceptionEvent) ev);
+                } else if (ev instanceof ContextMessageEvent) {
+                    if (listener instanceof ContextMessageListener)
+                        ((ContextMessageListener) listener).contextMessage((ContextMessageEvent) ev);
+                }
+            } catch (Throwable th) {
+                logger.log(Level.SEVERE, "", th);
+            }
+        }
+    }
+
+    /**
+     * Number of queued (not yet dispatched) events of one source, limited to <code>_limit</code>.
+     */
+    static final class SourceCounter {
+        int _value;
+        boolean _removed;
+    }
+
+    /**
+     * Lane thread, consumer of the lane ring buffer.
+     */
+    final class Lane implements Runnable {
+
+        final Thread _thread;
+
+        // ring buffer, slots are claimed by producers (_tail) and released by the consumer (_head)
+        final AtomicReferenceArray<Event> _ring;
+        final int _mask;
+        final AtomicLong _tail = new AtomicLong();
+        volatile long _head = 0;
+
+        // events of non-blocking producers when the ring is full (consumed after the ring)
+        final ConcurrentLinkedQueue<Event> _overflow = new ConcurrentLinkedQueue<Event>();
+        final AtomicInteger _overflowCount = new AtomicInteger();
+
+        volatile boolean _waiting = false;
+
+        // producers waiting for a free slot (woken by the consumer)
+        final ConcurrentLinkedQueue<Thread> _producers = new ConcurrentLinkedQueue<Thread>();
+        final AtomicInteger _producersCount = new AtomicInteger();
+
+        // metrics
+        volatile long _dispatched = 0;
+        volatile int _maxDepth = 0;
+
+        Lane(String name, int capacity) {
+            _ring = new AtomicReferenceArray<Event>(capacity);
+            _mask = capacity - 1;
+            _thread = new Thread(this, name);
+            _thread.setDaemon(true);
+        }
+
+        int depth() {
+            return (int) (_tail.get() - _head) + _overflowCount.get();
+        }
+
+        /**
+         * Queue an event.
+         * @param ev event to queue.
+         * @param doNotBlock if <code>true</code> the ring capacity is exceeded rather than waiting for a free slot.
+         */
+        void offer(Event ev, boolean doNotBlock) {
+            // NOTE: events of one source are queued sequentially, once in overflow
+            // all the events go to overflow until it is consumed (to keep the order)
+            while (!_killed) {
+                if (_overflowCount.get() == 0 && offerRing(ev))
+                    break;
+
+                if (doNotBlock) {
+                    _overflowCount.incrementAndGet();
+                    _overflow.add(ev);
+                    break;
+                }
+
+                // wait for the consumer, re-check after registering not to miss its wakeup
+                final Thread producer = Thread.currentThread();
+                _producers.add(producer);
+                _producersCount.incrementAndGet();
+                try {
+                    if (_overflowCount.get() == 0 && offerRing(ev))
+                        break;
+                    if (!_killed)
+                        LockSupport.park(this);
+                } finally {
+                    _producersCount.decrementAndGet();
+                    _producers.remove(producer);
+                }
+            }
+
+            if (_waiting)
+                LockSupport.unpark(_thread);
+        }
+
+        /**
+         * Wake up producers waiting for a free slot.
+         */
+        void unparkProducers() {
+            Iterator<Thread> iter = _producers.iterator();
+            while (iter.hasNext())
+                LockSupport.unpark(iter.next());
+        }
+
+        private boolean offerRing(Event ev) {
+            final int capacity = _mask + 1;
+            long tail;
+            do {
+                tail = _tail.get();
+                if (tail - _head >= capacity)
+                    return false;
+            } while (!_tail.compareAndSet(tail, tail + 1));
+
+            _ring.set((int) tail & _mask, ev);
+            return true;
+        }
+
+        /**
+         * Take next event.
+         * @return next event, <code>null</code> if lane is empty.
+         */
+        private Event poll() {
+            final long head = _head;
+            if (_tail.get() != head) {
+                // claimed slot might not be written yet
+                final int index = (int) head & _mask;
+                Event ev;
+                while ((ev = _ring.get(index)) == null) {
+                    if (_killed)
+                        return null;
+                    Thread.yield();
+                }
+                _ring.lazySet(index, null);
+                _head = head + 1;
+                return ev;
+            }
+
+            if (_overflowCount.get() > 0) {
+                Event ev;
+                while ((ev = _overflow.poll()) == null) {
+                    if (_killed)
+                        return null;
+                    Thread.yield();
+                }
+                _overflowCount.decrementAndGet();
+                return ev;
+            }
+
+            return null;
+        }
+
+        public void run() {
+            while (!_killed) {
+                try {
+                    final int depth = depth();
+                    if (depth > _maxDepth)
+                        _maxDepth = depth;
+
+                    Event ev = poll();
+                    if (ev == null) {
+                        _waiting = true;
+                        if (depth() == 0 && !_killed)
+                            LockSupport.park(this);
+                        _waiting = false;
+                        continue;
+                    }
+
+                    // a slot was freed
+                    if (_producersCount.get() > 0)
+                        unparkProducers();
+
+                    ev.dispatch();
+                    decrementSyncCounter(ev);
+                    _dispatched++;
+                } catch (Throwable th) {
+                    logger.log(Level.SEVERE, "", th);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get lane serving given source.
+     * @param source event source.
+     * @return lane.
+     */
+    protected final Lane getLane(Object source) {
+        // NOTE: hash code of source should not change !!!
+        int h = source.hashCode();
+        h ^= (h >>> 16);
+        return _lanes[(h & 0x7FFFFFFF) % _lanes.length];
+    }
+
+    protected void nonBlockingQueueEvent(Event ev)
+    {
+        queueEvent(ev, true);
+    }
+
+    protected void queueEvent(Event ev)
+    {
+        queueEvent(ev, false);
+    }
+
+    protected void queueEvent(Event ev, boolean doNotBlockRequired)
+    {
+        if (_killed) return;
+
+        // avoid deadlock allowing recursive queue-ing (from any lane)
+        boolean doNotBlock = doNotBlockRequired || isLaneThread(Thread.currentThread());
+
+        // increment counter, will block if limit will be reached
+        incrementSyncCounter(ev, doNotBlock);
+
+        getLane(ev._ev.getSource()).offer(ev, doNotBlock);
+    }
+
+    private boolean isLaneThread(Thread thread) {
+        for (int i = 0; i < _lanes.length; i++)
+            if (_lanes[i]._thread == thread)
+                return true;
+        return false;
+    }
+
+    private final void incrementSyncCounter(Event ev, boolean doNotBlock) {
+        final Object source = ev._ev.getSource();
+
+        while (!_killed) {
+            SourceCounter counter = _sourcesEventCount.get(source);
+            if (counter == null) {
+                counter = new SourceCounter();
+                SourceCounter existing = _sourcesEventCount.putIfAbsent(source, counter);
+                if (existing != null)
+                    counter = existing;
+            }
+
+            synchronized (counter) {
+                // limit is reached, wait
+                while (!doNotBlock && counter._value >= _limit && !counter._removed && !_killed) {
+                    try {
+                        counter.wait();
+                    } catch (InterruptedException e) { /* noop */ }
+                }
+
+                // removed counter (all events dispatched), retry with a new one
+                if (counter._removed)
+                    continue;
+
+                counter._value++;
+                return;
+            }
+        }
+    }
+
+    private final void decrementSyncCounter(Event ev) {
+        final Object source = ev._ev.getSource();
+
+        final SourceCounter counter = _sourcesEventCount.get(source);
+        if (counter == null)
+            return;
+
+        synchronized (counter) {
+            if (--counter._value <= 0) {
+                counter._removed = true;
+                _sourcesEventCount.remove(source, counter);
+            }
+            // just below limit (or removed), notify
+            if (counter._removed || counter._value == _limit - 1)
+                counter.notifyAll();
+        }
+    }
+
+    /**
+     * Get number of lanes (dispatcher threads).
+     * @return number of lanes.
+     */
+    public int getLaneCount() {
+        return _lanes.length;
+    }
+
+    /**
+     * Get number of events queued in given lane.
+     * @param lane lane index.
+     * @return number of queued events.
+     */
+    public int getLaneDepth(int lane) {
+        return _lanes[lane].depth();
+    }
+
+    /**
+     * Get maximum number of events queued in given lane (high-water mark, as seen by the lane thread).
+     * @param lane lane index.
+     * @return maximum number of queued events.
+     */
+    public int getLaneMaxDepth(int lane) {
+        return _lanes[lane]._maxDepth;
+    }
+
+    /**
+     * Get number of events dispatched by given lane.
+     * @param lane lane index.
+     * @return number of dispatched events.
+     */
+    public long getLaneDispatchedCount(int lane) {
+        return _lanes[lane]._dispatched;
+    }
+
+    public void dispose()
+    {
+        _killed = true;
+
+        for (int i = 0; i < _lanes.length; i++) {
+            LockSupport.unpark(_lanes[i]._thread);
+            _lanes[i].unparkProducers();
+        }
+
+        // wakeup all blocked producers
+        Iterator<SourceCounter> iter = _sourcesEventCount.values().iterator();
+        while (iter.hasNext()) {
+            SourceCounter counter = iter.next();
+            synchronized (counter) {
+                counter.notifyAll();
+            }
+        }
+        _sourcesEventCount.clear();
+    }
+
+    public void configure(Configuration conf) throws ConfigurationException
+    {
+        int priority = getPriority();
+        try
+        {
+            priority = conf.getChild("priority").getValueAsInteger();
+        } catch (Exception ex)
+        {
+            priority = conf.getAttributeAsInteger("priority", priority);
+        }
+        setPriority(priority);
+    }
+
+    public int getPriority()
+    {
+        return _priority;
+    }
+
+    public void setPriority(int priority)
+    {
+        if (_killed)
+        {
+            throw new IllegalStateException("Dispatcher thread has been killed");
+        }
+        _priority = priority;
+        for (int i = 0; i < _lanes.length; i++)
+            _lanes[i]._thread.setPriority(_priority);
+    }
+
+    // NOTE: raw List listeners as declared by EventDispatcher
+    @SuppressWarnings("rawtypes")
+    public void dispatch(ContextMessageEvent ev, List listeners)
+    {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, null, listeners.toArray()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void dispatch(ContextExceptionEvent ev, List listeners)
+    {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, null, listeners.toArray()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void dispatch(ConnectionEvent ev, List listeners)
+    {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, null, listeners.toArray()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void dispatch(AccessRightsEvent ev, List listeners)
+    {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, null, listeners.toArray()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void dispatch(MonitorEvent ev, List listeners)
+    {
+        if (_killed) return;
+
+        // object creation opt. tweak
+        if (listeners.size() == 1) {
+            dispatch(ev, (MonitorListener) listeners.get(0));
+            return;
+        }
+
+        queueEvent(new Event(ev, null, listeners.toArray()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void dispatch(GetEvent ev, List listeners)
+    {
+        if (_killed) return;
+        queueEvent(new Event(ev, null, listeners.toArray()));
+    }
+
+    @SuppressWarnings("rawtypes")
+    public void dispatch(PutEvent ev, List listeners)
+    {
+        if (_killed) return;
+        queueEvent(new Event(ev, null, listeners.toArray()));
+    }
+
+    public void dispatch(ContextMessageEvent ev, ContextMessageListener cml) {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, cml, null));
+    }
+
+    public void dispatch(ContextExceptionEvent ev, ContextExceptionListener cel) {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, cel, null));
+    }
+
+    public void dispatch(ConnectionEvent ev, ConnectionListener cl) {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, cl, null));
+    }
+
+    public void dispatch(AccessRightsEvent ev, AccessRightsListener arl) {
+        if (_killed) return;
+        nonBlockingQueueEvent(new Event(ev, arl, null));
+    }
+
+    public void dispatch(MonitorEvent ev, MonitorListener ml) {
+        if (_killed) return;
+        queueEvent(new Event(ev, ml, null));
+    }
+
+    public void dispatch(GetEvent ev, GetListener gl) {
+        if (_killed) return;
+        queueEvent(new Event(ev, gl, null));
+    }
+
+    public void dispatch(PutEvent ev, PutListener pl) {
+        if (_killed) return;
+        queueEvent(new Event(ev, pl, null));
+    }
+
+}
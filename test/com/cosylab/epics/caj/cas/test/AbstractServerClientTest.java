@@ -0,0 +1,116 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.dbr.DBRType;
+
+import com.cosylab.epics.caj.CAJContext;
+import com.cosylab.epics.caj.cas.CAJServerContext;
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+
+import junit.framework.TestCase;
+
+/**
+ * Common fixture of tests running a server and a client context in the same VM.
+ * By default server serves a "TEST" (double) memory PV and a default client context is used.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public abstract class AbstractServerClientTest extends TestCase {
+
+	/**
+	 * Server context.
+	 */
+	protected CAJServerContext context;
+
+	/**
+	 * Client context.
+	 */
+	protected CAJContext client;
+
+	/**
+	 * Constructor.
+	 * @param methodName
+	 */
+	public AbstractServerClientTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Register PVs served by the server.
+	 * @param server server implementation.
+	 */
+	protected void registerProcessVariables(DefaultServerImpl server) throws Exception {
+		server.createMemoryProcessVariable("TEST", DBRType.DOUBLE, new double[] { 0.0 });
+	}
+
+	/**
+	 * Configure server context (called before it is initialized).
+	 * @param context server context.
+	 */
+	protected void configureServerContext(CAJServerContext context) throws Exception {
+		// noop
+	}
+
+	/**
+	 * Create client context.
+	 * @return client context.
+	 */
+	protected CAJContext createClientContext() throws Exception {
+		return (CAJContext)JCALibrary.getInstance().createContext(JCALibrary.CHANNEL_ACCESS_JAVA);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+
+		context = new CAJServerContext();
+		configureServerContext(context);
+
+		DefaultServerImpl server = new DefaultServerImpl();
+		registerProcessVariables(server);
+		context.initialize(server);
+
+		new Thread(new Runnable()
+		{
+			public void run() {
+				try
+				{
+					context.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, this.getClass().getName()).start();
+
+		client = createClientContext();
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		if (client != null && !client.isDestroyed())
+			client.destroy();
+		client = null;
+
+		if (context != null && !context.isDestroyed())
+			context.destroy();
+		context = null;
+	}
+
+}
@@ -29,7 +29,16 @@ import org.junit.runners.Suite;
     CAJServerContextConfigurationTest.class,
     ServerImplTest.class,
     GetAndPutTest.class,
-    EventsTest.class})
+    EventsTest.class,
+    ShardedReactorTest.class,
+    BlockingIOTest.class,
+    SearchReplyBatchingTest.class,
+    AsyncConnectTest.class,
+    AsyncGetPutTest.class,
+    SyncGroupTest.class,
+    DefaultServerImplTest.class,
+    MemoryProcessVariableTest.class,
+    MonitorEventFilterTest.class})
 public class AllTests {
 
 }
@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import gov.aps.jca.Channel;
+
+import com.cosylab.epics.caj.impl.CAConnector;
+import com.cosylab.epics.caj.impl.CAResponseHandler;
+import com.cosylab.epics.caj.impl.ConnectCallback;
+import com.cosylab.epics.caj.impl.Transport;
+import com.cosylab.epics.caj.impl.TransportClient;
+
+/**
+ * Asynchronous (non-blocking) TCP connection establishment test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class AsyncConnectTest extends AbstractServerClientTest {
+
+	/**
+	 * Transport client and connect callback recording the result.
+	 */
+	private static class Waiter implements TransportClient, ConnectCallback {
+		final CountDownLatch done = new CountDownLatch(1);
+		volatile Transport transport;
+		volatile Throwable cause;
+		volatile boolean failed;
+
+		public void connectCompleted(Transport transport) {
+			this.transport = transport;
+			done.countDown();
+		}
+
+		public void connectFailed(InetSocketAddress address, Throwable cause) {
+			this.cause = cause;
+			this.failed = true;
+			done.countDown();
+		}
+
+		public void transportUnresponsive() { /* noop */ }
+		public void transportResponsive(Transport transport) { /* noop */ }
+		public void transportChanged() { /* noop */ }
+		public void transportClosed() { /* noop */ }
+
+		boolean await() throws InterruptedException {
+			return done.await(5, TimeUnit.SECONDS);
+		}
+	}
+
+	/**
+	 * Constructor for AsyncConnectTest.
+	 * @param methodName
+	 */
+	public AsyncConnectTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Many channels of the same server connected at once share one transport.
+	 */
+	public void testManyChannels() throws Exception
+	{
+		Channel[] channels = new Channel[50];
+		for (int i = 0; i < channels.length; i++)
+			channels[i] = client.createChannel("TEST");
+		client.pendIO(5.0);
+
+		for (int i = 0; i < channels.length; i++)
+			assertEquals(Channel.CONNECTED, channels[i].getConnectionState());
+		assertEquals(1, client.getTransportRegistry().numberOfActiveTransports());
+
+		for (int i = 0; i < channels.length; i++)
+			channels[i].destroy();
+	}
+
+	/**
+	 * Concurrent requests for the same server (and priority) are served by a single connection.
+	 */
+	public void testPendingConnectShared() throws Exception
+	{
+		// initialize client context
+		client.createChannel("TEST");
+		client.pendIO(5.0);
+
+		CAConnector connector = new CAConnector(client);
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), context.getServerPort());
+
+		// different priority, new connection is needed
+		Waiter[] waiters = new Waiter[5];
+		for (int i = 0; i < waiters.length; i++)
+		{
+			waiters[i] = new Waiter();
+			connector.connectAsync(waiters[i], new CAResponseHandler(client), address, (short)11, (short)1, waiters[i]);
+		}
+
+		for (int i = 0; i < waiters.length; i++)
+		{
+			assertTrue(waiters[i].await());
+			assertFalse(waiters[i].failed);
+			assertSame(waiters[0].transport, waiters[i].transport);
+		}
+		assertEquals(1, waiters[0].transport.getPriority());
+		assertEquals(2, client.getTransportRegistry().numberOfActiveTransports());
+	}
+
+	/**
+	 * Failed connection is reported to the callback (not to the caller) and retry delay is respected.
+	 */
+	public void testConnectFailed() throws Exception
+	{
+		client.createChannel("TEST");
+		client.pendIO(5.0);
+
+		// no one listening on this port
+		ServerSocket serverSocket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress());
+		InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), serverSocket.getLocalPort());
+		serverSocket.close();
+
+		CAConnector connector = new CAConnector(client);
+		Waiter waiter = new Waiter();
+		long start = System.currentTimeMillis();
+		connector.connectAsync(waiter, new CAResponseHandler(client), address, (short)11, (short)0, waiter);
+		// attempts are not made by the calling thread
+		assertTrue(System.currentTimeMillis() - start < 100);
+
+		assertTrue(waiter.await());
+		assertTrue(waiter.failed);
+		assertNotNull(waiter.cause);
+
+		// retry delay not elapsed, no connect attempt
+		Waiter retry = new Waiter();
+		connector.connectAsync(retry, new CAResponseHandler(client), address, (short)11, (short)0, retry);
+		assertEquals(0, retry.done.getCount());
+		assertTrue(retry.failed);
+		assertNull(retry.cause);
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(AsyncConnectTest.class);
+	}
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.dbr.DBR_Int;
+
+import com.cosylab.epics.caj.CAJChannel;
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+
+/**
+ * Future based (asynchronous) get/put/connect test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class AsyncGetPutTest extends AbstractServerClientTest {
+
+	private static final int CHANNELS = 20;
+
+	/**
+	 * Constructor for AsyncGetPutTest.
+	 * @param methodName
+	 */
+	public AsyncGetPutTest(String methodName) {
+		super(methodName);
+	}
+
+	private CAJChannel connect(String name) throws Exception
+	{
+		CAJChannel channel = (CAJChannel)client.createChannel(name);
+		assertSame(channel, channel.connectAsync().get(5, TimeUnit.SECONDS));
+		return channel;
+	}
+
+	public void testConnectAsync() throws Exception
+	{
+		CAJChannel channel = connect("TEST");
+		assertEquals(Channel.CONNECTED, channel.getConnectionState());
+
+		// already connected
+		CompletableFuture<Channel> future = channel.connectAsync();
+		assertTrue(future.isDone());
+		assertSame(channel, future.get());
+
+		// destroyed before connected
+		CAJChannel nonExisting = (CAJChannel)client.createChannel("NON_EXISTING");
+		future = nonExisting.connectAsync();
+		assertFalse(future.isDone());
+		nonExisting.destroy();
+		try {
+			future.get(5, TimeUnit.SECONDS);
+			fail("destroyed channel connected");
+		} catch (ExecutionException ee) {
+			assertTrue(ee.getCause() instanceof IllegalStateException);
+		}
+	}
+
+	public void testGetPutAsync() throws Exception
+	{
+		CAJChannel channel = connect("TEST");
+
+		// no pendIO/flushIO required
+		assertSame(CAStatus.NORMAL, channel.putAsync(DBRType.DOUBLE, 1, new double[] { 12.34 }).get(5, TimeUnit.SECONDS));
+
+		DBR dbr = channel.getAsync(DBRType.DOUBLE, 1).get(5, TimeUnit.SECONDS);
+		assertEquals(12.34, ((DBR_Double)dbr).getDoubleValue()[0], 0.0);
+
+		// native type and count
+		dbr = channel.getAsync().get(5, TimeUnit.SECONDS);
+		assertTrue(dbr.isDOUBLE());
+		assertEquals(1, dbr.getCount());
+		assertEquals(12.34, ((DBR_Double)dbr).getDoubleValue()[0], 0.0);
+
+		// conversion
+		dbr = channel.getAsync(DBRType.INT, 1).get(5, TimeUnit.SECONDS);
+		assertEquals(12, ((DBR_Int)dbr).getIntValue()[0]);
+	}
+
+	public void testManyThreads() throws Exception
+	{
+		final CAJChannel channel = connect("TEST");
+		channel.putAsync(DBRType.DOUBLE, 1, new double[] { 1.5 }).get(5, TimeUnit.SECONDS);
+
+		final int threads = 8;
+		final int reads = 200;
+		final AtomicInteger failures = new AtomicInteger();
+		Thread[] workers = new Thread[threads];
+		for (int i = 0; i < threads; i++)
+		{
+			workers[i] = new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int r = 0; r < reads; r++)
+						{
+							DBR dbr = channel.getAsync(DBRType.DOUBLE, 1).get(5, TimeUnit.SECONDS);
+							if (((DBR_Double)dbr).getDoubleValue()[0] != 1.5)
+								failures.incrementAndGet();
+						}
+					} catch (Throwable th) {
+						th.printStackTrace();
+						failures.incrementAndGet();
+					}
+				}
+			});
+			workers[i].start();
+		}
+		for (int i = 0; i < threads; i++)
+			workers[i].join();
+
+		assertEquals(0, failures.get());
+	}
+
+	public void testGetAll() throws Exception
+	{
+		List<Channel> channels = new ArrayList<Channel>();
+		for (int i = 0; i < CHANNELS; i++)
+		{
+			CAJChannel channel = connect("TEST" + i);
+			channel.putAsync(DBRType.DOUBLE, 1, new double[] { i }).get(5, TimeUnit.SECONDS);
+			channels.add(channel);
+		}
+
+		// native type
+		List<CompletableFuture<DBR>> futures = client.getAll(channels);
+		assertEquals(CHANNELS, futures.size());
+		for (int i = 0; i < CHANNELS; i++)
+			assertEquals(i, ((DBR_Double)futures.get(i).get(5, TimeUnit.SECONDS)).getDoubleValue()[0], 0.0);
+
+		// requested type
+		futures = client.getAll(channels, DBRType.INT, 1);
+		for (int i = 0; i < CHANNELS; i++)
+			assertEquals(i, ((DBR_Int)futures.get(i).get(5, TimeUnit.SECONDS)).getIntValue()[0]);
+
+		// failure of one channel does not affect the others
+		Channel notConnected = client.createChannel("NON_EXISTING");
+		futures = client.getAll(Arrays.asList(new Channel[] { channels.get(1), notConnected }));
+		assertEquals(1, ((DBR_Double)futures.get(0).get(5, TimeUnit.SECONDS)).getDoubleValue()[0], 0.0);
+		assertTrue(futures.get(1).isCompletedExceptionally());
+	}
+
+	/*
+	 * @see AbstractServerClientTest#registerProcessVariables(DefaultServerImpl)
+	 */
+	protected void registerProcessVariables(DefaultServerImpl server) throws Exception {
+		super.registerProcessVariables(server);
+		for (int i = 0; i < CHANNELS; i++)
+			server.createMemoryProcessVariable("TEST" + i, DBRType.DOUBLE, new double[] { 0.0 });
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(AsyncGetPutTest.class);
+	}
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import gov.aps.jca.Channel;
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.Monitor;
+import gov.aps.jca.configuration.DefaultConfiguration;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.event.MonitorEvent;
+import gov.aps.jca.event.MonitorListener;
+
+import com.cosylab.epics.caj.CAJContext;
+import com.cosylab.epics.caj.impl.CATransport;
+import com.cosylab.epics.caj.impl.Transport;
+
+/**
+ * Blocking I/O (client) transport mode test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class BlockingIOTest extends AbstractServerClientTest {
+
+	/**
+	 * Constructor for BlockingIOTest.
+	 * @param methodName
+	 */
+	public BlockingIOTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Get, put and monitor over a blocking I/O transport.
+	 */
+	public void testGetPutAndMonitor() throws Exception
+	{
+		Channel channel = client.createChannel("TEST");
+		client.pendIO(3.0);
+		assertEquals(Channel.CONNECTED, channel.getConnectionState());
+		assertNotNull(client.getBlockingIOExecutor());
+
+		// transport not served by a reactor
+		Transport[] transports = client.getTransportRegistry().toArray();
+		assertEquals(1, transports.length);
+		assertTrue(((CATransport)transports[0]).isBlockingIO());
+
+		final double[] last = new double[1];
+		final CountDownLatch updates = new CountDownLatch(11);
+		Monitor monitor = channel.addMonitor(DBRType.DOUBLE, 1, Monitor.VALUE, new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				synchronized (last) {
+					last[0] = ((DBR_Double)ev.getDBR()).getDoubleValue()[0];
+				}
+				updates.countDown();
+			}
+		});
+		client.flushIO();
+
+		for (int i = 1; i <= 10; i++)
+		{
+			channel.put(i + 0.5);
+			client.pendIO(3.0);
+
+			DBR_Double value = (DBR_Double)channel.get(DBRType.DOUBLE, 1);
+			client.pendIO(3.0);
+			assertEquals(i + 0.5, value.getDoubleValue()[0], 0.0);
+		}
+
+		// initial + 10 updates
+		assertTrue(updates.await(3, TimeUnit.SECONDS));
+		synchronized (last) {
+			assertEquals(10.5, last[0], 0.0);
+		}
+
+		monitor.clear();
+		channel.destroy();
+	}
+
+	/**
+	 * Server disconnect is detected by the blocked reader.
+	 */
+	public void testDisconnect() throws Exception
+	{
+		Channel channel = client.createChannel("TEST");
+		client.pendIO(3.0);
+		assertEquals(Channel.CONNECTED, channel.getConnectionState());
+
+		context.destroy();
+
+		for (int i = 0; i < 30 && channel.getConnectionState() == Channel.CONNECTED; i++)
+			Thread.sleep(100);
+		assertEquals(Channel.DISCONNECTED, channel.getConnectionState());
+		assertEquals(0, client.getTransportRegistry().numberOfActiveTransports());
+	}
+
+	/*
+	 * @see AbstractServerClientTest#createClientContext()
+	 */
+	protected CAJContext createClientContext() throws Exception {
+		DefaultConfiguration clientConf = new DefaultConfiguration("CAJContext");
+		clientConf.setAttribute("class", JCALibrary.CHANNEL_ACCESS_JAVA);
+		clientConf.setAttribute("blocking_io", "true");
+		return (CAJContext)JCALibrary.getInstance().createContext(clientConf);
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(BlockingIOTest.class);
+	}
+}
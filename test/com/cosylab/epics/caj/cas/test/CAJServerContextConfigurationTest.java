@@ -118,6 +118,8 @@ public class CAJServerContextConfigurationTest {
         conf.setAttribute("server_port", "7065");
         conf.setAttribute("max_array_bytes", "17001");
         conf.setAttribute("ignore_addr_list", "192.168.0.213");
+        conf.setAttribute("monitor_queue_size", "10");
+        conf.setAttribute("max_client_update_rate", "50.0");
 
         context.configure(conf);
 
@@ -129,6 +131,14 @@ public class CAJServerContextConfigurationTest {
         assertEquals(7065, context.getServerPort());
         assertEquals(17001, context.getMaxArrayBytes());
         assertEquals("192.168.0.213", context.getIgnoreAddressList());
+        assertEquals(10, context.getDefaultMonitorQueuePolicy().getQueueSize());
+        assertEquals(0, context.getDefaultMonitorQueuePolicy().getCoalesceWindow());
+        assertEquals(50.0, context.getMaxClientUpdateRate(), 0.0);
+
+        conf.setAttribute("monitor_coalesce_period", "0.25");
+        context.configure(conf);
+        assertEquals(1, context.getDefaultMonitorQueuePolicy().getQueueSize());
+        assertEquals(250, context.getDefaultMonitorQueuePolicy().getCoalesceWindow());
 
     }
 
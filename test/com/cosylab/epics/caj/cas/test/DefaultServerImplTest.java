@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.net.InetSocketAddress;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.aps.jca.CAStatusException;
+import gov.aps.jca.cas.ProcessVariable;
+import gov.aps.jca.cas.ProcessVariableExistanceCompletion;
+import gov.aps.jca.dbr.DBRType;
+
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+import com.cosylab.epics.caj.cas.util.MemoryProcessVariable;
+
+import junit.framework.TestCase;
+
+/**
+ * Default server implementation (PV registry) test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class DefaultServerImplTest extends TestCase {
+
+	private static final int PVS = 10000;
+
+	private static final InetSocketAddress CLIENT = new InetSocketAddress("127.0.0.1", 5064);
+
+	/**
+	 * Constructor for DefaultServerImplTest.
+	 * @param methodName
+	 */
+	public DefaultServerImplTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Registry without and with negative lookup filter.
+	 */
+	public void testRegistry() throws Exception {
+		internalTestRegistry(new DefaultServerImpl());
+		internalTestRegistry(new DefaultServerImpl(PVS));
+	}
+
+	private void internalTestRegistry(DefaultServerImpl server) throws Exception {
+		ProcessVariable[] pvs = new ProcessVariable[PVS];
+		for (int i = 0; i < PVS; i++)
+			pvs[i] = new MemoryProcessVariable("PV" + i, null, DBRType.DOUBLE, new double[] { i });
+		server.registerProcessVariables(pvs);
+		assertEquals(PVS, server.getProcessVariableCount());
+
+		for (int i = 0; i < PVS; i++)
+		{
+			assertSame(ProcessVariableExistanceCompletion.EXISTS_HERE,
+					server.processVariableExistanceTest("PV" + i, CLIENT, null));
+			assertSame(ProcessVariableExistanceCompletion.DOES_NOT_EXIST_HERE,
+					server.processVariableExistanceTest("FOREIGN" + i, CLIENT, null));
+		}
+		assertSame(pvs[7], server.processVariableAttach("PV7", null, null));
+
+		// override
+		MemoryProcessVariable other = new MemoryProcessVariable("PV7", null, DBRType.DOUBLE, new double[] { 0 });
+		server.registerProcessVariable(other);
+		assertSame(other, server.getProcessVariable("PV7"));
+		assertEquals(PVS, server.getProcessVariableCount());
+
+		// aliases
+		Map<String, ProcessVariable> aliases = new HashMap<String, ProcessVariable>();
+		aliases.put("ALIAS1", pvs[1]);
+		aliases.put("ALIAS2", pvs[2]);
+		server.registerProcessVariables(aliases);
+		assertSame(pvs[2], server.getProcessVariable("ALIAS2"));
+
+		// bulk unregister
+		String[] names = new String[PVS / 2];
+		for (int i = 0; i < names.length; i++)
+			names[i] = "PV" + (2 * i);
+		assertEquals(PVS / 2, server.unregisterProcessVariables(names));
+		assertEquals(0, server.unregisterProcessVariables(names));
+		for (int i = 0; i < PVS; i++)
+			assertSame(i % 2 == 0 ? ProcessVariableExistanceCompletion.DOES_NOT_EXIST_HERE : ProcessVariableExistanceCompletion.EXISTS_HERE,
+					server.processVariableExistanceTest("PV" + i, CLIENT, null));
+
+		assertSame(pvs[1], server.unregisterProcessVariable("ALIAS1"));
+		assertNull(server.getProcessVariable("ALIAS1"));
+		try {
+			server.processVariableAttach("ALIAS1", null, null);
+			fail("attached to unregistered PV");
+		} catch (CAStatusException cse) {
+			// ok
+		}
+	}
+
+	/**
+	 * Lookups concurrent to (un)registration never miss a registered PV.
+	 */
+	public void testConcurrentLookups() throws Exception {
+		final DefaultServerImpl server = new DefaultServerImpl(PVS);
+		for (int i = 0; i < PVS; i++)
+			server.createMemoryProcessVariable("STABLE" + i, DBRType.DOUBLE, new double[] { i });
+
+		final AtomicInteger misses = new AtomicInteger(0);
+		final CountDownLatch done = new CountDownLatch(4);
+		for (int t = 0; t < 4; t++)
+		{
+			new Thread(new Runnable() {
+				public void run() {
+					try {
+						for (int r = 0; r < 20; r++)
+							for (int i = 0; i < PVS; i++)
+								if (server.processVariableExistanceTest("STABLE" + i, CLIENT, null) != ProcessVariableExistanceCompletion.EXISTS_HERE)
+									misses.incrementAndGet();
+					} catch (Throwable th) {
+						misses.incrementAndGet();
+					} finally {
+						done.countDown();
+					}
+				}
+			}).start();
+		}
+
+		// churn
+		ProcessVariable[] volatilePVs = new ProcessVariable[100];
+		String[] volatileNames = new String[volatilePVs.length];
+		for (int i = 0; i < volatilePVs.length; i++)
+		{
+			volatileNames[i] = "VOLATILE" + i;
+			volatilePVs[i] = new MemoryProcessVariable(volatileNames[i], null, DBRType.DOUBLE, new double[] { i });
+		}
+		while (done.getCount() > 0)
+		{
+			server.registerProcessVariables(volatilePVs);
+			server.unregisterProcessVariables(volatileNames);
+		}
+		done.await();
+
+		assertEquals(0, misses.get());
+		assertEquals(PVS, server.getProcessVariableCount());
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(DefaultServerImplTest.class);
+	}
+}
@@ -239,6 +239,127 @@ public class EventsTest extends TestCase {
         }
 	}
 	
+	/**
+	 * Collect values of FAST channel (100Hz) for given time.
+	 * @param seconds time to collect.
+	 * @return collected values.
+	 * @throws Exception
+	 */
+	private double[] collectFastMonitors(double seconds) throws Exception
+	{
+		Channel channel = clientContext.createChannel("FAST");
+		clientContext.pendIO(3.0);
+
+		QueuedMonitorListenerImpl listener = new QueuedMonitorListenerImpl();
+        Monitor monitor = channel.addMonitor(DBR_Double.TYPE, 1, Monitor.VALUE, listener);
+        clientContext.flushIO();
+
+        clientContext.pendEvent(seconds);
+        
+        monitor.clear();
+        
+        clientContext.pendEvent(1.0);
+
+        synchronized (listener) {
+        	double[] values = new double[listener.queue.size()];
+        	for (int i = 0; i < values.length; i++)
+        		values[i] = ((DBR_Double)((MonitorEvent)listener.queue.get(i)).getDBR()).getDoubleValue()[0];
+        	return values;
+        }
+	}
+
+	/**
+	 * Check per-client update rate limit, updates are coalesced (latest value sent).
+	 * @throws Exception
+	 */
+	public void testClientUpdateRateLimit() throws Exception
+	{
+		context.setMaxClientUpdateRate(10.0f);
+		
+		double[] values = collectFastMonitors(2.0);
+
+		// 10Hz (+ burst and initial value) instead of 100Hz 
+		assertTrue("too many updates: " + values.length, values.length <= 25);
+		assertTrue("too few updates: " + values.length, values.length >= 10);
+		
+		// values keep increasing, intermediate ones are skipped
+		int skipped = 0;
+		for (int i = 1; i < values.length; i++)
+		{
+			assertTrue(values[i] > values[i-1]);
+			if (values[i] - values[i-1] > 1.5)
+				skipped++;
+		}
+		assertTrue(skipped > 0);
+	}
+
+	/**
+	 * Check coalesce window queue policy.
+	 * @throws Exception
+	 */
+	public void testCoalescePolicy() throws Exception
+	{
+		context.setMonitorCoalescePeriod(0.25f);
+		
+		double[] values = collectFastMonitors(2.0);
+
+		// 4Hz instead of 100Hz 
+		assertTrue("too many updates: " + values.length, values.length <= 12);
+		assertTrue("too few updates: " + values.length, values.length >= 5);
+		// (the first event after the initial value is not delayed)
+		for (int i = 2; i < values.length; i++)
+			assertTrue(values[i] - values[i-1] > 1.5);
+	}
+
+	/**
+	 * Check that events of many clients are dispatched by shared event dispatcher thread pool.
+	 * @throws Exception
+	 */
+	public void testSharedEventDispatcher() throws Exception
+	{
+		final int CLIENTS = 8;
+		CAJContext[] clients = new CAJContext[CLIENTS];
+		MonitorListenerImpl[] listeners = new MonitorListenerImpl[CLIENTS];
+		try
+		{
+			for (int i = 0; i < CLIENTS; i++)
+			{
+				clients[i] = (CAJContext)JCALibrary.getInstance().createContext(JCALibrary.CHANNEL_ACCESS_JAVA);
+				Channel channel = clients[i].createChannel("FAST");
+				clients[i].pendIO(3.0);
+				listeners[i] = new MonitorListenerImpl();
+				channel.addMonitor(DBR_Double.TYPE, 1, Monitor.VALUE, listeners[i]);
+				clients[i].flushIO();
+			}
+			
+			clientContext.pendEvent(1.0);
+			
+			for (int i = 0; i < CLIENTS; i++)
+				assertTrue(listeners[i].counter > 1);
+
+			// no per-client threads
+			Thread[] threads = new Thread[Thread.activeCount() * 2];
+			int count = Thread.enumerate(threads);
+			int dispatcherThreads = 0;
+			for (int i = 0; i < count; i++)
+			{
+				String name = threads[i].getName();
+				if (name.startsWith("CAS event dispatcher"))
+					dispatcherThreads++;
+				else
+					assertFalse(name, name.endsWith("event dispatcher"));
+			}
+			assertTrue(dispatcherThreads > 0);
+			assertTrue(dispatcherThreads <= Runtime.getRuntime().availableProcessors());
+		}
+		finally
+		{
+			for (int i = 0; i < CLIENTS; i++)
+				if (clients[i] != null)
+					clients[i].destroy();
+		}
+	}
+
 	/*
 	 * @see TestCase#setUp()
 	 */
@@ -92,6 +92,7 @@ public class GetAndPutTest extends TestCase {
 
 	private final double VALUE = 12.08; 
 	private final String STR_VALUE = "12.080"; // precision is 3
+	private static final int BIG_ARRAY_SIZE = 10000;
 
 	private class PutListenerImpl implements PutListener
 	{
@@ -169,6 +170,11 @@ public class GetAndPutTest extends TestCase {
 	 */
 	private CAJContext clientContext;
 
+	/**
+	 * Big array PV.
+	 */
+	private MemoryProcessVariable bigArrayPV;
+
 	/**
 	 * Test labels.
 	 */
@@ -677,6 +683,43 @@ public class GetAndPutTest extends TestCase {
         monitor.clear();
 	}
 
+	/**
+	 * Put of an array larger than the (base) receive buffer, i.e. streamed to the DBR.
+	 */
+	public void testBigArrayPut() throws Exception
+	{
+		Channel channel = clientContext.createChannel("BIGARRAY");
+		clientContext.pendIO(3.0);
+
+		for (int run = 0; run < 3; run++)
+		{
+			double[] dbl = new double[BIG_ARRAY_SIZE];
+			for (int i = 0; i < BIG_ARRAY_SIZE; i++)
+				dbl[i] = i + run * 0.5;
+
+			PutListenerImpl listener = new PutListenerImpl();
+			synchronized (listener)
+			{
+				if (run == 0)
+				{
+					// plain put followed by put notify (to be notified when both are processed)
+					channel.put(new double[] { -1 });
+					channel.put(dbl);
+				}
+				channel.put(dbl, listener);
+				clientContext.flushIO();
+				listener.wait(3000);
+			}
+			assertEquals(CAStatus.NORMAL, listener.status);
+
+			DBR_TIME_Double value = new DBR_TIME_Double(BIG_ARRAY_SIZE);
+			bigArrayPV.read(value, null);
+			double[] result = value.getDoubleValue();
+			for (int i = 0; i < BIG_ARRAY_SIZE; i++)
+				assertEquals(dbl[i], result[i], 0.0);
+		}
+	}
+
 	public void testACKTS() throws Exception
 	{
 		boolean ACKT = false;
@@ -938,6 +981,7 @@ public class GetAndPutTest extends TestCase {
 		server.registerProcessVariable(ampv);
 
 		server.createMemoryProcessVariable("ARRAY", DBRType.DOUBLE, new double[] { 1, 2, 3 } );
+		bigArrayPV = server.createMemoryProcessVariable("BIGARRAY", DBRType.DOUBLE, new double[BIG_ARRAY_SIZE]);
 		
 		context.initialize(server);
 
@@ -0,0 +1,244 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.cas.ProcessVariableEventCallback;
+import gov.aps.jca.cas.ProcessVariableWriteCallback;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.dbr.DBR_Int;
+import gov.aps.jca.dbr.DBR_TIME_Double;
+import gov.aps.jca.dbr.DBR_TIME_Int;
+
+import com.cosylab.epics.caj.cas.util.MemoryProcessVariable;
+
+import junit.framework.TestCase;
+
+/**
+ * Memory process variable (snapshot, double-buffered value) test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class MemoryProcessVariableTest extends TestCase {
+
+	/**
+	 * Constructor for MemoryProcessVariableTest.
+	 * @param methodName
+	 */
+	public MemoryProcessVariableTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Write and read back, including count changes.
+	 */
+	public void testWriteAndRead() throws Exception {
+		int[] initialValue = new int[] { 1, 2, 3 };
+		MemoryProcessVariable pv = new MemoryProcessVariable("TEST", null, DBRType.INT, initialValue);
+		assertEquals(3, pv.getDimensionSize(0));
+
+		DBR_TIME_Int read = new DBR_TIME_Int(3);
+		assertSame(CAStatus.NORMAL, pv.read(read, null));
+		assertEquals(3, read.getIntValue()[2]);
+		assertNotNull(read.getTimeStamp());
+
+		for (int i = 0; i < 10; i++)
+		{
+			assertSame(CAStatus.NORMAL, pv.write(new DBR_Int(new int[] { i, i + 1, i + 2 }), null));
+			assertSame(CAStatus.NORMAL, pv.read(read, null));
+			assertEquals(i, read.getIntValue()[0]);
+			assertEquals(i + 2, read.getIntValue()[2]);
+		}
+
+		// initial value array is not reused
+		assertEquals(1, initialValue[0]);
+
+		// shrink
+		pv.write(new DBR_Int(new int[] { 7 }), null);
+		assertEquals(1, pv.getDimensionSize(0));
+		read = new DBR_TIME_Int(1);
+		pv.read(read, null);
+		assertEquals(7, read.getIntValue()[0]);
+
+		// grow
+		int[] big = new int[100];
+		for (int i = 0; i < big.length; i++)
+			big[i] = i;
+		pv.write(new DBR_Int(big), null);
+		assertEquals(100, pv.getDimensionSize(0));
+		read = new DBR_TIME_Int(100);
+		pv.read(read, null);
+		assertEquals(99, read.getIntValue()[99]);
+
+		// written array is copied
+		big[99] = -1;
+		pv.read(read, null);
+		assertEquals(99, read.getIntValue()[99]);
+	}
+
+	/**
+	 * Subclass access to the current value (snapshot).
+	 */
+	public void testSubclassAccessors() throws Exception {
+		final MemoryProcessVariable pv = new MemoryProcessVariable("TEST", null, DBRType.INT, new int[] { 1, 2, 3 }) {
+			{
+				assertEquals(3, getCount());
+				assertTrue(Arrays.equals(new int[] { 1, 2, 3 }, (int[])getValue()));
+			}
+			
+			public CAStatus write(DBR value, ProcessVariableWriteCallback asyncWriteCallback) throws CAException {
+				CAStatus status = super.write(value, asyncWriteCallback);
+				
+				// snapshot copies
+				int[] current = (int[])getValue();
+				assertEquals(getCount(), current.length);
+				current[0] = -1;
+				assertFalse(Arrays.equals(current, (int[])getValue()));
+				
+				DBR_TIME_Int read = new DBR_TIME_Int(getCount());
+				read(read, null);
+				assertEquals(read.getTimeStamp().secPastEpoch(), getTimeStamp().secPastEpoch());
+				assertEquals(read.getTimeStamp().nsec(), getTimeStamp().nsec());
+				return status;
+			}
+		};
+		pv.write(new DBR_Int(new int[] { 4, 5 }), null);
+		pv.write(new DBR_Int(new int[] { 6, 7, 8, 9 }), null);
+		assertEquals(4, pv.getDimensionSize(0));
+	}
+
+	/**
+	 * Posted monitor events are immutable.
+	 */
+	public void testMonitorEvents() throws Exception {
+		final List events = new ArrayList();
+		ProcessVariableEventCallback callback = new ProcessVariableEventCallback() {
+			public void postEvent(int select, DBR event) {
+				events.add(event);
+			}
+			public void canceled() {
+				// noop
+			}
+		};
+		MemoryProcessVariable pv = new MemoryProcessVariable("TEST", callback, DBRType.DOUBLE, new double[] { 0.0 });
+		pv.interestRegister();
+
+		for (int i = 0; i < 20; i++)
+			pv.write(new DBR_Double(new double[] { i }), null);
+
+		assertEquals(20, events.size());
+		for (int i = 0; i < 20; i++)
+			assertEquals(i, ((DBR_Double)events.get(i)).getDoubleValue()[0], 0.0);
+	}
+
+	/**
+	 * Concurrent readers always see consistent (non-torn) values.
+	 */
+	public void testConcurrentReadersAndWriter() throws Exception {
+		final int COUNT = 1000;
+		final MemoryProcessVariable pv = new MemoryProcessVariable("WAVEFORM", null, DBRType.DOUBLE, new double[COUNT]);
+
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicInteger inconsistent = new AtomicInteger(0);
+		final AtomicInteger reads = new AtomicInteger(0);
+		Thread[] readers = new Thread[4];
+		for (int t = 0; t < readers.length; t++)
+		{
+			readers[t] = new Thread(new Runnable() {
+				public void run() {
+					DBR_TIME_Double read = new DBR_TIME_Double(COUNT);
+					try {
+						while (!done.get())
+						{
+							pv.read(read, null);
+							double[] value = read.getDoubleValue();
+							for (int i = 1; i < COUNT; i++)
+								if (value[i] != value[0]) {
+									inconsistent.incrementAndGet();
+									break;
+								}
+							reads.incrementAndGet();
+						}
+					} catch (Throwable th) {
+						inconsistent.incrementAndGet();
+					}
+				}
+			});
+			readers[t].start();
+		}
+
+		double[] value = new double[COUNT];
+		DBR_Double write = new DBR_Double(value);
+		for (int w = 1; w <= 20000; w++)
+		{
+			Arrays.fill(value, w);
+			pv.write(write, null);
+		}
+		done.set(true);
+		for (int t = 0; t < readers.length; t++)
+			readers[t].join();
+
+		assertTrue(reads.get() > 0);
+		assertEquals(0, inconsistent.get());
+	}
+
+	/**
+	 * Write (w/o monitors) does not allocate.
+	 */
+	public void testWriteDoesNotAllocate() throws Exception {
+		ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return;
+		com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean)bean;
+		if (!threadBean.isThreadAllocatedMemorySupported() || !threadBean.isThreadAllocatedMemoryEnabled())
+			return;
+
+		MemoryProcessVariable pv = new MemoryProcessVariable("WAVEFORM", null, DBRType.DOUBLE, new double[1000]);
+		DBR_Double write = new DBR_Double(new double[1000]);
+
+		// warm-up
+		for (int i = 0; i < 20000; i++)
+			pv.write(write, null);
+
+		final int WRITES = 100000;
+		final long threadId = Thread.currentThread().getId();
+		long before = threadBean.getThreadAllocatedBytes(threadId);
+		for (int i = 0; i < WRITES; i++)
+			pv.write(write, null);
+		long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+		// (previously a new TimeStamp per write, i.e. >= 32 bytes)
+		assertTrue("allocated " + allocated + " bytes", allocated < WRITES);
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(MemoryProcessVariableTest.class);
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import gov.aps.jca.Monitor;
+import gov.aps.jca.cas.ProcessVariableEventCallback;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.dbr.DBR_TIME_Double;
+
+import com.cosylab.epics.caj.cas.ProcessVariableEventDispatcher;
+import com.cosylab.epics.caj.cas.util.MemoryProcessVariable;
+import com.cosylab.epics.caj.cas.util.MonitorEventFilter;
+import com.cosylab.epics.caj.util.Timer;
+
+import junit.framework.TestCase;
+
+/**
+ * Monitor event filter (deadbands, maximum posting rate) test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class MonitorEventFilterTest extends TestCase {
+
+	/**
+	 * Event callback recording posted events.
+	 */
+	private static class RecordingEventCallback implements ProcessVariableEventCallback {
+		final List events = new ArrayList();
+		final List masks = new ArrayList();
+
+		public synchronized void postEvent(int select, DBR event) {
+			masks.add(new Integer(select));
+			events.add(event);
+		}
+
+		public void canceled() {
+			// noop
+		}
+
+		synchronized int size() {
+			return events.size();
+		}
+
+		synchronized double value(int index) {
+			return ((DBR_Double)events.get(index)).getDoubleValue()[0];
+		}
+
+		synchronized int mask(int index) {
+			return ((Integer)masks.get(index)).intValue();
+		}
+	}
+
+	/**
+	 * Timer for deferred posts.
+	 */
+	private Timer timer;
+
+	/**
+	 * Constructor for MonitorEventFilterTest.
+	 * @param methodName
+	 */
+	public MonitorEventFilterTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Disabled filter posts everything.
+	 */
+	public void testDisabled() throws Exception {
+		MonitorEventFilter filter = new MonitorEventFilter();
+		RecordingEventCallback callback = new RecordingEventCallback();
+		for (int i = 0; i < 10; i++)
+			filter.checkAndPost(callback, Monitor.VALUE|Monitor.LOG, new DBR_Double(new double[] { 1.0 }));
+		assertEquals(10, callback.size());
+	}
+
+	/**
+	 * Value deadband.
+	 */
+	public void testValueDeadband() throws Exception {
+		MonitorEventFilter filter = new MonitorEventFilter();
+		filter.setValueDeadband(1.0);
+
+		// first value always passes
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new double[] { 10.0 }, 1));
+
+		// within deadband (relative to the last posted value)
+		assertEquals(0, filter.checkDeadbands(Monitor.VALUE, new double[] { 10.5 }, 1));
+		assertEquals(0, filter.checkDeadbands(Monitor.VALUE, new double[] { 11.0 }, 1));
+		assertEquals(0, filter.checkDeadbands(Monitor.VALUE, new double[] { 9.0 }, 1));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new double[] { 11.5 }, 1));
+		assertEquals(0, filter.checkDeadbands(Monitor.VALUE, new double[] { 10.6 }, 1));
+
+		// other bits are not filtered
+		assertEquals(Monitor.ALARM, filter.checkDeadbands(Monitor.VALUE|Monitor.ALARM, new double[] { 11.5 }, 1));
+		assertEquals(Monitor.LOG, filter.checkDeadbands(Monitor.VALUE|Monitor.LOG, new double[] { 11.5 }, 1));
+
+		// NaN
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new double[] { Double.NaN }, 1));
+		assertEquals(0, filter.checkDeadbands(Monitor.VALUE, new double[] { Double.NaN }, 1));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new double[] { 11.5 }, 1));
+
+		// arrays, any element, count change
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new int[] { 1, 2 }, 2));
+		assertEquals(0, filter.checkDeadbands(Monitor.VALUE, new int[] { 2, 1 }, 2));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new int[] { 1, 4 }, 2));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new int[] { 1, 4, 0 }, 3));
+
+		// zero deadband, changes only
+		filter.setValueDeadband(0);
+		assertEquals(0, filter.checkDeadbands(Monitor.VALUE, new short[] { 1, 4, 0 }, 3));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new float[] { 1, 4, 0.5f }, 3));
+
+		// non-numeric values are not filtered
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new String[] { "a" }, 1));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(Monitor.VALUE, new String[] { "a" }, 1));
+	}
+
+	/**
+	 * Log (archive) deadband, independent of value deadband.
+	 */
+	public void testLogDeadband() throws Exception {
+		MonitorEventFilter filter = new MonitorEventFilter();
+		filter.setValueDeadband(0.1);
+		filter.setLogDeadband(5.0);
+
+		final int mask = Monitor.VALUE|Monitor.LOG;
+		assertEquals(mask, filter.checkDeadbands(mask, new double[] { 0.0 }, 1));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(mask, new double[] { 1.0 }, 1));
+		assertEquals(Monitor.VALUE, filter.checkDeadbands(mask, new double[] { 4.0 }, 1));
+		assertEquals(0, filter.checkDeadbands(mask, new double[] { 4.05 }, 1));
+		assertEquals(mask, filter.checkDeadbands(mask, new double[] { 6.0 }, 1));
+	}
+
+	/**
+	 * Maximum posting rate, events are coalesced to the latest one.
+	 */
+	public void testMaxPostRate() throws Exception {
+		MonitorEventFilter filter = new MonitorEventFilter();
+		filter.setTimer(timer);
+		filter.setMaxPostRate(10.0);
+		assertEquals(10.0, filter.getMaxPostRate(), 1e-9);
+
+		RecordingEventCallback callback = new RecordingEventCallback();
+
+		// burst
+		filter.post(callback, Monitor.VALUE, new DBR_Double(new double[] { 0 }));
+		for (int i = 1; i < 100; i++)
+			filter.post(callback, (i == 50) ? Monitor.ALARM : Monitor.VALUE, new DBR_Double(new double[] { i }));
+
+		// first one immediately
+		assertEquals(1, callback.size());
+		assertEquals(0.0, callback.value(0), 0.0);
+
+		// the latest one after period, masks merged
+		Thread.sleep(300);
+		assertEquals(2, callback.size());
+		assertEquals(99.0, callback.value(1), 0.0);
+		assertEquals(Monitor.VALUE|Monitor.ALARM, callback.mask(1));
+
+		// unlimited
+		filter.setMaxPostRate(0);
+		for (int i = 0; i < 10; i++)
+			filter.post(callback, Monitor.VALUE, new DBR_Double(new double[] { i }));
+		assertEquals(12, callback.size());
+	}
+
+	/**
+	 * Timer of the event callback (server context) is used if filter has none,
+	 * without any timer rate is not limited.
+	 */
+	public void testCallbackTimer() throws Exception {
+		MonitorEventFilter filter = new MonitorEventFilter();
+		filter.setMaxPostRate(10.0);
+
+		RecordingEventCallback callback = new RecordingEventCallback();
+		for (int i = 0; i < 10; i++)
+			filter.post(callback, Monitor.VALUE, new DBR_Double(new double[] { i }));
+		assertEquals(10, callback.size());
+
+		RecordingEventCallback listener = new RecordingEventCallback();
+		ProcessVariableEventDispatcher dispatcher = new ProcessVariableEventDispatcher(null, timer);
+		dispatcher.registerEventListener(listener);
+		for (int i = 0; i < 10; i++)
+			filter.post(dispatcher, Monitor.VALUE, new DBR_Double(new double[] { i }));
+		assertEquals(1, listener.size());
+
+		Thread.sleep(300);
+		assertEquals(2, listener.size());
+		assertEquals(9.0, listener.value(1), 0.0);
+	}
+
+	/**
+	 * Memory process variable deadbands and rate limit.
+	 */
+	public void testMemoryProcessVariable() throws Exception {
+		RecordingEventCallback callback = new RecordingEventCallback();
+		MemoryProcessVariable pv = new MemoryProcessVariable("TEST", callback, DBR_Double.TYPE, new double[] { 0.0 });
+		pv.getEventFilter().setTimer(timer);
+		pv.interestRegister();
+		pv.setValueDeadband(1.0);
+		pv.setLogDeadband(1.0);
+		assertEquals(1.0, pv.getValueDeadband(), 0.0);
+
+		for (int i = 0; i < 100; i++)
+			pv.write(new DBR_Double(new double[] { i * 0.25 }), null);
+
+		// 0.0, 1.25, 2.5, ... (every 5th value)
+		assertEquals(20, callback.size());
+		for (int i = 0; i < 20; i++)
+			assertEquals(i * 1.25, callback.value(i), 0.0);
+
+		// values within deadband are still written
+		DBR_TIME_Double read = new DBR_TIME_Double(1);
+		pv.read(read, null);
+		assertEquals(99 * 0.25, read.getDoubleValue()[0], 0.0);
+
+		// rate limited, the latest value is always posted
+		pv.setValueDeadband(-1);
+		pv.setLogDeadband(-1);
+		pv.setMaxPostRate(20.0);
+		int size = callback.size();
+		for (int i = 0; i < 100; i++)
+			pv.write(new DBR_Double(new double[] { 1000 + i }), null);
+		Thread.sleep(200);
+		assertTrue(callback.size() - size <= 3);
+		assertEquals(1099.0, callback.value(callback.size() - 1), 0.0);
+
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		timer = new Timer();
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		timer.shutDown();
+		timer = null;
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(MonitorEventFilterTest.class);
+	}
+}
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.HashSet;
+import java.util.Set;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.cas.ProcessVariableExistanceCallback;
+import gov.aps.jca.cas.ProcessVariableExistanceCompletion;
+import gov.aps.jca.dbr.DBRType;
+
+import com.cosylab.epics.caj.cas.CAJServerContext;
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+import com.cosylab.epics.caj.impl.CAConstants;
+
+import junit.framework.TestCase;
+
+/**
+ * UDP search reply batching test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class SearchReplyBatchingTest extends TestCase {
+
+	private static final int CHANNELS = 100;
+	
+	/**
+	 * Search reply message size (header + minor version payload).
+	 */
+	private static final int REPLY_SIZE = CAConstants.CA_MESSAGE_HEADER_SIZE + 8;
+
+	/**
+	 * Context to be tested.
+	 */
+	private CAJServerContext context;
+
+	/**
+	 * Client UDP socket.
+	 */
+	private DatagramChannel client;
+
+	/**
+	 * Constructor for SearchReplyBatchingTest.
+	 * @param methodName
+	 */
+	public SearchReplyBatchingTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Replies to searches of one datagram are packed into as few datagrams as possible.
+	 */
+	public void testBatchedReplies() throws Exception
+	{
+		initialize(new DefaultServerImpl(), 0.0f);
+		
+		// CHANNELS existing and CHANNELS non-existing names (no reply expected)
+		sendSearch(0, 2 * CHANNELS);
+
+		Set<Integer> cids = new HashSet<Integer>();
+		int datagrams = receiveReplies(cids, CHANNELS);
+		assertEquals(CHANNELS, cids.size());
+		
+		int repliesPerDatagram = CAConstants.MAX_UDP_SEND / REPLY_SIZE;
+		assertEquals((CHANNELS + repliesPerDatagram - 1) / repliesPerDatagram, datagrams);
+		
+		// nothing else
+		assertEquals(0, receiveReplies(cids, 1));
+	}
+
+	/**
+	 * Replies of asynchronously completed searches are coalesced.
+	 */
+	public void testCoalescedAsyncReplies() throws Exception
+	{
+		DefaultServerImpl server = new DefaultServerImpl() {
+			public ProcessVariableExistanceCompletion processVariableExistanceTest(final String aliasName, final InetSocketAddress clientAddress,
+					final ProcessVariableExistanceCallback asyncCompletionCallback) throws CAException, IllegalArgumentException, IllegalStateException {
+				new Thread(new Runnable() {
+					public void run() {
+						try {
+							// complete after the datagram is processed
+							Thread.sleep(50);
+							asyncCompletionCallback.processVariableExistanceTestCompleted(
+								superProcessVariableExistanceTest(aliasName, clientAddress));
+						} catch (Throwable th) {
+							th.printStackTrace();
+						}
+					}
+				}).start();
+				return ProcessVariableExistanceCompletion.ASYNC_COMPLETION;
+			}
+			
+			private ProcessVariableExistanceCompletion superProcessVariableExistanceTest(String aliasName, InetSocketAddress clientAddress) throws CAException {
+				return super.processVariableExistanceTest(aliasName, clientAddress, null);
+			}
+		};
+		initialize(server, 0.5f);
+
+		sendSearch(0, CHANNELS / 4);
+		
+		Set<Integer> cids = new HashSet<Integer>();
+		int datagrams = receiveReplies(cids, CHANNELS / 4);
+		assertEquals(CHANNELS / 4, cids.size());
+		assertEquals(1, datagrams);
+	}
+
+	/**
+	 * Send one datagram with version and search messages.
+	 * @param firstCID first CID (and name index).
+	 * @param count number of names.
+	 */
+	private void sendSearch(int firstCID, int count) throws Exception
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(CAConstants.MAX_UDP_RECV);
+		
+		// version
+		buffer.putShort((short)0);
+		buffer.putShort((short)0);
+		buffer.putShort((short)0);
+		buffer.putShort(CAConstants.CA_MINOR_PROTOCOL_REVISION);
+		buffer.putInt(0);
+		buffer.putInt(0);
+		
+		for (int i = firstCID; i < firstCID + count; i++)
+		{
+			byte[] name = ("BATCH" + i).getBytes();
+			int payloadSize = (name.length + 1 + 7) & ~7;
+			buffer.putShort((short)6);
+			buffer.putShort((short)payloadSize);
+			buffer.putShort(CAConstants.CA_SEARCH_DONTREPLY);
+			buffer.putShort(CAConstants.CA_MINOR_PROTOCOL_REVISION);
+			buffer.putInt(i);
+			buffer.putInt(i);
+			buffer.put(name);
+			for (int p = name.length; p < payloadSize; p++)
+				buffer.put((byte)0);
+		}
+		
+		buffer.flip();
+		client.send(buffer, new InetSocketAddress("127.0.0.1", context.getUdpServerPort()));
+	}
+	
+	/**
+	 * Receive search replies.
+	 * @param cids set of received CIDs.
+	 * @param expected number of expected replies.
+	 * @return number of received datagrams.
+	 */
+	private int receiveReplies(Set<Integer> cids, int expected) throws Exception
+	{
+		ByteBuffer buffer = ByteBuffer.allocate(CAConstants.MAX_UDP_RECV);
+		int datagrams = 0;
+		int replies = 0;
+		long deadline = System.currentTimeMillis() + 3000;
+		while (replies < expected && System.currentTimeMillis() < deadline)
+		{
+			buffer.clear();
+			if (client.receive(buffer) == null)
+			{
+				Thread.sleep(10);
+				continue;
+			}
+			
+			datagrams++;
+			buffer.flip();
+			while (buffer.remaining() >= CAConstants.CA_MESSAGE_HEADER_SIZE)
+			{
+				short command = buffer.getShort();
+				int payloadSize = buffer.getShort() & 0xFFFF;
+				buffer.getShort();
+				buffer.getShort();
+				buffer.getInt();
+				int cid = buffer.getInt();
+				buffer.position(buffer.position() + payloadSize);
+				
+				assertEquals(6, command);
+				assertTrue(cid < CHANNELS);
+				cids.add(new Integer(cid));
+				replies++;
+			}
+		}
+		return datagrams;
+	}
+
+	/**
+	 * Initialize and run server context.
+	 * @param server server to use.
+	 * @param searchReplyCoalescePeriod search reply coalesce period.
+	 */
+	private void initialize(DefaultServerImpl server, float searchReplyCoalescePeriod) throws Exception {
+
+		for (int i = 0; i < CHANNELS; i++)
+			server.createMemoryProcessVariable("BATCH" + i, DBRType.DOUBLE, new double[] { 0.0 });
+
+		context = new CAJServerContext();
+		context.setSearchReplyCoalescePeriod(searchReplyCoalescePeriod);
+		context.initialize(server);
+
+		new Thread(new Runnable()
+		{
+			public void run() {
+				try
+				{
+					context.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, this.getClass().getName()).start();
+	}
+	
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		client = DatagramChannel.open();
+		client.configureBlocking(false);
+		client.socket().bind(new InetSocketAddress(0));
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		if (client != null)
+			client.close();
+		client = null;
+
+		if (context != null && !context.isDestroyed())
+			context.destroy();
+		context = null;
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(SearchReplyBatchingTest.class);
+	}
+}
@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.List;
+
+import gov.aps.jca.Channel;
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.configuration.DefaultConfiguration;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+
+import com.cosylab.epics.caj.CAJContext;
+import com.cosylab.epics.caj.cas.CAJServerContext;
+import com.cosylab.epics.caj.cas.CASTransport;
+import com.cosylab.epics.caj.impl.CATransport;
+import com.cosylab.epics.caj.impl.Transport;
+import com.cosylab.epics.caj.impl.reactor.Reactor;
+import com.cosylab.epics.caj.impl.reactor.ReactorGroup;
+
+/**
+ * Sharded reactor (client and server) test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class ShardedReactorTest extends AbstractServerClientTest {
+
+	private static final int SHARDS = 4;
+	private static final int CLIENTS = 8;
+
+	/**
+	 * Client contexts.
+	 */
+	private CAJContext[] clients;
+
+	/**
+	 * Constructor for ShardedReactorTest.
+	 * @param methodName
+	 */
+	public ShardedReactorTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Get and put over many connections served by sharded reactors.
+	 */
+	public void testGetAndPut() throws Exception
+	{
+		ReactorGroup serverGroup = context.getReactorGroup();
+		assertNotNull(serverGroup);
+		assertEquals(SHARDS, serverGroup.size());
+
+		Channel[] channels = new Channel[CLIENTS];
+		for (int i = 0; i < CLIENTS; i++)
+		{
+			channels[i] = clients[i].createChannel("TEST");
+			clients[i].pendIO(3.0);
+			assertNotNull(clients[i].getReactorGroup());
+		}
+
+		for (int i = 0; i < CLIENTS; i++)
+		{
+			channels[i].put(i + 0.5);
+			clients[i].pendIO(3.0);
+
+			DBR_Double value = (DBR_Double)channels[i].get(DBRType.DOUBLE, 1);
+			clients[i].pendIO(3.0);
+			assertEquals(i + 0.5, value.getDoubleValue()[0], 0.0);
+
+			// client transport served by a shard
+			Transport[] transports = clients[i].getTransportRegistry().toArray();
+			assertEquals(1, transports.length);
+			Reactor reactor = ((CATransport)transports[0]).getReactor();
+			assertTrue(Arrays.asList(clients[i].getReactorGroup().getReactors()).contains(reactor));
+			assertNotSame(clients[i].getReactor(), reactor);
+		}
+
+		// server transports served by shards, consistently assigned
+		Transport[] transports = context.getTransportRegistry().toArray();
+		assertEquals(CLIENTS, transports.length);
+		List reactors = Arrays.asList(serverGroup.getReactors());
+		for (int i = 0; i < transports.length; i++)
+		{
+			CASTransport transport = (CASTransport)transports[i];
+			assertTrue(reactors.contains(transport.getReactor()));
+			assertSame(serverGroup.getReactor(transport.getRemoteAddress()), transport.getReactor());
+		}
+
+		// one thread per shard
+		Thread[] threads = new Thread[Thread.activeCount() * 2];
+		int count = Thread.enumerate(threads);
+		int reactorThreads = 0;
+		for (int i = 0; i < count; i++)
+			if (threads[i].getName().startsWith("CAS reactor "))
+				reactorThreads++;
+		assertEquals(SHARDS, reactorThreads);
+	}
+
+	/**
+	 * Consistent assignment of addresses to shards.
+	 */
+	public void testConsistentAssignment() throws Exception
+	{
+		ReactorGroup group = context.getReactorGroup();
+		int[] assigned = new int[SHARDS];
+		List reactors = Arrays.asList(group.getReactors());
+		for (int port = 10000; port < 10400; port++)
+		{
+			InetSocketAddress address = new InetSocketAddress("127.0.0.1", port);
+			Reactor reactor = group.getReactor(address);
+			assertSame(reactor, group.getReactor(new InetSocketAddress("127.0.0.1", port)));
+			assigned[reactors.indexOf(reactor)]++;
+		}
+
+		// all the shards are used
+		for (int i = 0; i < SHARDS; i++)
+			assertTrue(assigned[i] > 0);
+	}
+
+	/*
+	 * @see AbstractServerClientTest#configureServerContext(CAJServerContext)
+	 */
+	protected void configureServerContext(CAJServerContext context) throws Exception {
+		DefaultConfiguration conf = new DefaultConfiguration("CAJServerContext");
+		conf.setAttribute("sharded_reactor", "true");
+		conf.setAttribute("reactor_shards", String.valueOf(SHARDS));
+		context.configure(conf);
+	}
+
+	/*
+	 * @see AbstractServerClientTest#createClientContext()
+	 */
+	protected CAJContext createClientContext() throws Exception {
+		DefaultConfiguration clientConf = new DefaultConfiguration("CAJContext");
+		clientConf.setAttribute("class", JCALibrary.CHANNEL_ACCESS_JAVA);
+		clientConf.setAttribute("sharded_reactor", "true");
+		clientConf.setAttribute("reactor_shards", "2");
+		return (CAJContext)JCALibrary.getInstance().createContext(clientConf);
+	}
+
+	/*
+	 * @see TestCase#setUp()
+	 */
+	protected void setUp() throws Exception {
+		super.setUp();
+
+		clients = new CAJContext[CLIENTS];
+		clients[0] = client;
+		for (int i = 1; i < CLIENTS; i++)
+			clients[i] = createClientContext();
+	}
+
+	/*
+	 * @see TestCase#tearDown()
+	 */
+	protected void tearDown() throws Exception {
+		if (clients != null)
+			for (int i = 1; i < clients.length; i++)
+				if (clients[i] != null && !clients[i].isDestroyed())
+					clients[i].destroy();
+		clients = null;
+
+		super.tearDown();
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(ShardedReactorTest.class);
+	}
+}
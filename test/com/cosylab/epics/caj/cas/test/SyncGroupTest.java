@@ -0,0 +1,192 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+import gov.aps.jca.CAException;
+import gov.aps.jca.Channel;
+import gov.aps.jca.TimeoutException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Double;
+
+import com.cosylab.epics.caj.CAJSyncGroup;
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+
+/**
+ * Synchronous group (<code>ca_sg_*</code>) test.
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class SyncGroupTest extends AbstractServerClientTest {
+
+	private static final int CHANNELS = 20;
+
+	/**
+	 * Processing time of the slow (asynchronous) PV.
+	 */
+	private static final long SLOW_PROCESS_TIME = 1000;
+
+	/**
+	 * Constructor for SyncGroupTest.
+	 * @param methodName
+	 */
+	public SyncGroupTest(String methodName) {
+		super(methodName);
+	}
+
+	private Channel[] connect(String prefix, int count) throws Exception
+	{
+		Channel[] channels = new Channel[count];
+		for (int i = 0; i < count; i++)
+			channels[i] = client.createChannel(prefix + i);
+		client.pendIO(5.0);
+		return channels;
+	}
+
+	public void testGetPutBlock() throws Exception
+	{
+		Channel[] channels = connect("TEST", CHANNELS);
+		CAJSyncGroup group = client.createSyncGroup();
+
+		for (int i = 0; i < CHANNELS; i++)
+			group.put(channels[i], DBRType.DOUBLE, 1, new double[] { i });
+		group.block(5.0);
+		assertTrue(group.test());
+
+		DBR[] values = new DBR[CHANNELS];
+		for (int i = 0; i < CHANNELS; i++)
+			values[i] = group.get(channels[i], DBRType.DOUBLE, 1);
+		group.block(5.0);
+		assertTrue(group.test());
+
+		for (int i = 0; i < CHANNELS; i++)
+			assertEquals(i, ((DBR_Double)values[i]).getDoubleValue()[0], 0.0);
+	}
+
+	public void testIndependentGroups() throws Exception
+	{
+		final Channel slow = connect("SLOW", 1)[0];
+		final Channel[] channels = connect("TEST", CHANNELS);
+
+		// slow group blocks in another thread
+		final CAJSyncGroup slowGroup = client.createSyncGroup();
+		final DBR slowValue = slowGroup.get(slow, DBRType.DOUBLE, 1);
+		final AtomicReference<Throwable> slowFailure = new AtomicReference<Throwable>();
+		Thread slowThread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					slowGroup.block(5.0);
+				} catch (Throwable th) {
+					slowFailure.set(th);
+				}
+			}
+		});
+		slowThread.start();
+
+		// let the slow request be sent
+		Thread.sleep(100);
+
+		// does not wait for the slow group
+		long start = System.currentTimeMillis();
+		CAJSyncGroup group = client.createSyncGroup();
+		DBR[] values = new DBR[CHANNELS];
+		for (int i = 0; i < CHANNELS; i++)
+			values[i] = group.get(channels[i], DBRType.DOUBLE, 1);
+		group.block(5.0);
+		assertTrue(System.currentTimeMillis() - start < SLOW_PROCESS_TIME / 2);
+
+		// neither context pendIO does
+		client.pendIO(5.0);
+		assertTrue(System.currentTimeMillis() - start < SLOW_PROCESS_TIME / 2);
+		assertFalse(slowGroup.test());
+
+		slowThread.join(5000);
+		assertNull(slowFailure.get());
+		assertEquals(1.5, ((DBR_Double)slowValue).getDoubleValue()[0], 0.0);
+	}
+
+	public void testTimeoutAndReuse() throws Exception
+	{
+		Channel slow = connect("SLOW", 1)[0];
+		Channel channel = connect("TEST", 1)[0];
+
+		CAJSyncGroup group = client.createSyncGroup();
+		group.get(slow, DBRType.DOUBLE, 1);
+		try {
+			group.block(0.1);
+			fail("block did not time out");
+		} catch (TimeoutException te) {
+			// expected
+		}
+
+		// reset by block, late response of the slow request is ignored
+		assertTrue(group.test());
+		DBR value = group.get(channel, DBRType.DOUBLE, 1);
+		group.block(5.0);
+		assertEquals(0.0, ((DBR_Double)value).getDoubleValue()[0], 0.0);
+
+		// explicit reset
+		group.get(slow, DBRType.DOUBLE, 1);
+		assertFalse(group.test());
+		group.reset();
+		assertTrue(group.test());
+		group.block(5.0);
+	}
+
+	public void testContextDestroyed() throws Exception
+	{
+		Channel slow = connect("SLOW", 1)[0];
+
+		final CAJSyncGroup group = client.createSyncGroup();
+		group.get(slow, DBRType.DOUBLE, 1);
+		final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					group.block(0.0);
+				} catch (Throwable th) {
+					failure.set(th);
+				}
+			}
+		});
+		thread.start();
+		Thread.sleep(100);
+
+		client.destroy();
+		thread.join(5000);
+		assertFalse(thread.isAlive());
+		assertTrue(failure.get() instanceof CAException);
+	}
+
+	/*
+	 * @see AbstractServerClientTest#registerProcessVariables(DefaultServerImpl)
+	 */
+	protected void registerProcessVariables(DefaultServerImpl server) throws Exception {
+		for (int i = 0; i < CHANNELS; i++)
+			server.createMemoryProcessVariable("TEST" + i, DBRType.DOUBLE, new double[] { 0.0 });
+		server.registerProcessVariable(new TestAsyncMemoryProcessVariable("SLOW0", null, DBR_Double.TYPE, new double[] { 1.5 },
+				SLOW_PROCESS_TIME, false));
+	}
+
+	/**
+	 * Java main entry point.
+	 * @param args	arguments.
+	 */
+	public static void main(String[] args) {
+		junit.textui.TestRunner.run(SyncGroupTest.class);
+	}
+}
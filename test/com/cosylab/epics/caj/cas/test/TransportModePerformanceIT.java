@@ -0,0 +1,187 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.cas.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
+import gov.aps.jca.JCALibrary;
+import gov.aps.jca.configuration.DefaultConfiguration;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.event.GetEvent;
+import gov.aps.jca.event.GetListener;
+import gov.aps.jca.event.PutEvent;
+import gov.aps.jca.event.PutListener;
+
+import com.cosylab.epics.caj.CAJContext;
+import com.cosylab.epics.caj.cas.CAJServerContext;
+import com.cosylab.epics.caj.cas.util.DefaultServerImpl;
+
+/**
+ * Client transport mode performance test: reactor (leader/followers) vs. blocking I/O
+ * (reader/writer (virtual) thread per transport), in-process server.
+ * Measures synchronous get round-trip latency and pipelined put/get throughput.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class TransportModePerformanceIT {
+
+	private static final int CHANNELS = 16;
+	private static final int LATENCY_SAMPLES = 20000;
+	private static final int THROUGHPUT_REQUESTS = 200000;
+	private static final int MAX_IN_FLIGHT = 1000;
+	private static final int RUNS = 3;
+
+	/**
+	 * Server context.
+	 */
+	private CAJServerContext server;
+
+	@Before
+	public void setUp() throws Exception {
+		server = new CAJServerContext();
+		DefaultServerImpl serverImpl = new DefaultServerImpl();
+		for (int i = 0; i < CHANNELS; i++)
+			serverImpl.createMemoryProcessVariable("PERF" + i, DBRType.DOUBLE, new double[] { 0.0 });
+		server.initialize(serverImpl);
+
+		new Thread(new Runnable()
+		{
+			public void run() {
+				try
+				{
+					server.run(0);
+				} catch (Throwable th) {
+					th.printStackTrace();
+				}
+			}
+		}, this.getClass().getName()).start();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (server != null && !server.isDestroyed())
+			server.destroy();
+		server = null;
+	}
+
+	@Test
+	public void testTransportModePerformance() throws Exception {
+		System.out.println();
+		System.out.println("mode            p50 [us]   p99 [us]  p99.9 [us]   put/get [kops/s]");
+		System.out.println("--------------------------------------------------------------------");
+		for (int r = 0; r < RUNS; r++) {
+			measure("reactor", false);
+			measure("blocking I/O", true);
+		}
+	}
+
+	private static void measure(String name, boolean blockingIO) throws Exception {
+		DefaultConfiguration conf = new DefaultConfiguration("CAJContext");
+		conf.setAttribute("class", JCALibrary.CHANNEL_ACCESS_JAVA);
+		conf.setAttribute("blocking_io", String.valueOf(blockingIO));
+		CAJContext context = (CAJContext)JCALibrary.getInstance().createContext(conf);
+		try
+		{
+			Channel[] channels = new Channel[CHANNELS];
+			for (int i = 0; i < CHANNELS; i++)
+				channels[i] = context.createChannel("PERF" + i);
+			context.pendIO(5.0);
+
+			// warm-up
+			for (int i = 0; i < LATENCY_SAMPLES / 10; i++)
+			{
+				channels[i % CHANNELS].get(DBRType.DOUBLE, 1);
+				context.pendIO(5.0);
+			}
+
+			// latency (synchronous get round-trip)
+			long[] samples = new long[LATENCY_SAMPLES];
+			for (int i = 0; i < LATENCY_SAMPLES; i++)
+			{
+				long t0 = System.nanoTime();
+				channels[i % CHANNELS].get(DBRType.DOUBLE, 1);
+				context.pendIO(5.0);
+				samples[i] = System.nanoTime() - t0;
+			}
+			Arrays.sort(samples);
+
+			// throughput (pipelined callback put/get pairs, bounded number of requests in flight)
+			final AtomicInteger failures = new AtomicInteger(0);
+			final CountDownLatch done = new CountDownLatch(THROUGHPUT_REQUESTS);
+			final Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+			GetListener getListener = new GetListener() {
+				public void getCompleted(GetEvent ev) {
+					if (ev.getStatus() != CAStatus.NORMAL)
+						failures.incrementAndGet();
+					inFlight.release();
+					done.countDown();
+				}
+			};
+			PutListener putListener = new PutListener() {
+				public void putCompleted(PutEvent ev) {
+					if (ev.getStatus() != CAStatus.NORMAL)
+						failures.incrementAndGet();
+					inFlight.release();
+					done.countDown();
+				}
+			};
+
+			long t0 = System.nanoTime();
+			for (int i = 0; i < THROUGHPUT_REQUESTS; i++)
+			{
+				if (!inFlight.tryAcquire())
+				{
+					context.flushIO();
+					inFlight.acquire();
+				}
+				Channel channel = channels[i % CHANNELS];
+				if ((i & 1) == 0)
+					channel.put((double)i, putListener);
+				else
+					channel.get(DBRType.DOUBLE, 1, getListener);
+			}
+			context.flushIO();
+			assertTrue(done.await(60, TimeUnit.SECONDS));
+			long t1 = System.nanoTime();
+			assertEquals(0, failures.get());
+
+			double seconds = (t1 - t0) / 1e9;
+			System.out.println(String.format("%-15s %8.1f %10.1f %11.1f %18.1f", name,
+					samples[LATENCY_SAMPLES / 2] / 1e3,
+					samples[(int)(LATENCY_SAMPLES * 0.99)] / 1e3,
+					samples[(int)(LATENCY_SAMPLES * 0.999)] / 1e3,
+					THROUGHPUT_REQUESTS / seconds / 1e3));
+		}
+		finally
+		{
+			context.destroy();
+		}
+	}
+
+}
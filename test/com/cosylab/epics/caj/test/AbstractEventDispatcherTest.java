@@ -0,0 +1,83 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import org.junit.After;
+import org.junit.Before;
+
+import com.cosylab.epics.caj.CAJContext;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
+import gov.aps.jca.dbr.DBR_Int;
+import gov.aps.jca.event.MonitorEvent;
+
+/**
+ * Common fixture of event dispatcher tests, provides channels as event sources.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public abstract class AbstractEventDispatcherTest {
+
+	/**
+	 * Context, used only to create channels (event sources).
+	 */
+	protected CAJContext context;
+
+	@Before
+	public void setUpContext() {
+		context = new CAJContext();
+	}
+
+	@After
+	public void tearDownContext() throws Exception {
+		if (context != null && !context.isDestroyed())
+			context.destroy();
+	}
+
+	/**
+	 * Create (not connected) channels to be used as event sources.
+	 * @param count number of channels.
+	 * @return channels.
+	 */
+	protected Channel[] createChannels(int count) throws Exception {
+		final String prefix = getClass().getSimpleName();
+		Channel[] channels = new Channel[count];
+		for (int i = 0; i < count; i++)
+			channels[i] = context.createChannel(prefix + i);
+		return channels;
+	}
+
+	/**
+	 * Create monitor event with integer value.
+	 * @param channel event source.
+	 * @param value value.
+	 * @return monitor event.
+	 */
+	protected static MonitorEvent event(Channel channel, int value) {
+		return new MonitorEvent(channel, new DBR_Int(new int[] { value }), CAStatus.NORMAL);
+	}
+
+	/**
+	 * Get integer value of a monitor event created by <code>event()</code>.
+	 * @param ev monitor event.
+	 * @return value.
+	 */
+	protected static int value(MonitorEvent ev) {
+		return ((DBR_Int)ev.getDBR()).getIntValue()[0];
+	}
+
+}
@@ -41,6 +41,12 @@ import gov.aps.jca.dbr.DBR_Enum;
     CAJContextRepeaterTest.class,
     CAJContextStateTest.class,
     CAJContextConfigurationTest.class,
+    CachedByteBufferAllocatorTest.class,
+    DBRCodecTest.class,
+    PrecisionFormatterTest.class,
+    DBRConverterTest.class,
+    PartitionedEventDispatcherTest.class,
+    LatestMonitorOnlyQueuedEventDispatcherTest.class,
     CAJContextListenersIT.class,
     CAJContextChannelIT.class,
     CAJChannelIT.class,
@@ -48,7 +54,11 @@ import gov.aps.jca.dbr.DBR_Enum;
     CAJContextPendPoolFlushIT.class,
     CAJChannelGetIT.class,
     CAJChannelPutIT.class,
-    PerformanceIT.class
+    PerformanceIT.class,
+    DBRCodecPerformanceIT.class,
+    PrecisionFormatterPerformanceIT.class,
+    DBRConverterPerformanceIT.class,
+    EventDispatcherPerformanceIT.class
     })
 public class AllTests {
 
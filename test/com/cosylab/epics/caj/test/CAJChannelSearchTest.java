@@ -16,6 +16,7 @@ package com.cosylab.epics.caj.test;
 
 import gov.aps.jca.CAException;
 import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
 import gov.aps.jca.JCALibrary;
 import gov.aps.jca.cas.ProcessVariableReadCallback;
 import gov.aps.jca.dbr.DBR;
@@ -26,10 +27,16 @@ import gov.aps.jca.dbr.Status;
 import gov.aps.jca.event.ConnectionEvent;
 import gov.aps.jca.event.ConnectionListener;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import junit.framework.TestCase;
 
+import com.cosylab.epics.caj.CAJChannelsFuture;
 import com.cosylab.epics.caj.CAJContext;
 import com.cosylab.epics.caj.cas.CAJServerContext;
 import com.cosylab.epics.caj.cas.test.TestServerImpl;
@@ -42,6 +49,24 @@ import com.cosylab.epics.caj.cas.util.MemoryProcessVariable;
  */
 public class CAJChannelSearchTest extends TestCase {
     
+    /**
+     * Context with short named lock timeout, named locks can be held by the test.
+     */
+    private static class LockingContext extends CAJContext {
+    	
+    	LockingContext() {
+    		lockTimeout = 500;
+    	}
+    	
+    	boolean lock(String name) {
+    		return namedLocker.acquireSynchronizationObject(name, 5000);
+    	}
+    	
+    	void unlock(String name) {
+    		namedLocker.releaseSynchronizationObject(name);
+    	}
+    }
+    
     private class ConnectionListenerImpl implements ConnectionListener {
     	
     	final AtomicInteger connectedCount = new AtomicInteger(0);
@@ -103,6 +128,183 @@ public class CAJChannelSearchTest extends TestCase {
 		}
 	}
 
+	public void testBatchSearch() throws Exception {
+	    
+		List<String> names = new ArrayList<String>(COUNT + 1);
+		for (int i = 0; i < COUNT; i++)
+			names.add(CHANNEL_NAME_PREFIX + String.valueOf(i));
+		// duplicate name, shared channel
+		names.add(CHANNEL_NAME_PREFIX + "0");
+
+		System.out.println("Started issuing batch connect request...");
+		ConnectionListenerImpl cl = new ConnectionListenerImpl();
+		CAJChannelsFuture future = clientContext.createChannels(names, cl);
+		System.out.println("Connection request issued.");
+
+		Channel[] channels = future.getChannels();
+		assertEquals(COUNT + 1, channels.length);
+		assertSame(channels[0], channels[COUNT]);
+		assertEquals(COUNT, future.getQuorum());
+		
+		assertEquals(channels.length, future.get(120, TimeUnit.SECONDS).length);
+		assertEquals(COUNT, future.getConnectedCount());
+		assertEquals(COUNT, cl.connectedCount.get());
+		for (int i = 0; i < channels.length; i++)
+		{
+			assertEquals(names.get(i), channels[i].getName());
+			assertEquals(Channel.ConnectionState.CONNECTED, channels[i].getConnectionState());
+		}
+		
+		// quorum, all channels already exist
+		future = clientContext.createChannels(names.subList(0, 10), null, Channel.PRIORITY_DEFAULT, 5);
+		assertTrue(future.isDone());
+		assertSame(channels[9], future.get()[9]);
+	}
+
+	public void testLockTimeoutRelease() throws Exception {
+		
+		final LockingContext lockingContext = new LockingContext();
+		try
+		{
+			Channel first = lockingContext.createChannel("EXISTING0");
+			Channel last = lockingContext.createChannel("EXISTING1");
+			
+			// hold the lock of a new name in another thread
+			final CountDownLatch locked = new CountDownLatch(1);
+			final CountDownLatch release = new CountDownLatch(1);
+			Thread thread = new Thread(new Runnable() {
+				public void run() {
+					if (!lockingContext.lock("LOCKED"))
+						return;
+					try {
+						locked.countDown();
+						release.await();
+					} catch (InterruptedException e) {
+						// noop
+					} finally {
+						lockingContext.unlock("LOCKED");
+					}
+				}
+			});
+			thread.start();
+			assertTrue(locked.await(5, TimeUnit.SECONDS));
+			
+			try {
+				lockingContext.createChannels(Arrays.asList(new String[] { "EXISTING0", "LOCKED", "EXISTING1", "NEW" }), null);
+				fail("lock timeout expected");
+			} catch (CAException cae) {
+				// expected
+			} finally {
+				release.countDown();
+				thread.join();
+			}
+			
+			// all the acquired channels (also after the locked one) were released
+			assertNull(lockingContext.getChannel("LOCKED", Channel.PRIORITY_DEFAULT, false));
+			first.destroy();
+			assertNull(lockingContext.getChannel("EXISTING0", Channel.PRIORITY_DEFAULT, false));
+			last.destroy();
+			assertNull(lockingContext.getChannel("EXISTING1", Channel.PRIORITY_DEFAULT, false));
+		}
+		finally
+		{
+			lockingContext.destroy();
+		}
+	}
+
+	public void testFutureListenerRemoved() throws Exception {
+		
+		List<String> names = new ArrayList<String>();
+		for (int i = 0; i < 10; i++)
+			names.add(CHANNEL_NAME_PREFIX + String.valueOf(i));
+		
+		// completed
+		CAJChannelsFuture future = clientContext.createChannels(names, null);
+		Channel[] channels = future.get(10, TimeUnit.SECONDS);
+		for (int i = 0; i < channels.length; i++)
+			waitForNoConnectionListeners(channels[i]);
+
+		// shared channels do not accumulate listeners of done futures
+		for (int r = 0; r < 5; r++)
+			assertTrue(clientContext.createChannels(names, null).isDone());
+		for (int i = 0; i < channels.length; i++)
+			waitForNoConnectionListeners(channels[i]);
+
+		// cancelled
+		future = clientContext.createChannels(Arrays.asList(new String[] { "NON_EXISTING0", "NON_EXISTING1" }), null);
+		assertFalse(future.isDone());
+		channels = future.getChannels();
+		assertEquals(1, channels[0].getConnectionListeners().length);
+		future.cancel(false);
+		for (int i = 0; i < channels.length; i++)
+			waitForNoConnectionListeners(channels[i]);
+	}
+	
+	private static void waitForNoConnectionListeners(Channel channel) throws InterruptedException {
+		final long end = System.currentTimeMillis() + 5000;
+		while (channel.getConnectionListeners().length > 0 && System.currentTimeMillis() < end)
+			Thread.sleep(10);
+		assertEquals(0, channel.getConnectionListeners().length);
+	}
+
+	public void testConcurrentCreate() throws Exception {
+		
+		final int rounds = 200;
+		final int threadCount = 4;
+		final int channelCount = 20;
+		for (int r = 0; r < rounds; r++)
+		{
+			final List<String> names = new ArrayList<String>(channelCount);
+			for (int i = 0; i < channelCount; i++)
+				names.add("CONCURRENT" + r + "_" + i);
+			
+			// createChannel() and createChannels() race on the same names
+			final CountDownLatch start = new CountDownLatch(1);
+			final Channel[][] single = new Channel[threadCount][channelCount];
+			final AtomicInteger failures = new AtomicInteger();
+			Thread[] threads = new Thread[threadCount];
+			for (int t = 0; t < threadCount; t++)
+			{
+				final Channel[] created = single[t];
+				threads[t] = new Thread(new Runnable() {
+					public void run() {
+						try {
+							start.await();
+							for (int i = 0; i < channelCount; i++)
+								created[i] = clientContext.createChannel(names.get(i));
+						} catch (Throwable th) {
+							th.printStackTrace();
+							failures.incrementAndGet();
+						}
+					}
+				});
+				threads[t].start();
+			}
+			start.countDown();
+			Channel[] batch = clientContext.createChannels(names, null).getChannels();
+			for (int t = 0; t < threadCount; t++)
+				threads[t].join();
+			assertEquals(0, failures.get());
+			
+			// exactly one (shared) instance per name
+			for (int i = 0; i < channelCount; i++)
+			{
+				assertSame(batch[i], clientContext.getChannel(names.get(i), Channel.PRIORITY_DEFAULT, false));
+				for (int t = 0; t < threadCount; t++)
+					assertSame(batch[i], single[t][i]);
+			}
+			
+			// released by all the owners
+			for (int i = 0; i < channelCount; i++)
+			{
+				batch[i].destroy();
+				for (int t = 0; t < threadCount; t++)
+					single[t][i].destroy();
+				assertNull(clientContext.getChannel(names.get(i), Channel.PRIORITY_DEFAULT, false));
+			}
+		}
+	}
+
 
 	/*
 	 * @see TestCase#setUp()
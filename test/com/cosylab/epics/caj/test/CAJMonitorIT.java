@@ -20,19 +20,28 @@ import gov.aps.jca.Channel;
 import gov.aps.jca.Monitor;
 import gov.aps.jca.TimeoutException;
 import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
 import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.dbr.DBR_Int;
+import gov.aps.jca.dbr.DBR_TIME_Double;
 import gov.aps.jca.event.MonitorEvent;
 import gov.aps.jca.event.MonitorListener;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.nio.ByteBuffer;
+
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 
 import com.cosylab.epics.caj.CAJContext;
+import com.cosylab.epics.caj.CAJMonitor;
+import com.cosylab.epics.caj.MonitorPayloadListener;
+import com.cosylab.epics.caj.impl.DBRDecoder;
 
 import junit.framework.TestCase;
 
@@ -135,6 +144,67 @@ public class CAJMonitorIT {
         monitor.clear();
     }
 
+    /**
+     * Decode target (DBR reuse) test.
+     */
+    @Test
+    public void testMonitorDecodeTarget() throws CAException, TimeoutException, InterruptedException {
+        MonitorListenerImpl listener = new MonitorListenerImpl();
+
+        DBR_Double target = new DBR_Double(1);
+        synchronized (listener) {
+            CAJMonitor monitor = (CAJMonitor) channel.addMonitor(DBR_Double.TYPE, 1, Monitor.VALUE, listener);
+            monitor.setDecodeTarget(target);
+            assertTrue(target == monitor.getDecodeTarget());
+            context.flushIO();
+
+            listener.wait(3000);
+            assertEquals(CAStatus.NORMAL, listener.status);
+            assertTrue(target == listener.response);
+
+            try {
+                monitor.setDecodeTarget(new DBR_Int(1));
+                fail("inconsistent DBR type accepted");
+            } catch (IllegalArgumentException iae) {
+                // ok
+            }
+
+            monitor.clear();
+        }
+    }
+
+    /**
+     * Payload listener test.
+     */
+    @Test
+    public void testMonitorPayloadListener() throws CAException, TimeoutException, InterruptedException {
+        final double[] value = new double[1];
+        final int[] counter = new int[1];
+        MonitorPayloadListener payloadListener = new MonitorPayloadListener() {
+            public void payloadReceived(CAJMonitor monitor, DBRType type, int count, ByteBuffer payload) {
+                synchronized (counter) {
+                    assertTrue(payload.isReadOnly());
+                    DBRDecoder.getValueView(type, payload).asDoubleBuffer().get(value, 0, count);
+                    counter[0]++;
+                    counter.notifyAll();
+                }
+            }
+        };
+
+        synchronized (counter) {
+            CAJMonitor monitor = (CAJMonitor) channel.addMonitor(DBR_TIME_Double.TYPE, 1, Monitor.VALUE);
+            monitor.setPayloadListener(payloadListener);
+            assertTrue(payloadListener == monitor.getPayloadListener());
+            context.flushIO();
+
+            counter.wait(3000);
+            assertEquals(1, counter[0]);
+            assertFalse(Double.isNaN(value[0]));
+
+            monitor.clear();
+        }
+    }
+
     /**
      * No-transport test.
      */
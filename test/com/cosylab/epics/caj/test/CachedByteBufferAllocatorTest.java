@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.cosylab.epics.caj.impl.CachedByteBufferAllocator;
+
+/**
+ * Size-classed buffer allocator test.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class CachedByteBufferAllocatorTest {
+
+	private static final int MAX_BUFFER_SIZE = 1024*1024;
+
+    /**
+     * Allocator to be tested.
+     */
+	private CachedByteBufferAllocator allocator;
+
+	@Before
+	public void setUp() {
+		allocator = new CachedByteBufferAllocator();
+		allocator.setMaxBufferSize(MAX_BUFFER_SIZE);
+	}
+
+	@Test
+	public void testDefaultSize() {
+		ByteBuffer buffer = allocator.get();
+		assertTrue(buffer.isDirect());
+		assertEquals(CachedByteBufferAllocator.bufferSize, buffer.capacity());
+		assertEquals(1, allocator.getMisses());
+		assertEquals(buffer.capacity(), allocator.getOutstandingBytes());
+
+		buffer.put((byte)1);
+		allocator.put(buffer);
+		assertEquals(0, allocator.getOutstandingBytes());
+
+		// LIFO, cleared
+		ByteBuffer buffer2 = allocator.get();
+		assertSame(buffer, buffer2);
+		assertEquals(0, buffer2.position());
+		assertEquals(1, allocator.getHits());
+	}
+
+	@Test
+	public void testSizeClasses() {
+		ByteBuffer buffer = allocator.get(CachedByteBufferAllocator.bufferSize + 1);
+		assertEquals(2 * CachedByteBufferAllocator.bufferSize, buffer.capacity());
+
+		ByteBuffer maxBuffer = allocator.get(MAX_BUFFER_SIZE - 1);
+		assertEquals(MAX_BUFFER_SIZE, maxBuffer.capacity());
+		assertEquals(MAX_BUFFER_SIZE, allocator.getMaxBufferSize());
+
+		allocator.put(maxBuffer);
+		assertEquals(MAX_BUFFER_SIZE, allocator.getPooledBytes());
+		assertSame(maxBuffer, allocator.get(MAX_BUFFER_SIZE));
+		assertEquals(0, allocator.getPooledBytes());
+
+		allocator.put(buffer);
+		allocator.put(maxBuffer);
+		assertEquals(0, allocator.getOutstandingBytes());
+	}
+
+	@Test
+	public void testNonPooled() {
+		ByteBuffer buffer = allocator.get(MAX_BUFFER_SIZE + 1);
+		assertEquals(MAX_BUFFER_SIZE + 1, buffer.capacity());
+		allocator.put(buffer);
+		assertEquals(1, allocator.getReclaimed());
+		assertEquals(0, allocator.getPooledBytes());
+		assertEquals(0, allocator.getOutstandingBytes());
+
+		ByteBuffer buffer2 = allocator.get(MAX_BUFFER_SIZE + 1);
+		assertFalse(buffer == buffer2);
+	}
+
+	@Test
+	public void testReclaim() {
+		ByteBuffer buffer = allocator.get(MAX_BUFFER_SIZE);
+		allocator.put(buffer);
+		assertEquals(MAX_BUFFER_SIZE, allocator.getPooledBytes());
+
+		allocator.reclaim();
+		assertEquals(0, allocator.getPooledBytes());
+		assertEquals(1, allocator.getReclaimed());
+	}
+
+	@Test
+	public void testCrossThread() throws InterruptedException {
+		final ByteBuffer[] buffer = new ByteBuffer[1];
+		Thread t = new Thread(new Runnable() {
+			public void run() {
+				buffer[0] = allocator.get(MAX_BUFFER_SIZE);
+			}
+		});
+		t.start();
+		t.join();
+
+		// returned by another thread
+		allocator.put(buffer[0]);
+		assertSame(buffer[0], allocator.get(MAX_BUFFER_SIZE));
+	}
+
+	@Test
+	public void testCrossThreadThreadCache() throws InterruptedException {
+		final int size = CachedByteBufferAllocator.bufferSize;
+		final long maxPoolSize = CachedByteBufferAllocator.maxPoolSize;
+		CachedByteBufferAllocator.maxPoolSize = 2 * size;
+		try {
+			// thread-cached size class, obtained by another thread
+			final ByteBuffer[] buffers = new ByteBuffer[3];
+			Thread t = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < buffers.length; i++)
+						buffers[i] = allocator.get();
+				}
+			});
+			t.start();
+			t.join();
+
+			// thread cache is accounted and bounded by max pool size
+			for (int i = 0; i < buffers.length; i++)
+				allocator.put(buffers[i]);
+			assertEquals(0, allocator.getOutstandingBytes());
+			assertEquals(2 * size, allocator.getPooledBytes());
+			assertEquals(1, allocator.getReclaimed());
+
+			// thread caches are released too
+			allocator.reclaim();
+			assertEquals(0, allocator.getPooledBytes());
+			assertEquals(3, allocator.getReclaimed());
+		} finally {
+			CachedByteBufferAllocator.maxPoolSize = maxPoolSize;
+		}
+	}
+
+	@Test
+	public void testTerminatedThreadCache() throws InterruptedException {
+		Thread t = new Thread(new Runnable() {
+			public void run() {
+				allocator.put(allocator.get());
+			}
+		});
+		t.start();
+		t.join();
+		assertEquals(CachedByteBufferAllocator.bufferSize, allocator.getPooledBytes());
+
+		// cache of the terminated thread is released when a new cache is created
+		t = new Thread(new Runnable() {
+			public void run() {
+				allocator.put(allocator.get());
+			}
+		});
+		t.start();
+		t.join();
+		assertEquals(CachedByteBufferAllocator.bufferSize, allocator.getPooledBytes());
+		assertEquals(1, allocator.getReclaimed());
+		assertEquals(2, allocator.getMisses());
+	}
+
+}
@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+import com.cosylab.epics.caj.util.ConcurrentIntHashMap;
+import com.cosylab.epics.caj.util.IntHashMap;
+
+/**
+ * Channel (CID) / IOID registry performance test: synchronized <code>IntHashMap</code> (former implementation)
+ * vs. <code>ConcurrentIntHashMap</code>, 100k channels, 8 reader (reactor) threads doing lookups
+ * (as for every incoming response) and one thread registering/unregistering requests.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class ChannelRegistryPerformanceIT {
+
+	private static final int CHANNELS = 100000;
+	private static final int READERS = 8;
+	private static final int LOOKUPS_PER_READER = 20000000;
+	private static final int RUNS = 3;
+
+	/**
+	 * Registry under test.
+	 */
+	private interface Registry {
+		Object get(int key);
+		void put(int key, Object value);
+		void remove(int key);
+	}
+
+	/**
+	 * Former implementation, all accesses synchronized.
+	 */
+	private static class SynchronizedRegistry implements Registry {
+		private final IntHashMap map = new IntHashMap();
+		public Object get(int key) {
+			synchronized (map) {
+				return map.get(key);
+			}
+		}
+		public void put(int key, Object value) {
+			synchronized (map) {
+				map.put(key, value);
+			}
+		}
+		public void remove(int key) {
+			synchronized (map) {
+				map.remove(key);
+			}
+		}
+	}
+
+	/**
+	 * Lock-free reads, striped writes.
+	 */
+	private static class ConcurrentRegistry implements Registry {
+		private final ConcurrentIntHashMap map = new ConcurrentIntHashMap();
+		public Object get(int key) {
+			return map.get(key);
+		}
+		public void put(int key, Object value) {
+			map.put(key, value);
+		}
+		public void remove(int key) {
+			map.remove(key);
+		}
+	}
+
+	@Test
+	public void testRegistryPerformance() throws InterruptedException {
+		System.out.println();
+		System.out.println("registry        readers   lookups [Mops/s]   writes [kops/s]");
+		System.out.println("---------------------------------------------------------------");
+		for (int r = 0; r < RUNS; r++) {
+			measure("synchronized", new SynchronizedRegistry());
+			measure("concurrent", new ConcurrentRegistry());
+		}
+	}
+
+	private static void measure(String name, final Registry registry) throws InterruptedException {
+		for (int i = 1; i <= CHANNELS; i++)
+			registry.put(i, new Integer(i));
+
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicLong misses = new AtomicLong(0);
+		final CountDownLatch start = new CountDownLatch(1);
+
+		Thread[] readers = new Thread[READERS];
+		for (int t = 0; t < READERS; t++) {
+			final int seed = t;
+			readers[t] = new Thread() {
+				public void run() {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						return;
+					}
+					int key = seed * 7919;
+					long localMisses = 0;
+					for (int i = 0; i < LOOKUPS_PER_READER; i++) {
+						// cheap pseudo-random walk over all channels
+						key = (key + 40503) % CHANNELS;
+						if (registry.get(key + 1) == null)
+							localMisses++;
+					}
+					misses.addAndGet(localMisses);
+				}
+			};
+			readers[t].start();
+		}
+
+		final AtomicLong writes = new AtomicLong(0);
+		Thread writer = new Thread() {
+			public void run() {
+				// register/unregister IOIDs above the channel range
+				int ioid = CHANNELS + 1;
+				Object request = new Object();
+				while (!done.get()) {
+					registry.put(ioid, request);
+					registry.remove(ioid);
+					ioid = (ioid == Integer.MAX_VALUE) ? CHANNELS + 1 : ioid + 1;
+					writes.incrementAndGet();
+				}
+			}
+		};
+		writer.start();
+
+		long t0 = System.nanoTime();
+		start.countDown();
+		for (int t = 0; t < READERS; t++)
+			readers[t].join();
+		long t1 = System.nanoTime();
+		done.set(true);
+		writer.join();
+
+		assertEquals(0, misses.get());
+
+		double seconds = (t1 - t0) / 1e9;
+		System.out.println(String.format("%-15s %7d %18.1f %17.1f", name, READERS,
+				(double)READERS * LOOKUPS_PER_READER / seconds / 1e6, writes.get() / seconds / 1e3));
+	}
+
+}
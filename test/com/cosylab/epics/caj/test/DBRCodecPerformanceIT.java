@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertNotNull;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.cosylab.epics.caj.impl.DBRDecoder;
+import com.cosylab.epics.caj.impl.DBREncoder;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+
+/**
+ * DBR encode/decode performance test (all types, counts 1, 100 and 1M).
+ * Decode is measured both allocating a new DBR and decoding into an existing one.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class DBRCodecPerformanceIT {
+
+	private static final int[] COUNTS = { 1, 100, 1000000 };
+
+	/**
+	 * Number of elements to process per measurement (iterations = ELEMENTS / count).
+	 */
+	private static final int ELEMENTS = 20000000;
+
+	private static final int MIN_ITERATIONS = 5;
+	private static final int MAX_ITERATIONS = 200000;
+
+	/**
+	 * Prevents dead-code elimination.
+	 */
+	private static volatile Object sink;
+
+	@Test
+	public void testCodecPerformance() {
+		System.out.println();
+		System.out.println("type                      count   encode [ns/op]   decode [ns/op]   decode-in-place [ns/op]");
+		System.out.println("------------------------------------------------------------------------------------------");
+
+		for (short t = 0; t <= DBRType.STSACK_STRING.getValue(); t++) {
+			DBRType type = DBRType.forValue(t);
+			if (type == null)
+				continue;
+
+			for (int c = 0; c < COUNTS.length; c++)
+				measure(type, COUNTS[c]);
+		}
+	}
+
+	private static void measure(DBRType type, int count) {
+		final short typeValue = (short) type.getValue();
+		final DBR dbr = DBRCodecTest.createDBR(type, count);
+		final DBR target = type.newInstance(count);
+		final ByteBuffer buffer = ByteBuffer.allocateDirect(DBREncoder.calculatePayloadSize(typeValue, count, dbr.getValue()));
+		final int iterations = Math.max(MIN_ITERATIONS, Math.min(MAX_ITERATIONS, ELEMENTS / count));
+
+		// warm-up
+		for (int i = 0; i < Math.max(MIN_ITERATIONS, iterations / 10); i++) {
+			encode(buffer, typeValue, count, dbr);
+			sink = DBRDecoder.getDBR(null, typeValue, count, buffer);
+		}
+
+		long t0 = System.nanoTime();
+		for (int i = 0; i < iterations; i++)
+			encode(buffer, typeValue, count, dbr);
+		long t1 = System.nanoTime();
+
+		DBR decoded = null;
+		for (int i = 0; i < iterations; i++) {
+			buffer.rewind();
+			decoded = DBRDecoder.getDBR(null, typeValue, count, buffer);
+		}
+		long t2 = System.nanoTime();
+		assertNotNull(decoded);
+		sink = decoded;
+
+		for (int i = 0; i < iterations; i++) {
+			buffer.rewind();
+			decoded = DBRDecoder.getDBR(target, typeValue, count, buffer);
+		}
+		long t3 = System.nanoTime();
+		assertNotNull(decoded);
+		sink = decoded;
+
+		System.out.println(String.format("%-24s %7d %16d %16d %25d", type.getName(), count,
+				(t1 - t0) / iterations, (t2 - t1) / iterations, (t3 - t2) / iterations));
+	}
+
+	private static void encode(ByteBuffer buffer, short typeValue, int count, DBR dbr) {
+		buffer.clear();
+		DBREncoder.insertPayload(buffer, typeValue, count, dbr);
+		buffer.flip();
+	}
+
+}
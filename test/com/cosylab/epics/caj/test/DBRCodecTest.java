@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import com.cosylab.epics.caj.impl.CAConstants;
+import com.cosylab.epics.caj.impl.DBRDecoder;
+import com.cosylab.epics.caj.impl.DBREncoder;
+
+import gov.aps.jca.dbr.ACK;
+import gov.aps.jca.dbr.CTRL;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_LABELS_Enum;
+import gov.aps.jca.dbr.DBR_STSACK_String;
+import gov.aps.jca.dbr.GR;
+import gov.aps.jca.dbr.LABELS;
+import gov.aps.jca.dbr.PRECISION;
+import gov.aps.jca.dbr.STS;
+import gov.aps.jca.dbr.Severity;
+import gov.aps.jca.dbr.Status;
+import gov.aps.jca.dbr.TIME;
+import gov.aps.jca.dbr.TimeStamp;
+
+/**
+ * DBR encoder/decoder (round-trip) test.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class DBRCodecTest {
+
+	private static final int[] COUNTS = { 1, 5, 100 };
+
+	/**
+	 * Create DBR of given type and count, with all the values (and metadata) set.
+	 */
+	static DBR createDBR(DBRType type, int count) {
+		DBR dbr = type.newInstance(count);
+		Object value = dbr.getValue();
+		for (int i = 0; i < count; i++) {
+			if (value instanceof double[])
+				((double[]) value)[i] = i * 1.5;
+			else if (value instanceof float[])
+				((float[]) value)[i] = i * 0.5f;
+			else if (value instanceof int[])
+				((int[]) value)[i] = i * 1000;
+			else if (value instanceof short[])
+				((short[]) value)[i] = (short) i;
+			else if (value instanceof byte[])
+				((byte[]) value)[i] = (byte) i;
+			else if (value instanceof String[])
+				((String[]) value)[i] = "value" + i;
+		}
+
+		if (dbr instanceof STS) {
+			((STS) dbr).setStatus(Status.HIHI_ALARM);
+			((STS) dbr).setSeverity(Severity.MAJOR_ALARM);
+		}
+		if (dbr instanceof TIME)
+			((TIME) dbr).setTimeStamp(new TimeStamp(123456, 789));
+		if (dbr instanceof GR) {
+			GR gr = (GR) dbr;
+			gr.setUnits("mA");
+			gr.setUpperDispLimit(Integer.valueOf(10));
+			gr.setLowerDispLimit(Integer.valueOf(-10));
+			gr.setUpperAlarmLimit(Integer.valueOf(9));
+			gr.setUpperWarningLimit(Integer.valueOf(8));
+			gr.setLowerWarningLimit(Integer.valueOf(-8));
+			gr.setLowerAlarmLimit(Integer.valueOf(-9));
+		}
+		if (dbr instanceof CTRL) {
+			((CTRL) dbr).setUpperCtrlLimit(Integer.valueOf(7));
+			((CTRL) dbr).setLowerCtrlLimit(Integer.valueOf(-7));
+		}
+		if (dbr instanceof PRECISION)
+			((PRECISION) dbr).setPrecision((short) 3);
+		if (dbr instanceof DBR_LABELS_Enum)
+			((DBR_LABELS_Enum) dbr).setLabels(new String[] { "zero", "one" });
+		if (dbr instanceof DBR_STSACK_String) {
+			((DBR_STSACK_String) dbr).setAckT(true);
+			((DBR_STSACK_String) dbr).setAckS(Severity.MINOR_ALARM);
+		}
+		return dbr;
+	}
+
+	/**
+	 * Encode given DBR.
+	 */
+	static ByteBuffer encode(DBRType type, int count, DBR dbr) {
+		short typeValue = (short) type.getValue();
+		int payloadSize = DBREncoder.calculatePayloadSize(typeValue, count, dbr.getValue());
+		ByteBuffer buffer = ByteBuffer.allocate(payloadSize);
+		DBREncoder.insertPayload(buffer, typeValue, count, dbr);
+		assertEquals(type.getName(), payloadSize, buffer.position());
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Round-trip of all the types.
+	 */
+	@Test
+	public void testRoundTrip() {
+		for (short t = 0; t <= DBRType.STSACK_STRING.getValue(); t++) {
+			DBRType type = DBRType.forValue(t);
+			if (type == null)
+				continue;
+
+			for (int c = 0; c < COUNTS.length; c++) {
+				final int count = COUNTS[c];
+				DBR dbr = createDBR(type, count);
+				ByteBuffer buffer = encode(type, count, dbr);
+
+				// value offset
+				assertEquals(type.getName(), DBREncoder.getValueOffset(t),
+						buffer.limit() - DBREncoder.calculatePayloadSize(toValueType(dbr), count, null));
+
+				DBR decoded = DBRDecoder.getDBR(null, t, count, buffer);
+				assertNotNull(type.getName(), decoded);
+				assertEquals(type, decoded.getType());
+				assertEquals(count, decoded.getCount());
+				// NOTE: single string is not necessarily fully consumed
+				if (!type.isSTRING() || count > 1)
+					assertEquals(type.getName(), buffer.limit(), buffer.position());
+				assertDBREquals(type, dbr, decoded);
+			}
+		}
+	}
+
+	/**
+	 * Decode into existing DBR.
+	 */
+	@Test
+	public void testDecodeInPlace() {
+		final int count = 100;
+		DBR dbr = createDBR(DBRType.TIME_DOUBLE, count);
+		ByteBuffer buffer = encode(DBRType.TIME_DOUBLE, count, dbr);
+
+		DBR target = DBRType.TIME_DOUBLE.newInstance(count);
+		Object targetValue = target.getValue();
+		assertSame(target, DBRDecoder.getDBR(target, (short) DBRType.TIME_DOUBLE.getValue(), count, buffer));
+		assertSame(targetValue, target.getValue());
+		assertDBREquals(DBRType.TIME_DOUBLE, dbr, target);
+
+		// inconsistent count
+		buffer.rewind();
+		assertNull(DBRDecoder.getDBR(DBRType.TIME_DOUBLE.newInstance(count - 1), (short) DBRType.TIME_DOUBLE.getValue(), count, buffer));
+	}
+
+	/**
+	 * Incremental decode of value-only types, payload fed in small chunks.
+	 */
+	@Test
+	public void testDecodeValueElements() {
+		final int count = 100;
+		final int CHUNK = 7;
+		for (int t = 0; t <= DBRType.DOUBLE.getValue(); t++) {
+			DBRType type = DBRType.forValue(t);
+			DBR dbr = createDBR(type, count);
+			ByteBuffer payload = encode(type, count, dbr);
+
+			DBR target = type.newInstance(count);
+			ByteBuffer chunk = ByteBuffer.allocate(CAConstants.MAX_STRING_SIZE + CHUNK);
+			int decoded = 0;
+			while (payload.hasRemaining()) {
+				int n = Math.min(CHUNK, payload.remaining());
+				for (int i = 0; i < n; i++)
+					chunk.put(payload.get());
+				chunk.flip();
+				decoded += DBRDecoder.decodeValueElements(target, decoded, chunk);
+				chunk.compact();
+			}
+			assertEquals(type.getName(), count, decoded);
+			assertDBREquals(type, dbr, target);
+		}
+
+		assertEquals(8, DBRDecoder.getValueElementSize((short) DBRType.DOUBLE.getValue()));
+		assertEquals(-1, DBRDecoder.getValueElementSize((short) DBRType.TIME_DOUBLE.getValue()));
+	}
+
+	/**
+	 * Empty arrays still carry one element.
+	 */
+	@Test
+	public void testZeroCount() {
+		assertEquals(8, DBREncoder.calculatePayloadSize((short) DBRType.DOUBLE.getValue(), 0, new double[0]));
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		DBREncoder.insertPayload(buffer, (short) DBRType.DOUBLE.getValue(), 0, new double[0]);
+		assertEquals(8, buffer.position());
+	}
+
+	/**
+	 * Invalid types.
+	 */
+	@Test
+	public void testInvalidType() {
+		assertNull(DBRDecoder.getDBR(null, Short.MAX_VALUE, 1, ByteBuffer.allocate(8)));
+		assertNull(DBRDecoder.getDBR(null, (short) -2, 1, ByteBuffer.allocate(8)));
+
+		try {
+			DBREncoder.calculatePayloadSize(Short.MAX_VALUE, 1, null);
+			fail("invalid type accepted");
+		} catch (IllegalArgumentException iae) {
+			// ok
+		}
+		try {
+			DBREncoder.insertPayload(ByteBuffer.allocate(8), (short) -2, 1, new double[1]);
+			fail("invalid type accepted");
+		} catch (IllegalArgumentException iae) {
+			// ok
+		}
+	}
+
+	/**
+	 * Too long labels are truncated (zero terminated).
+	 */
+	@Test
+	public void testLongLabel() {
+		DBR_LABELS_Enum dbr = (DBR_LABELS_Enum) createDBR(DBRType.LABELS_ENUM, 1);
+		dbr.setLabels(new String[] { "0123456789012345678901234567890123456789" });
+		DBR_LABELS_Enum decoded = (DBR_LABELS_Enum) DBRDecoder.getDBR(null, (short) DBRType.LABELS_ENUM.getValue(), 1,
+				encode(DBRType.LABELS_ENUM, 1, dbr));
+		assertEquals("0123456789012345678901234", decoded.getLabels()[0]);
+	}
+
+	/**
+	 * Get value-only type of the DBR.
+	 */
+	private static short toValueType(DBR dbr) {
+		Object value = dbr.getValue();
+		if (value instanceof double[])
+			return (short) DBRType.DOUBLE.getValue();
+		else if (value instanceof float[])
+			return (short) DBRType.FLOAT.getValue();
+		else if (value instanceof int[])
+			return (short) DBRType.INT.getValue();
+		else if (value instanceof short[])
+			return (short) DBRType.SHORT.getValue();
+		else if (value instanceof byte[])
+			return (short) DBRType.BYTE.getValue();
+		else
+			return (short) DBRType.STRING.getValue();
+	}
+
+	/**
+	 * Compare values and metadata (that is transferred for given type).
+	 */
+	private static void assertDBREquals(DBRType type, DBR expected, DBR actual) {
+		final String name = type.getName();
+
+		Object expectedValue = expected.getValue();
+		Object actualValue = actual.getValue();
+		assertEquals(name, Array.getLength(expectedValue), Array.getLength(actualValue));
+		for (int i = 0; i < Array.getLength(expectedValue); i++)
+			assertEquals(name, Array.get(expectedValue, i), Array.get(actualValue, i));
+
+		if (type.isSTS()) {
+			assertEquals(name, ((STS) expected).getStatus(), ((STS) actual).getStatus());
+			assertEquals(name, ((STS) expected).getSeverity(), ((STS) actual).getSeverity());
+		}
+		if (type.isTIME() && !type.isGR() && type != DBRType.GR_STRING && type != DBRType.CTRL_STRING) {
+			assertEquals(name, ((TIME) expected).getTimeStamp().secPastEpoch(), ((TIME) actual).getTimeStamp().secPastEpoch());
+			assertEquals(name, ((TIME) expected).getTimeStamp().nsec(), ((TIME) actual).getTimeStamp().nsec());
+		}
+		if (type.isGR() && !type.isLABELS() && actual instanceof GR) {
+			GR e = (GR) expected;
+			GR a = (GR) actual;
+			assertEquals(name, e.getUnits(), a.getUnits());
+			assertEquals(name, e.getUpperDispLimit().doubleValue(), a.getUpperDispLimit().doubleValue(), 0.0);
+			assertEquals(name, e.getLowerDispLimit().doubleValue(), a.getLowerDispLimit().doubleValue(), 0.0);
+			assertEquals(name, e.getUpperAlarmLimit().doubleValue(), a.getUpperAlarmLimit().doubleValue(), 0.0);
+			assertEquals(name, e.getUpperWarningLimit().doubleValue(), a.getUpperWarningLimit().doubleValue(), 0.0);
+			assertEquals(name, e.getLowerWarningLimit().doubleValue(), a.getLowerWarningLimit().doubleValue(), 0.0);
+			assertEquals(name, e.getLowerAlarmLimit().doubleValue(), a.getLowerAlarmLimit().doubleValue(), 0.0);
+		}
+		if (type.isCTRL() && !type.isLABELS() && actual instanceof CTRL) {
+			assertEquals(name, ((CTRL) expected).getUpperCtrlLimit().doubleValue(), ((CTRL) actual).getUpperCtrlLimit().doubleValue(), 0.0);
+			assertEquals(name, ((CTRL) expected).getLowerCtrlLimit().doubleValue(), ((CTRL) actual).getLowerCtrlLimit().doubleValue(), 0.0);
+		}
+		if (type.isPRECISION())
+			assertEquals(name, ((PRECISION) expected).getPrecision(), ((PRECISION) actual).getPrecision());
+		if (type.isLABELS()) {
+			String[] labels = ((LABELS) actual).getLabels();
+			assertEquals(name, 2, labels.length);
+			assertEquals(name, "one", labels[1]);
+		}
+		if (type == DBRType.STSACK_STRING) {
+			assertTrue(name, ((ACK) actual).getAckT());
+			assertEquals(name, Severity.MINOR_ALARM, ((ACK) actual).getAckS());
+		}
+	}
+
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import gov.aps.jca.CAStatusException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+
+/**
+ * DBR conversion performance test, all 7x7 plain type pairs for large arrays,
+ * allocating conversion (<code>convert(DBRType)</code>) vs. conversion into an existing DBR (<code>convert(DBR)</code>).
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class DBRConverterPerformanceIT {
+
+	/**
+	 * Number of elements of numeric arrays.
+	 */
+	private static final int COUNT = 1000000;
+
+	/**
+	 * Number of elements of arrays converted from/to strings.
+	 */
+	private static final int STRING_COUNT = 100000;
+
+	private static final int ITERATIONS = 20;
+
+	/**
+	 * Prevents dead-code elimination.
+	 */
+	private static volatile Object sink;
+
+	@Test
+	public void testConversionPerformance() throws CAStatusException {
+		System.out.println();
+		System.out.println("from         to                count   allocating [ns/element]   into existing [ns/element]");
+		System.out.println("-------------------------------------------------------------------------------------------");
+
+		for (int s = 0; s < DBRConverterTest.TYPES.length; s++)
+			for (int d = 0; d < DBRConverterTest.TYPES.length; d++)
+				measure(DBRConverterTest.TYPES[s], DBRConverterTest.TYPES[d]);
+	}
+
+	private static void measure(DBRType fromType, DBRType toType) throws CAStatusException {
+		final int count = (fromType.isSTRING() || toType.isSTRING()) ? STRING_COUNT : COUNT;
+		final DBR source = DBRConverterTest.createSource(fromType, count);
+		final DBR destination = toType.newInstance(count);
+		final Object labels = DBRConverterTest.LABELS;
+
+		// warm-up
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink = source.convert(toType, labels);
+			sink = source.convert(destination, labels);
+		}
+
+		long t0 = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			sink = source.convert(toType, labels);
+		long t1 = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++)
+			sink = source.convert(destination, labels);
+		long t2 = System.nanoTime();
+
+		assertEquals(count, destination.getCount());
+
+		final double elements = (double)ITERATIONS * count;
+		System.out.println(String.format("%-12s %-12s %10d %25.2f %28.2f", fromType.getName(), toType.getName(), count,
+				(t1 - t0) / elements, (t2 - t1) / elements));
+	}
+
+}
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Array;
+
+import org.junit.Test;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.CAStatusException;
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRConverter;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_Byte;
+import gov.aps.jca.dbr.DBR_CTRL_Double;
+import gov.aps.jca.dbr.DBR_CTRL_Int;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.dbr.DBR_Int;
+import gov.aps.jca.dbr.DBR_LABELS_Enum;
+import gov.aps.jca.dbr.DBR_PRECISION_Double;
+import gov.aps.jca.dbr.DBR_Short;
+import gov.aps.jca.dbr.DBR_String;
+import gov.aps.jca.dbr.DBR_TIME_Short;
+import gov.aps.jca.dbr.Severity;
+import gov.aps.jca.dbr.Status;
+import gov.aps.jca.dbr.TimeStamp;
+
+/**
+ * DBR conversion (<code>DBRConverter</code>) test.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class DBRConverterTest {
+
+	private static final int COUNT = 16;
+
+	/**
+	 * Plain types, all the conversion pairs are tested.
+	 */
+	static final DBRType[] TYPES = {
+		DBRType.BYTE, DBRType.SHORT, DBRType.INT, DBRType.FLOAT, DBRType.DOUBLE, DBRType.ENUM, DBRType.STRING
+	};
+
+	/**
+	 * Enum labels, the same as string values (so that all the conversions succeed).
+	 */
+	static final String[] LABELS = new String[COUNT];
+	static {
+		for (int i = 0; i < COUNT; i++)
+			LABELS[i] = String.valueOf(i);
+	}
+
+	/**
+	 * Create source DBR of given type, values are <code>0 .. count - 1</code>.
+	 */
+	static DBR createSource(DBRType type, int count) {
+		DBR dbr = type.isENUM() ? new DBR_LABELS_Enum(count) : type.newInstance(count);
+		if (dbr instanceof DBR_LABELS_Enum)
+		{
+			DBR_LABELS_Enum labels = (DBR_LABELS_Enum)dbr;
+			labels.setLabels(LABELS);
+			labels.setStatus(Status.NO_ALARM);
+			labels.setSeverity(Severity.NO_ALARM);
+		}
+		Object value = dbr.getValue();
+		for (int i = 0; i < count; i++)
+		{
+			if (value instanceof String[])
+				((String[])value)[i] = String.valueOf(i % COUNT);
+			else
+				Array.set(value, i, convertNumber(i % COUNT, value.getClass().getComponentType()));
+		}
+		return dbr;
+	}
+
+	private static Object convertNumber(int value, Class type) {
+		if (type == byte.class)
+			return new Byte((byte)value);
+		else if (type == short.class)
+			return new Short((short)value);
+		else if (type == int.class)
+			return new Integer(value);
+		else if (type == float.class)
+			return new Float(value);
+		else
+			return new Double(value);
+	}
+
+	private static double elementAsDouble(Object value, int index) {
+		if (value instanceof String[])
+			return Double.parseDouble(((String[])value)[index]);
+		else
+			return ((Number)Array.get(value, index)).doubleValue();
+	}
+
+	@Test
+	public void testAllPairs() throws CAStatusException {
+		for (int s = 0; s < TYPES.length; s++)
+		{
+			for (int d = 0; d < TYPES.length; d++)
+			{
+				final DBR source = createSource(TYPES[s], COUNT);
+				final String pair = TYPES[s].getName() + " -> " + TYPES[d].getName();
+
+				// allocating conversion
+				final DBR converted = source.convert(TYPES[d], LABELS);
+				assertEquals(pair, COUNT, converted.getCount());
+
+				// conversion into existing DBR, reused
+				final DBR destination = TYPES[d].newInstance(COUNT);
+				final Object destinationValue = destination.getValue();
+				for (int r = 0; r < 2; r++)
+					assertSame(pair, destination, source.convert(destination, LABELS));
+				assertSame(pair, destinationValue, destination.getValue());
+
+				for (int i = 0; i < COUNT; i++)
+				{
+					assertEquals(pair, i, elementAsDouble(converted.getValue(), i), 0.0);
+					assertEquals(pair, i, elementAsDouble(destination.getValue(), i), 0.0);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testCastSemantics() throws CAStatusException {
+		double[] values = { 300.7, -1.5, Double.NaN, 1e20, -129.9, 65536.5 };
+		DBR_Double source = new DBR_Double(values);
+
+		byte[] bytes = ((DBR_Byte)source.convert(new DBR_Byte(values.length))).getByteValue();
+		short[] shorts = ((DBR_Short)source.convert(new DBR_Short(values.length))).getShortValue();
+		int[] ints = ((DBR_Int)source.convert(new DBR_Int(values.length))).getIntValue();
+		for (int i = 0; i < values.length; i++)
+		{
+			assertEquals((byte)values[i], bytes[i]);
+			assertEquals((short)values[i], shorts[i]);
+			assertEquals((int)values[i], ints[i]);
+		}
+
+		// primitive kernels
+		int[] from = { Integer.MAX_VALUE, -1, 70000 };
+		short[] to = new short[3];
+		DBRConverter.convert(from, to, 2);
+		assertArrayEquals(new short[] { (short)Integer.MAX_VALUE, (short)-1, 0 }, to);
+	}
+
+	@Test
+	public void testCount() throws CAStatusException {
+		DBR source = createSource(DBRType.DOUBLE, 10);
+
+		// smaller destination
+		DBR_Int small = new DBR_Int(4);
+		source.convert(small);
+		assertArrayEquals(new int[] { 0, 1, 2, 3 }, small.getIntValue());
+
+		// larger destination, rest is untouched
+		DBR_Int large = new DBR_Int(new int[] { -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1 });
+		source.convert(large);
+		assertEquals(9, large.getIntValue()[9]);
+		assertEquals(-1, large.getIntValue()[10]);
+	}
+
+	@Test
+	public void testMetadata() throws CAStatusException {
+		DBR_CTRL_Double source = new DBR_CTRL_Double(new double[] { 1.2345, 2.5 });
+		source.setStatus(Status.HIGH_ALARM);
+		source.setSeverity(Severity.MAJOR_ALARM);
+		source.setUnits("mm");
+		source.setUpperDispLimit(new Double(10));
+		source.setLowerCtrlLimit(new Double(-10));
+		source.setPrecision((short)2);
+
+		// CTRL -> CTRL
+		DBR_CTRL_Int ctrl = (DBR_CTRL_Int)source.convert(new DBR_CTRL_Int(2));
+		assertArrayEquals(new int[] { 1, 2 }, ctrl.getIntValue());
+		assertSame(Status.HIGH_ALARM, ctrl.getStatus());
+		assertSame(Severity.MAJOR_ALARM, ctrl.getSeverity());
+		assertEquals("mm", ctrl.getUnits());
+		assertEquals(10, ctrl.getUpperDispLimit().intValue());
+		assertEquals(-10, ctrl.getLowerCtrlLimit().intValue());
+
+		// precision is used for string conversion
+		DBR_String string = (DBR_String)source.convert(new DBR_String(2));
+		assertArrayEquals(new String[] { "1.23", "2.50" }, string.getStringValue());
+
+		// timestamp
+		TimeStamp stamp = new TimeStamp(1000, 5);
+		DBR_PRECISION_Double timeSource = new DBR_PRECISION_Double(new double[] { 3.0 });
+		timeSource.setTimeStamp(stamp);
+		DBR_TIME_Short time = (DBR_TIME_Short)timeSource.convert(new DBR_TIME_Short(1));
+		assertEquals(stamp, time.getTimeStamp());
+		assertEquals(3, time.getShortValue()[0]);
+	}
+
+	@Test
+	public void testFailures() {
+		try {
+			new DBR_String(new String[] { "abc" }).convert(DBRType.DOUBLE);
+			fail("not a number converted");
+		} catch (CAStatusException cse) {
+			assertSame(CAStatus.NOCONVERT, cse.getStatus());
+		}
+
+		try {
+			new DBR_String(new String[] { "1" }).convert(DBRType.ENUM.newInstance(1));
+			fail("converted to enum without labels");
+		} catch (CAStatusException cse) {
+			assertSame(CAStatus.NOCONVERT, cse.getStatus());
+		}
+
+		try {
+			new DBR_String(new String[] { "16" }).convert(DBRType.ENUM.newInstance(1), LABELS);
+			fail("invalid enum label converted");
+		} catch (CAStatusException cse) {
+			assertSame(CAStatus.NOCONVERT, cse.getStatus());
+		}
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.cosylab.epics.caj.CAJContext;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
+import gov.aps.jca.dbr.DBR_Double;
+import gov.aps.jca.event.EventDispatcher;
+import gov.aps.jca.event.MonitorEvent;
+import gov.aps.jca.event.MonitorListener;
+import gov.aps.jca.event.PartitionedEventDispatcher;
+import gov.aps.jca.event.QueuedEventDispatcher;
+
+/**
+ * Event dispatcher throughput test (monitor storm on many channels, multiple producer threads),
+ * <code>QueuedEventDispatcher</code> vs. <code>PartitionedEventDispatcher</code>.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class EventDispatcherPerformanceIT {
+
+	private static final int CHANNELS = 1000;
+	private static final int PRODUCERS = 4;
+	private static final int EVENTS_PER_CHANNEL = 500;
+
+	/**
+	 * Simulated listener work (ns).
+	 */
+	private static final long LISTENER_WORK = 2000;
+
+	@Test
+	public void testThroughput() throws Exception {
+		CAJContext context = new CAJContext();
+		try {
+			final Channel[] channels = new Channel[CHANNELS];
+			for (int i = 0; i < CHANNELS; i++)
+				channels[i] = context.createChannel("STORM" + i);
+
+			System.out.println();
+			System.out.println("dispatcher                     events/s");
+			System.out.println("----------------------------------------");
+			measure("QueuedEventDispatcher", new QueuedEventDispatcher(), channels);
+			measure("PartitionedEventDispatcher", new PartitionedEventDispatcher(), channels);
+		} finally {
+			context.destroy();
+		}
+	}
+
+	private static void measure(String name, final EventDispatcher dispatcher, final Channel[] channels) throws Exception {
+		final int total = CHANNELS * EVENTS_PER_CHANNEL;
+		final CountDownLatch done = new CountDownLatch(total);
+		final MonitorListener listener = new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				final long end = System.nanoTime() + LISTENER_WORK;
+				while (System.nanoTime() < end)
+					;
+				done.countDown();
+			}
+		};
+
+		final DBR_Double dbr = new DBR_Double(new double[] { 1.0 });
+		Thread[] producers = new Thread[PRODUCERS];
+		long t0 = System.nanoTime();
+		for (int p = 0; p < PRODUCERS; p++) {
+			final int producer = p;
+			producers[p] = new Thread(new Runnable() {
+				public void run() {
+					for (int e = 0; e < EVENTS_PER_CHANNEL; e++)
+						for (int c = producer; c < CHANNELS; c += PRODUCERS)
+							dispatcher.dispatch(new MonitorEvent(channels[c], dbr, CAStatus.NORMAL), listener);
+				}
+			});
+			producers[p].start();
+		}
+
+		assertTrue(done.await(300, TimeUnit.SECONDS));
+		long t1 = System.nanoTime();
+		dispatcher.dispose();
+
+		System.out.println(String.format("%-28s %11.0f", name, total / ((t1 - t0) / 1e9)));
+	}
+
+}
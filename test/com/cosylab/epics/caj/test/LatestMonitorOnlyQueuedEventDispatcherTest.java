@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
+import gov.aps.jca.event.GetEvent;
+import gov.aps.jca.event.GetListener;
+import gov.aps.jca.event.LatestMonitorOnlyQueuedEventDispatcher;
+import gov.aps.jca.event.MonitorEvent;
+import gov.aps.jca.event.MonitorListener;
+
+/**
+ * Latest-monitor-only (conflating) event dispatcher test.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class LatestMonitorOnlyQueuedEventDispatcherTest extends AbstractEventDispatcherTest {
+
+	private LatestMonitorOnlyQueuedEventDispatcher dispatcher;
+
+	@Before
+	public void setUp() {
+		dispatcher = new LatestMonitorOnlyQueuedEventDispatcher();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		if (dispatcher != null)
+			dispatcher.dispose();
+	}
+
+	/**
+	 * Blocks dispatcher thread until returned latch is released.
+	 */
+	private CountDownLatch blockDispatcher(Channel channel) throws InterruptedException {
+		final CountDownLatch blocked = new CountDownLatch(1);
+		final CountDownLatch release = new CountDownLatch(1);
+		dispatcher.dispatch(event(channel, 0), new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				blocked.countDown();
+				try {
+					release.await();
+				} catch (InterruptedException e) { /* noop */ }
+			}
+		});
+		assertTrue(blocked.await(5, TimeUnit.SECONDS));
+		return release;
+	}
+
+	/**
+	 * Records received values.
+	 */
+	private static class RecordingListener implements MonitorListener {
+		final List values = new ArrayList();
+
+		public synchronized void monitorChanged(MonitorEvent ev) {
+			values.add(new Integer(value(ev)));
+			notifyAll();
+		}
+
+		synchronized int last(int expected) throws InterruptedException {
+			final long end = System.currentTimeMillis() + 5000;
+			while (System.currentTimeMillis() < end &&
+					(values.isEmpty() || ((Integer)values.get(values.size() - 1)).intValue() != expected))
+				wait(100);
+			return values.isEmpty() ? -1 : ((Integer)values.get(values.size() - 1)).intValue();
+		}
+	}
+
+	@Test
+	public void testConflation() throws Exception {
+		final Channel[] channels = createChannels(2);
+		final CountDownLatch release = blockDispatcher(channels[0]);
+
+		final RecordingListener listener = new RecordingListener();
+		final int events = 1000;
+		for (int i = 0; i < events; i++)
+			dispatcher.dispatch(event(channels[1], i), listener);
+
+		release.countDown();
+		assertEquals(events - 1, listener.last(events - 1));
+
+		// only the latest value delivered, only once
+		Thread.sleep(100);
+		assertEquals(Arrays.asList(new Object[] { new Integer(events - 1) }), listener.values);
+
+		// slot is reused for following updates
+		dispatcher.dispatch(event(channels[1], events), listener);
+		assertEquals(events, listener.last(events));
+		assertEquals(2, listener.values.size());
+	}
+
+	@Test
+	public void testMonitorSlots() throws Exception {
+		final Channel[] channels = createChannels(2);
+		final CountDownLatch release = blockDispatcher(channels[0]);
+
+		// two monitors on the same channel
+		final RecordingListener first = new RecordingListener();
+		final RecordingListener second = new RecordingListener();
+		final RecordingListener[] multiple = new RecordingListener[] { new RecordingListener(), new RecordingListener() };
+		for (int i = 0; i < 10; i++)
+		{
+			dispatcher.dispatch(event(channels[1], i), first);
+			dispatcher.dispatch(event(channels[1], 100 + i), second);
+			dispatcher.dispatch(event(channels[1], 200 + i), Arrays.asList(multiple));
+		}
+
+		release.countDown();
+		assertEquals(9, first.last(9));
+		assertEquals(109, second.last(109));
+		for (int i = 0; i < multiple.length; i++)
+		{
+			assertEquals(209, multiple[i].last(209));
+			assertEquals(1, multiple[i].values.size());
+		}
+		assertEquals(1, first.values.size());
+		assertEquals(1, second.values.size());
+	}
+
+	@Test
+	public void testOrdering() throws Exception {
+		final Channel[] channels = createChannels(2);
+		final CountDownLatch release = blockDispatcher(channels[0]);
+
+		// monitor slot keeps its position in the queue (before get), value is the latest one
+		final List order = new ArrayList();
+		final CountDownLatch done = new CountDownLatch(2);
+		final MonitorListener monitorListener = new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				order.add("monitor" + value(ev));
+				done.countDown();
+			}
+		};
+		dispatcher.dispatch(event(channels[1], 1), monitorListener);
+		dispatcher.dispatch(new GetEvent(channels[1], null, CAStatus.NORMAL), new GetListener() {
+			public void getCompleted(GetEvent ev) {
+				order.add("get");
+				done.countDown();
+			}
+		});
+		dispatcher.dispatch(event(channels[1], 2), monitorListener);
+
+		release.countDown();
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+		assertEquals(Arrays.asList(new Object[] { "monitor2", "get" }), order);
+	}
+
+	@Test
+	public void testConcurrentProducers() throws Exception {
+		final int producers = 4;
+		final int events = 20000;
+		final Channel[] channels = createChannels(producers);
+		final AtomicInteger outOfOrder = new AtomicInteger();
+		final int[] lastValue = new int[producers];
+		final MonitorListener[] listeners = new MonitorListener[producers];
+		for (int i = 0; i < producers; i++)
+		{
+			final int index = i;
+			lastValue[i] = -1;
+			listeners[i] = new MonitorListener() {
+				public void monitorChanged(MonitorEvent ev) {
+					// strictly increasing, i.e. no duplicates
+					if (value(ev) <= lastValue[index])
+						outOfOrder.incrementAndGet();
+					lastValue[index] = value(ev);
+				}
+			};
+		}
+
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++)
+		{
+			final int producer = p;
+			threads[p] = new Thread(new Runnable() {
+				public void run() {
+					for (int e = 0; e < events; e++)
+						dispatcher.dispatch(event(channels[producer], e), listeners[producer]);
+				}
+			});
+			threads[p].start();
+		}
+		for (int p = 0; p < producers; p++)
+			threads[p].join();
+
+		// last value is always delivered
+		final CountDownLatch flushed = new CountDownLatch(1);
+		dispatcher.dispatch(new GetEvent(channels[0], null, CAStatus.NORMAL), new GetListener() {
+			public void getCompleted(GetEvent ev) {
+				flushed.countDown();
+			}
+		});
+		assertTrue(flushed.await(5, TimeUnit.SECONDS));
+
+		assertEquals(0, outOfOrder.get());
+		for (int p = 0; p < producers; p++)
+			assertEquals(events - 1, lastValue[p]);
+	}
+
+}
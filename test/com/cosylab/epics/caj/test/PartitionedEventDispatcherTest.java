@@ -0,0 +1,249 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import gov.aps.jca.CAStatus;
+import gov.aps.jca.Channel;
+import gov.aps.jca.event.MonitorEvent;
+import gov.aps.jca.event.MonitorListener;
+import gov.aps.jca.event.PartitionedEventDispatcher;
+
+/**
+ * Partitioned (multi-lane) event dispatcher test.
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class PartitionedEventDispatcherTest extends AbstractEventDispatcherTest {
+
+	private static final String LANES_PROPERTY = PartitionedEventDispatcher.class.getName() + ".lanes";
+	private static final String CAPACITY_PROPERTY = PartitionedEventDispatcher.class.getName() + ".lane_capacity";
+	private static final int LANES = 4;
+	private static final int LIMIT = 5;
+
+	private PartitionedEventDispatcher dispatcher;
+
+	@Before
+	public void setUp() {
+		System.setProperty(LANES_PROPERTY, String.valueOf(LANES));
+		dispatcher = new PartitionedEventDispatcher();
+	}
+
+	@After
+	public void tearDown() throws Exception {
+		System.clearProperty(LANES_PROPERTY);
+		if (dispatcher != null)
+			dispatcher.dispose();
+	}
+
+	@Test
+	public void testPerChannelOrdering() throws Exception {
+		final int producers = 8;
+		final int channelsPerProducer = 8;
+		final int events = 2000;
+
+		final Channel[] channels = createChannels(producers * channelsPerProducer);
+		final int[] lastValue = new int[channels.length];
+		final AtomicInteger outOfOrder = new AtomicInteger();
+		final CountDownLatch done = new CountDownLatch(channels.length * events);
+		final Set laneThreads = new HashSet();
+
+		final MonitorListener[] listeners = new MonitorListener[channels.length];
+		for (int i = 0; i < channels.length; i++) {
+			final int index = i;
+			lastValue[i] = -1;
+			listeners[i] = new MonitorListener() {
+				public void monitorChanged(MonitorEvent ev) {
+					// always called by the same thread for given channel
+					if (value(ev) != lastValue[index] + 1)
+						outOfOrder.incrementAndGet();
+					lastValue[index] = value(ev);
+					synchronized (laneThreads) {
+						laneThreads.add(Thread.currentThread());
+					}
+					done.countDown();
+				}
+			};
+		}
+
+		Thread[] threads = new Thread[producers];
+		for (int p = 0; p < producers; p++) {
+			final int first = p * channelsPerProducer;
+			threads[p] = new Thread(new Runnable() {
+				public void run() {
+					for (int e = 0; e < events; e++)
+						for (int c = first; c < first + channelsPerProducer; c++)
+							dispatcher.dispatch(event(channels[c], e), listeners[c]);
+				}
+			});
+			threads[p].start();
+		}
+
+		assertTrue(done.await(30, TimeUnit.SECONDS));
+		for (int p = 0; p < producers; p++)
+			threads[p].join();
+
+		assertEquals(0, outOfOrder.get());
+		for (int i = 0; i < channels.length; i++)
+			assertEquals(events - 1, lastValue[i]);
+
+		// metrics
+		assertEquals(LANES, dispatcher.getLaneCount());
+		long dispatched = 0;
+		for (int i = 0; i < LANES; i++) {
+			dispatched += dispatcher.getLaneDispatchedCount(i);
+			assertEquals(0, dispatcher.getLaneDepth(i));
+		}
+		assertEquals((long)channels.length * events, dispatched);
+		assertTrue(laneThreads.size() > 1);
+	}
+
+	@Test
+	public void testChannelLimit() throws Exception {
+		final Channel channel = createChannels(1)[0];
+		final CountDownLatch release = new CountDownLatch(1);
+		final AtomicInteger received = new AtomicInteger();
+		final MonitorListener listener = new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				try {
+					release.await();
+				} catch (InterruptedException e) { /* noop */ }
+				received.incrementAndGet();
+			}
+		};
+
+		// limit events accepted (the first one is being dispatched)
+		for (int i = 0; i < LIMIT; i++)
+			dispatcher.dispatch(event(channel, i), listener);
+
+		final CountDownLatch queued = new CountDownLatch(1);
+		Thread producer = new Thread(new Runnable() {
+			public void run() {
+				dispatcher.dispatch(event(channel, LIMIT), listener);
+				queued.countDown();
+			}
+		});
+		producer.start();
+
+		// blocked until an event of this channel is dispatched
+		assertFalse(queued.await(300, TimeUnit.MILLISECONDS));
+
+		// other channels are not blocked
+		final CountDownLatch other = new CountDownLatch(1);
+		dispatcher.dispatch(event(createChannels(2)[1], 0), new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				other.countDown();
+			}
+		});
+
+		release.countDown();
+		assertTrue(queued.await(5, TimeUnit.SECONDS));
+		assertTrue(other.await(5, TimeUnit.SECONDS));
+
+		for (int i = 0; i < 50 && received.get() < LIMIT + 1; i++)
+			Thread.sleep(100);
+		assertEquals(LIMIT + 1, received.get());
+	}
+
+	@Test
+	public void testFullLane() throws Exception {
+		final int capacity = 16;
+		System.setProperty(LANES_PROPERTY, "1");
+		System.setProperty(CAPACITY_PROPERTY, String.valueOf(capacity));
+		final PartitionedEventDispatcher lane;
+		try {
+			lane = new PartitionedEventDispatcher();
+		} finally {
+			System.setProperty(LANES_PROPERTY, String.valueOf(LANES));
+			System.clearProperty(CAPACITY_PROPERTY);
+		}
+
+		try {
+			// one event per channel not to reach the channel limit
+			final Channel[] channels = createChannels(capacity * 2);
+			final CountDownLatch release = new CountDownLatch(1);
+			final CountDownLatch done = new CountDownLatch(channels.length);
+			final MonitorListener listener = new MonitorListener() {
+				public void monitorChanged(MonitorEvent ev) {
+					try {
+						release.await();
+					} catch (InterruptedException e) { /* noop */ }
+					done.countDown();
+				}
+			};
+
+			final CountDownLatch queued = new CountDownLatch(1);
+			Thread producer = new Thread(new Runnable() {
+				public void run() {
+					for (int i = 0; i < channels.length; i++)
+						lane.dispatch(event(channels[i], i), listener);
+					queued.countDown();
+				}
+			});
+			producer.start();
+
+			// blocked on a full ring, parked until woken by the lane thread
+			assertFalse(queued.await(300, TimeUnit.MILLISECONDS));
+			assertEquals(capacity, lane.getLaneDepth(0));
+			assertEquals(Thread.State.WAITING, producer.getState());
+
+			release.countDown();
+			assertTrue(queued.await(5, TimeUnit.SECONDS));
+			assertTrue(done.await(5, TimeUnit.SECONDS));
+			assertEquals(channels.length, lane.getLaneDispatchedCount(0));
+		} finally {
+			lane.dispose();
+		}
+	}
+
+	@Test
+	public void testRecursiveDispatch() throws Exception {
+		final Channel[] channels = createChannels(2);
+		final int events = 100;
+		final CountDownLatch done = new CountDownLatch(events);
+		final MonitorListener inner = new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				done.countDown();
+			}
+		};
+
+		// more events (over the limit) queued from the lane thread, must not block
+		dispatcher.dispatch(event(channels[0], 0), new MonitorListener() {
+			public void monitorChanged(MonitorEvent ev) {
+				for (int i = 0; i < events / 2; i++) {
+					dispatcher.dispatch(event(channels[0], i), inner);
+					dispatcher.dispatch(event(channels[1], i), inner);
+				}
+			}
+		});
+
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+}
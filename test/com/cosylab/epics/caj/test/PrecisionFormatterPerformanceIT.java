@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import gov.aps.jca.dbr.DBR;
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_PRECISION_Double;
+import gov.aps.jca.dbr.PrecisionFormatter;
+
+/**
+ * Numeric to string conversion performance test, <code>String.format</code> vs. <code>PrecisionFormatter</code>
+ * (per element and <code>DBR_PRECISION_Double.convert(DBR_STRING)</code> of arrays).
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class PrecisionFormatterPerformanceIT {
+
+	private static final int[] PRECISIONS = { 0, 3, 6 };
+	private static final int[] COUNTS = { 1, 100, 10000 };
+
+	private static final int VALUES = 1024;
+	private static final int ELEMENTS = 2000000;
+
+	/**
+	 * Prevents dead-code elimination.
+	 */
+	private static volatile Object sink;
+
+	@Test
+	public void testFormatPerformance() {
+		Random random = new Random(0);
+		double[] values = new double[VALUES];
+		for (int i = 0; i < VALUES; i++)
+			values[i] = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(8) - 2);
+
+		System.out.println();
+		System.out.println("precision   String.format [ns/op]   PrecisionFormatter [ns/op]");
+		System.out.println("---------------------------------------------------------------");
+
+		char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+		for (int p = 0; p < PRECISIONS.length; p++) {
+			final int precision = PRECISIONS[p];
+
+			// warm-up
+			for (int i = 0; i < ELEMENTS / 10; i++) {
+				sink = formatReference(values[i % VALUES], precision);
+				sink = PrecisionFormatter.format(values[i % VALUES], precision, buffer);
+			}
+
+			long t0 = System.nanoTime();
+			for (int i = 0; i < ELEMENTS; i++)
+				sink = formatReference(values[i % VALUES], precision);
+			long t1 = System.nanoTime();
+			for (int i = 0; i < ELEMENTS; i++)
+				sink = PrecisionFormatter.format(values[i % VALUES], precision, buffer);
+			long t2 = System.nanoTime();
+
+			for (int i = 0; i < VALUES; i++)
+				assertEquals(formatReference(values[i], precision), PrecisionFormatter.format(values[i], precision, buffer));
+
+			System.out.println(String.format("%9d %23d %28d", precision,
+					(t1 - t0) / ELEMENTS, (t2 - t1) / ELEMENTS));
+		}
+	}
+
+	@Test
+	public void testConvertPerformance() throws Exception {
+		System.out.println();
+		System.out.println("count   convert to DBR_STRING [ns/element]");
+		System.out.println("-------------------------------------------");
+
+		Random random = new Random(0);
+		for (int c = 0; c < COUNTS.length; c++) {
+			final int count = COUNTS[c];
+			DBR_PRECISION_Double dbr = new DBR_PRECISION_Double(count);
+			dbr.setPrecision((short)3);
+			for (int i = 0; i < count; i++)
+				dbr.getDoubleValue()[i] = random.nextDouble() * 1000;
+
+			final int iterations = Math.max(10, ELEMENTS / count);
+			for (int i = 0; i < iterations / 10; i++)
+				sink = dbr.convert(DBRType.STRING);
+
+			long t0 = System.nanoTime();
+			DBR converted = null;
+			for (int i = 0; i < iterations; i++)
+				converted = dbr.convert(DBRType.STRING);
+			long t1 = System.nanoTime();
+			sink = converted;
+
+			System.out.println(String.format("%5d %38d", count, (t1 - t0) / ((long)iterations * count)));
+		}
+	}
+
+	/**
+	 * Former <code>DBR_Double.convert()</code> code.
+	 */
+	private static String formatReference(double value, int precision) {
+		final Object[] params = new Object[] { new Double(value) };
+		String str = String.format(Locale.US, "%." + precision + "f", params);
+		if (str.length() > 16)
+			str = String.format(Locale.US, "%." + precision + "e", params);
+		return str;
+	}
+
+}
@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.Test;
+
+import gov.aps.jca.dbr.DBRType;
+import gov.aps.jca.dbr.DBR_PRECISION_Double;
+import gov.aps.jca.dbr.DBR_PRECISION_Float;
+import gov.aps.jca.dbr.DBR_String;
+import gov.aps.jca.dbr.PrecisionFormatter;
+
+/**
+ * Precision formatter test, output is checked against <code>String.format</code> rules
+ * (<code>"%.&lt;precision&gt;f"</code>, <code>"%.&lt;precision&gt;e"</code> if longer than 16 characters).
+ *
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class PrecisionFormatterTest {
+
+	private static final int MAX_PRECISION = 12;
+
+	/**
+	 * Reference implementation (former <code>DBR_Double.convert()</code> code).
+	 */
+	private static String reference(double value, int precision) {
+		final Object[] params = new Object[] { new Double(value) };
+		String str = String.format(Locale.US, "%." + precision + "f", params);
+		if (str.length() > 16)
+			str = String.format(Locale.US, "%." + precision + "e", params);
+		return str;
+	}
+
+	private static void check(double value, int precision, char[] buffer) {
+		assertEquals(value + " (" + precision + ")", reference(value, precision), PrecisionFormatter.format(value, precision, buffer));
+	}
+
+	private static void checkAllPrecisions(double value, char[] buffer) {
+		for (int p = 0; p <= MAX_PRECISION; p++) {
+			check(value, p, buffer);
+			check(-value, p, buffer);
+		}
+	}
+
+	@Test
+	public void testSpecialValues() {
+		char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+		double[] values = {
+				0.0, -0.0, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+				Double.MIN_VALUE, Double.MAX_VALUE, Double.MIN_NORMAL, Long.MAX_VALUE, 1L << 53, (1L << 53) - 1
+		};
+		for (int i = 0; i < values.length; i++)
+			checkAllPrecisions(values[i], buffer);
+	}
+
+	@Test
+	public void testTiesAndRounding() {
+		char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+		double[] values = {
+				0.5, 1.5, 2.5, 0.125, 0.375, 0.05, 0.15, 0.25, 0.35, 0.45, 1.005, 1.015, 1.025, 2.675,
+				0.0005, 0.9995, 9.5, 99.5, 999.95, 0.1, 0.2, 0.3, 1.1, 3.14159, 2.71828182845904,
+				0.999999999, 9.999999999999, 123456.785, 1e-7, 4.35, 1234.5678
+		};
+		for (int i = 0; i < values.length; i++)
+			checkAllPrecisions(values[i], buffer);
+
+		// all the decimals with 1 to 4 fraction digits
+		for (int i = 0; i < 100000; i++) {
+			check(i / 10000.0, 3, buffer);
+			check(i / 1000.0, 2, buffer);
+			check(i / 100.0, 1, buffer);
+			check(i / 10.0, 0, buffer);
+		}
+	}
+
+	@Test
+	public void testLengthLimit() {
+		char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+		// around the 16 character limit (exponential format)
+		for (int e = 0; e <= 20; e++) {
+			double value = Math.pow(10, e);
+			checkAllPrecisions(value, buffer);
+			checkAllPrecisions(value - 1, buffer);
+			checkAllPrecisions(value * 1.23456789, buffer);
+		}
+	}
+
+	@Test
+	public void testRandomDoubles() {
+		char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+		Random random = new Random(12345);
+		for (int i = 0; i < 200000; i++) {
+			// magnitudes from 1e-8 to 1e12
+			double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(21) - 8);
+			check(value, random.nextInt(MAX_PRECISION + 1), buffer);
+		}
+
+		// random bit patterns
+		for (int i = 0; i < 50000; i++) {
+			double value = Double.longBitsToDouble(random.nextLong());
+			check(value, random.nextInt(MAX_PRECISION + 1), buffer);
+		}
+	}
+
+	@Test
+	public void testRandomFloats() {
+		char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+		Random random = new Random(54321);
+		for (int i = 0; i < 200000; i++) {
+			float value = (float)((random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(13) - 4));
+			int precision = random.nextInt(MAX_PRECISION + 1);
+			final Object[] params = new Object[] { new Float(value) };
+			String expected = String.format(Locale.US, "%." + precision + "f", params);
+			if (expected.length() > 16)
+				expected = String.format(Locale.US, "%." + precision + "e", params);
+			assertEquals(value + " (" + precision + ")", expected, PrecisionFormatter.format(value, precision, buffer));
+		}
+	}
+
+	@Test
+	public void testFastPath() {
+		char[] buffer = new char[PrecisionFormatter.BUFFER_SIZE];
+		// typical display values are formatted without falling back to String.format
+		Random random = new Random(1);
+		int fast = 0;
+		for (int i = 0; i < 10000; i++)
+			if (PrecisionFormatter.formatFixed(random.nextDouble() * 1000, 3, buffer) >= 0)
+				fast++;
+		assertTrue(fast > 9900);
+
+		assertEquals(5, PrecisionFormatter.formatFixed(-1.25, 2, buffer));
+		assertEquals("-1.25", new String(buffer, 0, 5));
+
+		// exponential format
+		assertEquals(-1, PrecisionFormatter.formatFixed(1e20, 2, buffer));
+	}
+
+	@Test
+	public void testConvert() throws Exception {
+		DBR_PRECISION_Double doubleDBR = new DBR_PRECISION_Double(new double[] { 1.005, -0.0, 2.5, 12345678.9, 1e20 });
+		doubleDBR.setPrecision((short)2);
+		String[] strings = ((DBR_String)doubleDBR.convert(DBRType.STRING)).getStringValue();
+		assertEquals(5, strings.length);
+		for (int i = 0; i < strings.length; i++)
+			assertEquals(reference(doubleDBR.getDoubleValue()[i], 2), strings[i]);
+
+		DBR_PRECISION_Float floatDBR = new DBR_PRECISION_Float(new float[] { 0.1f, 3.25f, -7.5f });
+		floatDBR.setPrecision((short)1);
+		strings = ((DBR_String)floatDBR.convert(DBRType.STRING)).getStringValue();
+		assertEquals("0.1", strings[0]);
+		assertEquals("3.3", strings[1]);
+		assertEquals("-7.5", strings[2]);
+
+		// no precision
+		floatDBR.setPrecision((short)-1);
+		strings = ((DBR_String)floatDBR.convert(DBRType.STRING)).getStringValue();
+		assertEquals("0.1", strings[0]);
+	}
+
+}
@@ -30,6 +30,11 @@ public class AllTests {
         //$JUnit-BEGIN$
         suite.addTestSuite(InetAddressUtilTest.class);
         suite.addTestSuite(HexDumpTest.class);
+        suite.addTestSuite(SearchTimerTest.class);
+        suite.addTestSuite(ConcurrentIntHashMapTest.class);
+        suite.addTestSuite(RingBufferTest.class);
+        suite.addTestSuite(SerialExecutorTest.class);
+        suite.addTestSuite(CountingBloomFilterTest.class);
         //$JUnit-END$
         return suite;
     }
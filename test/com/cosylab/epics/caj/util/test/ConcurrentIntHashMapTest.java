@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util.test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cosylab.epics.caj.util.ConcurrentIntHashMap;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class ConcurrentIntHashMapTest extends TestCase {
+
+   	/**
+	 * Constructor for ConcurrentIntHashMapTest.
+	 * @param methodName
+	 */
+	public ConcurrentIntHashMapTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * Basic map operations, including growth over initial capacity.
+	 */
+	public void testBasic() {
+		final int COUNT = 100000;
+		ConcurrentIntHashMap map = new ConcurrentIntHashMap(4);
+		assertTrue(map.isEmpty());
+		assertNull(map.get(1));
+
+		for (int i = 0; i < COUNT; i++)
+			assertNull(map.put(i, new Integer(i)));
+		assertEquals(COUNT, map.size());
+		assertFalse(map.isEmpty());
+
+		for (int i = 0; i < COUNT; i++)
+			assertEquals(i, ((Integer)map.get(i)).intValue());
+		assertNull(map.get(COUNT));
+		assertNull(map.get(-1));
+
+		assertEquals(new Integer(5), map.put(5, "five"));
+		assertEquals("five", map.get(5));
+		assertEquals(COUNT, map.size());
+
+		for (int i = 0; i < COUNT; i += 2)
+			assertNotNull(map.remove(i));
+		assertNull(map.remove(0));
+		assertEquals(COUNT / 2, map.size());
+		for (int i = 0; i < COUNT; i++)
+			assertEquals(i % 2 != 0, map.containsKey(i));
+
+		map.clear();
+		assertEquals(0, map.size());
+		assertTrue(map.isEmpty());
+		assertNull(map.get(1));
+	}
+
+	/**
+	 * Reservation using <code>null</code> values, <code>putIfAbsent</code>.
+	 */
+	public void testPutIfAbsent() {
+		ConcurrentIntHashMap map = new ConcurrentIntHashMap();
+		assertTrue(map.putIfAbsent(1, null));
+		assertTrue(map.containsKey(1));
+		assertNull(map.get(1));
+		assertEquals(1, map.size());
+
+		assertFalse(map.putIfAbsent(1, "one"));
+		assertNull(map.get(1));
+
+		assertNull(map.put(1, "one"));
+		assertEquals("one", map.get(1));
+		assertFalse(map.putIfAbsent(1, "uno"));
+		assertEquals("one", map.get(1));
+		assertEquals(1, map.size());
+	}
+
+	/**
+	 * <code>toArray</code> skips <code>null</code> values and keeps array component type.
+	 */
+	public void testToArray() {
+		ConcurrentIntHashMap map = new ConcurrentIntHashMap(1, 1);
+		map.put(1, "one");
+		map.put(2, null);
+		map.put(3, "three");
+
+		String[] arr = (String[])map.toArray(new String[map.size()]);
+		assertEquals(2, arr.length);
+		assertTrue(("one".equals(arr[0]) && "three".equals(arr[1])) ||
+				   ("one".equals(arr[1]) && "three".equals(arr[0])));
+
+		arr = (String[])map.toArray(new String[0]);
+		assertEquals(2, arr.length);
+
+		assertEquals(2, map.toArray(null).length);
+	}
+
+	/**
+	 * Lock-free readers never miss a stable mapping while writers churn other keys.
+	 */
+	public void testConcurrentAccess() throws InterruptedException {
+		final int STABLE = 10000;
+		final int WRITERS = 4;
+		final int READERS = 4;
+		final ConcurrentIntHashMap map = new ConcurrentIntHashMap();
+		for (int i = 0; i < STABLE; i++)
+			map.put(i, new Integer(i));
+
+		final AtomicBoolean done = new AtomicBoolean(false);
+		final AtomicInteger failures = new AtomicInteger(0);
+		Thread[] threads = new Thread[WRITERS + READERS];
+
+		for (int t = 0; t < WRITERS; t++) {
+			final int base = STABLE + t * 1000000;
+			threads[t] = new Thread() {
+				public void run() {
+					for (int r = 0; r < 20; r++) {
+						for (int i = 0; i < 10000; i++)
+							map.put(base + i, this);
+						for (int i = 0; i < 10000; i++)
+							if (map.remove(base + i) != this)
+								failures.incrementAndGet();
+					}
+				}
+			};
+		}
+
+		for (int t = WRITERS; t < threads.length; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					while (!done.get()) {
+						for (int i = 0; i < STABLE; i++) {
+							Object value = map.get(i);
+							if (value == null || ((Integer)value).intValue() != i)
+								failures.incrementAndGet();
+						}
+					}
+				}
+			};
+		}
+
+		for (int t = 0; t < threads.length; t++)
+			threads[t].start();
+		for (int t = 0; t < WRITERS; t++)
+			threads[t].join();
+		done.set(true);
+		for (int t = WRITERS; t < threads.length; t++)
+			threads[t].join();
+
+		assertEquals(0, failures.get());
+		assertEquals(STABLE, map.size());
+	}
+
+	/**
+	 * Concurrent <code>putIfAbsent</code> reservations are unique, reserved keys are skipped.
+	 */
+	public void testConcurrentReservation() throws InterruptedException {
+		final int THREADS = 8;
+		final int PER_THREAD = 20000;
+		final int RESERVED = THREADS * PER_THREAD / 10;
+		final ConcurrentIntHashMap map = new ConcurrentIntHashMap();
+		final AtomicInteger lastID = new AtomicInteger(0);
+
+		// every 10th key is already taken
+		for (int i = 1; i <= RESERVED; i++)
+			map.putIfAbsent(i * 10, null);
+
+		// the same ID generator pattern as CAJContext uses
+		Thread[] threads = new Thread[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			threads[t] = new Thread() {
+				public void run() {
+					for (int i = 0; i < PER_THREAD; i++) {
+						int id;
+						do {
+							id = lastID.incrementAndGet();
+						} while (!map.putIfAbsent(id, this));
+					}
+				}
+			};
+			threads[t].start();
+		}
+		for (int t = 0; t < THREADS; t++)
+			threads[t].join();
+
+		assertEquals(THREADS * PER_THREAD + RESERVED, map.size());
+		for (int i = 1; i <= RESERVED; i++)
+			assertNull(map.get(i * 10));
+		assertEquals(THREADS * PER_THREAD, map.toArray(null).length);
+	}
+
+}
@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util.test;
+
+import com.cosylab.epics.caj.util.CountingBloomFilter;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class CountingBloomFilterTest extends TestCase {
+
+	private static final int ELEMENTS = 100000;
+
+   	/**
+	 * Constructor for CountingBloomFilterTest.
+	 * @param methodName
+	 */
+	public CountingBloomFilterTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * No false negatives, false positive rate close to the desired one.
+	 */
+	public void testAddAndLookup() {
+		CountingBloomFilter filter = new CountingBloomFilter(ELEMENTS, 0.01);
+		assertFalse(filter.mightContain("IOC:ai1"));
+
+		for (int i = 0; i < ELEMENTS; i++)
+			filter.add("IOC:ai" + i);
+
+		for (int i = 0; i < ELEMENTS; i++)
+			assertTrue(filter.mightContain("IOC:ai" + i));
+
+		int falsePositives = 0;
+		for (int i = 0; i < ELEMENTS; i++)
+			if (filter.mightContain("OTHER:ai" + i))
+				falsePositives++;
+		assertTrue("false positive rate " + (double)falsePositives / ELEMENTS,
+				falsePositives < ELEMENTS * 0.02);
+	}
+
+	/**
+	 * Removal does not affect other elements.
+	 */
+	public void testRemove() {
+		CountingBloomFilter filter = new CountingBloomFilter(1000, 0.01);
+		for (int i = 0; i < 1000; i++)
+			filter.add("PV" + i);
+
+		for (int i = 0; i < 1000; i += 2)
+			filter.remove("PV" + i);
+
+		int stillContained = 0;
+		for (int i = 0; i < 1000; i++)
+		{
+			if (i % 2 == 1)
+				assertTrue(filter.mightContain("PV" + i));
+			else if (filter.mightContain("PV" + i))
+				stillContained++;
+		}
+		assertTrue(stillContained < 50);
+
+		for (int i = 1; i < 1000; i += 2)
+			filter.remove("PV" + i);
+		for (int i = 0; i < 1000; i++)
+			assertFalse(filter.mightContain("PV" + i));
+	}
+
+	/**
+	 * Saturated counters are never decremented.
+	 */
+	public void testSaturation() {
+		CountingBloomFilter filter = new CountingBloomFilter(10, 0.01);
+		for (int i = 0; i < 300; i++)
+			filter.add("SAME");
+		for (int i = 0; i < 299; i++)
+			filter.remove("SAME");
+		assertTrue(filter.mightContain("SAME"));
+		filter.remove("SAME");
+		// saturated, still reported (false positive)
+		assertTrue(filter.mightContain("SAME"));
+
+		filter.clear();
+		assertFalse(filter.mightContain("SAME"));
+	}
+
+	/**
+	 * Filter sizing.
+	 */
+	public void testSizing() {
+		CountingBloomFilter filter = new CountingBloomFilter(ELEMENTS, 0.01);
+		// ~9.6 counters per element, 7 hash functions
+		assertTrue(filter.size() >= ELEMENTS * 9 && filter.size() <= ELEMENTS * 10);
+		assertEquals(7, filter.getHashFunctions());
+
+		try {
+			new CountingBloomFilter(0, 0.01);
+			fail("expectedElements == 0 accepted");
+		} catch (IllegalArgumentException iae) {
+			// ok
+		}
+		try {
+			new CountingBloomFilter(10, 1.0);
+			fail("falsePositiveProbability == 1 accepted");
+		} catch (IllegalArgumentException iae) {
+			// ok
+		}
+	}
+
+}
@@ -0,0 +1,115 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util.test;
+
+import com.cosylab.epics.caj.util.RingBuffer;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class RingBufferTest extends TestCase {
+
+   	/**
+	 * Constructor for RingBufferTest.
+	 * @param methodName
+	 */
+	public RingBufferTest(String methodName) {
+		super(methodName);
+	}
+
+	/**
+	 * FIFO order, wrap-around.
+	 */
+	public void testFIFO() {
+		RingBuffer rb = new RingBuffer(3);
+		assertTrue(rb.isEmpty());
+		assertNull(rb.removeFirst());
+		assertNull(rb.getLast());
+
+		for (int r = 0; r < 10; r++) {
+			assertFalse(rb.addLast(new Integer(r)));
+			assertFalse(rb.addLast(new Integer(r + 100)));
+			assertEquals(2, rb.size());
+			assertEquals(new Integer(r + 100), rb.getLast());
+			assertEquals(new Integer(r), rb.removeFirst());
+			assertEquals(new Integer(r + 100), rb.removeFirst());
+			assertTrue(rb.isEmpty());
+		}
+	}
+
+	/**
+	 * The oldest elements are overwritten.
+	 */
+	public void testOverflow() {
+		RingBuffer rb = new RingBuffer(3);
+		for (int i = 0; i < 3; i++)
+			assertFalse(rb.addLast(new Integer(i)));
+		for (int i = 3; i < 7; i++)
+			assertTrue(rb.addLast(new Integer(i)));
+		assertEquals(3, rb.size());
+		assertEquals(new Integer(4), rb.removeFirst());
+		assertEquals(new Integer(5), rb.removeFirst());
+		assertEquals(new Integer(6), rb.removeFirst());
+		assertNull(rb.removeFirst());
+	}
+
+	/**
+	 * Keep last, clear.
+	 */
+	public void testKeepLastAndClear() {
+		RingBuffer rb = new RingBuffer(4);
+		assertEquals(0, rb.keepLast());
+		for (int i = 0; i < 6; i++)
+			rb.addLast(new Integer(i));
+		assertEquals(3, rb.keepLast());
+		assertEquals(1, rb.size());
+		assertEquals(new Integer(5), rb.getLast());
+
+		rb.clear();
+		assertTrue(rb.isEmpty());
+		rb.addLast("a");
+		assertEquals("a", rb.removeFirst());
+	}
+
+	/**
+	 * Capacity change keeps the newest elements.
+	 */
+	public void testSetCapacity() {
+		RingBuffer rb = new RingBuffer(4);
+		for (int i = 0; i < 6; i++)
+			rb.addLast(new Integer(i));
+
+		rb.setCapacity(8);
+		assertEquals(8, rb.capacity());
+		assertEquals(4, rb.size());
+		rb.addLast(new Integer(6));
+
+		rb.setCapacity(2);
+		assertEquals(2, rb.size());
+		assertEquals(new Integer(5), rb.removeFirst());
+		assertEquals(new Integer(6), rb.removeFirst());
+
+		try {
+			rb.setCapacity(0);
+			fail("capacity 0 accepted");
+		} catch (IllegalArgumentException iae) {
+			// ok
+		}
+	}
+
+}
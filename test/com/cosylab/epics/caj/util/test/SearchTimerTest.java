@@ -0,0 +1,234 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.cosylab.epics.caj.util.SearchTimer;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class SearchTimerTest extends TestCase {
+
+	private SearchTimer timer;
+
+	/**
+	 * Test task, records run times.
+	 */
+	private static class TestTask extends SearchTimer.TimerTask {
+
+		private final List<TestTask> order;
+		private final long rescheduleDelay;
+		private final int maxRuns;
+		private volatile int runs = 0;
+		private volatile long runTime = 0;
+
+		TestTask(List<TestTask> order, long rescheduleDelay, int maxRuns) {
+			this.order = order;
+			this.rescheduleDelay = rescheduleDelay;
+			this.maxRuns = maxRuns;
+		}
+
+		public long timeout() {
+			runTime = System.currentTimeMillis();
+			runs++;
+			if (order != null)
+				synchronized (order) {
+					order.add(this);
+				}
+			return (runs < maxRuns) ? rescheduleDelay : 0;
+		}
+	}
+
+   	/**
+	 * Constructor for SearchTimerTest.
+	 * @param methodName
+	 */
+	public SearchTimerTest(String methodName) {
+		super(methodName);
+	}
+
+	protected void setUp() throws Exception {
+		timer = new SearchTimer();
+	}
+
+	protected void tearDown() throws Exception {
+		timer.shutDown();
+	}
+
+	/**
+	 * Tasks are run in order, never early.
+	 */
+	public void testOrder() throws InterruptedException {
+		List<TestTask> order = new ArrayList<TestTask>();
+		TestTask t50 = new TestTask(order, 0, 1);
+		TestTask t10 = new TestTask(order, 0, 1);
+		TestTask t30 = new TestTask(order, 0, 1);
+
+		long start = System.currentTimeMillis();
+		timer.executeAfterDelay(50, t50);
+		timer.executeAfterDelay(10, t10);
+		timer.executeAfterDelay(30, t30);
+		assertEquals(3, timer.size());
+
+		Thread.sleep(300);
+
+		assertEquals(3, order.size());
+		assertSame(t10, order.get(0));
+		assertSame(t30, order.get(1));
+		assertSame(t50, order.get(2));
+		assertTrue(t10.runTime - start >= 10);
+		assertTrue(t30.runTime - start >= 30);
+		assertTrue(t50.runTime - start >= 50);
+		assertEquals(0, timer.size());
+	}
+
+	/**
+	 * Cancelled task is removed immediately and never run.
+	 */
+	public void testCancel() throws InterruptedException {
+		TestTask task = new TestTask(null, 0, 1);
+		timer.executeAfterDelay(20, task);
+		assertEquals(1, timer.size());
+		SearchTimer.cancel(task);
+		assertEquals(0, timer.size());
+
+		Thread.sleep(100);
+		assertEquals(0, task.runs);
+	}
+
+	/**
+	 * Periodic (rescheduled) task, also cancellation of a periodic task.
+	 */
+	public void testReschedule() throws InterruptedException {
+		TestTask task = new TestTask(null, 10, 3);
+		timer.executeAfterDelay(0, task);
+
+		Thread.sleep(300);
+		assertEquals(3, task.runs);
+		assertEquals(0, timer.size());
+
+		TestTask periodic = new TestTask(null, 10, Integer.MAX_VALUE);
+		timer.executeAfterDelay(0, periodic);
+		Thread.sleep(100);
+		SearchTimer.cancel(periodic);
+		int runs = periodic.runs;
+		assertTrue(runs > 1);
+		Thread.sleep(100);
+		assertTrue(periodic.runs <= runs + 1);
+		assertEquals(0, timer.size());
+	}
+
+	/**
+	 * Delays longer than wheel span.
+	 */
+	public void testLongDelay() throws InterruptedException {
+		timer.shutDown();
+		timer = new SearchTimer(1, 16);
+
+		List<TestTask> order = new ArrayList<TestTask>();
+		TestTask t100 = new TestTask(order, 0, 1);
+		TestTask t5 = new TestTask(order, 0, 1);
+
+		long start = System.currentTimeMillis();
+		timer.executeAfterDelay(100, t100);
+		timer.executeAfterDelay(5, t5);
+
+		Thread.sleep(50);
+		assertEquals(1, order.size());
+		assertSame(t5, order.get(0));
+
+		Thread.sleep(200);
+		assertEquals(2, order.size());
+		assertTrue(t100.runTime - start >= 100);
+	}
+
+	/**
+	 * Rescheduling of all the tasks, spread over the period.
+	 */
+	public void testRescheduleAllSpread() throws InterruptedException {
+		final int COUNT = 100;
+		List<TestTask> order = new ArrayList<TestTask>();
+		TestTask[] tasks = new TestTask[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			tasks[i] = new TestTask(order, 0, 1);
+			timer.executeAfterDelay(60000, tasks[i]);
+		}
+
+		// early task is not postponed
+		TestTask early = new TestTask(order, 0, 1);
+		timer.executeAfterDelay(10, early);
+
+		long start = System.currentTimeMillis();
+		timer.rescheduleAllAfterDelay(0, 200);
+		for (int i = 0; i < COUNT; i++)
+			assertEquals(0, tasks[i].getDelay());
+
+		Thread.sleep(500);
+		assertEquals(COUNT + 1, order.size());
+
+		long first = Long.MAX_VALUE, last = 0;
+		for (int i = 0; i < COUNT; i++) {
+			first = Math.min(first, tasks[i].runTime);
+			last = Math.max(last, tasks[i].runTime);
+		}
+		assertTrue(first - start < 100);
+		assertTrue(last - first >= 100);
+		assertTrue(early.runTime - start < 100);
+	}
+
+	/**
+	 * Test hasNext().
+	 */
+	public void testHasNext() throws InterruptedException {
+		assertFalse(timer.hasNext(100));
+
+		TestTask task = new TestTask(null, 0, 1);
+		timer.executeAfterDelay(50, task);
+		assertFalse(timer.hasNext(10));
+		assertTrue(timer.hasNext(100));
+
+		SearchTimer.cancel(task);
+		assertFalse(timer.hasNext(100));
+	}
+
+	/**
+	 * Scheduling and cancellation of many tasks (O(1) operations).
+	 */
+	public void testManyTasks() throws InterruptedException {
+		final int COUNT = 200000;
+		TestTask[] tasks = new TestTask[COUNT];
+		for (int i = 0; i < COUNT; i++) {
+			tasks[i] = new TestTask(null, 0, 1);
+			timer.executeAfterDelay(1000 + i % 100000, tasks[i]);
+		}
+		assertEquals(COUNT, timer.size());
+
+		timer.rescheduleAllAfterDelay(200, 100);
+		for (int i = 0; i < COUNT; i += 2)
+			SearchTimer.cancel(tasks[i]);
+
+		Thread.sleep(1000);
+		assertEquals(0, timer.size());
+		for (int i = 0; i < COUNT; i++)
+			assertEquals(i % 2 == 0 ? 0 : 1, tasks[i].runs);
+	}
+
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2004 by Cosylab
+ *
+ * The full license specifying the redistribution, modification, usage and other
+ * rights and obligations is included with the distribution of this project in
+ * the file "LICENSE-CAJ". If the license is not included visit Cosylab web site,
+ * <http://www.cosylab.com>.
+ *
+ * THIS SOFTWARE IS PROVIDED AS-IS WITHOUT WARRANTY OF ANY KIND, NOT EVEN THE
+ * IMPLIED WARRANTY OF MERCHANTABILITY. THE AUTHOR OF THIS SOFTWARE, ASSUMES
+ * _NO_ RESPONSIBILITY FOR ANY CONSEQUENCE RESULTING FROM THE USE, MODIFICATION,
+ * OR REDISTRIBUTION OF THIS SOFTWARE.
+ */
+
+package com.cosylab.epics.caj.util.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import com.cosylab.epics.caj.util.SerialExecutor;
+
+import junit.framework.TestCase;
+
+/**
+ * @author <a href="mailto:matej.sekoranjaATcosylab.com">Matej Sekoranja</a>
+ * @version $id$
+ */
+public class SerialExecutorTest extends TestCase {
+
+	private ExecutorService pool;
+
+   	/**
+	 * Constructor for SerialExecutorTest.
+	 * @param methodName
+	 */
+	public SerialExecutorTest(String methodName) {
+		super(methodName);
+	}
+
+	protected void setUp() throws Exception {
+		pool = Executors.newFixedThreadPool(4);
+	}
+
+	protected void tearDown() throws Exception {
+		pool.shutdownNow();
+	}
+
+	/**
+	 * Tasks of many serial executors sharing a small pool, each executor in order and never concurrently.
+	 */
+	public void testOrderAndExclusion() throws InterruptedException {
+		final int EXECUTORS = 50;
+		final int TASKS = 1000;
+		final CountDownLatch done = new CountDownLatch(EXECUTORS * TASKS);
+		final AtomicInteger failures = new AtomicInteger(0);
+
+		for (int e = 0; e < EXECUTORS; e++) {
+			SerialExecutor executor = new SerialExecutor(pool, 16, null);
+			final int[] last = new int[] { -1 };
+			final AtomicInteger running = new AtomicInteger(0);
+			for (int t = 0; t < TASKS; t++) {
+				final int seq = t;
+				executor.execute(new Runnable() {
+					public void run() {
+						if (running.incrementAndGet() != 1)
+							failures.incrementAndGet();
+						if (last[0] != seq - 1)
+							failures.incrementAndGet();
+						last[0] = seq;
+						running.decrementAndGet();
+						done.countDown();
+					}
+				});
+			}
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(0, failures.get());
+	}
+
+	/**
+	 * Suspended executor keeps tasks until resumed.
+	 */
+	public void testSuspendResume() throws InterruptedException {
+		final List<Integer> order = new ArrayList<Integer>();
+		SerialExecutor executor = new SerialExecutor(pool, null);
+		executor.suspend();
+		for (int i = 0; i < 10; i++) {
+			final Integer value = new Integer(i);
+			executor.execute(new Runnable() {
+				public void run() {
+					synchronized (order) {
+						order.add(value);
+					}
+				}
+			});
+		}
+
+		Thread.sleep(100);
+		synchronized (order) {
+			assertEquals(0, order.size());
+		}
+		assertEquals(10, executor.size());
+
+		executor.resume();
+		Thread.sleep(100);
+		synchronized (order) {
+			assertEquals(10, order.size());
+			for (int i = 0; i < 10; i++)
+				assertEquals(i, order.get(i).intValue());
+		}
+		assertEquals(0, executor.size());
+	}
+
+	/**
+	 * Exception in a task does not stop the executor.
+	 */
+	public void testTaskException() throws InterruptedException {
+		final CountDownLatch done = new CountDownLatch(1);
+		SerialExecutor executor = new SerialExecutor(pool, null);
+		executor.execute(new Runnable() {
+			public void run() {
+				throw new RuntimeException("test");
+			}
+		});
+		executor.execute(new Runnable() {
+			public void run() {
+				done.countDown();
+			}
+		});
+		assertTrue(done.await(3, TimeUnit.SECONDS));
+	}
+
+	/**
+	 * Shutdown discards queued tasks and rejects new ones.
+	 */
+	public void testShutdown() throws InterruptedException {
+		final AtomicInteger runs = new AtomicInteger(0);
+		SerialExecutor executor = new SerialExecutor(pool, null);
+		executor.suspend();
+		executor.execute(new Runnable() {
+			public void run() {
+				runs.incrementAndGet();
+			}
+		});
+		executor.shutdown();
+		executor.resume();
+
+		try {
+			executor.execute(new Runnable() {
+				public void run() {
+					runs.incrementAndGet();
+				}
+			});
+			fail("task accepted after shutdown");
+		} catch (RejectedExecutionException ree) {
+			// ok
+		}
+
+		Thread.sleep(100);
+		assertEquals(0, runs.get());
+		assertEquals(0, executor.size());
+	}
+
+}